@@ -0,0 +1,807 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+
+/**
+ * Generates the source code of an object builder for a specific class.
+ * <p>
+ * The generated code compares {@link org.dmfs.xmlobjects.QualifiedName}s by identity, since they are unique. It uses fully qualified class names, so it
+ * doesn't need to manage imports.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class BuilderGenerator
+{
+	/**
+	 * The suffix of the names of generated builders.
+	 */
+	private final static String BUILDER_SUFFIX = "ObjectBuilder";
+
+	/**
+	 * The boxed number types, they are parsed using their <code>valueOf(String)</code> method.
+	 */
+	private final static String[] NUMBER_TYPES = { "java.lang.Integer", "java.lang.Byte", "java.lang.Short", "java.lang.Long", "java.lang.Float",
+		"java.lang.Double" };
+
+	/**
+	 * The collections to instantiate for abstract collection types, in the order of {@link org.dmfs.xmlobjects.builder.reflection.ChildAssigner}.
+	 */
+	private final static String[] COLLECTION_IMPLEMENTATIONS = { "java.util.ArrayList", "java.util.LinkedHashSet", "java.util.TreeSet",
+		"java.util.LinkedList" };
+
+	/**
+	 * A mapped field.
+	 */
+	private final static class MappedField
+	{
+		public final VariableElement field;
+
+		/**
+		 * The type of the field as seen by the builder.
+		 */
+		public final TypeMirror type;
+
+		/**
+		 * The namespace of the attribute or element, <code>null</code> for text fields.
+		 */
+		public final String namespace;
+
+		/**
+		 * The name of the attribute or element, <code>null</code> for text fields.
+		 */
+		public final String name;
+
+		/**
+		 * The name of the constant that holds the {@link org.dmfs.xmlobjects.QualifiedName}.
+		 */
+		public final String constant;
+
+
+		public MappedField(VariableElement field, TypeMirror type, String namespace, String name, String constant)
+		{
+			this.field = field;
+			this.type = type;
+			this.namespace = namespace;
+			this.name = name;
+			this.constant = constant;
+		}
+	}
+
+	private final ProcessingEnvironment mEnvironment;
+	private final Types mTypes;
+	private final TypeElement mType;
+	private final String mTypeName;
+	private final String mPackageName;
+	private final String mBuilderName;
+
+	/**
+	 * Whether the class has type parameters. The builder of a generic class works on the raw type.
+	 */
+	private final boolean mGeneric;
+
+	private final List<MappedField> mAttributes = new ArrayList<MappedField>();
+	private final List<MappedField> mElements = new ArrayList<MappedField>();
+	private final List<MappedField> mTexts = new ArrayList<MappedField>();
+
+	/**
+	 * All element and text fields in declaration order, that's the order they are serialized in.
+	 */
+	private final List<MappedField> mChildren = new ArrayList<MappedField>();
+
+
+	public BuilderGenerator(ProcessingEnvironment environment, TypeElement type)
+	{
+		mEnvironment = environment;
+		mTypes = environment.getTypeUtils();
+		mType = type;
+		mTypeName = type.getQualifiedName().toString();
+		mPackageName = environment.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+
+		// nested classes are joined with an underscore
+		String builderName = type.getSimpleName().toString();
+		for (javax.lang.model.element.Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement; enclosing = enclosing
+			.getEnclosingElement())
+		{
+			builderName = enclosing.getSimpleName() + "_" + builderName;
+		}
+		mBuilderName = builderName + BUILDER_SUFFIX;
+		mGeneric = !type.getTypeParameters().isEmpty();
+	}
+
+
+	/**
+	 * Returns the fully qualified name of the builder.
+	 */
+	public String getQualifiedBuilderName()
+	{
+		return mPackageName.length() == 0 ? mBuilderName : mPackageName + "." + mBuilderName;
+	}
+
+
+	/**
+	 * Returns whether a builder can be generated for the class. Abstract classes are skipped, their fields are mapped by the builders of their subclasses.
+	 */
+	public boolean isConcrete()
+	{
+		return mType.getKind() == ElementKind.CLASS && !mType.getModifiers().contains(Modifier.ABSTRACT);
+	}
+
+
+	/**
+	 * Collects all mapped fields of the class and its super classes and checks that the builder can access them.
+	 * 
+	 * @return <code>false</code> if a builder can not be generated, in which case a warning has been reported.
+	 */
+	public boolean collectFields()
+	{
+		boolean valid = checkClass();
+
+		TypeElement type = mType;
+		while (type != null && !"java.lang.Object".equals(type.getQualifiedName().toString()))
+		{
+			for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+			{
+				valid &= collectField(field, type);
+			}
+
+			TypeMirror superclass = type.getSuperclass();
+			type = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) mTypes.asElement(superclass) : null;
+		}
+		return valid;
+	}
+
+
+	private boolean checkClass()
+	{
+		TypeElement type = mType;
+		Set<Modifier> modifiers = type.getModifiers();
+		if (type.getKind() != ElementKind.CLASS || modifiers.contains(Modifier.PRIVATE)
+			|| type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC) || type.getNestingKind() == NestingKind.LOCAL
+			|| type.getNestingKind() == NestingKind.ANONYMOUS)
+		{
+			skip("generated builders require a concrete top level or static nested class that is not private", type);
+			return false;
+		}
+
+		List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+		for (ExecutableElement constructor : constructors)
+		{
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE))
+			{
+				return true;
+			}
+		}
+		skip("generated builders require a default constructor that is not private", type);
+		return false;
+	}
+
+
+	private boolean collectField(VariableElement field, TypeElement declaringType)
+	{
+		AnnotationMirror attribute = getAnnotation(field, ObjectBuilderProcessor.ATTRIBUTE);
+		AnnotationMirror element = getAnnotation(field, ObjectBuilderProcessor.ELEMENT);
+		AnnotationMirror text = getAnnotation(field, ObjectBuilderProcessor.TEXT);
+
+		if (attribute == null && element == null && text == null)
+		{
+			return true;
+		}
+
+		Set<Modifier> modifiers = field.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL))
+		{
+			skip("fields mapped by generated builders must not be private, static or final", field);
+			return false;
+		}
+
+		if (!modifiers.contains(Modifier.PUBLIC)
+			&& !mPackageName.equals(mEnvironment.getElementUtils().getPackageOf(declaringType).getQualifiedName().toString()))
+		{
+			skip("inherited fields mapped by generated builders must be public or in the same package", field);
+			return false;
+		}
+
+		if (attribute != null)
+		{
+			// attributes take precedence, that's what ReflectionObjectBuilder does
+			mAttributes.add(mappedField(field, attribute, "ATTRIBUTE_" + mAttributes.size()));
+			return true;
+		}
+
+		if (element != null)
+		{
+			MappedField mapped = mappedField(field, element, "ELEMENT_" + mElements.size());
+			mElements.add(mapped);
+			mChildren.add(mapped);
+		}
+
+		if (text != null)
+		{
+			MappedField mapped = new MappedField(field, fieldType(field), null, null, null);
+			mTexts.add(mapped);
+			mChildren.add(mapped);
+		}
+		return true;
+	}
+
+
+	/**
+	 * Generates the source code of the builder.
+	 */
+	public String generate()
+	{
+		StringBuilder out = new StringBuilder(4096);
+		if (mPackageName.length() > 0)
+		{
+			out.append("package ").append(mPackageName).append(";\n\n");
+		}
+
+		out.append("import java.io.IOException;\n\n");
+		out.append("import org.dmfs.xmlobjects.ElementDescriptor;\n");
+		out.append("import org.dmfs.xmlobjects.QualifiedName;\n");
+		out.append("import org.dmfs.xmlobjects.XmlContext;\n");
+		out.append("import org.dmfs.xmlobjects.builder.AbstractObjectBuilder;\n");
+		out.append("import org.dmfs.xmlobjects.builder.reflection.GeneratedBuilder;\n");
+		out.append("import org.dmfs.xmlobjects.pull.ParserContext;\n");
+		out.append("import org.dmfs.xmlobjects.pull.Recyclable;\n");
+		out.append("import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;\n");
+		out.append("import org.dmfs.xmlobjects.serializer.SerializerContext;\n");
+		out.append("import org.dmfs.xmlobjects.serializer.SerializerException;\n");
+		out.append("import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlAttributeWriter;\n");
+		out.append("import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;\n\n\n");
+
+		out.append("/**\n * An object builder for {@link ").append(mTypeName).append("}.\n * <p>\n");
+		out.append(" * This class has been generated by ").append(ObjectBuilderProcessor.class.getName()).append(", don't edit it.\n * </p>\n */\n");
+		out.append("@GeneratedBuilder(").append(mTypeName).append(".class)\n");
+		if (mGeneric)
+		{
+			// the builder works on the raw type, it can't know the type arguments
+			out.append("@SuppressWarnings(\"rawtypes\")\n");
+		}
+		out.append("public final class ").append(mBuilderName).append(" extends AbstractObjectBuilder<").append(mTypeName).append(">\n{\n");
+		out.append("\tpublic final static ").append(mBuilderName).append(" INSTANCE = new ").append(mBuilderName).append("();\n\n");
+
+		for (MappedField field : mAttributes)
+		{
+			appendConstant(out, field);
+		}
+		for (MappedField field : mElements)
+		{
+			appendConstant(out, field);
+		}
+
+		out.append("\n\n\tprivate ").append(mBuilderName).append("()\n\t{\n\t}\n\n\n");
+
+		appendGet(out);
+		appendUpdateAttribute(out);
+		appendUpdateText(out);
+		appendUpdateChild(out);
+		appendWriteAttributes(out);
+		appendWriteChildren(out);
+
+		// remove the blank lines after the last method
+		out.setLength(out.length() - 2);
+		out.append("}\n");
+		return out.toString();
+	}
+
+
+	private void appendConstant(StringBuilder out, MappedField field)
+	{
+		out.append("\tprivate final static QualifiedName ").append(field.constant).append(" = QualifiedName.get(").append(literal(field.namespace))
+			.append(", ").append(literal(field.name)).append(");\n");
+	}
+
+
+	private void appendGet(StringBuilder out)
+	{
+		out.append("\t@Override\n");
+		out.append("\tpublic ").append(mTypeName).append(" get(ElementDescriptor<").append(mTypeName).append("> descriptor, ").append(mTypeName)
+			.append(" recycle, ParserContext context) throws XmlObjectPullParserException\n\t{\n");
+		out.append("\t\tif (recycle instanceof Recyclable)\n\t\t{\n\t\t\t((Recyclable) recycle).recycle();\n\t\t\treturn recycle;\n\t\t}\n");
+		out.append("\t\treturn new ").append(mTypeName).append("();\n\t}\n\n\n");
+	}
+
+
+	private void appendUpdateAttribute(StringBuilder out)
+	{
+		if (mAttributes.isEmpty())
+		{
+			return;
+		}
+
+		out.append("\t@Override\n");
+		out.append("\tpublic ").append(mTypeName).append(" update(ElementDescriptor<").append(mTypeName).append("> descriptor, ").append(mTypeName)
+			.append(" object, QualifiedName attribute, String value, ParserContext context)\n\t\tthrows XmlObjectPullParserException\n\t{\n");
+		String keyword = "if";
+		for (MappedField field : mAttributes)
+		{
+			out.append("\t\t").append(keyword).append(" (attribute == ").append(field.constant).append(")\n\t\t{\n");
+			appendAssignment(out, "\t\t\t", field, "value");
+			out.append("\t\t}\n");
+			keyword = "else if";
+		}
+		out.append("\t\treturn object;\n\t}\n\n\n");
+	}
+
+
+	private void appendUpdateText(StringBuilder out)
+	{
+		if (mTexts.isEmpty())
+		{
+			return;
+		}
+
+		out.append("\t@Override\n");
+		out.append("\tpublic ").append(mTypeName).append(" update(ElementDescriptor<").append(mTypeName).append("> descriptor, ").append(mTypeName)
+			.append(" object, String text, ParserContext context) throws XmlObjectPullParserException\n\t{\n");
+		for (MappedField field : mTexts)
+		{
+			appendAssignment(out, "\t\t", field, "text");
+		}
+		out.append("\t\treturn object;\n\t}\n\n\n");
+	}
+
+
+	private void appendUpdateChild(StringBuilder out)
+	{
+		if (mElements.isEmpty())
+		{
+			return;
+		}
+
+		out.append("\t@SuppressWarnings(\"unchecked\")\n\t@Override\n");
+		out.append("\tpublic <V> ").append(mTypeName).append(" update(ElementDescriptor<").append(mTypeName).append("> descriptor, ").append(mTypeName)
+			.append(" object, ElementDescriptor<V> childDescriptor, V child,\n\t\tParserContext context) throws XmlObjectPullParserException\n\t{\n");
+		out.append("\t\tQualifiedName name = childDescriptor.qualifiedName;\n");
+		String keyword = "if";
+		for (MappedField field : mElements)
+		{
+			TypeMirror type = field.type;
+			String fieldName = field.field.getSimpleName().toString();
+
+			if (isCollection(type))
+			{
+				out.append("\t\t").append(keyword).append(" (name == ").append(field.constant).append(")\n\t\t{\n");
+				String implementation = getCollectionImplementation(type);
+				if (implementation != null)
+				{
+					out.append("\t\t\tif (object.").append(fieldName).append(" == null)\n\t\t\t{\n");
+					if (implementation.equals(type.toString()))
+					{
+						out.append("\t\t\t\tobject.").append(fieldName).append(" = new ").append(type).append("();\n\t\t\t}\n");
+					}
+					else
+					{
+						out.append("\t\t\t\tobject.").append(fieldName).append(" = (").append(type).append(") (java.util.Collection<?>) new ").append(implementation)
+							.append("<Object>();\n\t\t\t}\n");
+					}
+					out.append("\t\t\t((java.util.Collection<Object>) (java.util.Collection<?>) object.").append(fieldName).append(").add(child);\n");
+				}
+				else
+				{
+					// we can't create the collection, but we still can add to existing collections
+					out.append("\t\t\tif (object.").append(fieldName).append(" != null)\n\t\t\t{\n");
+					out.append("\t\t\t\t((java.util.Collection<Object>) (java.util.Collection<?>) object.").append(fieldName).append(").add(child);\n\t\t\t}\n");
+				}
+				out.append("\t\t}\n");
+			}
+			else if (type.getKind() == TypeKind.DECLARED)
+			{
+				out.append("\t\t").append(keyword).append(" (name == ").append(field.constant).append(")\n\t\t{\n");
+				out.append("\t\t\tif (child instanceof ").append(mTypes.erasure(type)).append(")\n\t\t\t{\n");
+				out.append("\t\t\t\tobject.").append(fieldName).append(" = (").append(type).append(") child;\n\t\t\t}\n");
+				out.append("\t\t}\n");
+			}
+			else if (type.getKind().isPrimitive())
+			{
+				// primitive fields are assigned if the child is an instance of the wrapper class, like ReflectionObjectBuilder does
+				String wrapper = mTypes.boxedClass((PrimitiveType) type).getQualifiedName().toString();
+				out.append("\t\t").append(keyword).append(" (name == ").append(field.constant).append(")\n\t\t{\n");
+				out.append("\t\t\tif (child instanceof ").append(wrapper).append(")\n\t\t\t{\n");
+				out.append("\t\t\t\tobject.").append(fieldName).append(" = (").append(wrapper).append(") child;\n\t\t\t}\n");
+				out.append("\t\t}\n");
+			}
+			else
+			{
+				warning("child elements can not be assigned to fields of type " + type, field.field);
+				continue;
+			}
+			keyword = "else if";
+		}
+
+		// children that are not assigned to a field are dropped
+		if ("if".equals(keyword))
+		{
+			out.append("\t\tcontext.releaseChild();\n");
+		}
+		else
+		{
+			out.append("\t\telse\n\t\t{\n\t\t\tcontext.releaseChild();\n\t\t}\n");
+		}
+		out.append("\t\treturn object;\n\t}\n\n\n");
+	}
+
+
+	private void appendWriteAttributes(StringBuilder out)
+	{
+		if (mAttributes.isEmpty())
+		{
+			return;
+		}
+
+		out.append("\t@Override\n");
+		out.append("\tpublic void writeAttributes(ElementDescriptor<").append(mTypeName).append("> descriptor, ").append(mTypeName)
+			.append(" object, IXmlAttributeWriter attributeWriter, SerializerContext context)\n\t\tthrows SerializerException, IOException\n\t{\n");
+		for (MappedField field : mAttributes)
+		{
+			String fieldName = field.field.getSimpleName().toString();
+			if (field.type.getKind().isPrimitive())
+			{
+				out.append("\t\tattributeWriter.writeAttribute(").append(field.constant).append(", String.valueOf(object.").append(fieldName)
+					.append("), context);\n");
+			}
+			else
+			{
+				out.append("\t\tif (object.").append(fieldName).append(" != null)\n\t\t{\n");
+				out.append("\t\t\tattributeWriter.writeAttribute(").append(field.constant).append(", object.").append(fieldName)
+					.append(".toString(), context);\n\t\t}\n");
+			}
+		}
+		out.append("\t}\n\n\n");
+	}
+
+
+	private void appendWriteChildren(StringBuilder out)
+	{
+		if (mChildren.isEmpty())
+		{
+			return;
+		}
+
+		out.append("\t@SuppressWarnings(\"unchecked\")\n\t@Override\n");
+		out.append("\tpublic void writeChildren(ElementDescriptor<").append(mTypeName).append("> descriptor, ").append(mTypeName)
+			.append(" object, IXmlChildWriter childWriter, SerializerContext context) throws SerializerException,\n\t\tIOException\n\t{\n");
+		if (!mElements.isEmpty())
+		{
+			out.append("\t\tXmlContext xmlContext = context.getXmlContext();\n");
+		}
+		for (MappedField field : mChildren)
+		{
+			String fieldName = field.field.getSimpleName().toString();
+			TypeMirror type = field.type;
+			String descriptor = "(ElementDescriptor<Object>) ElementDescriptor.get(" + field.constant + ", descriptor, xmlContext)";
+			if (field.name == null)
+			{
+				if (type.getKind().isPrimitive())
+				{
+					out.append("\t\tchildWriter.writeText(String.valueOf(object.").append(fieldName).append("), context);\n");
+				}
+				else
+				{
+					out.append("\t\tif (object.").append(fieldName).append(" != null)\n\t\t{\n");
+					out.append("\t\t\tchildWriter.writeText(object.").append(fieldName).append(".toString(), context);\n\t\t}\n");
+				}
+			}
+			else if (isCollection(type))
+			{
+				out.append("\t\tif (object.").append(fieldName).append(" != null)\n\t\t{\n");
+				out.append("\t\t\tElementDescriptor<Object> childDescriptor = ").append(descriptor).append(";\n");
+				out.append("\t\t\tfor (Object child : object.").append(fieldName).append(")\n\t\t\t{\n");
+				out.append("\t\t\t\tchildWriter.writeChild(childDescriptor, child, context);\n\t\t\t}\n\t\t}\n");
+			}
+			else
+			{
+				out.append("\t\tchildWriter.writeChild(").append(descriptor).append(", object.").append(fieldName).append(", context);\n");
+			}
+		}
+		out.append("\t}\n\n\n");
+	}
+
+
+	/**
+	 * Appends the statements that convert a text value and assign it to the given field, following the rules of
+	 * {@link org.dmfs.xmlobjects.builder.reflection.ReflectionObjectBuilder}.
+	 */
+	private void appendAssignment(StringBuilder out, String indent, MappedField field, String value)
+	{
+		String target = "object." + field.field.getSimpleName();
+		TypeMirror type = field.type;
+		String typeName = mTypes.erasure(type).toString();
+
+		switch (type.getKind())
+		{
+			case INT:
+				appendNumberAssignment(out, indent, target, "Integer.parseInt(" + value + ")", value, type);
+				return;
+			case BYTE:
+				appendNumberAssignment(out, indent, target, "Byte.parseByte(" + value + ")", value, type);
+				return;
+			case SHORT:
+				appendNumberAssignment(out, indent, target, "Short.parseShort(" + value + ")", value, type);
+				return;
+			case LONG:
+				appendNumberAssignment(out, indent, target, "Long.parseLong(" + value + ")", value, type);
+				return;
+			case FLOAT:
+				appendNumberAssignment(out, indent, target, "Float.parseFloat(" + value + ")", value, type);
+				return;
+			case DOUBLE:
+				appendNumberAssignment(out, indent, target, "Double.parseDouble(" + value + ")", value, type);
+				return;
+			case BOOLEAN:
+				out.append(indent).append(target).append(" = Boolean.parseBoolean(").append(value).append(");\n");
+				return;
+			case CHAR:
+				out.append(indent).append("if (").append(value).append(" != null && ").append(value).append(".length() > 0)\n");
+				out.append(indent).append("{\n");
+				out.append(indent).append('\t').append(target).append(" = ").append(value).append(".charAt(0);\n");
+				out.append(indent).append("}\n");
+				return;
+			case DECLARED:
+				break;
+			default:
+				warning("text values can not be assigned to fields of type " + type, field.field);
+				return;
+		}
+
+		if ("java.lang.String".equals(typeName))
+		{
+			out.append(indent).append(target).append(" = ").append(value).append(";\n");
+		}
+		else if ("java.lang.Boolean".equals(typeName))
+		{
+			out.append(indent).append(target).append(" = Boolean.valueOf(").append(value).append(");\n");
+		}
+		else if ("java.lang.Character".equals(typeName))
+		{
+			out.append(indent).append(target).append(" = ").append(value).append(" != null && ").append(value).append(".length() > 0 ? Character.valueOf(")
+				.append(value).append(".charAt(0)) : null;\n");
+		}
+		else if (isNumberType(typeName))
+		{
+			appendNumberAssignment(out, indent, target, typeName + ".valueOf(" + value + ")", value, type);
+		}
+		else if ("java.net.URI".equals(typeName))
+		{
+			out.append(indent).append("try\n").append(indent).append("{\n");
+			out.append(indent).append('\t').append(target).append(" = new java.net.URI(").append(value).append(");\n");
+			out.append(indent).append("}\n").append(indent).append("catch (java.net.URISyntaxException e)\n").append(indent).append("{\n");
+			out.append(indent).append("\tthrow new XmlObjectPullParserException(\"can not parse URI in '\" + ").append(value).append(" + \"'\", e);\n");
+			out.append(indent).append("}\n");
+		}
+		else if ("java.lang.Class".equals(typeName))
+		{
+			out.append(indent).append("if (").append(value).append(" != null)\n").append(indent).append("{\n");
+			out.append(indent).append("\ttry\n").append(indent).append("\t{\n");
+			out.append(indent).append("\t\t").append(target).append(" = Class.forName(").append(value).append(");\n");
+			out.append(indent).append("\t}\n").append(indent).append("\tcatch (ClassNotFoundException e)\n").append(indent).append("\t{\n");
+			out.append(indent).append("\t\t// ignore\n");
+			out.append(indent).append("\t}\n").append(indent).append("}\n");
+		}
+		else if (mTypes.asElement(type).getKind() == ElementKind.ENUM)
+		{
+			// unknown values are ignored, like ReflectionObjectBuilder does
+			out.append(indent).append("try\n").append(indent).append("{\n");
+			out.append(indent).append('\t').append(target).append(" = ").append(typeName).append(".valueOf(").append(value).append(");\n");
+			out.append(indent).append("}\n").append(indent).append("catch (IllegalArgumentException e)\n").append(indent).append("{\n");
+			out.append(indent).append("\t// ignore\n");
+			out.append(indent).append("}\n");
+		}
+		else
+		{
+			warning("text values can not be assigned to fields of type " + type, field.field);
+		}
+	}
+
+
+	private void appendNumberAssignment(StringBuilder out, String indent, String target, String expression, String value, TypeMirror type)
+	{
+		out.append(indent).append("try\n").append(indent).append("{\n");
+		out.append(indent).append('\t').append(target).append(" = ").append(expression).append(";\n");
+		out.append(indent).append("}\n").append(indent).append("catch (NumberFormatException e)\n").append(indent).append("{\n");
+		out.append(indent).append("\tthrow new XmlObjectPullParserException(\"can not assign '\" + ").append(value).append(" + \"' to a field of type ")
+			.append(type).append("\", e);\n");
+		out.append(indent).append("}\n");
+	}
+
+
+	private boolean isNumberType(String typeName)
+	{
+		for (String numberType : NUMBER_TYPES)
+		{
+			if (numberType.equals(typeName))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Returns whether the given type is a {@link java.util.Collection}.
+	 */
+	private boolean isCollection(TypeMirror type)
+	{
+		if (type.getKind() != TypeKind.DECLARED)
+		{
+			return false;
+		}
+
+		TypeElement collection = mEnvironment.getElementUtils().getTypeElement("java.util.Collection");
+		return mTypes.isAssignable(mTypes.erasure(type), mTypes.erasure(collection.asType()));
+	}
+
+
+	/**
+	 * Returns the name of the class to instantiate for the given collection type or <code>null</code> if there is none. This follows the rules of
+	 * {@link org.dmfs.xmlobjects.builder.reflection.ChildAssigner}.
+	 */
+	private String getCollectionImplementation(TypeMirror type)
+	{
+		TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+		if (element.getKind() == ElementKind.CLASS && !element.getModifiers().contains(Modifier.ABSTRACT))
+		{
+			for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements()))
+			{
+				if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC))
+				{
+					return type.toString();
+				}
+			}
+			return null;
+		}
+
+		TypeMirror erasure = mTypes.erasure(type);
+		for (String implementation : COLLECTION_IMPLEMENTATIONS)
+		{
+			TypeElement implementationElement = mEnvironment.getElementUtils().getTypeElement(implementation);
+			if (mTypes.isAssignable(mTypes.erasure(implementationElement.asType()), erasure))
+			{
+				return implementation;
+			}
+		}
+		return null;
+	}
+
+
+	private MappedField mappedField(VariableElement field, AnnotationMirror annotation, String constant)
+	{
+		String namespace = getStringValue(annotation, "namespace");
+		String name = getStringValue(annotation, "name");
+		if (name.length() == 0)
+		{
+			name = field.getSimpleName().toString();
+		}
+		return new MappedField(field, fieldType(field), namespace.length() == 0 ? null : namespace, name, constant);
+	}
+
+
+	/**
+	 * Returns the type of the given field as seen by the builder. Type variables of super classes are resolved. The builder of a generic class works on the
+	 * raw type, so fields have their erased types there, and remaining type variables are replaced by their erasure too.
+	 */
+	private TypeMirror fieldType(VariableElement field)
+	{
+		if (mGeneric)
+		{
+			return mTypes.erasure(field.asType());
+		}
+
+		TypeMirror type = mTypes.asMemberOf((DeclaredType) mType.asType(), field);
+		return type.getKind() == TypeKind.TYPEVAR ? mTypes.erasure(type) : type;
+	}
+
+
+	private AnnotationMirror getAnnotation(VariableElement field, String annotationName)
+	{
+		for (AnnotationMirror annotation : field.getAnnotationMirrors())
+		{
+			if (annotationName.equals(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString()))
+			{
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+
+	private String getStringValue(AnnotationMirror annotation, String key)
+	{
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mEnvironment.getElementUtils()
+			.getElementValuesWithDefaults(annotation).entrySet())
+		{
+			if (key.equals(entry.getKey().getSimpleName().toString()))
+			{
+				return (String) entry.getValue().getValue();
+			}
+		}
+		return "";
+	}
+
+
+	private static String literal(String value)
+	{
+		if (value == null)
+		{
+			return "null";
+		}
+
+		StringBuilder result = new StringBuilder(value.length() + 2);
+		result.append('"');
+		for (int i = 0, length = value.length(); i < length; ++i)
+		{
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+			{
+				result.append('\\').append(c);
+			}
+			else if (c < ' ' || c > '~')
+			{
+				result.append(String.format("\\u%04x", (int) c));
+			}
+			else
+			{
+				result.append(c);
+			}
+		}
+		result.append('"');
+		return result.toString();
+	}
+
+
+	/**
+	 * Reports that no builder is generated for the class. This is a warning only, because the class can still be built by a ReflectionObjectBuilder. That's
+	 * important when the processor runs on library classes, which often have private fields.
+	 */
+	private void skip(String message, javax.lang.model.element.Element element)
+	{
+		warning(message + ", no builder is generated for " + mTypeName + " and ReflectionObjectBuilder is used instead", element);
+	}
+
+
+	private void warning(String message, javax.lang.model.element.Element element)
+	{
+		mEnvironment.getMessager().printMessage(Kind.WARNING, message, element);
+	}
+}
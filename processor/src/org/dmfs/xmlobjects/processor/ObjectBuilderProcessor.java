@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+
+/**
+ * An annotation processor that generates an {@link org.dmfs.xmlobjects.builder.AbstractObjectBuilder} for every class with fields that are annotated with
+ * {@link org.dmfs.xmlobjects.builder.reflection.Attribute}, {@link org.dmfs.xmlobjects.builder.reflection.Element} or
+ * {@link org.dmfs.xmlobjects.builder.reflection.Text}.
+ * <p>
+ * The generated builders behave like a {@link org.dmfs.xmlobjects.builder.reflection.ReflectionObjectBuilder} for the same class, but they access the fields
+ * directly. The builder of a class <code>Item</code> is called <code>ItemObjectBuilder</code> and lives in the same package. The builder of a nested class
+ * <code>Outer.Item</code> is called <code>Outer_ItemObjectBuilder</code>. Each builder is annotated with
+ * {@link org.dmfs.xmlobjects.builder.reflection.GeneratedBuilder} naming its class and has a static <code>INSTANCE</code>, so
+ * </p>
+ * 
+ * <pre>
+ * new ReflectionObjectBuilder&lt;Item&gt;(Item.class)
+ * </pre>
+ * <p>
+ * becomes
+ * </p>
+ * 
+ * <pre>
+ * ItemObjectBuilder.INSTANCE
+ * </pre>
+ * <p>
+ * Since the builder lives in the package of the class, mapped fields must not be private and the class needs a default constructor that is not private.
+ * Classes that don't meet these requirements are skipped with a warning, so running the processor on library classes doesn't break the build. Skipped
+ * classes and classes with an annotated constructor are built by {@link org.dmfs.xmlobjects.builder.reflection.ReflectionObjectBuilder}.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+@SupportedAnnotationTypes({ ObjectBuilderProcessor.ATTRIBUTE, ObjectBuilderProcessor.ELEMENT, ObjectBuilderProcessor.TEXT })
+public class ObjectBuilderProcessor extends AbstractProcessor
+{
+	final static String ATTRIBUTE = "org.dmfs.xmlobjects.builder.reflection.Attribute";
+	final static String ELEMENT = "org.dmfs.xmlobjects.builder.reflection.Element";
+	final static String TEXT = "org.dmfs.xmlobjects.builder.reflection.Text";
+
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+	{
+		// collect all classes with annotated fields and all classes with annotated constructors
+		Set<TypeElement> classes = new LinkedHashSet<TypeElement>();
+		Set<TypeElement> constructorClasses = new LinkedHashSet<TypeElement>();
+		for (TypeElement annotation : annotations)
+		{
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation))
+			{
+				if (element.getKind() == ElementKind.FIELD)
+				{
+					classes.add((TypeElement) element.getEnclosingElement());
+				}
+				else if (element.getKind() == ElementKind.PARAMETER && element.getEnclosingElement().getKind() == ElementKind.CONSTRUCTOR)
+				{
+					constructorClasses.add((TypeElement) element.getEnclosingElement().getEnclosingElement());
+				}
+			}
+		}
+
+		// subclasses of these classes need a builder too
+		Set<TypeElement> subclasses = new LinkedHashSet<TypeElement>();
+		collectSubclasses(ElementFilter.typesIn(roundEnv.getRootElements()), classes, subclasses);
+		classes.addAll(subclasses);
+
+		// classes that are created by an annotated constructor are left to the ReflectionObjectBuilder
+		classes.removeAll(constructorClasses);
+
+		for (TypeElement type : classes)
+		{
+			BuilderGenerator generator = new BuilderGenerator(processingEnv, type);
+			if (!generator.isConcrete())
+			{
+				continue;
+			}
+
+			if (!generator.collectFields())
+			{
+				// the class is left to the ReflectionObjectBuilder, a warning has been reported already
+				continue;
+			}
+
+			try
+			{
+				JavaFileObject file = processingEnv.getFiler().createSourceFile(generator.getQualifiedBuilderName(), type);
+				Writer writer = file.openWriter();
+				try
+				{
+					writer.write(generator.generate());
+				}
+				finally
+				{
+					writer.close();
+				}
+			}
+			catch (IOException e)
+			{
+				processingEnv.getMessager().printMessage(Kind.ERROR, "can not write builder: " + e.getMessage(), type);
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Adds all of the given types and their nested types that extend any of the given mapped classes to subclasses.
+	 */
+	private void collectSubclasses(Iterable<TypeElement> types, Set<TypeElement> mappedClasses, Set<TypeElement> subclasses)
+	{
+		Types typeUtils = processingEnv.getTypeUtils();
+		for (TypeElement type : types)
+		{
+			TypeMirror superclass = type.getSuperclass();
+			while (superclass.getKind() == TypeKind.DECLARED)
+			{
+				TypeElement superElement = (TypeElement) typeUtils.asElement(superclass);
+				if (mappedClasses.contains(superElement))
+				{
+					subclasses.add(type);
+					break;
+				}
+				superclass = superElement.getSuperclass();
+			}
+			collectSubclasses(ElementFilter.typesIn(type.getEnclosedElements()), mappedClasses, subclasses);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package org.dmfs.xmlobjects.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.IObjectBuilder;
+import org.dmfs.xmlobjects.builder.IntegerObjectBuilder;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.builder.reflection.GeneratedBuilder;
+import org.dmfs.xmlobjects.builder.reflection.ObjectBuilderFactory;
+import org.dmfs.xmlobjects.builder.reflection.ReflectionObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
+import org.dmfs.xmlobjects.pull.XmlPath;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+
+public class ObjectBuilderProcessorTest
+{
+	private final static String BOX = "package fixture;\n" //
+		+ "import java.util.List;\n" //
+		+ "import org.dmfs.xmlobjects.builder.reflection.Attribute;\n" //
+		+ "import org.dmfs.xmlobjects.builder.reflection.Element;\n" //
+		+ "public class Box<T>\n" //
+		+ "{\n" //
+		+ "	@Attribute(name = \"id\") String id;\n" //
+		+ "	@Element(name = \"value\") T value;\n" //
+		+ "	@Element(name = \"count\") int count;\n" //
+		+ "	@Element(name = \"name\") List<String> names;\n" //
+		+ "}\n";
+
+	private final static String INT_BOX = "package fixture;\n" //
+		+ "public class IntBox extends Box<Integer>\n" //
+		+ "{\n" //
+		+ "}\n";
+
+	private final static String DOCUMENT = "<box id=\"b1\"><value>42</value><count>3</count><name>a</name><name>b</name></box>";
+
+
+	@Test
+	public void testGeneratedBuilders() throws Exception
+	{
+		File root = File.createTempFile("processor", "");
+		root.delete();
+		try
+		{
+			File sources = new File(root, "src");
+			File generated = new File(root, "generated");
+			File classes = new File(root, "classes");
+			new File(sources, "fixture").mkdirs();
+			generated.mkdirs();
+			classes.mkdirs();
+
+			List<File> files = new ArrayList<File>();
+			files.add(write(new File(sources, "fixture/Box.java"), BOX));
+			files.add(write(new File(sources, "fixture/IntBox.java"), INT_BOX));
+
+			JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+			DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+			StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+			List<String> options = Arrays.asList("-Xlint:all", "-processor", ObjectBuilderProcessor.class.getName(), "-classpath",
+				System.getProperty("java.class.path"), "-s", generated.getPath(), "-d", classes.getPath());
+			boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files)).call();
+			fileManager.close();
+
+			// the generated code must compile without any warning
+			for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+			{
+				assertTrue(diagnostic.toString(), diagnostic.getKind() != Diagnostic.Kind.ERROR);
+				assertTrue(diagnostic.toString(), diagnostic.getSource() == null || !diagnostic.getSource().toUri().getPath().startsWith(generated.toURI().getPath()));
+			}
+			assertTrue(success);
+			assertTrue(new File(generated, "fixture/BoxObjectBuilder.java").isFile());
+			assertTrue(new File(generated, "fixture/IntBoxObjectBuilder.java").isFile());
+
+			URLClassLoader loader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader());
+			Class<?> intBoxClass = loader.loadClass("fixture.IntBox");
+
+			IObjectBuilder<?> generatedBuilder = ObjectBuilderFactory.get(intBoxClass);
+			assertEquals("fixture.IntBoxObjectBuilder", generatedBuilder.getClass().getName());
+			assertEquals(intBoxClass, generatedBuilder.getClass().getAnnotation(GeneratedBuilder.class).value());
+
+			// the generated builder must behave like the ReflectionObjectBuilder
+			String generatedResult = roundTrip(generatedBuilder);
+			String reflectionResult = roundTrip(new ReflectionObjectBuilder<Object>(cast(intBoxClass)));
+			assertEquals(DOCUMENT, reflectionResult);
+			assertEquals(reflectionResult, generatedResult);
+		}
+		finally
+		{
+			delete(root);
+		}
+	}
+
+
+	/**
+	 * Pulls {@link #DOCUMENT} with the given builder and serializes the result with the same builder.
+	 */
+	@SuppressWarnings("unchecked")
+	private String roundTrip(IObjectBuilder<?> builder) throws Exception
+	{
+		XmlContext xmlContext = new XmlContext();
+		ElementDescriptor<Object> boxElement = ElementDescriptor.register("box", (IObjectBuilder<Object>) builder, xmlContext);
+		ElementDescriptor.register("value", IntegerObjectBuilder.INSTANCE, xmlContext);
+		ElementDescriptor.register("count", IntegerObjectBuilder.INSTANCE, xmlContext);
+		ElementDescriptor.register("name", StringObjectBuilder.INSTANCE, xmlContext);
+
+		XmlPullParserFactory ppfactory = XmlPullParserFactory.newInstance();
+		ppfactory.setNamespaceAware(true);
+		XmlPullParser parser = ppfactory.newPullParser();
+		parser.setInput(new StringReader(DOCUMENT));
+
+		XmlObjectPull op = new XmlObjectPull(parser, new ParserContext());
+		op.setContext(xmlContext);
+		Object box = op.pull(boxElement, null, new XmlPath());
+
+		StringWriter out = new StringWriter();
+		SerializerContext serializerContext = new SerializerContext(xmlContext);
+		XmlObjectSerializer serializer = new XmlObjectSerializer();
+		serializer.setOutput(serializerContext, out);
+		serializer.serialize(serializerContext, boxElement, box);
+
+		String result = out.toString();
+		return result.startsWith("<?xml") ? result.substring(result.indexOf("?>") + 2) : result;
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private static Class<Object> cast(Class<?> clazz)
+	{
+		return (Class<Object>) clazz;
+	}
+
+
+	private static File write(File file, String content) throws IOException
+	{
+		Writer writer = new FileWriter(file);
+		try
+		{
+			writer.write(content);
+		}
+		finally
+		{
+			writer.close();
+		}
+		return file;
+	}
+
+
+	private static void delete(File file)
+	{
+		File[] children = file.listFiles();
+		if (children != null)
+		{
+			for (File child : children)
+			{
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
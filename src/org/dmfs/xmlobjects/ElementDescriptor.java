@@ -21,6 +21,7 @@ import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.dmfs.xmlobjects.builder.IObjectBuilder;
 
@@ -36,6 +37,16 @@ public final class ElementDescriptor<T>
 	{
 	};
 
+	/**
+	 * Counts all registrations in all contexts.
+	 */
+	private final static AtomicInteger REGISTRATION_COUNT = new AtomicInteger();
+
+	/**
+	 * The ordinal of the next descriptor.
+	 */
+	private final static AtomicInteger NEXT_ORDINAL = new AtomicInteger();
+
 	/**
 	 * The {@link QualifiedName} of this element.
 	 */
@@ -46,6 +57,12 @@ public final class ElementDescriptor<T>
 	 */
 	public final IObjectBuilder<T> builder;
 
+	/**
+	 * A number that's unique to this descriptor. Ordinals are assigned in the order descriptors are created, starting at 0, so descriptors that are
+	 * registered together have consecutive ordinals. Use this to index descriptors in arrays.
+	 */
+	public final int ordinal;
+
 	/**
 	 * A {@link WeakReference} to the context this element was registered in.
 	 */
@@ -57,6 +74,18 @@ public final class ElementDescriptor<T>
 	private Map<QualifiedName, ElementDescriptor<?>> mElementContext;
 
 
+	/**
+	 * Returns the number of elements that have been registered or overloaded in any {@link XmlContext} so far. Callers that cache the result of
+	 * {@link #get(QualifiedName, ElementDescriptor, XmlContext)} can use this to detect that the cached result may be outdated.
+	 * 
+	 * @return The number of registrations.
+	 */
+	public static int getRegistrationCount()
+	{
+		return REGISTRATION_COUNT.get();
+	}
+
+
 	/**
 	 * Return the {@link ElementDescriptor} of the element having the given {@link QualifiedName} from the default {@link XmlContext}.
 	 * 
@@ -230,6 +259,7 @@ public final class ElementDescriptor<T>
 
 			ElementDescriptor<T> descriptor = new ElementDescriptor<T>(qname, builder, context);
 			descriptorMap.put(qname, descriptor);
+			REGISTRATION_COUNT.incrementAndGet();
 			return descriptor;
 		}
 	}
@@ -302,6 +332,7 @@ public final class ElementDescriptor<T>
 			}
 
 			descriptorMap.put(qname, descriptor);
+			REGISTRATION_COUNT.incrementAndGet();
 		}
 		return descriptor;
 	}
@@ -324,6 +355,7 @@ public final class ElementDescriptor<T>
 			// both elements have the same child descriptors, if any
 			descriptor.mElementContext = oldDescriptor.mElementContext;
 			descriptorMap.put(qname, descriptor);
+			REGISTRATION_COUNT.incrementAndGet();
 			return descriptor;
 		}
 	}
@@ -338,6 +370,7 @@ public final class ElementDescriptor<T>
 
 		this.qualifiedName = qname;
 		this.builder = builder;
+		this.ordinal = NEXT_ORDINAL.getAndIncrement();
 		this.mContext = new WeakReference<XmlContext>(context);
 	}
 
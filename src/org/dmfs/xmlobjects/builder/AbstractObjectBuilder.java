@@ -66,6 +66,8 @@ public abstract class AbstractObjectBuilder<T> implements IObjectBuilder<T>
 	public <V> T update(ElementDescriptor<T> descriptor, T object, ElementDescriptor<V> childDescriptor, V child, ParserContext context)
 		throws XmlObjectPullParserException
 	{
+		// children are dropped by default
+		context.releaseChild();
 		return object;
 	}
 
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+
+
+/**
+ * A builder that decodes the base64 encoded content of an element and writes the binary data to an {@link OutputStream}. The data is decoded chunk by chunk
+ * as it's being parsed, so the decoded data doesn't have to be kept in memory. The encoded text is not collected either, but see
+ * {@link IStreamingObjectBuilder} for the limits of that.
+ * 
+ * <pre>
+ * &lt;attachment>SGVsbG8gV29ybGQ=&lt;/attachment>
+ * </pre>
+ * 
+ * <p>
+ * The {@link OutputStream} is provided by an {@link OutputStreamFactory} when the start tag of the element has been parsed. To write to a
+ * {@link WritableByteChannel} use an {@link OutputStreamFactory} that returns {@link Channels#newOutputStream(WritableByteChannel)}. The result of this
+ * builder is the {@link OutputStream} itself. It's flushed but not closed when the end tag has been parsed.
+ * </p>
+ * <p>
+ * White space in the content is ignored, any other character that's not part of the base64 alphabet results in an {@link XmlObjectPullParserException}.
+ * </p>
+ * <p>
+ * <strong>Note:</strong> This builder stores its decoder state in the {@link ParserContext}, so it can be used with an XmlObjectPull only. It doesn't support
+ * serialization.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ * 
+ * @param <T>
+ *            The type of the {@link OutputStream}.
+ */
+public class Base64ObjectBuilder<T extends OutputStream> extends AbstractObjectBuilder<T> implements IStreamingObjectBuilder<T>
+{
+	/**
+	 * The interface of a class that provides an {@link OutputStream} for the decoded content of an element.
+	 * 
+	 * @param <T>
+	 *            The type of the {@link OutputStream}.
+	 */
+	public interface OutputStreamFactory<T extends OutputStream>
+	{
+		/**
+		 * Returns an {@link OutputStream} for the decoded content of the current element. This is called when the start tag has been parsed, so the
+		 * attributes of the element can be retrieved from {@link ParserContext#getXmlPullParser()}.
+		 * 
+		 * @param descriptor
+		 *            The {@link ElementDescriptor} of the element.
+		 * @param context
+		 *            A {@link ParserContext}.
+		 * @return An {@link OutputStream} for the decoded content of the element.
+		 * @throws IOException
+		 */
+		public T getOutputStream(ElementDescriptor<T> descriptor, ParserContext context) throws IOException;
+	}
+
+	/**
+	 * The size of the buffer for decoded bytes.
+	 */
+	private final static int BUFFER_SIZE = 8192;
+
+	/**
+	 * Maps the characters of the base64 alphabet to their values. All other characters map to -1.
+	 */
+	private final static byte[] DECODE_TABLE = new byte[128];
+
+	static
+	{
+		Arrays.fill(DECODE_TABLE, (byte) -1);
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for (int i = 0, count = alphabet.length(); i < count; ++i)
+		{
+			DECODE_TABLE[alphabet.charAt(i)] = (byte) i;
+		}
+	}
+
+	private final OutputStreamFactory<T> mOutputStreamFactory;
+
+
+	/**
+	 * Create a new {@link Base64ObjectBuilder} that writes the decoded content of each element to an {@link OutputStream} returned by the given
+	 * {@link OutputStreamFactory}.
+	 * 
+	 * @param outputStreamFactory
+	 *            An {@link OutputStreamFactory}.
+	 */
+	public Base64ObjectBuilder(OutputStreamFactory<T> outputStreamFactory)
+	{
+		mOutputStreamFactory = outputStreamFactory;
+	}
+
+
+	@Override
+	public T get(ElementDescriptor<T> descriptor, T recycle, ParserContext context) throws XmlObjectPullParserException
+	{
+		DecoderState state = (DecoderState) context.getState();
+		if (state == null)
+		{
+			state = new DecoderState();
+			context.setState(state);
+		}
+		else
+		{
+			// recycle the state of the previous element
+			state.reset();
+		}
+
+		try
+		{
+			return mOutputStreamFactory.getOutputStream(descriptor, context);
+		}
+		catch (IOException e)
+		{
+			throw new XmlObjectPullParserException("can not get output stream for " + descriptor.qualifiedName, e);
+		}
+	}
+
+
+	@Override
+	public T update(ElementDescriptor<T> descriptor, T object, String text, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (text != null)
+		{
+			char[] chars = text.toCharArray();
+			update(descriptor, object, chars, 0, chars.length, context);
+		}
+		return object;
+	}
+
+
+	@Override
+	public T update(ElementDescriptor<T> descriptor, T object, char[] text, int start, int length, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (object == null)
+		{
+			return null;
+		}
+
+		DecoderState state = (DecoderState) context.getState();
+		byte[] buffer = state.buffer;
+		int bits = state.bits;
+		int count = state.count;
+		int pos = state.pos;
+
+		try
+		{
+			for (int i = start, end = start + length; i < end; ++i)
+			{
+				char c = text[i];
+				int value = c < 128 ? DECODE_TABLE[c] : -1;
+				if (value >= 0)
+				{
+					if (state.padded)
+					{
+						throw new XmlObjectPullParserException("unexpected base64 data after padding in " + descriptor.qualifiedName);
+					}
+
+					bits = bits << 6 | value;
+					if (++count == 4)
+					{
+						if (pos > BUFFER_SIZE - 3)
+						{
+							object.write(buffer, 0, pos);
+							pos = 0;
+						}
+						buffer[pos++] = (byte) (bits >> 16);
+						buffer[pos++] = (byte) (bits >> 8);
+						buffer[pos++] = (byte) bits;
+						bits = 0;
+						count = 0;
+					}
+				}
+				else if (c == '=')
+				{
+					if (!state.padded)
+					{
+						state.bits = bits;
+						state.count = count;
+						state.pos = pos;
+						writeRemainder(descriptor, object, state);
+						bits = 0;
+						count = 0;
+						pos = state.pos;
+						state.padded = true;
+					}
+				}
+				else if (c > ' ')
+				{
+					throw new XmlObjectPullParserException("illegal base64 character '" + c + "' in " + descriptor.qualifiedName);
+				}
+			}
+
+			// write what we have so far, the buffer is reused for the next chunk
+			object.write(buffer, 0, pos);
+		}
+		catch (IOException e)
+		{
+			throw new XmlObjectPullParserException("can not write content of " + descriptor.qualifiedName, e);
+		}
+
+		state.bits = bits;
+		state.count = count;
+		state.pos = 0;
+		return object;
+	}
+
+
+	@Override
+	public T finish(ElementDescriptor<T> descriptor, T object, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (object == null)
+		{
+			return null;
+		}
+
+		DecoderState state = (DecoderState) context.getState();
+		try
+		{
+			// the padding is optional, so we might have some bits left
+			writeRemainder(descriptor, object, state);
+			object.write(state.buffer, 0, state.pos);
+			state.pos = 0;
+			object.flush();
+		}
+		catch (IOException e)
+		{
+			throw new XmlObjectPullParserException("can not write content of " + descriptor.qualifiedName, e);
+		}
+		return object;
+	}
+
+
+	/**
+	 * Appends the bytes of an incomplete quantum to the buffer. The buffer is flushed to the given {@link OutputStream} if necessary.
+	 */
+	private void writeRemainder(ElementDescriptor<T> descriptor, T object, DecoderState state) throws XmlObjectPullParserException, IOException
+	{
+		if (state.count == 0)
+		{
+			return;
+		}
+
+		if (state.count == 1)
+		{
+			throw new XmlObjectPullParserException("incomplete base64 data in " + descriptor.qualifiedName);
+		}
+
+		if (state.pos > BUFFER_SIZE - 2)
+		{
+			object.write(state.buffer, 0, state.pos);
+			state.pos = 0;
+		}
+
+		byte[] buffer = state.buffer;
+		int bits = state.bits;
+		if (state.count == 2)
+		{
+			buffer[state.pos++] = (byte) (bits >> 4);
+		}
+		else
+		{
+			buffer[state.pos++] = (byte) (bits >> 10);
+			buffer[state.pos++] = (byte) (bits >> 2);
+		}
+		state.bits = 0;
+		state.count = 0;
+	}
+
+	/**
+	 * The decoder state of an element. It's stored in the {@link ParserContext}, so the builder itself can be shared.
+	 */
+	private final static class DecoderState
+	{
+		/**
+		 * A buffer for decoded bytes.
+		 */
+		public final byte[] buffer = new byte[BUFFER_SIZE];
+
+		/**
+		 * The number of bytes in the buffer.
+		 */
+		public int pos;
+
+		/**
+		 * The bits of the current quantum.
+		 */
+		public int bits;
+
+		/**
+		 * The number of characters in the current quantum.
+		 */
+		public int count;
+
+		/**
+		 * Indicates that we've seen a padding character.
+		 */
+		public boolean padded;
+
+
+		public void reset()
+		{
+			pos = 0;
+			bits = 0;
+			count = 0;
+			padded = false;
+		}
+	}
+}
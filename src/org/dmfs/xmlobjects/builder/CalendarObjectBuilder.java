@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
+
+
+/**
+ * A builder for elements that enclose an ISO 8601 date-time like so:
+ * 
+ * <pre>
+ * &lt;some-time>2015-04-23T10:20:30.123+02:00&lt;/some-time>
+ * </pre>
+ * <p>
+ * Other than {@link DateObjectBuilder} this builder retains the offset of the value. It returns a {@link Calendar} with a {@link TimeZone} that has the
+ * fixed offset of the value, values without an offset are taken as UTC. Recycled {@link Calendar}s are updated instead of creating new ones. Values are
+ * serialized with the offset of their {@link TimeZone} at that time, like <code>2015-04-23T10:20:30.123+02:00</code>.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public class CalendarObjectBuilder extends AbstractObjectBuilder<Calendar> implements ICharArrayObjectBuilder<Calendar>
+{
+
+	/**
+	 * A strict {@link CalendarObjectBuilder}. If the value can not be parsed as a date-time it will throw an {@link XmlObjectPullParserException}.
+	 */
+	public final static CalendarObjectBuilder INSTANCE_STRICT = new CalendarObjectBuilder(true);
+
+	/**
+	 * A tolerant {@link CalendarObjectBuilder}. Instead of throwing an exception it will return a <code>null</code> value.
+	 */
+	public final static CalendarObjectBuilder INSTANCE = new CalendarObjectBuilder(false);
+
+	private final static int MILLIS_PER_MINUTE = 60 * 1000;
+
+	private final boolean mStrict;
+
+
+	private CalendarObjectBuilder(boolean strict)
+	{
+		mStrict = strict;
+	}
+
+
+	@Override
+	public Calendar get(ElementDescriptor<Calendar> descriptor, Calendar recycle, ParserContext context)
+	{
+		// we update the recycled instance once we know the value
+		return recycle;
+	}
+
+
+	@Override
+	public Calendar update(ElementDescriptor<Calendar> descriptor, Calendar object, String text, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (text != null)
+		{
+			int[] offsetHolder = getOffsetHolder(context);
+			long millis = DateTimeConversion.parse(text, 0, text.length(), offsetHolder);
+			if (millis != DateTimeConversion.INVALID)
+			{
+				return toCalendar(object, millis, offsetHolder[0]);
+			}
+		}
+
+		if (!mStrict)
+		{
+			return null;
+		}
+
+		throw new XmlObjectPullParserException("could not parse date-time in '" + text + "'");
+	}
+
+
+	@Override
+	public Calendar update(ElementDescriptor<Calendar> descriptor, Calendar object, char[] text, int start, int length, ParserContext context)
+		throws XmlObjectPullParserException
+	{
+		int[] offsetHolder = getOffsetHolder(context);
+		CharArraySequence sequence = CharArraySequence.wrap(context, text);
+		long millis;
+		try
+		{
+			millis = DateTimeConversion.parse(sequence, start, start + length, offsetHolder);
+		}
+		finally
+		{
+			sequence.release();
+		}
+		if (millis != DateTimeConversion.INVALID)
+		{
+			return toCalendar(object, millis, offsetHolder[0]);
+		}
+		else if (!mStrict)
+		{
+			return null;
+		}
+
+		throw new XmlObjectPullParserException("could not parse date-time in '" + new String(text, start, length) + "'");
+	}
+
+
+	@Override
+	public void writeChildren(ElementDescriptor<Calendar> descriptor, Calendar object, IXmlChildWriter childWriter, SerializerContext context)
+		throws SerializerException, IOException
+	{
+		if (object != null)
+		{
+			long millis = object.getTimeInMillis();
+			int offset = object.getTimeZone().getOffset(millis) / MILLIS_PER_MINUTE;
+			char[] buffer = context.getTextBuffer(DateTimeConversion.MAX_LENGTH);
+			context.writeText(childWriter, buffer, 0, DateTimeConversion.format(millis, offset, buffer, 0));
+		}
+		else if (mStrict)
+		{
+			throw new IllegalStateException("date-time value is null");
+		}
+	}
+
+
+	/**
+	 * Returns the holder for the offset of parsed values. It's stored in the {@link ParserContext}, so it's reused for all values.
+	 */
+	private static int[] getOffsetHolder(ParserContext context)
+	{
+		int[] offsetHolder = (int[]) context.getBuilderState(CalendarObjectBuilder.class);
+		if (offsetHolder == null)
+		{
+			offsetHolder = new int[1];
+			context.setBuilderState(CalendarObjectBuilder.class, offsetHolder);
+		}
+		return offsetHolder;
+	}
+
+
+	private Calendar toCalendar(Calendar object, long millis, int offset)
+	{
+		int offsetMillis = offset * MILLIS_PER_MINUTE;
+		if (object == null)
+		{
+			object = new GregorianCalendar(getTimeZone(offsetMillis));
+		}
+		else
+		{
+			TimeZone timeZone = object.getTimeZone();
+			if (timeZone.getRawOffset() != offsetMillis || timeZone.useDaylightTime())
+			{
+				object.setTimeZone(getTimeZone(offsetMillis));
+			}
+		}
+		object.setTimeInMillis(millis);
+		return object;
+	}
+
+
+	/**
+	 * Returns a {@link TimeZone} with the given fixed offset. Since {@link TimeZone}s are mutable we don't share them.
+	 */
+	private TimeZone getTimeZone(int offsetMillis)
+	{
+		if (offsetMillis == 0)
+		{
+			return new SimpleTimeZone(0, "UTC");
+		}
+
+		int minutes = Math.abs(offsetMillis) / MILLIS_PER_MINUTE;
+		StringBuilder id = new StringBuilder(9).append(offsetMillis < 0 ? "GMT-" : "GMT+");
+		id.append((char) ('0' + minutes / 600)).append((char) ('0' + minutes / 60 % 10)).append(':');
+		id.append((char) ('0' + minutes % 60 / 10)).append((char) ('0' + minutes % 10));
+		return new SimpleTimeZone(offsetMillis, id.toString());
+	}
+}
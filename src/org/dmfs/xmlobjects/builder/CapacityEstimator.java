@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+
+
+/**
+ * Learns the typical size of the collections a builder creates for each {@link ElementDescriptor}. The collection builders use it when they're created with
+ * an initial capacity of {@link #ADAPTIVE_CAPACITY}.
+ * <p>
+ * The estimate is an exponentially decaying average of the final sizes, so it follows changes in the input while a single outlier has only little
+ * effect. Updates are not synchronized, concurrent updates may get lost, which doesn't matter for an estimate.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public final class CapacityEstimator
+{
+	/**
+	 * Pass this as the initial capacity to {@link ListObjectBuilder}, {@link SetObjectBuilder}, {@link MapObjectBuilder} or {@link ElementMapObjectBuilder}
+	 * to size new collections by the sizes of the previous ones.
+	 */
+	public final static int ADAPTIVE_CAPACITY = -1;
+
+	/**
+	 * The weight of a new size in the average.
+	 */
+	private final static float DECAY = 1f / 8;
+
+	/**
+	 * The load factor of hash based collections.
+	 */
+	private final static float LOAD_FACTOR = 0.75f;
+
+	private final Map<ElementDescriptor<?>, Estimate> mEstimates = new ConcurrentHashMap<ElementDescriptor<?>, Estimate>(8);
+
+	private final int mDefaultSize;
+
+
+	/**
+	 * Creates a {@link CapacityEstimator} that returns the given size until the first size of a descriptor has been recorded.
+	 * 
+	 * @param defaultSize
+	 *            The initial estimate.
+	 */
+	public CapacityEstimator(int defaultSize)
+	{
+		mDefaultSize = defaultSize;
+	}
+
+
+	/**
+	 * Returns the estimated size of the collections of the given {@link ElementDescriptor}.
+	 * 
+	 * @param descriptor
+	 *            An {@link ElementDescriptor}.
+	 * @return The estimated number of entries.
+	 */
+	public int getEstimatedSize(ElementDescriptor<?> descriptor)
+	{
+		Estimate estimate = mEstimates.get(descriptor);
+		return estimate == null ? mDefaultSize : Math.round(estimate.average);
+	}
+
+
+	/**
+	 * Returns the initial capacity of a hash based collection that can take the estimated number of entries without rehashing.
+	 * 
+	 * @param descriptor
+	 *            An {@link ElementDescriptor}.
+	 * @return The initial capacity.
+	 */
+	public int getHashCapacity(ElementDescriptor<?> descriptor)
+	{
+		return (int) (getEstimatedSize(descriptor) / LOAD_FACTOR) + 1;
+	}
+
+
+	/**
+	 * Records the final size of a collection of the given {@link ElementDescriptor}.
+	 * 
+	 * @param descriptor
+	 *            An {@link ElementDescriptor}.
+	 * @param size
+	 *            The number of entries in the collection.
+	 */
+	public void record(ElementDescriptor<?> descriptor, int size)
+	{
+		Estimate estimate = mEstimates.get(descriptor);
+		if (estimate == null)
+		{
+			estimate = new Estimate(size);
+			mEstimates.put(descriptor, estimate);
+		}
+		else
+		{
+			estimate.average += (size - estimate.average) * DECAY;
+		}
+	}
+
+	/**
+	 * The estimate of a single {@link ElementDescriptor}.
+	 */
+	private final static class Estimate
+	{
+		volatile float average;
+
+
+		public Estimate(float initial)
+		{
+			average = initial;
+		}
+	}
+}
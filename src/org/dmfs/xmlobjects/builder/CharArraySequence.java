@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import org.dmfs.xmlobjects.pull.ParserContext;
+
+
+/**
+ * A {@link CharSequence} view of a char array. Other than {@link java.nio.CharBuffer#wrap(char[])} the view is reused for all values, so builders can pass
+ * the text of an element to the parsers in {@link TextParser} and {@link DateTimeConversion} without creating any objects. There is one view per
+ * {@link ParserContext}, get it with {@link #wrap(ParserContext, char[])}.
+ * <p>
+ * The char array of an {@link ICharArrayObjectBuilder} call is only valid during that call, so callers must {@link #release()} the view when they are done,
+ * otherwise the parser context keeps the parser buffer alive.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class CharArraySequence implements CharSequence
+{
+	private char[] mText;
+
+
+	private CharArraySequence()
+	{
+	}
+
+
+	/**
+	 * Returns the view of the given {@link ParserContext} on the given char array. The view is only valid until it's released or until the next call of this
+	 * method with the same {@link ParserContext}.
+	 * 
+	 * @param context
+	 *            The current {@link ParserContext}.
+	 * @param text
+	 *            The char array.
+	 * @return A {@link CharArraySequence} that returns the characters of text.
+	 */
+	public static CharArraySequence wrap(ParserContext context, char[] text)
+	{
+		CharArraySequence sequence = (CharArraySequence) context.getBuilderState(CharArraySequence.class);
+		if (sequence == null)
+		{
+			sequence = new CharArraySequence();
+			context.setBuilderState(CharArraySequence.class, sequence);
+		}
+		sequence.mText = text;
+		return sequence;
+	}
+
+
+	/**
+	 * Drops the reference to the char array. Call this once the value has been parsed.
+	 */
+	public void release()
+	{
+		mText = null;
+	}
+
+
+	@Override
+	public int length()
+	{
+		return mText.length;
+	}
+
+
+	@Override
+	public char charAt(int index)
+	{
+		return mText[index];
+	}
+
+
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		// a copy, since this view will change
+		return new String(mText, start, end - start);
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return new String(mText);
+	}
+}
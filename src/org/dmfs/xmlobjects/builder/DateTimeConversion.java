@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+/**
+ * Conversions between ISO 8601 date-time text and milliseconds since the epoch, without any intermediate objects.
+ * <p>
+ * The parser supports calendar dates in the extended format (like <code>2015-04-23T10:20:30.123+02:00</code>, which covers RFC 3339) and in the basic
+ * format (like <code>20150423T102030Z</code>). The time, the seconds, the fraction and the offset are optional. Values without an offset are taken as UTC.
+ * The separator between date and time can be <code>T</code>, <code>t</code> or a space. Fractions of seconds are truncated to milliseconds and a leap
+ * second is taken as the first second of the next minute. Years beyond 9999 or before 0000 have a sign and up to six digits. Week dates and ordinal dates
+ * are not supported.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class DateTimeConversion
+{
+	/**
+	 * The value returned by {@link #parse(CharSequence, int, int)} and {@link #parse(CharSequence, int, int, int[])} if the text is not a valid date-time.
+	 * This value can't be the result of a valid text.
+	 */
+	public final static long INVALID = Long.MIN_VALUE;
+
+	/**
+	 * The maximum number of characters {@link #format(long, int, char[], int)} writes.
+	 */
+	public final static int MAX_LENGTH = 40;
+
+	private final static long MILLIS_PER_SECOND = 1000;
+	private final static long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+	private final static long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+	private final static long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+	/**
+	 * The maximum number of digits of a signed year.
+	 */
+	private final static int MAX_YEAR_DIGITS = 6;
+
+	/**
+	 * The number of days from 0000-03-01 to 1970-01-01.
+	 */
+	private final static long EPOCH_DAY_OFFSET = 719468;
+
+	/**
+	 * The number of days in an era of 400 years.
+	 */
+	private final static long DAYS_PER_ERA = 146097;
+
+
+	private DateTimeConversion()
+	{
+	}
+
+
+	/**
+	 * Parses the given date-time and returns the milliseconds since the epoch.
+	 * 
+	 * @param text
+	 *            The text to parse.
+	 * @param start
+	 *            The start of the value in text.
+	 * @param end
+	 *            The end of the value in text.
+	 * @return The milliseconds since 1970-01-01T00:00:00Z or {@link #INVALID}.
+	 */
+	public static long parse(CharSequence text, int start, int end)
+	{
+		return parse(text, start, end, null);
+	}
+
+
+	/**
+	 * Parses the given date-time and returns the milliseconds since the epoch. The offset to UTC is returned in the given holder, so callers that need both
+	 * values have to scan the text only once.
+	 * 
+	 * @param text
+	 *            The text to parse.
+	 * @param start
+	 *            The start of the value in text.
+	 * @param end
+	 *            The end of the value in text.
+	 * @param offsetHolder
+	 *            An array that receives the offset in minutes at index 0, 0 if the text has no offset. May be <code>null</code> if the offset is not
+	 *            required. It's not changed if the text is not valid.
+	 * @return The milliseconds since 1970-01-01T00:00:00Z or {@link #INVALID}.
+	 */
+	public static long parse(CharSequence text, int start, int end, int[] offsetHolder)
+	{
+		int pos = TextParser.skipLeadingWhitespace(text, start, end);
+		end = TextParser.skipTrailingWhitespace(text, pos, end);
+
+		if (pos == end)
+		{
+			return INVALID;
+		}
+
+		long year;
+		char c = text.charAt(pos);
+		if (c == '+' || c == '-')
+		{
+			// an expanded year, requires the extended format
+			int yearEnd = digitsEnd(text, pos + 1, end);
+			if (yearEnd - pos - 1 < 4 || yearEnd - pos - 1 > MAX_YEAR_DIGITS || yearEnd == end || text.charAt(yearEnd) != '-')
+			{
+				return INVALID;
+			}
+			year = number(text, pos + 1, yearEnd);
+			if (c == '-')
+			{
+				year = -year;
+			}
+			pos = yearEnd;
+		}
+		else
+		{
+			if (pos + 4 > end || digitsEnd(text, pos, pos + 4) != pos + 4)
+			{
+				return INVALID;
+			}
+			year = number(text, pos, pos + 4);
+			pos += 4;
+		}
+
+		boolean extended = pos < end && text.charAt(pos) == '-';
+		if (extended)
+		{
+			++pos;
+		}
+
+		int month = twoDigits(text, pos, end);
+		pos += 2;
+		if (extended)
+		{
+			if (pos >= end || text.charAt(pos) != '-')
+			{
+				return INVALID;
+			}
+			++pos;
+		}
+		int day = twoDigits(text, pos, end);
+		pos += 2;
+
+		if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month))
+		{
+			return INVALID;
+		}
+
+		long millis = epochDay(year, month, day) * MILLIS_PER_DAY;
+		long offset = 0;
+
+		if (pos < end)
+		{
+			c = text.charAt(pos++);
+			if (c != 'T' && c != 't' && c != ' ')
+			{
+				return INVALID;
+			}
+
+			int hour = twoDigits(text, pos, end);
+			pos += 2;
+			if (extended)
+			{
+				if (pos >= end || text.charAt(pos) != ':')
+				{
+					return INVALID;
+				}
+				++pos;
+			}
+			int minute = twoDigits(text, pos, end);
+			pos += 2;
+			int second = 0;
+			if (pos < end && (extended ? text.charAt(pos) == ':' : TextParser.isDigit(text.charAt(pos))))
+			{
+				if (extended)
+				{
+					++pos;
+				}
+				second = twoDigits(text, pos, end);
+				pos += 2;
+
+				if (pos < end && (text.charAt(pos) == '.' || text.charAt(pos) == ','))
+				{
+					int fractionEnd = digitsEnd(text, pos + 1, end);
+					if (fractionEnd == pos + 1)
+					{
+						return INVALID;
+					}
+					// truncate the fraction to milliseconds
+					int scale = 100;
+					for (int i = pos + 1; i < fractionEnd && scale > 0; ++i, scale /= 10)
+					{
+						millis += (text.charAt(i) - '0') * scale;
+					}
+					pos = fractionEnd;
+				}
+			}
+
+			if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60)
+			{
+				return INVALID;
+			}
+
+			millis += hour * MILLIS_PER_HOUR + minute * MILLIS_PER_MINUTE + second * MILLIS_PER_SECOND;
+
+			if (pos < end)
+			{
+				c = text.charAt(pos++);
+				if (c == 'Z' || c == 'z')
+				{
+					// UTC
+				}
+				else if (c == '+' || c == '-')
+				{
+					int offsetHours = twoDigits(text, pos, end);
+					pos += 2;
+					int offsetMinutes = 0;
+					if (pos < end)
+					{
+						if (extended && text.charAt(pos) == ':')
+						{
+							++pos;
+						}
+						offsetMinutes = twoDigits(text, pos, end);
+						pos += 2;
+					}
+
+					if (offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59)
+					{
+						return INVALID;
+					}
+					offset = offsetHours * 60 + offsetMinutes;
+					if (c == '-')
+					{
+						offset = -offset;
+					}
+				}
+				else
+				{
+					return INVALID;
+				}
+			}
+		}
+
+		if (pos != end)
+		{
+			return INVALID;
+		}
+
+		if (offsetHolder != null)
+		{
+			offsetHolder[0] = (int) offset;
+		}
+		return millis - offset * MILLIS_PER_MINUTE;
+	}
+
+
+	/**
+	 * Writes the given time in the extended ISO 8601 format to the given buffer. Milliseconds are only written if they are not zero.
+	 * 
+	 * @param millis
+	 *            The milliseconds since the epoch.
+	 * @param offset
+	 *            The offset to UTC in minutes. If the offset is 0 the time is written with a <code>Z</code>.
+	 * @param buffer
+	 *            The buffer to write to, it must have room for at least {@link #MAX_LENGTH} characters.
+	 * @param pos
+	 *            The position of the first character.
+	 * @return The position after the last character written.
+	 */
+	public static int format(long millis, int offset, char[] buffer, int pos)
+	{
+		long local = millis + offset * MILLIS_PER_MINUTE;
+		long epochDay = floorDiv(local, MILLIS_PER_DAY);
+		int millisOfDay = (int) (local - epochDay * MILLIS_PER_DAY);
+
+		// convert the epoch day to year, month and day, see http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+		long days = epochDay + EPOCH_DAY_OFFSET;
+		long era = floorDiv(days, DAYS_PER_ERA);
+		int dayOfEra = (int) (days - era * DAYS_PER_ERA);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int shiftedMonth = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+		if (year < 0 || year > 9999)
+		{
+			buffer[pos++] = year < 0 ? '-' : '+';
+			long absoluteYear = Math.abs(year);
+			int digits = Math.max(4, Long.toString(absoluteYear).length());
+			for (int i = digits - 1; i >= 0; --i, absoluteYear /= 10)
+			{
+				buffer[pos + i] = (char) ('0' + absoluteYear % 10);
+			}
+			pos += digits;
+		}
+		else
+		{
+			pos = writeDigits((int) year / 100, buffer, pos);
+			pos = writeDigits((int) year % 100, buffer, pos);
+		}
+
+		buffer[pos++] = '-';
+		pos = writeDigits(month, buffer, pos);
+		buffer[pos++] = '-';
+		pos = writeDigits(day, buffer, pos);
+		buffer[pos++] = 'T';
+		pos = writeDigits(millisOfDay / (int) MILLIS_PER_HOUR, buffer, pos);
+		buffer[pos++] = ':';
+		pos = writeDigits(millisOfDay / (int) MILLIS_PER_MINUTE % 60, buffer, pos);
+		buffer[pos++] = ':';
+		pos = writeDigits(millisOfDay / (int) MILLIS_PER_SECOND % 60, buffer, pos);
+
+		int millisOfSecond = millisOfDay % (int) MILLIS_PER_SECOND;
+		if (millisOfSecond != 0)
+		{
+			buffer[pos++] = '.';
+			buffer[pos++] = (char) ('0' + millisOfSecond / 100);
+			pos = writeDigits(millisOfSecond % 100, buffer, pos);
+		}
+
+		if (offset == 0)
+		{
+			buffer[pos++] = 'Z';
+		}
+		else
+		{
+			buffer[pos++] = offset < 0 ? '-' : '+';
+			int absoluteOffset = Math.abs(offset);
+			pos = writeDigits(absoluteOffset / 60, buffer, pos);
+			buffer[pos++] = ':';
+			pos = writeDigits(absoluteOffset % 60, buffer, pos);
+		}
+		return pos;
+	}
+
+
+	/**
+	 * Returns the number of days from 1970-01-01 to the given date, see http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+	 */
+	private static long epochDay(long year, int month, int day)
+	{
+		if (month <= 2)
+		{
+			--year;
+		}
+		long era = floorDiv(year, 400);
+		int yearOfEra = (int) (year - era * 400);
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * DAYS_PER_ERA + dayOfEra - EPOCH_DAY_OFFSET;
+	}
+
+
+	private static int daysInMonth(long year, int month)
+	{
+		if (month == 2)
+		{
+			return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+		}
+		return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+	}
+
+
+	private static long floorDiv(long dividend, long divisor)
+	{
+		long quotient = dividend / divisor;
+		return (dividend % divisor < 0) ? quotient - 1 : quotient;
+	}
+
+
+	/**
+	 * Returns the value of the two digits at the given position or -1 if there are no two digits.
+	 */
+	private static int twoDigits(CharSequence text, int pos, int end)
+	{
+		if (pos + 2 > end)
+		{
+			return -1;
+		}
+		char high = text.charAt(pos);
+		char low = text.charAt(pos + 1);
+		if (!TextParser.isDigit(high) || !TextParser.isDigit(low))
+		{
+			return -1;
+		}
+		return (high - '0') * 10 + low - '0';
+	}
+
+
+	/**
+	 * Returns the position of the first non-digit character at or after pos.
+	 */
+	private static int digitsEnd(CharSequence text, int pos, int end)
+	{
+		while (pos < end && TextParser.isDigit(text.charAt(pos)))
+		{
+			++pos;
+		}
+		return pos;
+	}
+
+
+	private static long number(CharSequence text, int start, int end)
+	{
+		long result = 0;
+		for (int i = start; i < end; ++i)
+		{
+			result = result * 10 + text.charAt(i) - '0';
+		}
+		return result;
+	}
+
+
+	private static int writeDigits(int value, char[] buffer, int pos)
+	{
+		buffer[pos] = (char) ('0' + value / 10);
+		buffer[pos + 1] = (char) ('0' + value % 10);
+		return pos + 2;
+	}
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.math.BigInteger;
+
+
+/**
+ * Fast conversions between decimal text and <code>double</code> values.
+ * <p>
+ * {@link #toDouble(long, int, boolean)} converts a decimal significand and exponent to the correctly rounded double value. It tries Clinger's exact fast
+ * path first and the Eisel-Lemire algorithm next. In the rare cases that neither of them can decide, it returns {@link #UNDECIDED} and the caller has to
+ * fall back to {@link Double#parseDouble(String)}.
+ * </p>
+ * <p>
+ * {@link #format(double, char[], int)} writes the shortest decimal text of a value in the format of {@link Double#toString(double)} right to a char array.
+ * Only values that need more than 15 significant digits are passed to {@link Double#toString(double)}.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class DoubleConversion
+{
+	/**
+	 * The value returned by {@link #toDouble(long, int, boolean)} if the value can not be computed by the fast algorithms. This is a NaN bit pattern that no
+	 * conversion returns.
+	 */
+	public final static long UNDECIDED = -1L;
+
+	/**
+	 * The maximum number of decimal digits a significand can have.
+	 */
+	public final static int MAX_DIGITS = 19;
+
+	/**
+	 * The maximum number of characters {@link #format(double, char[], int)} writes.
+	 */
+	public final static int MAX_LENGTH = 32;
+
+	/**
+	 * All powers of ten that can be represented exactly by a double.
+	 */
+	private final static double[] EXACT_POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17,
+		1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private final static int SMALLEST_POWER_OF_TEN = -342;
+	private final static int LARGEST_POWER_OF_TEN = 308;
+
+	private final static int MANTISSA_BITS = 52;
+	private final static int MINIMUM_EXPONENT = -1023;
+	private final static int INFINITE_POWER = 0x7ff;
+	private final static long SIGN_BIT = 1L << 63;
+	private final static long INFINITY_BITS = (long) INFINITE_POWER << MANTISSA_BITS;
+
+	/**
+	 * The largest significand that's converted exactly by Clinger's fast path.
+	 */
+	private final static long MAX_EXACT_SIGNIFICAND = 1L << 53;
+
+	/**
+	 * The upper bound of the significands {@link #format(double, char[], int)} writes itself. Two decimals with at most 15 significant digits never round to
+	 * the same double, so the shortest text is unique in that range.
+	 */
+	private final static double MAX_SHORT_SIGNIFICAND = 1e15;
+
+	/**
+	 * The maximum number of significant digits {@link #format(double, char[], int)} writes itself.
+	 */
+	private final static int MAX_SHORT_DIGITS = 15;
+
+	/**
+	 * The smallest absolute value {@link #format(double, char[], int)} writes itself. The powers of ten to scale smaller values overflow.
+	 */
+	private final static double MIN_SHORT_VALUE = 1e-290;
+
+	/**
+	 * The smallest decimal exponent of values that {@link Double#toString(double)} doesn't write in scientific notation.
+	 */
+	private final static int MIN_PLAIN_EXPONENT = -3;
+
+	/**
+	 * The largest decimal exponent of values that {@link Double#toString(double)} doesn't write in scientific notation.
+	 */
+	private final static int MAX_PLAIN_EXPONENT = 6;
+
+
+	private DoubleConversion()
+	{
+	}
+
+
+	/**
+	 * Returns the bits of the double value closest to <code>significand * 10^exponent</code>.
+	 * 
+	 * @param significand
+	 *            The decimal significand, interpreted as an unsigned value of at most {@link #MAX_DIGITS} digits.
+	 * @param exponent
+	 *            The decimal exponent.
+	 * @param negative
+	 *            Whether the value is negative.
+	 * @return The bits of the double value as returned by {@link Double#doubleToRawLongBits(double)} or {@link #UNDECIDED}.
+	 */
+	public static long toDouble(long significand, int exponent, boolean negative)
+	{
+		long sign = negative ? SIGN_BIT : 0;
+		if (significand == 0 || exponent < SMALLEST_POWER_OF_TEN)
+		{
+			return sign;
+		}
+
+		if (exponent > LARGEST_POWER_OF_TEN)
+		{
+			return sign | INFINITY_BITS;
+		}
+
+		if (significand >= 0 && significand <= MAX_EXACT_SIGNIFICAND && exponent >= -22 && exponent <= 22)
+		{
+			// Clinger's fast path, both operands are exact, so the result is correctly rounded
+			double value = significand;
+			value = exponent < 0 ? value / EXACT_POWERS_OF_TEN[-exponent] : value * EXACT_POWERS_OF_TEN[exponent];
+			return sign | Double.doubleToRawLongBits(value);
+		}
+
+		long bits = eiselLemire(significand, exponent);
+		return bits == UNDECIDED ? UNDECIDED : sign | bits;
+	}
+
+
+	/**
+	 * The Eisel-Lemire algorithm, see Daniel Lemire, "Number Parsing at a Gigabyte per Second", Software: Practice and Experience 51 (8), 2021.
+	 */
+	private static long eiselLemire(long significand, int exponent)
+	{
+		int leadingZeros = Long.numberOfLeadingZeros(significand);
+		significand <<= leadingZeros;
+
+		long[] powersOfFive = PowersOfFive.TABLE;
+		int index = 2 * (exponent - SMALLEST_POWER_OF_TEN);
+
+		// we need the 55 most significant bits of the product, plus a few bits to detect ties
+		long high = multiplyHigh(significand, powersOfFive[index]);
+		long low = significand * powersOfFive[index];
+		long precisionMask = -1L >>> (MANTISSA_BITS + 3);
+		if ((high & precisionMask) == precisionMask)
+		{
+			// the lower bits of the product may carry into the upper bits, take the next 64 bits of the power of five into account
+			long secondHigh = multiplyHigh(significand, powersOfFive[index + 1]);
+			low += secondHigh;
+			if (unsignedLess(low, secondHigh))
+			{
+				++high;
+			}
+		}
+
+		if (low == -1L && (exponent < -27 || exponent > 55))
+		{
+			// the product may be off by one, we can't tell which way to round
+			return UNDECIDED;
+		}
+
+		int upperBit = (int) (high >>> 63);
+		long mantissa = high >>> (upperBit + 64 - MANTISSA_BITS - 3);
+		int power2 = (((152170 + 65536) * exponent) >> 16) + 63 + upperBit - leadingZeros - MINIMUM_EXPONENT;
+
+		if (power2 <= 0)
+		{
+			// a subnormal value
+			if (-power2 + 1 >= 64)
+			{
+				return 0;
+			}
+			mantissa >>>= -power2 + 1;
+			mantissa += mantissa & 1;
+			mantissa >>>= 1;
+			power2 = mantissa < 1L << MANTISSA_BITS ? 0 : 1;
+			return mantissa | (long) power2 << MANTISSA_BITS;
+		}
+
+		if ((low == 0 || low == 1) && exponent >= -4 && exponent <= 23 && (mantissa & 3) == 1)
+		{
+			// we may be exactly between two values, round to even
+			if (mantissa << (upperBit + 64 - MANTISSA_BITS - 3) == high)
+			{
+				mantissa &= ~1L;
+			}
+		}
+
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if (mantissa >= 2L << MANTISSA_BITS)
+		{
+			mantissa = 1L << MANTISSA_BITS;
+			++power2;
+		}
+		mantissa &= ~(1L << MANTISSA_BITS);
+
+		if (power2 >= INFINITE_POWER)
+		{
+			return INFINITY_BITS;
+		}
+		return mantissa | (long) power2 << MANTISSA_BITS;
+	}
+
+
+	/**
+	 * Returns the upper 64 bits of the unsigned 128 bit product of the given values.
+	 */
+	private static long multiplyHigh(long x, long y)
+	{
+		long x0 = x & 0xffffffffL;
+		long x1 = x >>> 32;
+		long y0 = y & 0xffffffffL;
+		long y1 = y >>> 32;
+		long p01 = x0 * y1;
+		long middle = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & 0xffffffffL);
+		return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+	}
+
+
+	private static boolean unsignedLess(long a, long b)
+	{
+		return (a ^ SIGN_BIT) < (b ^ SIGN_BIT);
+	}
+
+
+	/**
+	 * Writes the shortest decimal text that's parsed to the given value in the format of {@link Double#toString(double)} to the given buffer.
+	 * <p>
+	 * Finite values with up to 15 significant digits are written without creating any objects. Other values are passed to {@link Double#toString(double)}.
+	 * In rare cases older versions of {@link Double#toString(double)} write more digits than necessary, this method always writes the shortest text that
+	 * results in the same value.
+	 * </p>
+	 * 
+	 * @param value
+	 *            The value to write.
+	 * @param buffer
+	 *            The buffer to write to, it must have room for at least {@link #MAX_LENGTH} characters.
+	 * @param pos
+	 *            The position of the first character.
+	 * @return The position after the last character written.
+	 */
+	public static int format(double value, char[] buffer, int pos)
+	{
+		if (value == 0)
+		{
+			return copy(Double.doubleToRawLongBits(value) == 0 ? "0.0" : "-0.0", buffer, pos);
+		}
+
+		double absolute = Math.abs(value);
+		if (absolute >= MIN_SHORT_VALUE && absolute <= Double.MAX_VALUE)
+		{
+			long bits = Double.doubleToRawLongBits(absolute);
+			int exponent = (int) Math.floor(Math.log10(absolute));
+
+			// find the largest power of ten that still results in the same value when the text is parsed
+			for (int power = exponent; power > exponent - MAX_SHORT_DIGITS; --power)
+			{
+				double scaled = scale(absolute, -power);
+				if (scaled >= MAX_SHORT_SIGNIFICAND)
+				{
+					break;
+				}
+
+				long digits = (long) (scaled + 0.5);
+				// the scaled value is not exact, so the closest significand may be one off, at most one of them converts back to the value
+				for (long candidate = digits - 1; candidate <= digits + 1; ++candidate)
+				{
+					long candidateBits = toDouble(candidate, power, false);
+					if (candidateBits == bits)
+					{
+						return write(candidate, power, value < 0, buffer, pos);
+					}
+					else if (candidateBits == UNDECIDED)
+					{
+						return copy(Double.toString(value), buffer, pos);
+					}
+				}
+			}
+		}
+		return copy(Double.toString(value), buffer, pos);
+	}
+
+
+	/**
+	 * Returns the shortest decimal text that's parsed to the given value in the format of {@link Double#toString(double)}.
+	 * 
+	 * @param value
+	 *            The value to convert.
+	 * @return The text.
+	 * @see #format(double, char[], int)
+	 */
+	public static String toString(double value)
+	{
+		char[] buffer = new char[MAX_LENGTH];
+		return new String(buffer, 0, format(value, buffer, 0));
+	}
+
+
+	/**
+	 * Returns <code>value * 10^exponent</code>, exactly rounded if the power of ten is exact.
+	 */
+	private static double scale(double value, int exponent)
+	{
+		if (exponent >= 0 && exponent < EXACT_POWERS_OF_TEN.length)
+		{
+			return value * EXACT_POWERS_OF_TEN[exponent];
+		}
+		else if (exponent < 0 && -exponent < EXACT_POWERS_OF_TEN.length)
+		{
+			return value / EXACT_POWERS_OF_TEN[-exponent];
+		}
+		return value * Math.pow(10, exponent);
+	}
+
+
+	/**
+	 * Writes <code>digits * 10^power</code> like {@link Double#toString(double)} does. The text is built from right to left at the end of the buffer space and
+	 * moved to the given position afterwards.
+	 */
+	private static int write(long digits, int power, boolean negative, char[] buffer, int pos)
+	{
+		// trailing zeros are not significant
+		while (digits % 10 == 0)
+		{
+			digits /= 10;
+			++power;
+		}
+
+		int digitCount = 1;
+		for (long rest = digits / 10; rest != 0; rest /= 10)
+		{
+			++digitCount;
+		}
+		int decimalExponent = power + digitCount - 1;
+
+		int end = pos + MAX_LENGTH;
+		int start = end;
+		if (decimalExponent >= MIN_PLAIN_EXPONENT && decimalExponent <= MAX_PLAIN_EXPONENT)
+		{
+			for (; power > 0; --power)
+			{
+				digits *= 10;
+			}
+
+			if (power == 0)
+			{
+				buffer[--start] = '0';
+			}
+
+			for (; power < 0; ++power)
+			{
+				buffer[--start] = (char) ('0' + digits % 10);
+				digits /= 10;
+			}
+			buffer[--start] = '.';
+
+			do
+			{
+				buffer[--start] = (char) ('0' + digits % 10);
+				digits /= 10;
+			}
+			while (digits != 0);
+		}
+		else
+		{
+			int exponent = Math.abs(decimalExponent);
+			do
+			{
+				buffer[--start] = (char) ('0' + exponent % 10);
+				exponent /= 10;
+			}
+			while (exponent != 0);
+
+			if (decimalExponent < 0)
+			{
+				buffer[--start] = '-';
+			}
+			buffer[--start] = 'E';
+
+			if (digitCount == 1)
+			{
+				buffer[--start] = '0';
+			}
+
+			for (int i = 1; i < digitCount; ++i)
+			{
+				buffer[--start] = (char) ('0' + digits % 10);
+				digits /= 10;
+			}
+			buffer[--start] = '.';
+			buffer[--start] = (char) ('0' + digits);
+		}
+
+		if (negative)
+		{
+			buffer[--start] = '-';
+		}
+
+		System.arraycopy(buffer, start, buffer, pos, end - start);
+		return pos + end - start;
+	}
+
+
+	private static int copy(String text, char[] buffer, int pos)
+	{
+		int length = text.length();
+		text.getChars(0, length, buffer, pos);
+		return pos + length;
+	}
+
+	/**
+	 * The 128 bit approximations of the powers of five from 5<sup>-342</sup> to 5<sup>308</sup>, normalized to have the most significant bit set. Each power
+	 * takes two entries, the upper 64 bits first. The table is computed when it's used for the first time.
+	 */
+	private final static class PowersOfFive
+	{
+		public final static long[] TABLE = computeTable();
+
+
+		private static long[] computeTable()
+		{
+			long[] table = new long[2 * (LARGEST_POWER_OF_TEN - SMALLEST_POWER_OF_TEN + 1)];
+			BigInteger five = BigInteger.valueOf(5);
+			int index = 0;
+			for (int q = SMALLEST_POWER_OF_TEN; q <= LARGEST_POWER_OF_TEN; ++q)
+			{
+				BigInteger value;
+				if (q < 0)
+				{
+					// the reciprocal, rounded up
+					BigInteger power = five.pow(-q);
+					int bits = power.bitLength();
+					value = BigInteger.ONE.shiftLeft(q >= -27 ? bits + 127 : 2 * bits + 128).divide(power).add(BigInteger.ONE);
+				}
+				else
+				{
+					value = five.pow(q);
+				}
+
+				// move the most significant bit to position 127, truncating the lower bits if necessary
+				value = value.shiftLeft(128 - value.bitLength());
+				table[index++] = value.shiftRight(64).longValue();
+				table[index++] = value.longValue();
+			}
+			return table;
+		}
+	}
+}
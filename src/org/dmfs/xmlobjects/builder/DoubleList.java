@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.util.Arrays;
+
+
+/**
+ * A growable list of <code>double</code> values. Unlike a <code>List&lt;Double&gt;</code> it stores the values in a <code>double[]</code> without boxing them.
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ * 
+ * @see DoubleListObjectBuilder
+ */
+public final class DoubleList
+{
+	private double[] mValues;
+
+	private int mSize;
+
+
+	/**
+	 * Creates an empty list with the given initial capacity.
+	 * 
+	 * @param initialCapacity
+	 *            The number of values the list can hold before it has to grow.
+	 */
+	public DoubleList(int initialCapacity)
+	{
+		mValues = new double[initialCapacity];
+	}
+
+
+	/**
+	 * Appends a value to the list.
+	 * 
+	 * @param value
+	 *            The value to append.
+	 */
+	public void add(double value)
+	{
+		if (mSize == mValues.length)
+		{
+			mValues = Arrays.copyOf(mValues, Math.max(8, mSize + (mSize >> 1)));
+		}
+		mValues[mSize++] = value;
+	}
+
+
+	/**
+	 * Returns the value at the given position.
+	 * 
+	 * @param index
+	 *            The position of the value.
+	 * @return The value.
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is negative or not less than {@link #size()}.
+	 */
+	public double get(int index)
+	{
+		if (index >= mSize)
+		{
+			throw new IndexOutOfBoundsException("index " + index + " is out of bounds, size is " + mSize);
+		}
+		return mValues[index];
+	}
+
+
+	/**
+	 * Returns the number of values in this list.
+	 * 
+	 * @return The size of the list.
+	 */
+	public int size()
+	{
+		return mSize;
+	}
+
+
+	/**
+	 * Removes all values from this list. The capacity of the list is retained.
+	 */
+	public void clear()
+	{
+		mSize = 0;
+	}
+
+
+	/**
+	 * Returns a copy of the values in this list.
+	 * 
+	 * @return A <code>double[]</code> of length {@link #size()}.
+	 */
+	public double[] toArray()
+	{
+		return Arrays.copyOf(mValues, mSize);
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return Arrays.toString(toArray());
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlCharArrayChildWriter;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
+
+
+/**
+ * A builder for lists of <code>double</code> values. It works like a {@link ListObjectBuilder} for {@link Double}s, but it returns an {@link DoubleList}
+ * that stores the values without boxing them.
+ * <p>
+ * Example:
+ * </p>
+ * 
+ * <pre>
+ * &lt;values>
+ *    &lt;v>1&lt;/v>
+ *    &lt;v>2&lt;/v>
+ *    &lt;v>3&lt;/v>
+ * &lt;/values>
+ * </pre>
+ * <p>
+ * The values are built by the builder of the list element descriptor, e.g. {@link DoubleObjectBuilder}, and unboxed immediately. <code>null</code> values
+ * are skipped.
+ * </p>
+ * <p>
+ * If the list element descriptor uses one of the {@link DoubleObjectBuilder} instances the values are serialized without boxing them, other builders get boxed
+ * values.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public class DoubleListObjectBuilder extends AbstractObjectBuilder<DoubleList>
+{
+	private final static int DEFAULT_INITIAL_CAPACITY = 16;
+
+	/**
+	 * The number of bytes a list entry retains, reported to {@link ParserContext#retain(long)}.
+	 */
+	private final static int ENTRY_SIZE = 8;
+
+	private final ElementDescriptor<Double> mListElementDescriptor;
+
+	private final int mInitialCapacity;
+
+
+	public DoubleListObjectBuilder(ElementDescriptor<Double> listElementDescriptor)
+	{
+		this(listElementDescriptor, DEFAULT_INITIAL_CAPACITY);
+	}
+
+
+	public DoubleListObjectBuilder(ElementDescriptor<Double> listElementDescriptor, int initialCapacity)
+	{
+		mListElementDescriptor = listElementDescriptor;
+		mInitialCapacity = initialCapacity;
+	}
+
+
+	@Override
+	public DoubleList get(ElementDescriptor<DoubleList> descriptor, DoubleList recycle, ParserContext context)
+	{
+		if (recycle != null)
+		{
+			// we have a list that we can recycle
+			recycle.clear();
+			return recycle;
+		}
+		else
+		{
+			// return a new list
+			return new DoubleList(mInitialCapacity);
+		}
+	}
+
+
+	@Override
+	public <V> DoubleList update(ElementDescriptor<DoubleList> descriptor, DoubleList object, ElementDescriptor<V> childDescriptor, V child,
+		ParserContext context) throws XmlObjectPullParserException
+	{
+		if (childDescriptor == mListElementDescriptor && child != null)
+		{
+			object.add(((Double) child).doubleValue());
+			context.retain(ENTRY_SIZE);
+		}
+		else
+		{
+			context.releaseChild();
+		}
+		return object;
+	}
+
+
+	@Override
+	public void writeChildren(ElementDescriptor<DoubleList> descriptor, DoubleList object, IXmlChildWriter childWriter, SerializerContext context)
+		throws SerializerException, IOException
+	{
+		if (object == null)
+		{
+			return;
+		}
+
+		ElementDescriptor<Double> listElementDescriptor = mListElementDescriptor;
+		if (childWriter instanceof IXmlCharArrayChildWriter
+			&& (listElementDescriptor.builder == DoubleObjectBuilder.INSTANCE || listElementDescriptor.builder == DoubleObjectBuilder.INSTANCE_STRICT))
+		{
+			// we know what the builder writes, so we write the values without boxing them
+			IXmlCharArrayChildWriter textChildWriter = (IXmlCharArrayChildWriter) childWriter;
+			for (int i = 0, count = object.size(); i < count; ++i)
+			{
+				textChildWriter.writeTextChild(listElementDescriptor, DoubleConversion.toString(object.get(i)), context);
+			}
+		}
+		else
+		{
+			for (int i = 0, count = object.size(); i < count; ++i)
+			{
+				childWriter.writeChild(listElementDescriptor, object.get(i), context);
+			}
+		}
+	}
+}
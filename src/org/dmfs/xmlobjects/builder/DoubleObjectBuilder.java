@@ -36,7 +36,7 @@ import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
  * 
  * @author Marten Gajda <marten@dmfs.org>
  */
-public class DoubleObjectBuilder extends AbstractObjectBuilder<Double>
+public class DoubleObjectBuilder extends AbstractObjectBuilder<Double> implements ICharArrayObjectBuilder<Double>
 {
 
 	/**
@@ -61,34 +61,55 @@ public class DoubleObjectBuilder extends AbstractObjectBuilder<Double>
 	@Override
 	public Double update(ElementDescriptor<Double> descriptor, Double object, String text, ParserContext context) throws XmlObjectPullParserException
 	{
-		if (text == null && !mStrict)
+		Double result = text == null ? null : TextParser.parseDouble(text, 0, text.length());
+		if (result != null || !mStrict)
 		{
-			return null;
+			return result;
 		}
 
 		try
 		{
-			return Double.parseDouble(mStrict ? text : text.trim());
+			// let Double.parseDouble decide, it also supports hexadecimal values
+			return Double.parseDouble(text);
 		}
 		catch (NumberFormatException e)
 		{
-			if (!mStrict)
-			{
-				return null;
-			}
-
 			throw new XmlObjectPullParserException("could not parse double in '" + text + "'", e);
 		}
 	}
 
 
+	@Override
+	public Double update(ElementDescriptor<Double> descriptor, Double object, char[] text, int start, int length, ParserContext context)
+		throws XmlObjectPullParserException
+	{
+		// parse the value in place, the text is only copied in rare cases
+		CharArraySequence sequence = CharArraySequence.wrap(context, text);
+		Double result;
+		try
+		{
+			result = TextParser.parseDouble(sequence, start, start + length);
+		}
+		finally
+		{
+			sequence.release();
+		}
+		if (result != null || !mStrict)
+		{
+			return result;
+		}
+		return update(descriptor, object, new String(text, start, length), context);
+	}
+
+
 	@Override
 	public void writeChildren(ElementDescriptor<Double> descriptor, Double object, IXmlChildWriter childWriter, SerializerContext context)
 		throws SerializerException, IOException
 	{
 		if (object != null)
 		{
-			childWriter.writeText(object.toString(), context);
+			char[] buffer = context.getTextBuffer(DoubleConversion.MAX_LENGTH);
+			context.writeText(childWriter, buffer, 0, DoubleConversion.format(object, buffer, 0));
 		}
 		else if (mStrict)
 		{
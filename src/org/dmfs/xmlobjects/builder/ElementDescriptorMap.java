@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+
+
+/**
+ * A {@link Map} of {@link ElementDescriptor}s to values. It's much cheaper than a {@link java.util.HashMap}, because it doesn't create entry objects and
+ * doesn't compute any hash codes.
+ * <p>
+ * The keys and values are stored in insertion order in two arrays. Maps with up to {@value #INLINE_SIZE} entries are searched by comparing the keys
+ * directly. Larger maps have a table that's indexed by the {@link ElementDescriptor#ordinal} of the keys. Since the ordinals of related descriptors are
+ * consecutive, the table usually has no collisions at all.
+ * </p>
+ * <p>
+ * This map doesn't permit <code>null</code> keys. Like {@link java.util.HashMap} it is not thread safe.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ * 
+ * @param <V>
+ *            The value type.
+ * 
+ * @see ElementMapObjectBuilder
+ */
+public final class ElementDescriptorMap<V> extends AbstractMap<ElementDescriptor<?>, V>
+{
+	/**
+	 * The maximum number of entries that are searched without an index table.
+	 */
+	public final static int INLINE_SIZE = 8;
+
+	private ElementDescriptor<?>[] mKeys;
+
+	private Object[] mValues;
+
+	private int mSize;
+
+	/**
+	 * The index table or <code>null</code> if the map doesn't have more than {@link #INLINE_SIZE} entries. Each slot contains the position of an entry plus
+	 * one or 0 if the slot is free. The length is a power of two.
+	 */
+	private int[] mTable;
+
+	/**
+	 * Counts structural modifications, so iterators can detect concurrent modifications.
+	 */
+	private int mModCount;
+
+	/**
+	 * The entry set, created when it's needed for the first time.
+	 */
+	private Set<Map.Entry<ElementDescriptor<?>, V>> mEntrySet;
+
+
+	/**
+	 * Creates an empty map with the given initial capacity.
+	 * 
+	 * @param initialCapacity
+	 *            The number of entries the map can hold before it has to grow.
+	 */
+	public ElementDescriptorMap(int initialCapacity)
+	{
+		mKeys = new ElementDescriptor<?>[initialCapacity];
+		mValues = new Object[initialCapacity];
+	}
+
+
+	@Override
+	public int size()
+	{
+		return mSize;
+	}
+
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return indexOf(key) >= 0;
+	}
+
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key)
+	{
+		int index = indexOf(key);
+		return index < 0 ? null : (V) mValues[index];
+	}
+
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put(ElementDescriptor<?> key, V value)
+	{
+		if (key == null)
+		{
+			throw new NullPointerException("key must not be null");
+		}
+
+		int index = indexOf(key);
+		if (index >= 0)
+		{
+			V previous = (V) mValues[index];
+			mValues[index] = value;
+			return previous;
+		}
+
+		int size = mSize;
+		if (size == mKeys.length)
+		{
+			int capacity = Math.max(INLINE_SIZE, size + (size >> 1));
+			mKeys = Arrays.copyOf(mKeys, capacity);
+			mValues = Arrays.copyOf(mValues, capacity);
+		}
+		mKeys[size] = key;
+		mValues[size] = value;
+		mSize = ++size;
+		++mModCount;
+
+		if (size > INLINE_SIZE)
+		{
+			if (mTable == null || size * 2 > mTable.length)
+			{
+				rebuildTable();
+			}
+			else
+			{
+				insert(mTable, key.ordinal, size);
+			}
+		}
+		return null;
+	}
+
+
+	@Override
+	public V remove(Object key)
+	{
+		int index = indexOf(key);
+		if (index < 0)
+		{
+			return null;
+		}
+		return removeAt(index);
+	}
+
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(mKeys, 0, mSize, null);
+		Arrays.fill(mValues, 0, mSize, null);
+		mSize = 0;
+		mTable = null;
+		++mModCount;
+	}
+
+
+	@Override
+	public Set<Map.Entry<ElementDescriptor<?>, V>> entrySet()
+	{
+		if (mEntrySet == null)
+		{
+			mEntrySet = new EntrySet();
+		}
+		return mEntrySet;
+	}
+
+
+	/**
+	 * Returns the position of the given key or -1 if the key is not in this map.
+	 */
+	private int indexOf(Object key)
+	{
+		int[] table = mTable;
+		if (table == null)
+		{
+			ElementDescriptor<?>[] keys = mKeys;
+			for (int i = 0, size = mSize; i < size; ++i)
+			{
+				if (keys[i] == key)
+				{
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		if (!(key instanceof ElementDescriptor))
+		{
+			return -1;
+		}
+
+		int mask = table.length - 1;
+		int slot = ((ElementDescriptor<?>) key).ordinal & mask;
+		int entry;
+		while ((entry = table[slot]) != 0)
+		{
+			if (mKeys[entry - 1] == key)
+			{
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private V removeAt(int index)
+	{
+		V previous = (V) mValues[index];
+		int size = --mSize;
+		// keep the insertion order
+		System.arraycopy(mKeys, index + 1, mKeys, index, size - index);
+		System.arraycopy(mValues, index + 1, mValues, index, size - index);
+		mKeys[size] = null;
+		mValues[size] = null;
+		++mModCount;
+
+		if (size > INLINE_SIZE)
+		{
+			rebuildTable();
+		}
+		else
+		{
+			mTable = null;
+		}
+		return previous;
+	}
+
+
+	/**
+	 * Creates a new index table with at least twice as many slots as there are entries.
+	 */
+	private void rebuildTable()
+	{
+		int tableSize = INLINE_SIZE * 2;
+		while (tableSize < mSize * 2)
+		{
+			tableSize <<= 1;
+		}
+
+		int[] table = new int[tableSize];
+		ElementDescriptor<?>[] keys = mKeys;
+		for (int i = 0, size = mSize; i < size; ++i)
+		{
+			insert(table, keys[i].ordinal, i + 1);
+		}
+		mTable = table;
+	}
+
+
+	private static void insert(int[] table, int ordinal, int entry)
+	{
+		int mask = table.length - 1;
+		int slot = ordinal & mask;
+		while (table[slot] != 0)
+		{
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = entry;
+	}
+
+	/**
+	 * The entry set of this map. It returns the entries in insertion order.
+	 */
+	private final class EntrySet extends AbstractSet<Map.Entry<ElementDescriptor<?>, V>>
+	{
+		@Override
+		public Iterator<Map.Entry<ElementDescriptor<?>, V>> iterator()
+		{
+			return new EntryIterator();
+		}
+
+
+		@Override
+		public int size()
+		{
+			return mSize;
+		}
+
+
+		@Override
+		public void clear()
+		{
+			ElementDescriptorMap.this.clear();
+		}
+	}
+
+	/**
+	 * An {@link Iterator} of the entries of this map.
+	 */
+	private final class EntryIterator implements Iterator<Map.Entry<ElementDescriptor<?>, V>>
+	{
+		private int mNext;
+
+		private int mLast = -1;
+
+		private int mExpectedModCount = mModCount;
+
+
+		@Override
+		public boolean hasNext()
+		{
+			return mNext < mSize;
+		}
+
+
+		@Override
+		public Map.Entry<ElementDescriptor<?>, V> next()
+		{
+			if (mModCount != mExpectedModCount)
+			{
+				throw new ConcurrentModificationException();
+			}
+			if (mNext >= mSize)
+			{
+				throw new NoSuchElementException();
+			}
+			mLast = mNext++;
+			return new Entry(mLast);
+		}
+
+
+		@Override
+		public void remove()
+		{
+			if (mLast < 0)
+			{
+				throw new IllegalStateException();
+			}
+			if (mModCount != mExpectedModCount)
+			{
+				throw new ConcurrentModificationException();
+			}
+			removeAt(mLast);
+			mNext = mLast;
+			mLast = -1;
+			mExpectedModCount = mModCount;
+		}
+	}
+
+	/**
+	 * An entry of this map. It refers to the position of the entry, so it's only valid until the map is modified structurally.
+	 */
+	private final class Entry implements Map.Entry<ElementDescriptor<?>, V>
+	{
+		private final int mIndex;
+
+
+		public Entry(int index)
+		{
+			mIndex = index;
+		}
+
+
+		@Override
+		public ElementDescriptor<?> getKey()
+		{
+			return mKeys[mIndex];
+		}
+
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V getValue()
+		{
+			return (V) mValues[mIndex];
+		}
+
+
+		@Override
+		public V setValue(V value)
+		{
+			V previous = getValue();
+			mValues[mIndex] = value;
+			return previous;
+		}
+
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Map.Entry))
+			{
+				return false;
+			}
+			Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+			Object value = getValue();
+			return getKey() == other.getKey() && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+		}
+
+
+		@Override
+		public int hashCode()
+		{
+			Object value = getValue();
+			return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+
+		@Override
+		public String toString()
+		{
+			return getKey().qualifiedName + "=" + getValue();
+		}
+	}
+}
@@ -18,7 +18,6 @@
 package org.dmfs.xmlobjects.builder;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -45,6 +44,9 @@ import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
  *     &lt;element-z>value-3&lt;/element-z>
  * &lt;/values>
  * </pre>
+ * <p>
+ * New maps are {@link ElementDescriptorMap}s, which are much cheaper than {@link java.util.HashMap}s.
+ * </p>
  * 
  * @author Marten Gajda <marten@dmfs.org>
  * 
@@ -62,23 +64,35 @@ public class ElementMapObjectBuilder extends AbstractObjectBuilder<Map<ElementDe
 	 * The initial capacity when creating instances with {@link #ElementMapObjectBuilder()}. Use {@link #ElementMapObjectBuilder(int)} to specify a different
 	 * initial capacity.
 	 */
-	public final static int DEFAULT_INITIAL_CAPACITY = 16;
+	public final static int DEFAULT_INITIAL_CAPACITY = ElementDescriptorMap.INLINE_SIZE;
 
 	/**
 	 * The actual initial capacity for new instances.
 	 */
 	private final int mInitialCapacity;
 
+	/**
+	 * The {@link CapacityEstimator} that sizes new collections or <code>null</code> if the builder uses a fixed initial capacity.
+	 */
+	private final CapacityEstimator mEstimator;
+
 
 	public ElementMapObjectBuilder()
 	{
-		mInitialCapacity = DEFAULT_INITIAL_CAPACITY;
+		this(DEFAULT_INITIAL_CAPACITY);
 	}
 
 
+	/**
+	 * Creates an {@link ElementMapObjectBuilder} with the given initial capacity.
+	 * 
+	 * @param initialCapacity
+	 *            The initial capacity of new maps or {@link CapacityEstimator#ADAPTIVE_CAPACITY} to size new maps by the sizes of previous ones.
+	 */
 	public ElementMapObjectBuilder(int initialCapacity)
 	{
 		mInitialCapacity = initialCapacity;
+		mEstimator = initialCapacity == CapacityEstimator.ADAPTIVE_CAPACITY ? new CapacityEstimator(DEFAULT_INITIAL_CAPACITY) : null;
 	}
 
 
@@ -93,7 +107,7 @@ public class ElementMapObjectBuilder extends AbstractObjectBuilder<Map<ElementDe
 		}
 		else
 		{
-			return new HashMap<ElementDescriptor<?>, Object>(mInitialCapacity);
+			return new ElementDescriptorMap<Object>(mEstimator == null ? mInitialCapacity : mEstimator.getEstimatedSize(descriptor));
 		}
 	}
 
@@ -111,6 +125,29 @@ public class ElementMapObjectBuilder extends AbstractObjectBuilder<Map<ElementDe
 	}
 
 
+	@Override
+	public Map<ElementDescriptor<?>, Object> finish(ElementDescriptor<Map<ElementDescriptor<?>, Object>> descriptor, Map<ElementDescriptor<?>, Object> object,
+		ParserContext context) throws XmlObjectPullParserException
+	{
+		if (mEstimator != null && object != null)
+		{
+			mEstimator.record(descriptor, object.size());
+		}
+		return object;
+	}
+
+
+	/**
+	 * Returns the {@link CapacityEstimator} of this builder.
+	 * 
+	 * @return The {@link CapacityEstimator} or <code>null</code> if this builder has not been created with {@link CapacityEstimator#ADAPTIVE_CAPACITY}.
+	 */
+	public CapacityEstimator getCapacityEstimator()
+	{
+		return mEstimator;
+	}
+
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public void writeChildren(ElementDescriptor<Map<ElementDescriptor<?>, Object>> descriptor, Map<ElementDescriptor<?>, Object> object,
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
+
+
+/**
+ * A builder for elements that enclose an ISO 8601 date-time like so:
+ * 
+ * <pre>
+ * &lt;some-time>2015-04-23T10:20:30.123+02:00&lt;/some-time>
+ * </pre>
+ * <p>
+ * The value is returned as the milliseconds since the epoch, values without an offset are taken as UTC. The text is parsed in place without creating any
+ * intermediate objects. Values are serialized in UTC like <code>2015-04-23T08:20:30.123Z</code>.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public class EpochMillisObjectBuilder extends AbstractObjectBuilder<Long> implements ICharArrayObjectBuilder<Long>
+{
+
+	/**
+	 * A strict {@link EpochMillisObjectBuilder}. If the value can not be parsed as a date-time it will throw an {@link XmlObjectPullParserException}.
+	 */
+	public final static EpochMillisObjectBuilder INSTANCE_STRICT = new EpochMillisObjectBuilder(true);
+
+	/**
+	 * A tolerant {@link EpochMillisObjectBuilder}. Instead of throwing an exception it will return a <code>null</code> value.
+	 */
+	public final static EpochMillisObjectBuilder INSTANCE = new EpochMillisObjectBuilder(false);
+
+	private final boolean mStrict;
+
+
+	private EpochMillisObjectBuilder(boolean strict)
+	{
+		mStrict = strict;
+	}
+
+
+	@Override
+	public Long update(ElementDescriptor<Long> descriptor, Long object, String text, ParserContext context) throws XmlObjectPullParserException
+	{
+		long millis = text == null ? DateTimeConversion.INVALID : DateTimeConversion.parse(text, 0, text.length());
+		if (millis != DateTimeConversion.INVALID)
+		{
+			return millis;
+		}
+		else if (!mStrict)
+		{
+			return null;
+		}
+
+		throw new XmlObjectPullParserException("could not parse date-time in '" + text + "'");
+	}
+
+
+	@Override
+	public Long update(ElementDescriptor<Long> descriptor, Long object, char[] text, int start, int length, ParserContext context)
+		throws XmlObjectPullParserException
+	{
+		CharArraySequence sequence = CharArraySequence.wrap(context, text);
+		long millis;
+		try
+		{
+			millis = DateTimeConversion.parse(sequence, start, start + length);
+		}
+		finally
+		{
+			sequence.release();
+		}
+		if (millis != DateTimeConversion.INVALID)
+		{
+			return millis;
+		}
+		else if (!mStrict)
+		{
+			return null;
+		}
+
+		throw new XmlObjectPullParserException("could not parse date-time in '" + new String(text, start, length) + "'");
+	}
+
+
+	@Override
+	public void writeChildren(ElementDescriptor<Long> descriptor, Long object, IXmlChildWriter childWriter, SerializerContext context)
+		throws SerializerException, IOException
+	{
+		if (object != null)
+		{
+			char[] buffer = context.getTextBuffer(DateTimeConversion.MAX_LENGTH);
+			context.writeText(childWriter, buffer, 0, DateTimeConversion.format(object, 0, buffer, 0));
+		}
+		else if (mStrict)
+		{
+			throw new IllegalStateException("date-time value is null");
+		}
+	}
+}
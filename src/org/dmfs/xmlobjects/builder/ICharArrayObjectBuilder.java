@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+
+
+/**
+ * The interface of an {@link IObjectBuilder} that can take text values from a range of a char array. Builders implementing this interface receive text
+ * values through {@link #update(ElementDescriptor, Object, char[], int, int, ParserContext)} instead of
+ * {@link #update(ElementDescriptor, Object, String, ParserContext)} when used by {@link XmlObjectPull}, so no {@link String} has to be created for every text
+ * node.
+ * <p>
+ * If the text of an element is reported in multiple consecutive chunks, {@link XmlObjectPull} collects them and passes the complete text in one call.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ * 
+ * @param <T>
+ *            The type of the objects this builder builds and serializes.
+ */
+public interface ICharArrayObjectBuilder<T> extends IObjectBuilder<T>
+{
+
+	/**
+	 * Update an object of type T with a text value. This method must be prepared to accept any value that can be returned by
+	 * {@link #get(ElementDescriptor, Object, ParserContext)} or one of the <code>update</code> methods, including <code>null</code>.
+	 * <p>
+	 * <strong>Note:</strong> The char array is owned by the parser and will be overridden once this method returns. Builders must not keep a reference to it.
+	 * </p>
+	 * 
+	 * @param descriptor
+	 *            The {@link ElementDescriptor} of the element that has been parsed.
+	 * @param object
+	 *            The object to update, may be <code>null</code>.
+	 * @param text
+	 *            A char array that contains the text that has been parsed.
+	 * @param start
+	 *            The index of the first char of the text.
+	 * @param length
+	 *            The number of chars of the text.
+	 * @param context
+	 *            A {@link ParserContext}.
+	 * @return The updated instance of T, which might be a completely new instance or <code>null</code>.
+	 * @throws XmlObjectPullParserException
+	 */
+	public T update(ElementDescriptor<T> descriptor, T object, char[] text, int start, int length, ParserContext context) throws XmlObjectPullParserException;
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
+import org.xmlpull.v1.XmlPullParser;
+
+
+/**
+ * An {@link ICharArrayObjectBuilder} that is able to process text in chunks. {@link XmlObjectPull} doesn't collect the text for such builders, instead it
+ * advances the parser with {@link XmlPullParser#nextToken()} within such elements and passes every text, CDATA section and entity reference right from the
+ * buffer of the parser. That means {@link #update(ElementDescriptor, Object, char[], int, int, ParserContext)} can be called multiple times for the same
+ * element, each time with the next chunk of the text.
+ * <p>
+ * This is meant for builders that forward large text values to some other place (like a file) instead of keeping them in memory.
+ * </p>
+ * <p>
+ * <strong>Note:</strong> The {@link XmlPullParser} still buffers each chunk completely. Whether it splits a long run of plain text into several chunks
+ * depends on the parser implementation, many parsers (including kXML) don't. So a single huge text run is still kept in the buffer of the parser, while
+ * the collected result (like a decoded attachment) is not.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ * 
+ * @param <T>
+ *            The type of the objects this builder builds and serializes.
+ */
+public interface IStreamingObjectBuilder<T> extends ICharArrayObjectBuilder<T>
+{
+}
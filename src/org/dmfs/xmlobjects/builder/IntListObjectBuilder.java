@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlCharArrayChildWriter;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
+
+
+/**
+ * A builder for lists of <code>int</code> values. It works like a {@link ListObjectBuilder} for {@link Integer}s, but it returns an {@link IntList}
+ * that stores the values without boxing them.
+ * <p>
+ * Example:
+ * </p>
+ * 
+ * <pre>
+ * &lt;values>
+ *    &lt;v>1&lt;/v>
+ *    &lt;v>2&lt;/v>
+ *    &lt;v>3&lt;/v>
+ * &lt;/values>
+ * </pre>
+ * <p>
+ * The values are built by the builder of the list element descriptor, e.g. {@link IntegerObjectBuilder}, and unboxed immediately. <code>null</code> values
+ * are skipped.
+ * </p>
+ * <p>
+ * If the list element descriptor uses one of the {@link IntegerObjectBuilder} instances the values are serialized without boxing them, other builders get boxed
+ * values.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public class IntListObjectBuilder extends AbstractObjectBuilder<IntList>
+{
+	private final static int DEFAULT_INITIAL_CAPACITY = 16;
+
+	/**
+	 * The number of bytes a list entry retains, reported to {@link ParserContext#retain(long)}.
+	 */
+	private final static int ENTRY_SIZE = 4;
+
+	private final ElementDescriptor<Integer> mListElementDescriptor;
+
+	private final int mInitialCapacity;
+
+
+	public IntListObjectBuilder(ElementDescriptor<Integer> listElementDescriptor)
+	{
+		this(listElementDescriptor, DEFAULT_INITIAL_CAPACITY);
+	}
+
+
+	public IntListObjectBuilder(ElementDescriptor<Integer> listElementDescriptor, int initialCapacity)
+	{
+		mListElementDescriptor = listElementDescriptor;
+		mInitialCapacity = initialCapacity;
+	}
+
+
+	@Override
+	public IntList get(ElementDescriptor<IntList> descriptor, IntList recycle, ParserContext context)
+	{
+		if (recycle != null)
+		{
+			// we have a list that we can recycle
+			recycle.clear();
+			return recycle;
+		}
+		else
+		{
+			// return a new list
+			return new IntList(mInitialCapacity);
+		}
+	}
+
+
+	@Override
+	public <V> IntList update(ElementDescriptor<IntList> descriptor, IntList object, ElementDescriptor<V> childDescriptor, V child,
+		ParserContext context) throws XmlObjectPullParserException
+	{
+		if (childDescriptor == mListElementDescriptor && child != null)
+		{
+			object.add(((Integer) child).intValue());
+			context.retain(ENTRY_SIZE);
+		}
+		else
+		{
+			context.releaseChild();
+		}
+		return object;
+	}
+
+
+	@Override
+	public void writeChildren(ElementDescriptor<IntList> descriptor, IntList object, IXmlChildWriter childWriter, SerializerContext context)
+		throws SerializerException, IOException
+	{
+		if (object == null)
+		{
+			return;
+		}
+
+		ElementDescriptor<Integer> listElementDescriptor = mListElementDescriptor;
+		if (childWriter instanceof IXmlCharArrayChildWriter
+			&& (listElementDescriptor.builder == IntegerObjectBuilder.INSTANCE || listElementDescriptor.builder == IntegerObjectBuilder.INSTANCE_STRICT))
+		{
+			// we know what the builder writes, so we write the values without boxing them
+			IXmlCharArrayChildWriter textChildWriter = (IXmlCharArrayChildWriter) childWriter;
+			for (int i = 0, count = object.size(); i < count; ++i)
+			{
+				textChildWriter.writeTextChild(listElementDescriptor, Integer.toString(object.get(i)), context);
+			}
+		}
+		else
+		{
+			for (int i = 0, count = object.size(); i < count; ++i)
+			{
+				childWriter.writeChild(listElementDescriptor, object.get(i), context);
+			}
+		}
+	}
+}
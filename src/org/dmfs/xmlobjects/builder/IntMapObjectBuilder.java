@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
+
+
+/**
+ * An {@link IObjectBuilder} that builds an {@link IntObjectMap} from the child elements of a specific type. It works like a {@link MapObjectBuilder}, but
+ * the index is an <code>int</code> that's neither boxed nor stored in an entry object. <code>null</code> children are not stored in the map.
+ * <p>
+ * Finished maps are compacted and read-only, see {@link IntObjectMap#compact()}.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ * 
+ * @param <V>
+ *            The value type.
+ */
+public class IntMapObjectBuilder<V> extends AbstractObjectBuilder<IntObjectMap<V>>
+{
+	/**
+	 * The default size of maps created by this builder.
+	 */
+	public final static int DEFAULT_INITIAL_MAP_SIZE = 16;
+
+	/**
+	 * The estimated number of bytes a map entry retains, reported to {@link ParserContext#retain(long)}.
+	 */
+	private final static int ESTIMATED_ENTRY_SIZE = 16;
+
+	/**
+	 * The interface of a class that knows how to determine the index of a specific value.
+	 * 
+	 * @param <V>
+	 *            The value type.
+	 */
+	public interface Mapper<V>
+	{
+		/**
+		 * Returns the index value for the given value of the given {@link ElementDescriptor}.
+		 * 
+		 * @param descriptor
+		 *            The {@link ElementDescriptor} of the child element.
+		 * @param value
+		 *            The value of the child element, never <code>null</code>.
+		 * @return The index value.
+		 */
+		public int getIndex(ElementDescriptor<V> descriptor, V value);
+	}
+
+	private final Mapper<V> mMapper;
+	private final ElementDescriptor<V> mChildElementDescriptor;
+	private final int mInitialMapSize;
+
+	/**
+	 * The {@link CapacityEstimator} that sizes new collections or <code>null</code> if the builder uses a fixed initial capacity.
+	 */
+	private final CapacityEstimator mEstimator;
+
+
+	/**
+	 * Create a new IntMapObjectBuilder for Elements of the given {@link ElementDescriptor} using the given {@link Mapper}. This uses
+	 * {@link #DEFAULT_INITIAL_MAP_SIZE} as the initial size of created maps.
+	 * 
+	 * @param mapper
+	 *            The {@link Mapper} to build an index.
+	 * @param childElementDescriptor
+	 *            The {@link ElementDescriptor} of valid child elements.
+	 */
+	public IntMapObjectBuilder(Mapper<V> mapper, ElementDescriptor<V> childElementDescriptor)
+	{
+		this(mapper, childElementDescriptor, DEFAULT_INITIAL_MAP_SIZE);
+	}
+
+
+	/**
+	 * Create a new IntMapObjectBuilder for Elements of the given {@link ElementDescriptor} using the given {@link Mapper} and the given initial map size.
+	 * 
+	 * @param mapper
+	 *            The {@link Mapper} to build an index.
+	 * @param childElementDescriptor
+	 *            The {@link ElementDescriptor} of valid child elements.
+	 * @param initialMapSize
+	 *            The initial size of the created maps or {@link CapacityEstimator#ADAPTIVE_CAPACITY} to size new maps by the sizes of previous ones.
+	 */
+	public IntMapObjectBuilder(Mapper<V> mapper, ElementDescriptor<V> childElementDescriptor, int initialMapSize)
+	{
+		mMapper = mapper;
+		mChildElementDescriptor = childElementDescriptor;
+		mInitialMapSize = initialMapSize;
+		mEstimator = initialMapSize == CapacityEstimator.ADAPTIVE_CAPACITY ? new CapacityEstimator(DEFAULT_INITIAL_MAP_SIZE) : null;
+	}
+
+
+	@Override
+	public IntObjectMap<V> get(ElementDescriptor<IntObjectMap<V>> descriptor, IntObjectMap<V> recycle, ParserContext context)
+		throws XmlObjectPullParserException
+	{
+		if (recycle != null)
+		{
+			// recycled maps are usually read-only
+			recycle.reset();
+			return recycle;
+		}
+
+		return new IntObjectMap<V>(mEstimator == null ? mInitialMapSize : mEstimator.getEstimatedSize(descriptor));
+	}
+
+
+	@Override
+	public <W extends Object> IntObjectMap<V> update(ElementDescriptor<IntObjectMap<V>> descriptor, IntObjectMap<V> object,
+		ElementDescriptor<W> childDescriptor, W child, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (childDescriptor == mChildElementDescriptor && child != null)
+		{
+			@SuppressWarnings("unchecked")
+			V childElement = (V) child;
+			int size = object.size();
+			object.put(mMapper.getIndex(mChildElementDescriptor, childElement), childElement);
+			if (object.size() != size)
+			{
+				context.retain(ESTIMATED_ENTRY_SIZE);
+			}
+		}
+		else
+		{
+			context.releaseChild();
+		}
+		return object;
+	}
+
+
+	@Override
+	public IntObjectMap<V> finish(ElementDescriptor<IntObjectMap<V>> descriptor, IntObjectMap<V> object, ParserContext context)
+		throws XmlObjectPullParserException
+	{
+		if (object != null)
+		{
+			if (mEstimator != null)
+			{
+				mEstimator.record(descriptor, object.size());
+			}
+			object.compact();
+		}
+		return object;
+	}
+
+
+	/**
+	 * Returns the {@link CapacityEstimator} of this builder.
+	 * 
+	 * @return The {@link CapacityEstimator} or <code>null</code> if this builder has not been created with {@link CapacityEstimator#ADAPTIVE_CAPACITY}.
+	 */
+	public CapacityEstimator getCapacityEstimator()
+	{
+		return mEstimator;
+	}
+
+
+	@Override
+	public void writeChildren(ElementDescriptor<IntObjectMap<V>> descriptor, IntObjectMap<V> object, IXmlChildWriter childWriter, SerializerContext context)
+		throws SerializerException, IOException
+	{
+		if (object != null)
+		{
+			for (int i = 0, size = object.size(); i < size; ++i)
+			{
+				childWriter.writeChild(mChildElementDescriptor, object.valueAt(i), context);
+			}
+		}
+	}
+}
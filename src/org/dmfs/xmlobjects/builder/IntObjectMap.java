@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.util.Arrays;
+
+
+/**
+ * A map from <code>int</code> keys to objects. Unlike a <code>Map&lt;Integer, V&gt;</code> it doesn't box the keys and doesn't create an entry object per
+ * mapping.
+ * <p>
+ * The keys and values are stored in insertion order in two arrays, so iterating the mappings with {@link #keyAt(int)} and {@link #valueAt(int)} is cheap.
+ * An open addressing hash table with linear probing refers to the positions in these arrays. Mappings can't be removed.
+ * </p>
+ * <p>
+ * {@link #compact()} trims the arrays to the actual size and makes the map read-only. {@link IntMapObjectBuilder} does that for every map it has finished.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ * 
+ * @param <V>
+ *            The value type.
+ * 
+ * @see IntMapObjectBuilder
+ */
+public final class IntObjectMap<V>
+{
+	private final static int MINIMUM_TABLE_SIZE = 4;
+
+	private int[] mKeys;
+
+	private Object[] mValues;
+
+	private int mSize;
+
+	/**
+	 * The hash table. Each slot contains the position of a mapping plus one or 0 if the slot is free. The length is a power of two.
+	 */
+	private int[] mTable;
+
+	private boolean mReadOnly;
+
+
+	/**
+	 * Creates an empty map with the given initial capacity.
+	 * 
+	 * @param initialCapacity
+	 *            The number of mappings the map can hold before it has to grow.
+	 */
+	public IntObjectMap(int initialCapacity)
+	{
+		mKeys = new int[initialCapacity];
+		mValues = new Object[initialCapacity];
+		mTable = new int[tableSize(initialCapacity)];
+	}
+
+
+	/**
+	 * Maps the given key to the given value.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @param value
+	 *            The value, may be <code>null</code>.
+	 * @return The previous value of the key or <code>null</code> if there was none.
+	 * @throws UnsupportedOperationException
+	 *             if the map is read-only.
+	 */
+	public V put(int key, V value)
+	{
+		if (mReadOnly)
+		{
+			throw new UnsupportedOperationException("map is read-only");
+		}
+
+		int[] table = mTable;
+		int mask = table.length - 1;
+		int slot = hash(key) & mask;
+		int entry;
+		while ((entry = table[slot]) != 0)
+		{
+			if (mKeys[entry - 1] == key)
+			{
+				@SuppressWarnings("unchecked")
+				V previous = (V) mValues[entry - 1];
+				mValues[entry - 1] = value;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		int size = mSize;
+		if (size == mKeys.length)
+		{
+			int capacity = Math.max(8, size + (size >> 1));
+			mKeys = Arrays.copyOf(mKeys, capacity);
+			mValues = Arrays.copyOf(mValues, capacity);
+		}
+		mKeys[size] = key;
+		mValues[size] = value;
+		mSize = ++size;
+
+		if (tableSize(size) > table.length)
+		{
+			rehash(tableSize(size));
+		}
+		else
+		{
+			table[slot] = size;
+		}
+		return null;
+	}
+
+
+	/**
+	 * Returns the value of the given key.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @return The value or <code>null</code> if the key is not in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key)
+	{
+		int index = indexOf(key);
+		return index < 0 ? null : (V) mValues[index];
+	}
+
+
+	/**
+	 * Returns whether the map contains the given key.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @return <code>true</code> if the key is in the map.
+	 */
+	public boolean containsKey(int key)
+	{
+		return indexOf(key) >= 0;
+	}
+
+
+	/**
+	 * Returns the number of mappings in this map.
+	 * 
+	 * @return The size of the map.
+	 */
+	public int size()
+	{
+		return mSize;
+	}
+
+
+	/**
+	 * Returns the key of the mapping at the given position. Mappings are in insertion order.
+	 * 
+	 * @param index
+	 *            The position of the mapping.
+	 * @return The key.
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is negative or not less than {@link #size()}.
+	 */
+	public int keyAt(int index)
+	{
+		checkIndex(index);
+		return mKeys[index];
+	}
+
+
+	/**
+	 * Returns the value of the mapping at the given position. Mappings are in insertion order.
+	 * 
+	 * @param index
+	 *            The position of the mapping.
+	 * @return The value.
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is negative or not less than {@link #size()}.
+	 */
+	@SuppressWarnings("unchecked")
+	public V valueAt(int index)
+	{
+		checkIndex(index);
+		return (V) mValues[index];
+	}
+
+
+	/**
+	 * Removes all mappings from this map. The capacity of the map is retained.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if the map is read-only.
+	 */
+	public void clear()
+	{
+		if (mReadOnly)
+		{
+			throw new UnsupportedOperationException("map is read-only");
+		}
+		reset();
+	}
+
+
+	/**
+	 * Trims the storage of this map to its size and makes it read-only.
+	 * 
+	 * @return This instance.
+	 */
+	public IntObjectMap<V> compact()
+	{
+		if (!mReadOnly)
+		{
+			mReadOnly = true;
+			int size = mSize;
+			if (mKeys.length != size)
+			{
+				mKeys = Arrays.copyOf(mKeys, size);
+				mValues = Arrays.copyOf(mValues, size);
+			}
+			if (mTable.length != tableSize(size))
+			{
+				rehash(tableSize(size));
+			}
+		}
+		return this;
+	}
+
+
+	/**
+	 * Returns whether this map is read-only.
+	 * 
+	 * @return <code>true</code> if {@link #compact()} has been called.
+	 */
+	public boolean isReadOnly()
+	{
+		return mReadOnly;
+	}
+
+
+	/**
+	 * Removes all mappings and makes the map writable again. This is meant for builders that recycle maps.
+	 */
+	void reset()
+	{
+		Arrays.fill(mValues, 0, mSize, null);
+		Arrays.fill(mTable, 0);
+		mSize = 0;
+		mReadOnly = false;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		StringBuilder result = new StringBuilder(mSize * 8 + 2);
+		result.append('{');
+		for (int i = 0, size = mSize; i < size; ++i)
+		{
+			if (i > 0)
+			{
+				result.append(", ");
+			}
+			result.append(mKeys[i]).append('=').append(mValues[i]);
+		}
+		return result.append('}').toString();
+	}
+
+
+	private int indexOf(int key)
+	{
+		int[] table = mTable;
+		int mask = table.length - 1;
+		int slot = hash(key) & mask;
+		int entry;
+		while ((entry = table[slot]) != 0)
+		{
+			if (mKeys[entry - 1] == key)
+			{
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+
+	private void rehash(int tableSize)
+	{
+		int[] table = new int[tableSize];
+		int mask = tableSize - 1;
+		int[] keys = mKeys;
+		for (int i = 0, size = mSize; i < size; ++i)
+		{
+			int slot = hash(keys[i]) & mask;
+			while (table[slot] != 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = i + 1;
+		}
+		mTable = table;
+	}
+
+
+	private void checkIndex(int index)
+	{
+		if (index < 0 || index >= mSize)
+		{
+			throw new IndexOutOfBoundsException("index " + index + " is out of bounds, size is " + mSize);
+		}
+	}
+
+
+	/**
+	 * Returns the smallest power of two table size that keeps the load factor at or below 0.75 for the given number of mappings.
+	 */
+	private static int tableSize(int size)
+	{
+		int tableSize = MINIMUM_TABLE_SIZE;
+		while (tableSize * 3 < size * 4)
+		{
+			tableSize <<= 1;
+		}
+		return tableSize;
+	}
+
+
+	private static int hash(int key)
+	{
+		// Fibonacci hashing, spreads sequential ids over the whole table
+		int hash = key * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -36,7 +36,7 @@ import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
  * 
  * @author Marten Gajda <marten@dmfs.org>
  */
-public class IntegerObjectBuilder extends AbstractObjectBuilder<Integer>
+public class IntegerObjectBuilder extends AbstractObjectBuilder<Integer> implements ICharArrayObjectBuilder<Integer>
 {
 
 	/**
@@ -61,24 +61,43 @@ public class IntegerObjectBuilder extends AbstractObjectBuilder<Integer>
 	@Override
 	public Integer update(ElementDescriptor<Integer> descriptor, Integer object, String text, ParserContext context) throws XmlObjectPullParserException
 	{
-		if (text == null && !mStrict)
+		if (text != null)
+		{
+			Integer result = TextParser.parseInteger(text, 0, text.length(), !mStrict);
+			if (result != null || !mStrict)
+			{
+				return result;
+			}
+		}
+		else if (!mStrict)
 		{
 			return null;
 		}
 
+		throw new XmlObjectPullParserException("could not parse integer in '" + text + "'");
+	}
+
+
+	@Override
+	public Integer update(ElementDescriptor<Integer> descriptor, Integer object, char[] text, int start, int length, ParserContext context)
+		throws XmlObjectPullParserException
+	{
+		CharArraySequence sequence = CharArraySequence.wrap(context, text);
+		Integer result;
 		try
 		{
-			return Integer.parseInt(mStrict ? text : text.trim());
+			result = TextParser.parseInteger(sequence, start, start + length, !mStrict);
 		}
-		catch (NumberFormatException e)
+		finally
 		{
-			if (!mStrict)
-			{
-				return null;
-			}
-
-			throw new XmlObjectPullParserException("could not parse integer in '" + text + "'", e);
+			sequence.release();
 		}
+		if (result != null || !mStrict)
+		{
+			return result;
+		}
+
+		throw new XmlObjectPullParserException("could not parse integer in '" + new String(text, start, length) + "'");
 	}
 
 
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.LazyElement;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlAttributeWriter;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
+
+
+/**
+ * A builder that doesn't build its elements right away. Instead {@link XmlObjectPull} records the element and its sub-tree and this builder returns a
+ * {@link LazyElement}. The actual object is built by the given {@link IObjectBuilder} when {@link LazyElement#get()} is called. This saves the effort of
+ * building objects that are never used.
+ * <p>
+ * When building the object the {@link IObjectBuilder} is called with the {@link ElementDescriptor} of the lazy element. Child elements are resolved in the
+ * context of that {@link ElementDescriptor}, just like they would be when parsing the element directly.
+ * </p>
+ * <p>
+ * <strong>Note:</strong> The sub-tree of a lazy element is not visible to the {@link XmlObjectPull} that recorded it, so you can not move to or pull any of
+ * its child elements.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ * 
+ * @param <T>
+ *            The type of the lazily built objects.
+ */
+public class LazyObjectBuilder<T> extends AbstractObjectBuilder<LazyElement<T>>
+{
+	/**
+	 * The {@link IObjectBuilder} that builds the actual objects.
+	 */
+	private final IObjectBuilder<T> mBuilder;
+
+
+	/**
+	 * Create a new {@link LazyObjectBuilder} that builds the actual objects with the given {@link IObjectBuilder}.
+	 * 
+	 * @param builder
+	 *            The {@link IObjectBuilder} that builds the actual objects.
+	 */
+	public LazyObjectBuilder(IObjectBuilder<T> builder)
+	{
+		mBuilder = builder;
+	}
+
+
+	@Override
+	public LazyElement<T> get(ElementDescriptor<LazyElement<T>> descriptor, LazyElement<T> recycle, ParserContext context)
+		throws XmlObjectPullParserException
+	{
+		return new LazyElement<T>(descriptor, mBuilder);
+	}
+
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void writeAttributes(ElementDescriptor<LazyElement<T>> descriptor, LazyElement<T> object, IXmlAttributeWriter attributeWriter,
+		SerializerContext context) throws SerializerException, IOException
+	{
+		mBuilder.writeAttributes((ElementDescriptor<T>) (ElementDescriptor<?>) descriptor, getObject(descriptor, object), attributeWriter, context);
+	}
+
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void writeChildren(ElementDescriptor<LazyElement<T>> descriptor, LazyElement<T> object, IXmlChildWriter childWriter, SerializerContext context)
+		throws SerializerException, IOException
+	{
+		mBuilder.writeChildren((ElementDescriptor<T>) (ElementDescriptor<?>) descriptor, getObject(descriptor, object), childWriter, context);
+	}
+
+
+	private T getObject(ElementDescriptor<LazyElement<T>> descriptor, LazyElement<T> object) throws SerializerException
+	{
+		if (object == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return object.get();
+		}
+		catch (XmlObjectPullParserException e)
+		{
+			throw new SerializerException("can not build lazy element " + descriptor.qualifiedName, e);
+		}
+	}
+}
@@ -50,6 +50,9 @@ import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
  * <p>
  * <strong>Note:</strong> Serialization requires that either an {@link ElementDescriptor} is provided or the list elements are {@link QualifiedName}s.
  * </p>
+ * <p>
+ * Pass {@link CapacityEstimator#ADAPTIVE_CAPACITY} as the initial capacity to size new lists by the sizes of the previous ones.
+ * </p>
  * 
  * @author Marten Gajda <marten@dmfs.org>
  * 
@@ -61,12 +64,22 @@ public class ListObjectBuilder<T> extends AbstractObjectBuilder<List<T>>
 {
 	private final static int DEFAULT_INITIAL_CAPACITY = 16;
 
+	/**
+	 * The estimated number of bytes a list entry retains, reported to {@link ParserContext#retain(long)}.
+	 */
+	private final static int ESTIMATED_ENTRY_SIZE = 8;
+
 	private final ElementDescriptor<T> mListElementDescriptor;
 	private final IObjectBuilder<T> mListElementBuilder;
 
 	private final int mInitialCapacity;
 	private final boolean mStoreNull;
 
+	/**
+	 * The {@link CapacityEstimator} that sizes new collections or <code>null</code> if the builder uses a fixed initial capacity.
+	 */
+	private final CapacityEstimator mEstimator;
+
 
 	public ListObjectBuilder(ElementDescriptor<T> listElementDescriptor)
 	{
@@ -91,6 +104,7 @@ public class ListObjectBuilder<T> extends AbstractObjectBuilder<List<T>>
 		mListElementDescriptor = listElementDescriptor;
 		mListElementBuilder = null;
 		mInitialCapacity = initialCapacity;
+		mEstimator = initialCapacity == CapacityEstimator.ADAPTIVE_CAPACITY ? new CapacityEstimator(DEFAULT_INITIAL_CAPACITY) : null;
 		mStoreNull = storeNull;
 	}
 
@@ -118,6 +132,7 @@ public class ListObjectBuilder<T> extends AbstractObjectBuilder<List<T>>
 		mListElementDescriptor = null;
 		mListElementBuilder = listElementBuilder;
 		mInitialCapacity = initialCapacity;
+		mEstimator = initialCapacity == CapacityEstimator.ADAPTIVE_CAPACITY ? new CapacityEstimator(DEFAULT_INITIAL_CAPACITY) : null;
 		mStoreNull = storeNull;
 	}
 
@@ -134,7 +149,7 @@ public class ListObjectBuilder<T> extends AbstractObjectBuilder<List<T>>
 		else
 		{
 			// return a new list
-			return new ArrayList<T>(mInitialCapacity);
+			return new ArrayList<T>(mEstimator == null ? mInitialCapacity : mEstimator.getEstimatedSize(descriptor));
 		}
 	}
 
@@ -150,12 +165,37 @@ public class ListObjectBuilder<T> extends AbstractObjectBuilder<List<T>>
 			if (child != null || mStoreNull)
 			{
 				object.add((T) child);
+				context.retain(ESTIMATED_ENTRY_SIZE);
+				return object;
 			}
 		}
+		context.releaseChild();
+		return object;
+	}
+
+
+	@Override
+	public List<T> finish(ElementDescriptor<List<T>> descriptor, List<T> object, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (mEstimator != null && object != null)
+		{
+			mEstimator.record(descriptor, object.size());
+		}
 		return object;
 	}
 
 
+	/**
+	 * Returns the {@link CapacityEstimator} of this builder.
+	 * 
+	 * @return The {@link CapacityEstimator} or <code>null</code> if this builder has not been created with {@link CapacityEstimator#ADAPTIVE_CAPACITY}.
+	 */
+	public CapacityEstimator getCapacityEstimator()
+	{
+		return mEstimator;
+	}
+
+
 	@Override
 	public void writeChildren(ElementDescriptor<List<T>> descriptor, List<T> object, IXmlChildWriter childWriter, SerializerContext context)
 		throws SerializerException, IOException
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
+
+
+/**
+ * A builder for elements that enclose a Long value like so:
+ * 
+ * <pre>
+ * &lt;some-long>4200000000&lt;/some-long>
+ * </pre>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public class LongObjectBuilder extends AbstractObjectBuilder<Long> implements ICharArrayObjectBuilder<Long>
+{
+
+	/**
+	 * A strict {@link LongObjectBuilder}. If the value can not be parsed as a Long it will throw an {@link XmlObjectPullParserException}.
+	 */
+	public final static LongObjectBuilder INSTANCE_STRICT = new LongObjectBuilder(true);
+
+	/**
+	 * A tolerant {@link LongObjectBuilder}. Instead of throwing an exception it will return a <code>null</code> value.
+	 */
+	public final static LongObjectBuilder INSTANCE = new LongObjectBuilder(false);
+
+	private final boolean mStrict;
+
+
+	private LongObjectBuilder(boolean strict)
+	{
+		mStrict = strict;
+	}
+
+
+	@Override
+	public Long update(ElementDescriptor<Long> descriptor, Long object, String text, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (text != null)
+		{
+			Long result = TextParser.parseLong(text, 0, text.length(), !mStrict);
+			if (result != null || !mStrict)
+			{
+				return result;
+			}
+		}
+		else if (!mStrict)
+		{
+			return null;
+		}
+
+		throw new XmlObjectPullParserException("could not parse long in '" + text + "'");
+	}
+
+
+	@Override
+	public Long update(ElementDescriptor<Long> descriptor, Long object, char[] text, int start, int length, ParserContext context)
+		throws XmlObjectPullParserException
+	{
+		CharArraySequence sequence = CharArraySequence.wrap(context, text);
+		Long result;
+		try
+		{
+			result = TextParser.parseLong(sequence, start, start + length, !mStrict);
+		}
+		finally
+		{
+			sequence.release();
+		}
+		if (result != null || !mStrict)
+		{
+			return result;
+		}
+
+		throw new XmlObjectPullParserException("could not parse long in '" + new String(text, start, length) + "'");
+	}
+
+
+	@Override
+	public void writeChildren(ElementDescriptor<Long> descriptor, Long object, IXmlChildWriter childWriter, SerializerContext context)
+		throws SerializerException, IOException
+	{
+		if (object != null)
+		{
+			childWriter.writeText(object.toString(), context);
+		}
+		else if (mStrict)
+		{
+			throw new IllegalStateException("Long value is null");
+		}
+	}
+
+}
@@ -47,6 +47,11 @@ public class MapObjectBuilder<T, V> extends AbstractObjectBuilder<Map<T, V>>
 	 */
 	public final static int DEFAULT_INITIAL_MAP_SIZE = 16;
 
+	/**
+	 * The estimated number of bytes a map entry retains, reported to {@link ParserContext#retain(long)}.
+	 */
+	private final static int ESTIMATED_ENTRY_SIZE = 40;
+
 	/**
 	 * The interface of a class that knows how to determine the index of a specific value.
 	 * 
@@ -73,6 +78,11 @@ public class MapObjectBuilder<T, V> extends AbstractObjectBuilder<Map<T, V>>
 	private final ElementDescriptor<V> mChildElementDescriptor;
 	private final int mInitialMapSize;
 
+	/**
+	 * The {@link CapacityEstimator} that sizes new collections or <code>null</code> if the builder uses a fixed initial capacity.
+	 */
+	private final CapacityEstimator mEstimator;
+
 
 	/**
 	 * Create a new MapObjectBilder for Elements of the given {@link ElementDescriptor} using the given {@link Mapper}. This uses
@@ -97,13 +107,14 @@ public class MapObjectBuilder<T, V> extends AbstractObjectBuilder<Map<T, V>>
 	 * @param childElementDescriptor
 	 *            The {@link ElementDescriptor} of valid child elements.
 	 * @param initialMapSize
-	 *            The initial size of the created maps.
+	 *            The initial size of the created maps or {@link CapacityEstimator#ADAPTIVE_CAPACITY} to size new maps by the sizes of previous ones.
 	 */
 	public MapObjectBuilder(Mapper<T, V> mapper, ElementDescriptor<V> childElementDescriptor, int initialMapSize)
 	{
 		mMapper = mapper;
 		mChildElementDescriptor = childElementDescriptor;
 		mInitialMapSize = initialMapSize;
+		mEstimator = initialMapSize == CapacityEstimator.ADAPTIVE_CAPACITY ? new CapacityEstimator(DEFAULT_INITIAL_MAP_SIZE) : null;
 	}
 
 
@@ -116,7 +127,7 @@ public class MapObjectBuilder<T, V> extends AbstractObjectBuilder<Map<T, V>>
 			return recycle;
 		}
 
-		return new HashMap<T, V>(mInitialMapSize);
+		return new HashMap<T, V>(mEstimator == null ? mInitialMapSize : mEstimator.getHashCapacity(descriptor));
 	}
 
 
@@ -131,13 +142,41 @@ public class MapObjectBuilder<T, V> extends AbstractObjectBuilder<Map<T, V>>
 			T index = mMapper.getIndex(mChildElementDescriptor, childElement);
 			if (index != null)
 			{
+				if (!object.containsKey(index))
+				{
+					context.retain(ESTIMATED_ENTRY_SIZE);
+				}
 				object.put(index, childElement);
+				return object;
 			}
 		}
+		context.releaseChild();
 		return object;
 	};
 
 
+	@Override
+	public Map<T, V> finish(ElementDescriptor<Map<T, V>> descriptor, Map<T, V> object, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (mEstimator != null && object != null)
+		{
+			mEstimator.record(descriptor, object.size());
+		}
+		return object;
+	}
+
+
+	/**
+	 * Returns the {@link CapacityEstimator} of this builder.
+	 * 
+	 * @return The {@link CapacityEstimator} or <code>null</code> if this builder has not been created with {@link CapacityEstimator#ADAPTIVE_CAPACITY}.
+	 */
+	public CapacityEstimator getCapacityEstimator()
+	{
+		return mEstimator;
+	}
+
+
 	@Override
 	public void writeChildren(ElementDescriptor<Map<T, V>> descriptor, Map<T, V> object, IXmlChildWriter childWriter, SerializerContext context)
 		throws SerializerException, IOException
@@ -49,6 +49,9 @@ import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
  * <p>
  * <strong>Note:</strong> Serialization requires that either an {@link ElementDescriptor} is provided or the set elements are {@link QualifiedName}s.
  * </p>
+ * <p>
+ * Pass {@link CapacityEstimator#ADAPTIVE_CAPACITY} as the initial capacity to size new sets by the sizes of the previous ones.
+ * </p>
  * 
  * @author Marten Gajda <marten@dmfs.org>
  * 
@@ -59,12 +62,22 @@ public class SetObjectBuilder<T> extends AbstractObjectBuilder<Set<T>>
 {
 	private final static int DEFAULT_INITIAL_CAPACITY = 16;
 
+	/**
+	 * The estimated number of bytes a set entry retains, reported to {@link ParserContext#retain(long)}.
+	 */
+	private final static int ESTIMATED_ENTRY_SIZE = 40;
+
 	private final ElementDescriptor<T> mSetElementDescriptor;
 	private final IObjectBuilder<T> mSetElementBuilder;
 
 	private final int mInitialCapacity;
 	private final boolean mStoreNull;
 
+	/**
+	 * The {@link CapacityEstimator} that sizes new collections or <code>null</code> if the builder uses a fixed initial capacity.
+	 */
+	private final CapacityEstimator mEstimator;
+
 
 	public SetObjectBuilder(ElementDescriptor<T> setElementDescriptor)
 	{
@@ -89,6 +102,7 @@ public class SetObjectBuilder<T> extends AbstractObjectBuilder<Set<T>>
 		mSetElementDescriptor = setElementDescriptor;
 		mSetElementBuilder = null;
 		mInitialCapacity = initialCapacity;
+		mEstimator = initialCapacity == CapacityEstimator.ADAPTIVE_CAPACITY ? new CapacityEstimator(DEFAULT_INITIAL_CAPACITY) : null;
 		mStoreNull = storeNull;
 	}
 
@@ -116,6 +130,7 @@ public class SetObjectBuilder<T> extends AbstractObjectBuilder<Set<T>>
 		mSetElementDescriptor = null;
 		mSetElementBuilder = setElementBuilder;
 		mInitialCapacity = initialCapacity;
+		mEstimator = initialCapacity == CapacityEstimator.ADAPTIVE_CAPACITY ? new CapacityEstimator(DEFAULT_INITIAL_CAPACITY) : null;
 		mStoreNull = storeNull;
 	}
 
@@ -130,7 +145,7 @@ public class SetObjectBuilder<T> extends AbstractObjectBuilder<Set<T>>
 		}
 		else
 		{
-			return new HashSet<T>(mInitialCapacity);
+			return new HashSet<T>(mEstimator == null ? mInitialCapacity : mEstimator.getHashCapacity(descriptor));
 		}
 	}
 
@@ -145,13 +160,40 @@ public class SetObjectBuilder<T> extends AbstractObjectBuilder<Set<T>>
 		{
 			if (child != null || mStoreNull)
 			{
-				object.add((T) child);
+				if (object.add((T) child))
+				{
+					context.retain(ESTIMATED_ENTRY_SIZE);
+					return object;
+				}
 			}
 		}
+		context.releaseChild();
+		return object;
+	}
+
+
+	@Override
+	public Set<T> finish(ElementDescriptor<Set<T>> descriptor, Set<T> object, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (mEstimator != null && object != null)
+		{
+			mEstimator.record(descriptor, object.size());
+		}
 		return object;
 	}
 
 
+	/**
+	 * Returns the {@link CapacityEstimator} of this builder.
+	 * 
+	 * @return The {@link CapacityEstimator} or <code>null</code> if this builder has not been created with {@link CapacityEstimator#ADAPTIVE_CAPACITY}.
+	 */
+	public CapacityEstimator getCapacityEstimator()
+	{
+		return mEstimator;
+	}
+
+
 	@Override
 	public void writeChildren(ElementDescriptor<Set<T>> descriptor, Set<T> object, IXmlChildWriter childWriter, SerializerContext context)
 		throws SerializerException, IOException
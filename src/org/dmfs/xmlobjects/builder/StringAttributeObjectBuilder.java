@@ -34,6 +34,9 @@ import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlAttributeWriter;
  * <pre>
  * &lt;comp name="VEVENT" />
  * </pre>
+ * <p>
+ * Builders created with a {@link StringCache} return a shared instance for values that repeat, see {@link StringCache} for details.
+ * </p>
  * 
  * @author Marten Gajda <marten@dmfs.org>
  */
@@ -41,10 +44,30 @@ public class StringAttributeObjectBuilder extends AbstractObjectBuilder<String>
 {
 	public final QualifiedName attribute;
 
+	/**
+	 * The {@link StringCache} to take values from or <code>null</code> to return the values as they are.
+	 */
+	private final StringCache mCache;
+
 
 	public StringAttributeObjectBuilder(QualifiedName attribute)
+	{
+		this(attribute, null);
+	}
+
+
+	/**
+	 * Creates a {@link StringAttributeObjectBuilder} that takes values from the given {@link StringCache}.
+	 * 
+	 * @param attribute
+	 *            The {@link QualifiedName} of the attribute.
+	 * @param cache
+	 *            The {@link StringCache} to use or <code>null</code> to return the values as they are.
+	 */
+	public StringAttributeObjectBuilder(QualifiedName attribute, StringCache cache)
 	{
 		this.attribute = attribute;
+		mCache = cache;
 	}
 
 
@@ -54,7 +77,7 @@ public class StringAttributeObjectBuilder extends AbstractObjectBuilder<String>
 	{
 		if (this.attribute == attribute)
 		{
-			return value;
+			return mCache == null ? value : mCache.get(value);
 		}
 		else
 		{
@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+/**
+ * A bounded cache of {@link String}s that returns a shared instance for equal text values. Use it with {@link StringObjectBuilder} or
+ * {@link StringAttributeObjectBuilder} to avoid keeping a separate {@link String} instance for every occurrence of values that repeat very often, like
+ * status codes or content types.
+ * <p>
+ * The cache is a fixed size array of two-way associative buckets. A new value replaces the older entry of its bucket, so the cache never holds more than
+ * the given number of entries. Values longer than the given maximum length are not cached at all, since long values rarely repeat and would only take up
+ * memory. Lookups don't create any objects when the value is in the cache.
+ * </p>
+ * <p>
+ * The maximum length is an admission filter only, eviction doesn't take the length of an entry into account. This is deliberate, it keeps a lookup down to
+ * two comparisons and the memory of the cache is still bounded by capacity &times; maximum length characters.
+ * </p>
+ * <p>
+ * The cache is thread safe without locking. {@link String}s are immutable, so a thread either sees a complete entry or misses it. The hit and miss counters
+ * are plain fields that are not synchronized either, so the statistics are approximate when a cache is shared by multiple threads.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public final class StringCache
+{
+	private final static int DEFAULT_CAPACITY = 1024;
+
+	private final static int DEFAULT_MAX_LENGTH = 64;
+
+	/**
+	 * The cached values, two consecutive entries form a bucket.
+	 */
+	private final String[] mEntries;
+
+	private final int mMask;
+
+	private final int mMaxLength;
+
+	/**
+	 * The statistics. These are not updated atomically to keep contended counters off the lookup path.
+	 */
+	private long mHits;
+
+	private long mMisses;
+
+
+	/**
+	 * Creates a cache for up to 1024 values of up to 64 characters.
+	 */
+	public StringCache()
+	{
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+	}
+
+
+	/**
+	 * Creates a cache with the given limits.
+	 * 
+	 * @param capacity
+	 *            The maximum number of values to cache, this is rounded up to the next power of two.
+	 * @param maxLength
+	 *            The maximum length of a value to cache. Longer values are not cached.
+	 */
+	public StringCache(int capacity, int maxLength)
+	{
+		if (capacity < 1 || maxLength < 0)
+		{
+			throw new IllegalArgumentException("invalid cache limits: capacity=" + capacity + ", maxLength=" + maxLength);
+		}
+
+		int size = 2;
+		while (size < capacity)
+		{
+			size <<= 1;
+		}
+		mEntries = new String[size];
+		mMask = size - 2;
+		mMaxLength = maxLength;
+	}
+
+
+	/**
+	 * Returns a {@link String} with the given chars, taking it from the cache if possible.
+	 * 
+	 * @param text
+	 *            A char array that contains the text.
+	 * @param start
+	 *            The index of the first char of the text.
+	 * @param length
+	 *            The number of chars of the text.
+	 * @return A {@link String} with the given text.
+	 */
+	public String get(char[] text, int start, int length)
+	{
+		String entry = getCached(text, start, length);
+		return entry == null ? add(new String(text, start, length)) : entry;
+	}
+
+
+	/**
+	 * Returns the cached {@link String} with the given chars. This allows builders to tell cache hits from new values.
+	 * 
+	 * @param text
+	 *            A char array that contains the text.
+	 * @param start
+	 *            The index of the first char of the text.
+	 * @param length
+	 *            The number of chars of the text.
+	 * @return The cached {@link String} or <code>null</code> if the value is not in the cache. Call {@link #add(String)} in that case.
+	 */
+	String getCached(char[] text, int start, int length)
+	{
+		if (length > mMaxLength)
+		{
+			return null;
+		}
+
+		int hash = 0;
+		for (int i = start, end = start + length; i < end; ++i)
+		{
+			hash = 31 * hash + text[i];
+		}
+
+		String[] entries = mEntries;
+		int index = bucket(hash);
+		String entry = entries[index];
+		if (entry != null && matches(entry, text, start, length) || (entry = entries[index + 1]) != null && matches(entry, text, start, length))
+		{
+			++mHits;
+			return entry;
+		}
+		return null;
+	}
+
+
+	/**
+	 * Adds a value that {@link #getCached(char[], int, int)} didn't find to the cache. Values that exceed the maximum length are not cached.
+	 * 
+	 * @param text
+	 *            The new value.
+	 * @return The given value.
+	 */
+	String add(String text)
+	{
+		// String uses the same hash function as getCached, so this results in the same bucket
+		return text.length() > mMaxLength ? text : put(bucket(text.hashCode()), text);
+	}
+
+
+	/**
+	 * Returns a {@link String} that equals the given one, taking it from the cache if possible. If the value is not in the cache yet, the given instance is
+	 * cached.
+	 * 
+	 * @param text
+	 *            The text, may be <code>null</code>.
+	 * @return A {@link String} that equals the given text or <code>null</code> if text is <code>null</code>.
+	 */
+	public String get(String text)
+	{
+		if (text == null || text.length() > mMaxLength)
+		{
+			return text;
+		}
+
+		String[] entries = mEntries;
+		int index = bucket(text.hashCode());
+		String entry = entries[index];
+		if (text.equals(entry) || text.equals(entry = entries[index + 1]))
+		{
+			++mHits;
+			return entry;
+		}
+
+		return put(index, text);
+	}
+
+
+	/**
+	 * Returns the number of lookups that returned a cached value.
+	 * 
+	 * @return The number of cache hits.
+	 */
+	public long getHitCount()
+	{
+		return mHits;
+	}
+
+
+	/**
+	 * Returns the number of lookups of cacheable values that were not in the cache. Values that exceed the maximum length are not counted.
+	 * 
+	 * @return The number of cache misses.
+	 */
+	public long getMissCount()
+	{
+		return mMisses;
+	}
+
+
+	/**
+	 * Returns the ratio of lookups that returned a cached value.
+	 * 
+	 * @return The hit rate, a value between 0 and 1 or 0 if there were no lookups yet.
+	 */
+	public double getHitRate()
+	{
+		long hits = mHits;
+		long total = hits + mMisses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+
+	/**
+	 * Removes all values from the cache and resets the statistics.
+	 */
+	public void clear()
+	{
+		String[] entries = mEntries;
+		for (int i = 0, count = entries.length; i < count; ++i)
+		{
+			entries[i] = null;
+		}
+		mHits = 0;
+		mMisses = 0;
+	}
+
+
+	private int bucket(int hash)
+	{
+		// spread the higher bits, the hash codes of short strings differ mostly in the lower bits
+		hash ^= (hash >>> 16);
+		return (hash * 2) & mMask;
+	}
+
+
+	/**
+	 * Inserts the given value as the most recent entry of the bucket at index.
+	 */
+	private String put(int index, String value)
+	{
+		++mMisses;
+		String[] entries = mEntries;
+		entries[index + 1] = entries[index];
+		entries[index] = value;
+		return value;
+	}
+
+
+	private static boolean matches(String entry, char[] text, int start, int length)
+	{
+		if (entry.length() != length)
+		{
+			return false;
+		}
+
+		for (int i = 0; i < length; ++i)
+		{
+			if (entry.charAt(i) != text[start + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
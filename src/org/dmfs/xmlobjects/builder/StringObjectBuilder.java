@@ -33,26 +33,74 @@ import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
  * <pre>
  * &lt;description>An example of a text value.&lt;/description>
  * </pre>
+ * <p>
+ * Builders created with a {@link StringCache} return a shared instance for values that repeat, see {@link StringCache} for details. Only values that are not
+ * taken from the cache are charged to the memory budget of the {@link ParserContext}.
+ * </p>
  * 
  * @author Marten Gajda <marten@dmfs.org>
  */
-public class StringObjectBuilder extends AbstractObjectBuilder<String>
+public class StringObjectBuilder extends AbstractObjectBuilder<String> implements ICharArrayObjectBuilder<String>
 {
 	/**
 	 * An {@link StringObjectBuilder} instance.
 	 */
 	public final static StringObjectBuilder INSTANCE = new StringObjectBuilder();
 
+	/**
+	 * The {@link StringCache} to take values from or <code>null</code> to create a new {@link String} for every value.
+	 */
+	private final StringCache mCache;
+
 
 	private StringObjectBuilder()
 	{
+		mCache = null;
+	}
+
+
+	/**
+	 * Creates a {@link StringObjectBuilder} that takes values from the given {@link StringCache}. A cache can be shared by multiple builders.
+	 * 
+	 * @param cache
+	 *            The {@link StringCache} to use or <code>null</code> to create a new {@link String} for every value.
+	 */
+	public StringObjectBuilder(StringCache cache)
+	{
+		mCache = cache;
 	}
 
 
 	@Override
 	public String update(ElementDescriptor<String> descriptor, String object, String text, ParserContext context) throws XmlObjectPullParserException
 	{
-		return text;
+		String result = mCache == null ? text : mCache.get(text);
+		if (result == text && text != null)
+		{
+			// the text is not shared with other values, so it's retained by this value
+			context.retain(2L * text.length());
+		}
+		return result;
+	}
+
+
+	@Override
+	public String update(ElementDescriptor<String> descriptor, String object, char[] text, int start, int length, ParserContext context)
+		throws XmlObjectPullParserException
+	{
+		StringCache cache = mCache;
+		String result = cache == null ? null : cache.getCached(text, start, length);
+		if (result == null)
+		{
+			// only new values retain memory, cached values are shared
+			context.retain(2L * length);
+			result = new String(text, start, length);
+			if (cache != null)
+			{
+				cache.add(result);
+			}
+		}
+		return result;
 	}
 
 
@@ -0,0 +1,429 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+/**
+ * Validating parsers for the values of lenient builders. None of these methods throws on invalid input, so dirty input doesn't cause the cost of creating
+ * and catching exceptions. Leading and trailing white space is skipped without creating a trimmed copy of the text.
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class TextParser
+{
+	private TextParser()
+	{
+	}
+
+
+	/**
+	 * Parses an integer value like {@link Integer#parseInt(String)} does.
+	 * 
+	 * @param text
+	 *            The text to parse.
+	 * @param start
+	 *            The start of the value in text.
+	 * @param end
+	 *            The end of the value in text.
+	 * @param trim
+	 *            Whether to skip leading and trailing white space.
+	 * @return The {@link Integer} or <code>null</code> if the text doesn't contain a valid integer.
+	 */
+	public static Integer parseInteger(CharSequence text, int start, int end, boolean trim)
+	{
+		if (trim)
+		{
+			start = skipLeadingWhitespace(text, start, end);
+			end = skipTrailingWhitespace(text, start, end);
+		}
+
+		if (start == end)
+		{
+			return null;
+		}
+
+		// we accumulate negatively to be able to represent Integer.MIN_VALUE
+		boolean negative = false;
+		int limit = -Integer.MAX_VALUE;
+		int pos = start;
+
+		char first = text.charAt(pos);
+		if (first == '-' || first == '+')
+		{
+			if (first == '-')
+			{
+				negative = true;
+				limit = Integer.MIN_VALUE;
+			}
+			if (++pos == end)
+			{
+				return null;
+			}
+		}
+
+		int multmin = limit / 10;
+		int result = 0;
+		while (pos < end)
+		{
+			int digit = Character.digit(text.charAt(pos++), 10);
+			if (digit < 0 || result < multmin)
+			{
+				return null;
+			}
+			result *= 10;
+			if (result < limit + digit)
+			{
+				return null;
+			}
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+
+	/**
+	 * Parses a long value like {@link Long#parseLong(String)} does.
+	 * 
+	 * @param text
+	 *            The text to parse.
+	 * @param start
+	 *            The start of the value in text.
+	 * @param end
+	 *            The end of the value in text.
+	 * @param trim
+	 *            Whether to skip leading and trailing white space.
+	 * @return The {@link Long} or <code>null</code> if the text doesn't contain a valid long.
+	 */
+	public static Long parseLong(CharSequence text, int start, int end, boolean trim)
+	{
+		if (trim)
+		{
+			start = skipLeadingWhitespace(text, start, end);
+			end = skipTrailingWhitespace(text, start, end);
+		}
+
+		if (start == end)
+		{
+			return null;
+		}
+
+		// we accumulate negatively to be able to represent Long.MIN_VALUE
+		boolean negative = false;
+		long limit = -Long.MAX_VALUE;
+		int pos = start;
+
+		char first = text.charAt(pos);
+		if (first == '-' || first == '+')
+		{
+			if (first == '-')
+			{
+				negative = true;
+				limit = Long.MIN_VALUE;
+			}
+			if (++pos == end)
+			{
+				return null;
+			}
+		}
+
+		long multmin = limit / 10;
+		long result = 0;
+		while (pos < end)
+		{
+			int digit = Character.digit(text.charAt(pos++), 10);
+			if (digit < 0 || result < multmin)
+			{
+				return null;
+			}
+			result *= 10;
+			if (result < limit + digit)
+			{
+				return null;
+			}
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+
+	/**
+	 * Parses a double value like {@link Double#parseDouble(String)} does, except for the hexadecimal format, which is not supported. Leading and trailing
+	 * white space is skipped. The text is not copied unless the value can only be determined by {@link Double#parseDouble(String)}, which happens only for
+	 * values with more than {@value DoubleConversion#MAX_DIGITS} significant digits or in very rare corner cases.
+	 * 
+	 * @param text
+	 *            The text to parse.
+	 * @param start
+	 *            The start of the value in text.
+	 * @param end
+	 *            The end of the value in text.
+	 * @return The {@link Double} or <code>null</code> if the text doesn't contain a valid double value.
+	 */
+	public static Double parseDouble(CharSequence text, int start, int end)
+	{
+		start = skipLeadingWhitespace(text, start, end);
+		end = skipTrailingWhitespace(text, start, end);
+
+		int pos = start;
+		boolean negative = false;
+		if (pos < end && (text.charAt(pos) == '+' || text.charAt(pos) == '-'))
+		{
+			negative = text.charAt(pos) == '-';
+			++pos;
+		}
+
+		if (pos == end)
+		{
+			return null;
+		}
+
+		char c = text.charAt(pos);
+		if (c == 'N')
+		{
+			return matches(text, pos, end, "NaN") ? Double.NaN : null;
+		}
+		if (c == 'I')
+		{
+			return matches(text, pos, end, "Infinity") ? negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY : null;
+		}
+
+		long significand = 0;
+		int significantDigits = 0;
+		int digits = 0;
+		// the decimal exponent of the last digit in significand
+		int exponent = 0;
+
+		while (pos < end && isDigit(c = text.charAt(pos)))
+		{
+			++pos;
+			++digits;
+			if (significantDigits < DoubleConversion.MAX_DIGITS)
+			{
+				if (significantDigits > 0 || c != '0')
+				{
+					significand = significand * 10 + c - '0';
+					++significantDigits;
+				}
+			}
+			else
+			{
+				// the digit doesn't fit into significand
+				++significantDigits;
+				++exponent;
+			}
+		}
+
+		if (pos < end && text.charAt(pos) == '.')
+		{
+			++pos;
+			while (pos < end && isDigit(c = text.charAt(pos)))
+			{
+				++pos;
+				++digits;
+				if (significantDigits < DoubleConversion.MAX_DIGITS)
+				{
+					if (significantDigits > 0 || c != '0')
+					{
+						significand = significand * 10 + c - '0';
+						++significantDigits;
+					}
+					--exponent;
+				}
+				else
+				{
+					++significantDigits;
+				}
+			}
+		}
+
+		if (digits == 0)
+		{
+			return null;
+		}
+
+		if (pos < end && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E'))
+		{
+			++pos;
+			boolean negativeExponent = false;
+			if (pos < end && (text.charAt(pos) == '+' || text.charAt(pos) == '-'))
+			{
+				negativeExponent = text.charAt(pos) == '-';
+				++pos;
+			}
+
+			int exponentDigits = 0;
+			int explicitExponent = 0;
+			while (pos < end && isDigit(c = text.charAt(pos)))
+			{
+				++pos;
+				++exponentDigits;
+				if (explicitExponent < 100000)
+				{
+					// larger exponents result in zero or infinity anyway
+					explicitExponent = explicitExponent * 10 + c - '0';
+				}
+			}
+
+			if (exponentDigits == 0)
+			{
+				return null;
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+
+		if (pos < end)
+		{
+			// Java allows a type suffix
+			c = text.charAt(pos);
+			if (c == 'd' || c == 'D' || c == 'f' || c == 'F')
+			{
+				++pos;
+			}
+		}
+
+		if (pos != end)
+		{
+			return null;
+		}
+
+		if (significantDigits <= DoubleConversion.MAX_DIGITS)
+		{
+			long bits = DoubleConversion.toDouble(significand, exponent, negative);
+			if (bits != DoubleConversion.UNDECIDED)
+			{
+				return Double.longBitsToDouble(bits);
+			}
+		}
+
+		// the slow path
+		return Double.valueOf(text.subSequence(start, end).toString());
+	}
+
+
+	/**
+	 * Checks the given text for characters that are never allowed in a URI. This is a quick check to reject obviously invalid values. A text that passes
+	 * this check is not necessarily a valid URI.
+	 * 
+	 * @param text
+	 *            The text to check.
+	 * @param start
+	 *            The start of the value in text.
+	 * @param end
+	 *            The end of the value in text.
+	 * @return <code>false</code> if the text is not a valid URI, <code>true</code> if it might be valid.
+	 */
+	public static boolean mayBeUri(CharSequence text, int start, int end)
+	{
+		boolean fragment = false;
+		for (int pos = start; pos < end; ++pos)
+		{
+			char c = text.charAt(pos);
+			switch (c)
+			{
+				case '"':
+				case '<':
+				case '>':
+				case '\\':
+				case '^':
+				case '`':
+				case '{':
+				case '|':
+				case '}':
+				{
+					return false;
+				}
+				case '#':
+				{
+					if (fragment)
+					{
+						// only one fragment allowed
+						return false;
+					}
+					fragment = true;
+					break;
+				}
+				case '%':
+				{
+					if (pos + 2 >= end || Character.digit(text.charAt(pos + 1), 16) < 0 || Character.digit(text.charAt(pos + 2), 16) < 0)
+					{
+						return false;
+					}
+					pos += 2;
+					break;
+				}
+				default:
+				{
+					if (c <= ' ' || c == 0x7f)
+					{
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns the position of the first non-white space character in the given range or <code>end</code> if there is none.
+	 */
+	public static int skipLeadingWhitespace(CharSequence text, int start, int end)
+	{
+		while (start < end && text.charAt(start) <= ' ')
+		{
+			++start;
+		}
+		return start;
+	}
+
+
+	/**
+	 * Returns the position after the last non-white space character in the given range or <code>start</code> if there is none.
+	 */
+	public static int skipTrailingWhitespace(CharSequence text, int start, int end)
+	{
+		while (end > start && text.charAt(end - 1) <= ' ')
+		{
+			--end;
+		}
+		return end;
+	}
+
+
+	static boolean isDigit(char c)
+	{
+		return c >= '0' && c <= '9';
+	}
+
+
+	private static boolean matches(CharSequence text, int start, int end, String value)
+	{
+		int length = value.length();
+		if (end - start != length)
+		{
+			return false;
+		}
+		for (int i = 0; i < length; ++i)
+		{
+			if (text.charAt(start + i) != value.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
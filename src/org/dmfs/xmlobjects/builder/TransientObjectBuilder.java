@@ -80,6 +80,7 @@ public class TransientObjectBuilder<T> extends AbstractObjectBuilder<T>
 		{
 			return (T) child;
 		}
+		context.releaseChild();
 		return object;
 	}
 
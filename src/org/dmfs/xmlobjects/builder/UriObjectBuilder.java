@@ -20,6 +20,8 @@ package org.dmfs.xmlobjects.builder;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.dmfs.xmlobjects.ElementDescriptor;
 import org.dmfs.xmlobjects.pull.ParserContext;
@@ -35,6 +37,15 @@ import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
  * <pre>
  * &lt;href>http://dmfs.org/&lt;/href>
  * </pre>
+ * <p>
+ * URIs tend to repeat within a document. Builders created with {@link #UriObjectBuilder(boolean, int, int)} keep the most recently parsed {@link URI}s
+ * and the most recently serialized ASCII forms in bounded LRU caches, so repeating values are parsed and encoded only once. The caches are owned by the
+ * builder, so each {@link ElementDescriptor} can have its own cache sizes.
+ * </p>
+ * <p>
+ * The write cache is keyed by {@link URI} instance rather than by {@link URI#equals(Object)}, which ignores the case of the scheme, the host and escaped
+ * octets. Two equal {@link URI}s with a different spelling would otherwise be written with the same text.
+ * </p>
  * 
  * @author Marten Gajda <marten@dmfs.org>
  */
@@ -55,6 +66,16 @@ public class UriObjectBuilder extends AbstractObjectBuilder<URI>
 	 */
 	private final boolean mStrict;
 
+	/**
+	 * A cache of parsed {@link URI}s by their text or <code>null</code> if parsed values are not cached.
+	 */
+	private final LruCache<String, URI> mParseCache;
+
+	/**
+	 * A cache of the ASCII forms of serialized {@link URI} instances or <code>null</code> if serialized values are not cached.
+	 */
+	private final LruCache<Identity, String> mWriteCache;
+
 
 	/**
 	 * Create a {@link UriObjectBuilder} instance.
@@ -64,21 +85,89 @@ public class UriObjectBuilder extends AbstractObjectBuilder<URI>
 	 */
 	private UriObjectBuilder(boolean strict)
 	{
+		this(strict, 0, 0);
+	}
+
+
+	/**
+	 * Create a {@link UriObjectBuilder} instance with caches of the given sizes.
+	 * 
+	 * @param strict
+	 *            <code>true</code> to get a strict {@link UriObjectBuilder}, <code>false</code> otherwise.
+	 * @param parseCacheSize
+	 *            The maximum number of parsed {@link URI}s to cache, 0 to disable the cache.
+	 * @param writeCacheSize
+	 *            The maximum number of ASCII forms of serialized {@link URI}s to cache, 0 to disable the cache.
+	 */
+	public UriObjectBuilder(boolean strict, int parseCacheSize, int writeCacheSize)
+	{
+		if (parseCacheSize < 0 || writeCacheSize < 0)
+		{
+			throw new IllegalArgumentException("cache sizes must not be negative");
+		}
 		mStrict = strict;
+		mParseCache = parseCacheSize > 0 ? new LruCache<String, URI>(parseCacheSize) : null;
+		mWriteCache = writeCacheSize > 0 ? new LruCache<Identity, String>(writeCacheSize) : null;
 	}
 
 
 	@Override
 	public URI update(ElementDescriptor<URI> descriptor, URI object, String text, ParserContext context) throws XmlObjectPullParserException
 	{
-		if (text == null && !mStrict)
+		if (!mStrict)
 		{
-			return null;
+			if (text == null)
+			{
+				return null;
+			}
+
+			// check for obviously invalid values first, so they don't cause any exceptions
+			int length = text.length();
+			int start = TextParser.skipLeadingWhitespace(text, 0, length);
+			int end = TextParser.skipTrailingWhitespace(text, start, length);
+			if (!TextParser.mayBeUri(text, start, end))
+			{
+				return null;
+			}
+
+			if (start > 0 || end < length)
+			{
+				text = text.substring(start, end);
+			}
 		}
 
+		LruCache<String, URI> cache = mParseCache;
+		if (cache != null && text != null)
+		{
+			URI result;
+			synchronized (cache)
+			{
+				result = cache.get(text);
+			}
+
+			if (result == null)
+			{
+				result = parse(text);
+				if (result != null)
+				{
+					synchronized (cache)
+					{
+						cache.put(text, result);
+					}
+				}
+			}
+			return result;
+		}
+
+		return parse(text);
+	}
+
+
+	private URI parse(String text) throws XmlObjectPullParserException
+	{
 		try
 		{
-			return new URI(mStrict ? text : text.trim());
+			return new URI(text);
 		}
 		catch (URISyntaxException e)
 		{
@@ -98,11 +187,92 @@ public class UriObjectBuilder extends AbstractObjectBuilder<URI>
 	{
 		if (object != null)
 		{
-			childWriter.writeText(object.toASCIIString(), context);
+			childWriter.writeText(toASCIIString(object), context);
 		}
 		else if (mStrict)
 		{
 			throw new IllegalStateException("URI value is null");
 		}
 	}
-}
\ No newline at end of file
+
+
+	private String toASCIIString(URI uri)
+	{
+		LruCache<Identity, String> cache = mWriteCache;
+		if (cache == null)
+		{
+			return uri.toASCIIString();
+		}
+
+		Identity key = new Identity(uri);
+		String result;
+		synchronized (cache)
+		{
+			result = cache.get(key);
+		}
+
+		if (result == null)
+		{
+			result = uri.toASCIIString();
+			synchronized (cache)
+			{
+				cache.put(key, result);
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * A key that matches only the very same {@link URI} instance.
+	 */
+	private final static class Identity
+	{
+		private final URI mUri;
+
+
+		public Identity(URI uri)
+		{
+			mUri = uri;
+		}
+
+
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof Identity && ((Identity) o).mUri == mUri;
+		}
+
+
+		@Override
+		public int hashCode()
+		{
+			return System.identityHashCode(mUri);
+		}
+	}
+
+
+	/**
+	 * A {@link LinkedHashMap} in access order that removes the least recently used entry once it exceeds its maximum size. It's not thread safe.
+	 */
+	private final static class LruCache<K, V> extends LinkedHashMap<K, V>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int mMaxSize;
+
+
+		public LruCache(int maxSize)
+		{
+			super(Math.min(maxSize, 64) * 4 / 3 + 1, 0.75f, true);
+			mMaxSize = maxSize;
+		}
+
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+		{
+			return size() > mMaxSize;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+
+
+/**
+ * A builder that writes the text of an element to a {@link Writer} instead of keeping it in memory. The {@link Writer} is provided by a
+ * {@link WriterFactory} when the start tag of the element has been parsed. The text is written chunk by chunk as it's being parsed, so large text values
+ * are not collected. See {@link IStreamingObjectBuilder} for the limits of that.
+ * 
+ * <pre>
+ * &lt;content>a very long text ...&lt;/content>
+ * </pre>
+ * 
+ * <p>
+ * The result of this builder is the {@link Writer} itself. It's flushed but not closed when the end tag has been parsed.
+ * </p>
+ * <p>
+ * <strong>Note:</strong> This builder doesn't support serialization.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ * 
+ * @param <T>
+ *            The type of the {@link Writer}.
+ */
+public class WriterObjectBuilder<T extends Writer> extends AbstractObjectBuilder<T> implements IStreamingObjectBuilder<T>
+{
+	/**
+	 * The interface of a class that provides a {@link Writer} for the text of an element.
+	 * 
+	 * @param <T>
+	 *            The type of the {@link Writer}.
+	 */
+	public interface WriterFactory<T extends Writer>
+	{
+		/**
+		 * Returns a {@link Writer} for the text of the current element. This is called when the start tag has been parsed, so the attributes of the element
+		 * can be retrieved from {@link ParserContext#getXmlPullParser()}.
+		 * 
+		 * @param descriptor
+		 *            The {@link ElementDescriptor} of the element.
+		 * @param context
+		 *            A {@link ParserContext}.
+		 * @return A {@link Writer} for the text of the element.
+		 * @throws IOException
+		 */
+		public T getWriter(ElementDescriptor<T> descriptor, ParserContext context) throws IOException;
+	}
+
+	private final WriterFactory<T> mWriterFactory;
+
+
+	/**
+	 * Create a new {@link WriterObjectBuilder} that writes the text of each element to a {@link Writer} returned by the given {@link WriterFactory}.
+	 * 
+	 * @param writerFactory
+	 *            A {@link WriterFactory}.
+	 */
+	public WriterObjectBuilder(WriterFactory<T> writerFactory)
+	{
+		mWriterFactory = writerFactory;
+	}
+
+
+	@Override
+	public T get(ElementDescriptor<T> descriptor, T recycle, ParserContext context) throws XmlObjectPullParserException
+	{
+		try
+		{
+			return mWriterFactory.getWriter(descriptor, context);
+		}
+		catch (IOException e)
+		{
+			throw new XmlObjectPullParserException("can not get writer for " + descriptor.qualifiedName, e);
+		}
+	}
+
+
+	@Override
+	public T update(ElementDescriptor<T> descriptor, T object, String text, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (object != null && text != null)
+		{
+			try
+			{
+				object.write(text);
+			}
+			catch (IOException e)
+			{
+				throw new XmlObjectPullParserException("can not write text of " + descriptor.qualifiedName, e);
+			}
+		}
+		return object;
+	}
+
+
+	@Override
+	public T update(ElementDescriptor<T> descriptor, T object, char[] text, int start, int length, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (object != null)
+		{
+			try
+			{
+				object.write(text, start, length);
+			}
+			catch (IOException e)
+			{
+				throw new XmlObjectPullParserException("can not write text of " + descriptor.qualifiedName, e);
+			}
+		}
+		return object;
+	}
+
+
+	@Override
+	public T finish(ElementDescriptor<T> descriptor, T object, ParserContext context) throws XmlObjectPullParserException
+	{
+		if (object != null)
+		{
+			try
+			{
+				object.flush();
+			}
+			catch (IOException e)
+			{
+				throw new XmlObjectPullParserException("can not flush writer of " + descriptor.qualifiedName, e);
+			}
+		}
+		return object;
+	}
+}
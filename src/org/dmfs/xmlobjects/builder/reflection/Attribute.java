@@ -24,12 +24,12 @@ import java.lang.annotation.Target;
 
 
 /**
- * Identifies a field that is to be populated by an attribute.
+ * Identifies a field or a constructor parameter that is to be populated by an attribute.
  * 
  * @author Marten Gajda <marten@dmfs.org>
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target({ ElementType.FIELD })
+@Target({ ElementType.FIELD, ElementType.PARAMETER })
 public @interface Attribute {
 
 	/**
@@ -39,7 +39,7 @@ public @interface Attribute {
 
 
 	/**
-	 * The name of the attribute
+	 * The name of the attribute. Defaults to the name of the field, it's required for constructor parameters.
 	 */
 	String name() default "";
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder.reflection;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+
+
+/**
+ * Assigns child elements to a specific field. The assigner for a field is resolved once when a {@link ReflectionObjectBuilder} is created.
+ * <p>
+ * Children of {@link Collection} fields are added to the collection, which is created if the field is <code>null</code>. Collection fields can have a
+ * concrete type with a default constructor or one of the interfaces {@link Collection}, {@link List}, {@link Set}, {@link SortedSet} and {@link Queue},
+ * which are populated with an {@link ArrayList}, a {@link LinkedHashSet}, a {@link TreeSet} or a {@link LinkedList} respectively. Other fields are
+ * assigned if the child is an instance of the field type. Primitive fields are assigned if the child is an instance of the respective wrapper class.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public abstract class ChildAssigner
+{
+	/**
+	 * Maps the primitive types to their wrapper classes.
+	 */
+	private final static Map<Class<?>, Class<?>> WRAPPER_TYPES = new HashMap<Class<?>, Class<?>>(16);
+
+	static
+	{
+		WRAPPER_TYPES.put(boolean.class, Boolean.class);
+		WRAPPER_TYPES.put(byte.class, Byte.class);
+		WRAPPER_TYPES.put(char.class, Character.class);
+		WRAPPER_TYPES.put(short.class, Short.class);
+		WRAPPER_TYPES.put(int.class, Integer.class);
+		WRAPPER_TYPES.put(long.class, Long.class);
+		WRAPPER_TYPES.put(float.class, Float.class);
+		WRAPPER_TYPES.put(double.class, Double.class);
+	}
+
+	/**
+	 * The {@link FieldAccessor} of the field to assign children to.
+	 */
+	public final FieldAccessor accessor;
+
+
+	protected ChildAssigner(FieldAccessor accessor)
+	{
+		this.accessor = accessor;
+	}
+
+
+	/**
+	 * Returns a {@link ChildAssigner} for the field of the given {@link FieldAccessor}.
+	 * 
+	 * @param accessor
+	 *            The {@link FieldAccessor} of the field.
+	 * @return A {@link ChildAssigner}.
+	 */
+	public static ChildAssigner get(FieldAccessor accessor)
+	{
+		Class<?> fieldType = accessor.type;
+		if (!Collection.class.isAssignableFrom(fieldType))
+		{
+			return new FieldAssigner(accessor);
+		}
+
+		Class<?> collectionType = fieldType;
+		if (fieldType.isInterface() || Modifier.isAbstract(fieldType.getModifiers()))
+		{
+			collectionType = getDefaultImplementation(fieldType);
+		}
+
+		Constructor<?> constructor = null;
+		if (collectionType != null)
+		{
+			try
+			{
+				constructor = collectionType.getConstructor();
+			}
+			catch (NoSuchMethodException e)
+			{
+				// we can't create the collection, but we still can add to existing collections
+			}
+		}
+		return new CollectionAssigner(accessor, constructor);
+	}
+
+
+	/**
+	 * Returns an implementation of the given abstract collection type or <code>null</code> if there is no default implementation.
+	 */
+	private static Class<?> getDefaultImplementation(Class<?> collectionType)
+	{
+		if (collectionType.isAssignableFrom(ArrayList.class))
+		{
+			// that's any of Collection, List, AbstractCollection, AbstractList ...
+			return ArrayList.class;
+		}
+		else if (collectionType.isAssignableFrom(LinkedHashSet.class))
+		{
+			return LinkedHashSet.class;
+		}
+		else if (collectionType.isAssignableFrom(TreeSet.class))
+		{
+			return TreeSet.class;
+		}
+		else if (collectionType.isAssignableFrom(LinkedList.class))
+		{
+			return LinkedList.class;
+		}
+		return null;
+	}
+
+
+	/**
+	 * Assigns the given child to the field of the given object.
+	 * 
+	 * @param object
+	 *            The object to update.
+	 * @param child
+	 *            The child object, may be <code>null</code>.
+	 * @throws XmlObjectPullParserException
+	 * @throws IllegalAccessException
+	 */
+	public abstract void assign(Object object, Object child) throws XmlObjectPullParserException, IllegalAccessException;
+
+
+	/**
+	 * Returns whether the field is a collection of children.
+	 * 
+	 * @return <code>true</code> if the field is a {@link Collection}.
+	 */
+	public abstract boolean isCollection();
+
+	/**
+	 * A {@link ChildAssigner} that adds the children to a {@link Collection}.
+	 */
+	private final static class CollectionAssigner extends ChildAssigner
+	{
+		/**
+		 * The constructor of the collection or <code>null</code> if we can't create one.
+		 */
+		private final Constructor<?> mConstructor;
+
+
+		public CollectionAssigner(FieldAccessor accessor, Constructor<?> constructor)
+		{
+			super(accessor);
+			mConstructor = constructor;
+		}
+
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public void assign(Object object, Object child) throws XmlObjectPullParserException, IllegalAccessException
+		{
+			Collection<Object> collection = (Collection<Object>) accessor.get(object);
+			if (collection == null)
+			{
+				if (mConstructor == null)
+				{
+					// we can't create a collection
+					return;
+				}
+
+				try
+				{
+					collection = (Collection<Object>) mConstructor.newInstance();
+				}
+				catch (InstantiationException e)
+				{
+					throw new XmlObjectPullParserException("can not instantiate collection for " + accessor.type, e);
+				}
+				catch (InvocationTargetException e)
+				{
+					throw new XmlObjectPullParserException("can not instantiate collection for " + accessor.type, e);
+				}
+				accessor.set(object, collection);
+			}
+			collection.add(child);
+		}
+
+
+		@Override
+		public boolean isCollection()
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * A {@link ChildAssigner} that assigns children to a field if they are instances of the field type or, for primitive fields, of the wrapper type.
+	 */
+	private final static class FieldAssigner extends ChildAssigner
+	{
+		private final Class<?> mType;
+
+
+		public FieldAssigner(FieldAccessor accessor)
+		{
+			super(accessor);
+			// Class.isInstance is always false for primitive types, so we check against the wrapper class instead
+			mType = accessor.type.isPrimitive() ? WRAPPER_TYPES.get(accessor.type) : accessor.type;
+		}
+
+
+		@Override
+		public void assign(Object object, Object child) throws IllegalAccessException
+		{
+			if (mType.isInstance(child))
+			{
+				accessor.set(object, child);
+			}
+		}
+
+
+		@Override
+		public boolean isCollection()
+		{
+			return false;
+		}
+	}
+}
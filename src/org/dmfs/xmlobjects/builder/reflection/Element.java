@@ -29,7 +29,7 @@ import java.lang.annotation.Target;
  * @author Marten Gajda <marten@dmfs.org>
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target({ ElementType.FIELD })
+@Target({ ElementType.FIELD, ElementType.PARAMETER })
 public @interface Element {
 
 	/**
@@ -41,7 +41,7 @@ public @interface Element {
 
 
 	/**
-	 * The name of the child element.
+	 * The name of the child element. Defaults to the name of the field, it's required for constructor parameters.
 	 * 
 	 * @return
 	 */
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder.reflection;
+
+import java.lang.reflect.Field;
+
+
+/**
+ * Reads and writes the value of a specific field. Accessors are resolved once when a {@link ReflectionObjectBuilder} is created, so there is no lookup or
+ * access check when a value is assigned.
+ * <p>
+ * Accessors for constructor arguments don't have a field, they read and write a slot of the argument array that's passed instead of the object.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public abstract class FieldAccessor
+{
+	/**
+	 * The field this accessor reads and writes or <code>null</code> if this accessor writes a constructor argument.
+	 */
+	public final Field field;
+
+	/**
+	 * The type of the value.
+	 */
+	public final Class<?> type;
+
+
+	protected FieldAccessor(Field field)
+	{
+		this.field = field;
+		this.type = field.getType();
+	}
+
+
+	protected FieldAccessor(Class<?> type)
+	{
+		this.field = null;
+		this.type = type;
+	}
+
+
+	/**
+	 * Returns a {@link FieldAccessor} for the given field. The field is made accessible, so it can be private.
+	 * 
+	 * @param field
+	 *            The {@link Field}.
+	 * @return A {@link FieldAccessor}.
+	 */
+	public static FieldAccessor get(Field field)
+	{
+		field.setAccessible(true);
+		return new ReflectionFieldAccessor(field);
+	}
+
+
+	/**
+	 * Returns a {@link FieldAccessor} for a constructor argument. The objects passed to this accessor must be <code>Object[]</code>s that hold the arguments.
+	 * 
+	 * @param type
+	 *            The type of the argument.
+	 * @param index
+	 *            The index of the argument.
+	 * @return A {@link FieldAccessor}.
+	 */
+	public static FieldAccessor get(Class<?> type, int index)
+	{
+		return new ArgumentAccessor(type, index);
+	}
+
+
+	/**
+	 * Returns the value of the field in the given object.
+	 */
+	public abstract Object get(Object object) throws IllegalAccessException;
+
+
+	/**
+	 * Sets the value of the field in the given object.
+	 */
+	public abstract void set(Object object, Object value) throws IllegalAccessException;
+
+
+	public abstract void setInt(Object object, int value) throws IllegalAccessException;
+
+
+	public abstract void setLong(Object object, long value) throws IllegalAccessException;
+
+
+	public abstract void setShort(Object object, short value) throws IllegalAccessException;
+
+
+	public abstract void setByte(Object object, byte value) throws IllegalAccessException;
+
+
+	public abstract void setChar(Object object, char value) throws IllegalAccessException;
+
+
+	public abstract void setFloat(Object object, float value) throws IllegalAccessException;
+
+
+	public abstract void setDouble(Object object, double value) throws IllegalAccessException;
+
+
+	public abstract void setBoolean(Object object, boolean value) throws IllegalAccessException;
+
+	/**
+	 * A {@link FieldAccessor} that uses an accessible {@link Field}.
+	 */
+	private final static class ReflectionFieldAccessor extends FieldAccessor
+	{
+		public ReflectionFieldAccessor(Field field)
+		{
+			super(field);
+		}
+
+
+		@Override
+		public Object get(Object object) throws IllegalAccessException
+		{
+			return field.get(object);
+		}
+
+
+		@Override
+		public void set(Object object, Object value) throws IllegalAccessException
+		{
+			field.set(object, value);
+		}
+
+
+		@Override
+		public void setInt(Object object, int value) throws IllegalAccessException
+		{
+			field.setInt(object, value);
+		}
+
+
+		@Override
+		public void setLong(Object object, long value) throws IllegalAccessException
+		{
+			field.setLong(object, value);
+		}
+
+
+		@Override
+		public void setShort(Object object, short value) throws IllegalAccessException
+		{
+			field.setShort(object, value);
+		}
+
+
+		@Override
+		public void setByte(Object object, byte value) throws IllegalAccessException
+		{
+			field.setByte(object, value);
+		}
+
+
+		@Override
+		public void setChar(Object object, char value) throws IllegalAccessException
+		{
+			field.setChar(object, value);
+		}
+
+
+		@Override
+		public void setFloat(Object object, float value) throws IllegalAccessException
+		{
+			field.setFloat(object, value);
+		}
+
+
+		@Override
+		public void setDouble(Object object, double value) throws IllegalAccessException
+		{
+			field.setDouble(object, value);
+		}
+
+
+		@Override
+		public void setBoolean(Object object, boolean value) throws IllegalAccessException
+		{
+			field.setBoolean(object, value);
+		}
+	}
+
+	/**
+	 * A {@link FieldAccessor} that reads and writes a slot in an array of constructor arguments. Primitive values are boxed.
+	 */
+	private final static class ArgumentAccessor extends FieldAccessor
+	{
+		private final int mIndex;
+
+
+		public ArgumentAccessor(Class<?> type, int index)
+		{
+			super(type);
+			mIndex = index;
+		}
+
+
+		@Override
+		public Object get(Object object)
+		{
+			return ((Object[]) object)[mIndex];
+		}
+
+
+		@Override
+		public void set(Object object, Object value)
+		{
+			((Object[]) object)[mIndex] = value;
+		}
+
+
+		@Override
+		public void setInt(Object object, int value)
+		{
+			((Object[]) object)[mIndex] = Integer.valueOf(value);
+		}
+
+
+		@Override
+		public void setLong(Object object, long value)
+		{
+			((Object[]) object)[mIndex] = Long.valueOf(value);
+		}
+
+
+		@Override
+		public void setShort(Object object, short value)
+		{
+			((Object[]) object)[mIndex] = Short.valueOf(value);
+		}
+
+
+		@Override
+		public void setByte(Object object, byte value)
+		{
+			((Object[]) object)[mIndex] = Byte.valueOf(value);
+		}
+
+
+		@Override
+		public void setChar(Object object, char value)
+		{
+			((Object[]) object)[mIndex] = Character.valueOf(value);
+		}
+
+
+		@Override
+		public void setFloat(Object object, float value)
+		{
+			((Object[]) object)[mIndex] = Float.valueOf(value);
+		}
+
+
+		@Override
+		public void setDouble(Object object, double value)
+		{
+			((Object[]) object)[mIndex] = Double.valueOf(value);
+		}
+
+
+		@Override
+		public void setBoolean(Object object, boolean value)
+		{
+			((Object[]) object)[mIndex] = Boolean.valueOf(value);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder.reflection;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.dmfs.xmlobjects.builder.IObjectBuilder;
+
+
+/**
+ * Returns the fastest available {@link IObjectBuilder} for classes with fields that are annotated with {@link Attribute}, {@link Element} or {@link Text}.
+ * <p>
+ * If a builder has been generated for the class by the annotation processor of the <code>processor</code> module, that builder is returned. Otherwise
+ * this returns a new {@link ReflectionObjectBuilder}. Both behave the same, so callers don't need to know which one they get.
+ * </p>
+ * <p>
+ * This factory doesn't generate builders at runtime. That would require a bytecode generator, which is not available on Java 6 without additional
+ * dependencies, and Android can't load JVM bytecode anyway. Classes the processor hasn't seen, like the models of a third party library, are built by a
+ * {@link ReflectionObjectBuilder}.
+ * </p>
+ * <p>
+ * The processor doesn't need the sources of a class, so you can try to generate builders for classes in a library by running it on the compiled classes:
+ * </p>
+ * 
+ * <pre>
+ * javac -proc:only -processorpath xmlobjects-processor.jar -classpath library.jar:xmlobjects.jar -s generated com.example.Model
+ * </pre>
+ * <p>
+ * and compile the generated sources with your code. Classes with private mapped fields or without an accessible default constructor are skipped with a
+ * warning, this factory returns a {@link ReflectionObjectBuilder} for them.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public final class ObjectBuilderFactory
+{
+	/**
+	 * The suffix of the names of generated builders.
+	 */
+	private final static String BUILDER_SUFFIX = "ObjectBuilder";
+
+
+	private ObjectBuilderFactory()
+	{
+	}
+
+
+	/**
+	 * Returns an {@link IObjectBuilder} for the given class.
+	 * 
+	 * @param genericClass
+	 *            The class to build.
+	 * @return An {@link IObjectBuilder}.
+	 */
+	public static <T> IObjectBuilder<T> get(Class<T> genericClass)
+	{
+		IObjectBuilder<T> builder = getGeneratedBuilder(genericClass);
+		return builder != null ? builder : new ReflectionObjectBuilder<T>(genericClass);
+	}
+
+
+	/**
+	 * Returns the generated builder of the given class or <code>null</code> if there is none. A generated builder is identified by its name and a
+	 * {@link GeneratedBuilder} annotation that refers to the given class.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> IObjectBuilder<T> getGeneratedBuilder(Class<T> genericClass)
+	{
+		// nested classes are joined with an underscore, that's what the annotation processor does
+		StringBuilder name = new StringBuilder(genericClass.getSimpleName());
+		for (Class<?> enclosing = genericClass.getEnclosingClass(); enclosing != null; enclosing = enclosing.getEnclosingClass())
+		{
+			name.insert(0, '_');
+			name.insert(0, enclosing.getSimpleName());
+		}
+		name.append(BUILDER_SUFFIX);
+
+		// the builder lives in the package of the class
+		String className = genericClass.getName();
+		name.insert(0, className.substring(0, className.lastIndexOf('.') + 1));
+
+		try
+		{
+			Class<?> builderClass = Class.forName(name.toString(), true, genericClass.getClassLoader());
+			if (!IObjectBuilder.class.isAssignableFrom(builderClass))
+			{
+				return null;
+			}
+
+			// only trust classes the processor has generated for this very class, anything else may just happen to have a matching name
+			GeneratedBuilder marker = builderClass.getAnnotation(GeneratedBuilder.class);
+			if (marker == null || marker.value() != genericClass)
+			{
+				return null;
+			}
+
+			Field instance = builderClass.getField("INSTANCE");
+			if (!Modifier.isStatic(instance.getModifiers()))
+			{
+				return null;
+			}
+			return (IObjectBuilder<T>) instance.get(null);
+		}
+		catch (ClassNotFoundException e)
+		{
+			// no builder has been generated
+			return null;
+		}
+		catch (NoSuchFieldException e)
+		{
+			// not a generated builder
+			return null;
+		}
+		catch (IllegalAccessException e)
+		{
+			// not a generated builder
+			return null;
+		}
+	}
+}
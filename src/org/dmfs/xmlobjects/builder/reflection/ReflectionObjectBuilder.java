@@ -18,18 +18,20 @@
 package org.dmfs.xmlobjects.builder.reflection;
 
 import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.WeakHashMap;
 
 import org.dmfs.xmlobjects.ElementDescriptor;
 import org.dmfs.xmlobjects.QualifiedName;
@@ -47,7 +49,20 @@ import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
 /**
  * A builder for xml elements that are populated using refelection. At present, this is more like a proof of concept.
  * <p>
- * At present this builder requires T to have a default constructor without parameters.
+ * At present this builder requires T to have a default constructor without parameters, unless {@link #getInstance(ParserContext)} is overridden. The
+ * constructor, the {@link TextConverter}s and the {@link ChildAssigner}s of all fields are resolved once per class and shared by all builders of that
+ * class, so creating more builders for the same class is cheap. Subclasses can read the mapping through {@link #getAttributeConverters()},
+ * {@link #getChildAssigners()} and {@link #getTextConverters()}.
+ * </p>
+ * <p>
+ * Immutable classes can declare a constructor with parameters that are all annotated with {@link Attribute}, {@link Element} or {@link Text}. The values
+ * are collected in an argument array that's kept in the state of the {@link ParserContext} and the instance is created in
+ * {@link #finish(ElementDescriptor, Object, ParserContext)}, so such classes can be parsed by an XmlObjectPull only. Since parameter names are not
+ * available at runtime, {@link Attribute} and {@link Element} parameters need an explicit name. Annotated fields are still used to serialize such objects,
+ * so they can be <code>final</code>.
+ * </p>
+ * <p>
+ * Use {@link ObjectBuilderFactory#get(Class)} to get a builder that has been generated by the annotation processor if one is available.
  * </p>
  * 
  * <p>
@@ -60,88 +75,283 @@ import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
 public class ReflectionObjectBuilder<T> extends AbstractObjectBuilder<T>
 {
 
+	/**
+	 * A cache of the {@link Metadata} of all classes. The classes are weakly referenced, so they can be unloaded. The metadata is weakly referenced too,
+	 * because it refers to the class. It's kept alive by the builders that use it.
+	 */
+	private final static Map<Class<?>, WeakReference<Metadata>> METADATA_CACHE = new WeakHashMap<Class<?>, WeakReference<Metadata>>(32);
+
 	/**
 	 * The class this builder returns objects of.
 	 */
 	private final Class<T> mGenericClass;
 
 	/**
-	 * A map of all fields that should be populated from an attribute.
+	 * The default constructor of {@link #mGenericClass} or <code>null</code> if there is none.
+	 */
+	private final Constructor<T> mConstructor;
+
+	/**
+	 * The constructor with annotated parameters or <code>null</code> if there is none.
+	 */
+	private final Constructor<T> mArgumentConstructor;
+
+	/**
+	 * The values of missing arguments of {@link #mArgumentConstructor}, that's <code>null</code> for objects and zero or <code>false</code> for primitives.
+	 */
+	private final Object[] mArgumentDefaults;
+
+	/**
+	 * A map of all fields or constructor arguments that should be populated from an attribute.
 	 */
-	protected final Map<QualifiedName, Field> mAttributeMap = new HashMap<QualifiedName, Field>(8);
+	private final Map<QualifiedName, TextConverter> mAttributeMap;
 
 	/**
-	 * A map of all fields that should be populated from a child element.
+	 * A map of all fields or constructor arguments that should be populated from a child element.
 	 */
-	protected final Map<QualifiedName, Field> mElementMap = new HashMap<QualifiedName, Field>(8);
+	private final Map<QualifiedName, ChildAssigner> mElementMap;
 
 	/**
-	 * A map of all fields that should be serialized to a child element.
+	 * A list of all fields or constructor arguments that should be populated from a text.
 	 */
-	protected final List<FieldHolder> mElementList = new ArrayList<FieldHolder>(8);
+	private final List<TextConverter> mTextList;
 
 	/**
-	 * A list of all fields that should be populated from a text.
+	 * The fields to serialize to attributes.
 	 */
-	protected final List<Field> mTextList = new ArrayList<Field>(8);
+	private final FieldHolder[] mAttributeHolders;
+
+	/**
+	 * The fields to serialize to child elements and text.
+	 */
+	private final FieldHolder[] mElementHolders;
+
+	/**
+	 * The child descriptors that have been resolved per parent descriptor. The map is replaced whenever an entry is added, so it can be read without locking.
+	 */
+	private volatile Map<ElementDescriptor<?>, ResolvedChildren> mResolvedChildren = Collections.emptyMap();
 
 
+	@SuppressWarnings("unchecked")
 	public ReflectionObjectBuilder(Class<T> genericClass)
 	{
 		mGenericClass = genericClass;
-		buildFieldMaps(genericClass);
+		Metadata metadata = getMetadata(genericClass);
+		mConstructor = (Constructor<T>) metadata.constructor;
+		mArgumentConstructor = (Constructor<T>) metadata.argumentConstructor;
+		mArgumentDefaults = metadata.argumentDefaults;
+		mAttributeMap = metadata.attributeMap;
+		mElementMap = metadata.elementMap;
+		mTextList = metadata.textList;
+		mAttributeHolders = metadata.attributeHolders;
+		mElementHolders = metadata.elementHolders;
+	}
+
+
+	/**
+	 * Returns the {@link TextConverter}s of all fields or constructor arguments that are populated from an attribute. The map is shared by all builders of
+	 * the same class, so it's unmodifiable.
+	 * 
+	 * @return An unmodifiable {@link Map} of attribute names to {@link TextConverter}s.
+	 */
+	protected Map<QualifiedName, TextConverter> getAttributeConverters()
+	{
+		return mAttributeMap;
+	}
+
+
+	/**
+	 * Returns the {@link ChildAssigner}s of all fields or constructor arguments that are populated from a child element. The map is shared by all builders
+	 * of the same class, so it's unmodifiable.
+	 * 
+	 * @return An unmodifiable {@link Map} of element names to {@link ChildAssigner}s.
+	 */
+	protected Map<QualifiedName, ChildAssigner> getChildAssigners()
+	{
+		return mElementMap;
+	}
+
+
+	/**
+	 * Returns the {@link TextConverter}s of all fields or constructor arguments that are populated from a text. The list is shared by all builders of the
+	 * same class, so it's unmodifiable.
+	 * 
+	 * @return An unmodifiable {@link List} of {@link TextConverter}s.
+	 */
+	protected List<TextConverter> getTextConverters()
+	{
+		return mTextList;
+	}
+
+
+	/**
+	 * Returns the {@link Metadata} of the given class, creating it if it's not in the cache.
+	 */
+	private static Metadata getMetadata(Class<?> genericClass)
+	{
+		synchronized (METADATA_CACHE)
+		{
+			WeakReference<Metadata> reference = METADATA_CACHE.get(genericClass);
+			Metadata metadata = reference == null ? null : reference.get();
+			if (metadata == null)
+			{
+				metadata = new Metadata(genericClass);
+				METADATA_CACHE.put(genericClass, new WeakReference<Metadata>(metadata));
+			}
+			return metadata;
+		}
+	}
+
+
+	/**
+	 * Returns the accessible default constructor of the given class or <code>null</code> if there is none.
+	 */
+	private static Constructor<?> getDefaultConstructor(Class<?> genericClass)
+	{
+		try
+		{
+			Constructor<?> constructor = genericClass.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return constructor;
+		}
+		catch (NoSuchMethodException e)
+		{
+			// getInstance must be overridden to create instances
+			return null;
+		}
+		catch (SecurityException e)
+		{
+			// getInstance must be overridden to create instances
+			return null;
+		}
+	}
+
+
+	/**
+	 * Returns the accessible constructor of the given class that has only annotated parameters or <code>null</code> if there is none.
+	 */
+	private static Constructor<?> getArgumentConstructor(Class<?> genericClass)
+	{
+		for (Constructor<?> constructor : genericClass.getDeclaredConstructors())
+		{
+			Annotation[][] parameterAnnotations = constructor.getParameterAnnotations();
+			int count = constructor.getParameterTypes().length;
+			if (count == 0 || parameterAnnotations.length != count)
+			{
+				continue;
+			}
+
+			boolean annotated = true;
+			for (int i = 0; i < count && annotated; ++i)
+			{
+				annotated = getParameterAnnotation(parameterAnnotations[i]) != null;
+			}
+
+			if (annotated)
+			{
+				constructor.setAccessible(true);
+				return constructor;
+			}
+		}
+		return null;
+	}
 
-		Class<?> superClass = genericClass.getSuperclass();
-		while (superClass != Object.class)
+
+	/**
+	 * Returns the {@link Attribute}, {@link Element} or {@link Text} annotation among the given annotations or <code>null</code> if there is none.
+	 */
+	private static Annotation getParameterAnnotation(Annotation[] annotations)
+	{
+		for (Annotation annotation : annotations)
 		{
-			buildFieldMaps(superClass);
-			superClass = superClass.getSuperclass();
+			if (annotation instanceof Attribute || annotation instanceof Element || annotation instanceof Text)
+			{
+				return annotation;
+			}
 		}
+		return null;
 	}
 
 
-	private void buildFieldMaps(Class<?> classParam)
+	private static void buildArgumentMaps(Constructor<?> constructor, Map<QualifiedName, TextConverter> attributeMap,
+		Map<QualifiedName, ChildAssigner> elementMap, List<TextConverter> textList)
+	{
+		Class<?>[] parameterTypes = constructor.getParameterTypes();
+		Annotation[][] parameterAnnotations = constructor.getParameterAnnotations();
+		for (int i = 0, count = parameterTypes.length; i < count; ++i)
+		{
+			FieldAccessor accessor = FieldAccessor.get(parameterTypes[i], i);
+			Annotation annotation = getParameterAnnotation(parameterAnnotations[i]);
+			if (annotation instanceof Attribute)
+			{
+				Attribute attribute = (Attribute) annotation;
+				attributeMap.put(QualifiedName.get(attribute.namespace(), parameterName(attribute.name(), constructor)), TextConverter.get(accessor));
+			}
+			else if (annotation instanceof Element)
+			{
+				Element element = (Element) annotation;
+				elementMap.put(QualifiedName.get(element.namespace(), parameterName(element.name(), constructor)), ChildAssigner.get(accessor));
+			}
+			else
+			{
+				textList.add(TextConverter.get(accessor));
+			}
+		}
+	}
+
+
+	private static String parameterName(String name, Constructor<?> constructor)
+	{
+		if (name.length() == 0)
+		{
+			throw new IllegalArgumentException("annotated constructor parameters need a name in " + constructor);
+		}
+		return name;
+	}
+
+
+	private static void buildFieldMaps(Class<?> classParam, Map<QualifiedName, TextConverter> attributeMap, List<FieldHolder> attributeList,
+		Map<QualifiedName, ChildAssigner> elementMap, List<FieldHolder> elementList, List<TextConverter> textList)
 	{
-		Map<QualifiedName, Field> attributeMap = mAttributeMap;
-		Map<QualifiedName, Field> elementMap = mElementMap;
-		List<FieldHolder> elementList = mElementList;
-		List<Field> textList = mTextList;
 		for (Field field : classParam.getDeclaredFields())
 		{
 			Attribute attribute = field.getAnnotation(Attribute.class);
 			if (attribute != null)
 			{
-				field.setAccessible(true);
 				String name = attribute.name();
 				String namespace = attribute.namespace();
 				if (name.length() == 0)
 				{
 					name = field.getName();
 				}
-				attributeMap.put(QualifiedName.get(namespace, name), field);
+				TextConverter converter = TextConverter.get(FieldAccessor.get(field));
+				QualifiedName qualifiedName = QualifiedName.get(namespace, name);
+				attributeMap.put(qualifiedName, converter);
+				attributeList.add(new FieldHolder(qualifiedName, converter.accessor, false));
 			}
 			else
 			{
 				Element element = field.getAnnotation(Element.class);
 				if (element != null)
 				{
-					field.setAccessible(true);
+					ChildAssigner assigner = ChildAssigner.get(FieldAccessor.get(field));
 					String name = element.name();
 					String namespace = element.namespace();
 					if (name.length() == 0)
 					{
 						name = field.getName();
 					}
-					elementMap.put(QualifiedName.get(namespace, name), field);
-					elementList.add(new FieldHolder(QualifiedName.get(namespace, name), field));
+					QualifiedName qualifiedName = QualifiedName.get(namespace, name);
+					elementMap.put(qualifiedName, assigner);
+					elementList.add(new FieldHolder(qualifiedName, assigner.accessor, assigner.isCollection()));
 				}
 
 				Text text = field.getAnnotation(Text.class);
 				if (text != null)
 				{
-					field.setAccessible(true);
-					textList.add(field);
-					elementList.add(new FieldHolder(null, field));
+					FieldAccessor accessor = FieldAccessor.get(field);
+					textList.add(TextConverter.get(accessor));
+					elementList.add(new FieldHolder(null, accessor, false));
 				}
 			}
 		}
@@ -149,9 +359,24 @@ public class ReflectionObjectBuilder<T> extends AbstractObjectBuilder<T>
 	}
 
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If T is created by a constructor with annotated parameters this returns <code>null</code>, since the instance can't be created before all arguments
+	 * are known. The arguments are collected in the state of the {@link ParserContext} instead, so such builders can be used with an XmlObjectPull only.
+	 * The recycled object is ignored in that case, because such objects are immutable.
+	 * </p>
+	 */
 	@Override
 	public T get(ElementDescriptor<T> descriptor, T recycle, ParserContext context) throws XmlObjectPullParserException
 	{
+		if (mArgumentConstructor != null)
+		{
+			// collect the arguments until the element is finished, the array never leaves this builder
+			context.setState(context.obtainArguments(mArgumentDefaults.length));
+			return null;
+		}
+
 		if (recycle instanceof Recyclable)
 		{
 			((Recyclable) recycle).recycle();
@@ -180,10 +405,10 @@ public class ReflectionObjectBuilder<T> extends AbstractObjectBuilder<T>
 	public T update(ElementDescriptor<T> descriptor, T object, QualifiedName attribute, String value, ParserContext context)
 		throws XmlObjectPullParserException
 	{
-		Field field = mAttributeMap.get(attribute);
-		if (field != null)
+		TextConverter converter = mAttributeMap.get(attribute);
+		if (converter != null)
 		{
-			assignValue(field, object, value);
+			assignValue(converter, target(object, context), value);
 		}
 		return object;
 	}
@@ -192,156 +417,138 @@ public class ReflectionObjectBuilder<T> extends AbstractObjectBuilder<T>
 	@Override
 	public T update(ElementDescriptor<T> descriptor, T object, String text, ParserContext context) throws XmlObjectPullParserException
 	{
-		for (Field field : mTextList)
+		if (mTextList.isEmpty())
 		{
-			assignValue(field, object, text);
+			return object;
+		}
+
+		Object target = target(object, context);
+		for (TextConverter converter : mTextList)
+		{
+			assignValue(converter, target, text);
 		}
 		return object;
 	}
 
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public <V> T update(ElementDescriptor<T> descriptor, T object, ElementDescriptor<V> child, V data, ParserContext context)
 		throws XmlObjectPullParserException
 	{
-		QualifiedName qualifiedName = child.qualifiedName;
-
-		Field field = mElementMap.get(qualifiedName);
-		if (field != null)
+		ChildAssigner assigner = mElementMap.get(child.qualifiedName);
+		if (assigner != null)
 		{
-			Class<?> fieldType = field.getType();
 			try
 			{
-				if (Collection.class.isAssignableFrom(fieldType) && !fieldType.isInterface() && !Modifier.isAbstract(fieldType.getModifiers()))
-				{
-					Collection<Object> collection = (Collection<Object>) field.get(object);
-					if (collection == null)
-					{
-						collection = (Collection<Object>) fieldType.newInstance();
-						field.set(object, collection);
-					}
-					collection.add(data);
-				}
-				else if (fieldType.isAssignableFrom(data.getClass()))
-				{
-					field.set(object, data);
-				}
+				assigner.assign(target(object, context), data);
 			}
 			catch (IllegalArgumentException e)
 			{
-				throw new XmlObjectPullParserException("can not assign '" + data + "' to a field of type " + fieldType, e);
+				throw new XmlObjectPullParserException("can not assign '" + data + "' to a field of type " + assigner.accessor.type, e);
 			}
 			catch (IllegalAccessException e)
 			{
-				throw new XmlObjectPullParserException("can not assign '" + data + "' to a field of type " + fieldType, e);
-			}
-			catch (InstantiationException e)
-			{
-				throw new XmlObjectPullParserException("can not insanciate collection for " + fieldType, e);
+				throw new XmlObjectPullParserException("can not assign '" + data + "' to a field of type " + assigner.accessor.type, e);
 			}
 		}
+		else
+		{
+			context.releaseChild();
+		}
 		return object;
 	}
 
 
-	public T getInstance(ParserContext context) throws InstantiationException, IllegalAccessException
+	@Override
+	public T finish(ElementDescriptor<T> descriptor, T object, ParserContext context) throws XmlObjectPullParserException
 	{
-		return mGenericClass.newInstance();
-	}
-
+		Constructor<T> constructor = mArgumentConstructor;
+		if (constructor == null)
+		{
+			return object;
+		}
 
-	private void assignValue(Field field, Object object, String value) throws XmlObjectPullParserException
-	{
-		Class<?> fieldType = field.getType();
+		Object[] arguments = (Object[]) context.getState();
+		context.setState(null);
 		try
 		{
-			if (fieldType == String.class)
-			{
-				field.set(object, value);
-			}
-			else if (fieldType == int.class || fieldType == Integer.class)
-			{
-				field.setInt(object, Integer.parseInt(value));
-			}
-			else if (fieldType == byte.class || fieldType == Byte.class)
-			{
-				field.setByte(object, Byte.parseByte(value));
-			}
-			else if (fieldType == char.class || fieldType == Character.class)
-			{
-				field.setChar(object, value.length() > 0 ? value.charAt(0) : null /* will throw if value is '' and field type is char */);
-			}
-			else if (fieldType == short.class || fieldType == Short.class)
-			{
-				field.setShort(object, Short.parseShort(value));
-			}
-			else if (fieldType == long.class || fieldType == Long.class)
+			Object[] defaults = mArgumentDefaults;
+			for (int i = 0, count = arguments.length; i < count; ++i)
 			{
-				field.setLong(object, Long.parseLong(value));
-			}
-			else if (fieldType == float.class || fieldType == Float.class)
-			{
-				field.setFloat(object, Float.parseFloat(value));
-			}
-			else if (fieldType == double.class || fieldType == Double.class)
-			{
-				field.setDouble(object, Double.parseDouble(value));
-			}
-			else if (fieldType == boolean.class || fieldType == Boolean.class)
-			{
-				field.setBoolean(object, Boolean.parseBoolean(value));
-			}
-			else if (fieldType == URI.class)
-			{
-				field.set(object, new URI(value));
-			}
-			else if (field.getType() == Class.class)
-			{
-				if (value != null)
+				if (arguments[i] == null)
 				{
-					try
-					{
-						field.set(object, Class.forName(value));
-					}
-					catch (ClassNotFoundException e)
-					{
-						// ignore
-					}
-				}
-			}
-			else if (Enum.class.isAssignableFrom(fieldType))
-			{
-				try
-				{
-					Method valueOf = fieldType.getMethod("valueOf", String.class);
-					field.set(object, valueOf.invoke(fieldType, value));
-				}
-				catch (NoSuchMethodException e)
-				{
-					// this should not happen, we've checked that fieldType is an enum
-				}
-				catch (InvocationTargetException e)
-				{
-					// this should not happen, we've checked that fieldType is an enum
+					arguments[i] = defaults[i];
 				}
 			}
+			return constructor.newInstance(arguments);
+		}
+		catch (InstantiationException e)
+		{
+			throw new XmlObjectPullParserException("can not instantiate instance of " + mGenericClass, e);
 		}
-		catch (NumberFormatException e)
+		catch (IllegalAccessException e)
 		{
-			throw new XmlObjectPullParserException("can not assign '" + value + "' to a field of type " + fieldType, e);
+			throw new XmlObjectPullParserException("can not instantiate instance of " + mGenericClass, e);
 		}
 		catch (IllegalArgumentException e)
 		{
-			throw new XmlObjectPullParserException("can not assign '" + value + "' to a field of type " + fieldType, e);
+			throw new XmlObjectPullParserException("can not instantiate instance of " + mGenericClass, e);
 		}
-		catch (IllegalAccessException e)
+		catch (InvocationTargetException e)
 		{
-			throw new XmlObjectPullParserException("can not assign '" + value + "' to a field of type " + fieldType, e);
+			throw new XmlObjectPullParserException("constructor of " + mGenericClass + " failed", e.getCause());
 		}
-		catch (URISyntaxException e)
+		finally
 		{
-			throw new XmlObjectPullParserException("can not parse URI in '" + value + "'", e);
+			context.releaseArguments(arguments);
+		}
+	}
+
+
+	/**
+	 * Returns the object that receives the values of the current element. That's the argument array in the state of the {@link ParserContext} if T is created
+	 * by a constructor with annotated parameters or the given object otherwise.
+	 */
+	private Object target(T object, ParserContext context)
+	{
+		return mArgumentConstructor == null ? object : context.getState();
+	}
+
+
+	public T getInstance(ParserContext context) throws InstantiationException, IllegalAccessException, XmlObjectPullParserException
+	{
+		Constructor<T> constructor = mConstructor;
+		if (constructor == null)
+		{
+			throw new XmlObjectPullParserException("can not instantiate instance of " + mGenericClass + ", it has no accessible default constructor");
+		}
+
+		try
+		{
+			return constructor.newInstance();
+		}
+		catch (InvocationTargetException e)
+		{
+			InstantiationException exception = new InstantiationException("constructor of " + mGenericClass + " failed");
+			exception.initCause(e.getCause());
+			throw exception;
+		}
+	}
+
+
+	private void assignValue(TextConverter converter, Object object, String value) throws XmlObjectPullParserException
+	{
+		try
+		{
+			converter.assign(object, value);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new XmlObjectPullParserException("can not assign '" + value + "' to a field of type " + converter.accessor.type, e);
+		}
+		catch (IllegalAccessException e)
+		{
+			throw new XmlObjectPullParserException("can not assign '" + value + "' to a field of type " + converter.accessor.type, e);
 		}
 	}
 
@@ -350,25 +557,25 @@ public class ReflectionObjectBuilder<T> extends AbstractObjectBuilder<T>
 	public void writeAttributes(ElementDescriptor<T> descriptor, T object, IXmlAttributeWriter attributeWriter, SerializerContext context)
 		throws SerializerException, IOException
 	{
-		for (Entry<QualifiedName, Field> attribute : mAttributeMap.entrySet())
+		for (FieldHolder fieldHolder : mAttributeHolders)
 		{
 			Object value;
 			try
 			{
-				value = attribute.getValue().get(object);
+				value = fieldHolder.accessor.get(object);
 			}
 			catch (IllegalArgumentException e)
 			{
-				throw new SerializerException("can not read attribute " + attribute.getKey(), e);
+				throw new SerializerException("can not read attribute " + fieldHolder.name, e);
 			}
 			catch (IllegalAccessException e)
 			{
-				throw new SerializerException("can not read attribute " + attribute.getKey(), e);
+				throw new SerializerException("can not read attribute " + fieldHolder.name, e);
 			}
 
 			if (value != null)
 			{
-				attributeWriter.writeAttribute(attribute.getKey(), value.toString(), context);
+				attributeWriter.writeAttribute(fieldHolder.name, value.toString(), context);
 			}
 		}
 	}
@@ -378,35 +585,37 @@ public class ReflectionObjectBuilder<T> extends AbstractObjectBuilder<T>
 	public void writeChildren(ElementDescriptor<T> descriptor, T object, IXmlChildWriter childWriter, SerializerContext context) throws SerializerException,
 		IOException
 	{
-		XmlContext xmlContext = context.getXmlContext();
-		for (FieldHolder fieldHolder : mElementList)
+		FieldHolder[] elementHolders = mElementHolders;
+		ElementDescriptor<Object>[] childDescriptors = getChildDescriptors(descriptor, context.getXmlContext());
+		for (int i = 0, count = elementHolders.length; i < count; ++i)
 		{
+			FieldHolder fieldHolder = elementHolders[i];
 			Object value;
 			try
 			{
-				value = fieldHolder.field.get(object);
+				value = fieldHolder.accessor.get(object);
 			}
 			catch (IllegalArgumentException e)
 			{
-				throw new SerializerException("can not read field " + fieldHolder.field.getName(), e);
+				throw new SerializerException("can not read field " + fieldHolder.accessor.field.getName(), e);
 			}
 			catch (IllegalAccessException e)
 			{
-				throw new SerializerException("can not read field " + fieldHolder.field.getName(), e);
+				throw new SerializerException("can not read field " + fieldHolder.accessor.field.getName(), e);
 			}
 
 			if (fieldHolder.name != null)
 			{
-				@SuppressWarnings("unchecked")
-				ElementDescriptor<Object> childDescriptor = (ElementDescriptor<Object>) ElementDescriptor.get(fieldHolder.name, descriptor, xmlContext);
+				ElementDescriptor<Object> childDescriptor = childDescriptors[i];
 
-				Class<?> fieldType = fieldHolder.field.getType();
-
-				if (Collection.class.isAssignableFrom(fieldType) && !fieldType.isInterface() && !Modifier.isAbstract(fieldType.getModifiers()))
+				if (fieldHolder.collection)
 				{
-					for (Object child : (Collection<?>) value)
+					if (value != null)
 					{
-						childWriter.writeChild(childDescriptor, child, context);
+						for (Object child : (Collection<?>) value)
+						{
+							childWriter.writeChild(childDescriptor, child, context);
+						}
 					}
 				}
 				else
@@ -417,21 +626,140 @@ public class ReflectionObjectBuilder<T> extends AbstractObjectBuilder<T>
 			else if (value != null)
 			{
 				childWriter.writeText(value.toString(), context);
-				;
 			}
 		}
 	}
 
+	/**
+	 * Returns the {@link ElementDescriptor}s of the children in the order of {@link #mElementHolders}. The descriptors are resolved once per parent descriptor
+	 * and context and again only if elements have been registered in the meantime.
+	 */
+	@SuppressWarnings("unchecked")
+	private ElementDescriptor<Object>[] getChildDescriptors(ElementDescriptor<T> descriptor, XmlContext xmlContext)
+	{
+		// read the count before resolving, so we never cache a result that's older than the count
+		int registrationCount = ElementDescriptor.getRegistrationCount();
+		ResolvedChildren resolved = mResolvedChildren.get(descriptor);
+		if (resolved != null && resolved.context == xmlContext && resolved.registrationCount == registrationCount)
+		{
+			return resolved.children;
+		}
+
+		FieldHolder[] elementHolders = mElementHolders;
+		ElementDescriptor<Object>[] children = (ElementDescriptor<Object>[]) new ElementDescriptor<?>[elementHolders.length];
+		for (int i = 0, count = elementHolders.length; i < count; ++i)
+		{
+			QualifiedName name = elementHolders[i].name;
+			if (name != null)
+			{
+				children[i] = (ElementDescriptor<Object>) ElementDescriptor.get(name, descriptor, xmlContext);
+			}
+		}
+
+		synchronized (this)
+		{
+			Map<ElementDescriptor<?>, ResolvedChildren> resolvedChildren = new IdentityHashMap<ElementDescriptor<?>, ResolvedChildren>(mResolvedChildren);
+			resolvedChildren.put(descriptor, new ResolvedChildren(xmlContext, registrationCount, children));
+			mResolvedChildren = resolvedChildren;
+		}
+		return children;
+	}
+
 	private final static class FieldHolder
 	{
 		public final QualifiedName name;
-		public final Field field;
+		public final FieldAccessor accessor;
+		public final boolean collection;
 
 
-		public FieldHolder(QualifiedName name, Field field)
+		public FieldHolder(QualifiedName name, FieldAccessor accessor, boolean collection)
 		{
 			this.name = name;
-			this.field = field;
+			this.accessor = accessor;
+			this.collection = collection;
+		}
+	}
+
+	/**
+	 * The child descriptors of a specific parent descriptor in a specific context.
+	 */
+	private final static class ResolvedChildren
+	{
+		public final XmlContext context;
+		public final int registrationCount;
+		public final ElementDescriptor<Object>[] children;
+
+
+		public ResolvedChildren(XmlContext context, int registrationCount, ElementDescriptor<Object>[] children)
+		{
+			this.context = context;
+			this.registrationCount = registrationCount;
+			this.children = children;
+		}
+	}
+
+	/**
+	 * The immutable mapping metadata of a class. It's shared by all {@link ReflectionObjectBuilder}s of that class.
+	 */
+	private final static class Metadata
+	{
+		public final Constructor<?> constructor;
+		public final Constructor<?> argumentConstructor;
+		public final Object[] argumentDefaults;
+		public final Map<QualifiedName, TextConverter> attributeMap;
+		public final Map<QualifiedName, ChildAssigner> elementMap;
+		public final FieldHolder[] attributeHolders;
+		public final FieldHolder[] elementHolders;
+		public final List<TextConverter> textList;
+
+
+		public Metadata(Class<?> genericClass)
+		{
+			Map<QualifiedName, TextConverter> attributeMap = new HashMap<QualifiedName, TextConverter>(8);
+			List<FieldHolder> attributeList = new ArrayList<FieldHolder>(8);
+			Map<QualifiedName, ChildAssigner> elementMap = new HashMap<QualifiedName, ChildAssigner>(8);
+			List<FieldHolder> elementList = new ArrayList<FieldHolder>(8);
+			List<TextConverter> textList = new ArrayList<TextConverter>(8);
+
+			Class<?> superClass = genericClass;
+			while (superClass != null && superClass != Object.class)
+			{
+				buildFieldMaps(superClass, attributeMap, attributeList, elementMap, elementList, textList);
+				superClass = superClass.getSuperclass();
+			}
+
+			Constructor<?> argumentConstructor = getArgumentConstructor(genericClass);
+			if (argumentConstructor != null)
+			{
+				// values are parsed into constructor arguments, the fields are used for serialization only
+				attributeMap = new HashMap<QualifiedName, TextConverter>(8);
+				elementMap = new HashMap<QualifiedName, ChildAssigner>(8);
+				textList = new ArrayList<TextConverter>(8);
+				buildArgumentMaps(argumentConstructor, attributeMap, elementMap, textList);
+
+				Class<?>[] parameterTypes = argumentConstructor.getParameterTypes();
+				argumentDefaults = new Object[parameterTypes.length];
+				for (int i = 0, count = parameterTypes.length; i < count; ++i)
+				{
+					if (parameterTypes[i].isPrimitive())
+					{
+						// the first element of a new primitive array is the default value of that type
+						argumentDefaults[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+					}
+				}
+			}
+			else
+			{
+				argumentDefaults = null;
+			}
+
+			this.constructor = getDefaultConstructor(genericClass);
+			this.argumentConstructor = argumentConstructor;
+			this.attributeMap = Collections.unmodifiableMap(attributeMap);
+			this.elementMap = Collections.unmodifiableMap(elementMap);
+			this.attributeHolders = attributeList.toArray(new FieldHolder[attributeList.size()]);
+			this.elementHolders = elementList.toArray(new FieldHolder[elementList.size()]);
+			this.textList = Collections.unmodifiableList(textList);
 		}
 	}
 
@@ -24,12 +24,12 @@ import java.lang.annotation.Target;
 
 
 /**
- * Identifies a field that is to be populated by a text value.
+ * Identifies a field or a constructor parameter that is to be populated by a text value.
  * 
  * @author Marten Gajda <marten@dmfs.org>
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target({ ElementType.FIELD })
+@Target({ ElementType.FIELD, ElementType.PARAMETER })
 public @interface Text {
 
 }
@@ -0,0 +1,523 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.builder.reflection;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+
+
+/**
+ * Converts text values and assigns them to a specific field. The converter for a field is resolved once when a {@link ReflectionObjectBuilder} is created,
+ * so assigning a value takes a single virtual call and the actual parsing.
+ * <p>
+ * Supported field types are {@link String}, all primitive types and their boxed types, {@link URI}, {@link Class} and enums. Values for fields of other
+ * types are ignored.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public abstract class TextConverter
+{
+	/**
+	 * The {@link FieldAccessor} of the field to assign values to.
+	 */
+	public final FieldAccessor accessor;
+
+
+	protected TextConverter(FieldAccessor accessor)
+	{
+		this.accessor = accessor;
+	}
+
+
+	/**
+	 * Returns a {@link TextConverter} for the field of the given {@link FieldAccessor}.
+	 * 
+	 * @param accessor
+	 *            The {@link FieldAccessor} of the field.
+	 * @return A {@link TextConverter}.
+	 */
+	public static TextConverter get(FieldAccessor accessor)
+	{
+		Class<?> fieldType = accessor.type;
+		if (fieldType == String.class)
+		{
+			return new StringConverter(accessor);
+		}
+		else if (fieldType == int.class || fieldType == Integer.class)
+		{
+			return new IntConverter(accessor, fieldType == Integer.class);
+		}
+		else if (fieldType == long.class || fieldType == Long.class)
+		{
+			return new LongConverter(accessor, fieldType == Long.class);
+		}
+		else if (fieldType == double.class || fieldType == Double.class)
+		{
+			return new DoubleConverter(accessor, fieldType == Double.class);
+		}
+		else if (fieldType == boolean.class || fieldType == Boolean.class)
+		{
+			return new BooleanConverter(accessor, fieldType == Boolean.class);
+		}
+		else if (fieldType == float.class || fieldType == Float.class)
+		{
+			return new FloatConverter(accessor, fieldType == Float.class);
+		}
+		else if (fieldType == short.class || fieldType == Short.class)
+		{
+			return new ShortConverter(accessor, fieldType == Short.class);
+		}
+		else if (fieldType == byte.class || fieldType == Byte.class)
+		{
+			return new ByteConverter(accessor, fieldType == Byte.class);
+		}
+		else if (fieldType == char.class || fieldType == Character.class)
+		{
+			return new CharConverter(accessor, fieldType == Character.class);
+		}
+		else if (fieldType == URI.class)
+		{
+			return new UriConverter(accessor);
+		}
+		else if (fieldType == Class.class)
+		{
+			return new ClassConverter(accessor);
+		}
+		else if (fieldType.isEnum())
+		{
+			return new EnumConverter(accessor);
+		}
+		return new IgnoringConverter(accessor);
+	}
+
+
+	/**
+	 * Converts the given value and assigns it to the field of the given object.
+	 * 
+	 * @param object
+	 *            The object to update.
+	 * @param value
+	 *            The text value.
+	 * @throws XmlObjectPullParserException
+	 *             if the value can not be converted to the type of the field.
+	 * @throws IllegalAccessException
+	 */
+	public abstract void assign(Object object, String value) throws XmlObjectPullParserException, IllegalAccessException;
+
+
+	/**
+	 * Returns an {@link XmlObjectPullParserException} for a value that can not be converted.
+	 */
+	protected XmlObjectPullParserException invalidValue(String value, Exception cause)
+	{
+		return new XmlObjectPullParserException("can not assign '" + value + "' to a field of type " + accessor.type, cause);
+	}
+
+	private final static class StringConverter extends TextConverter
+	{
+		public StringConverter(FieldAccessor accessor)
+		{
+			super(accessor);
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws IllegalAccessException
+		{
+			accessor.set(object, value);
+		}
+	}
+
+	private final static class IntConverter extends TextConverter
+	{
+		private final boolean mBoxed;
+
+
+		public IntConverter(FieldAccessor accessor, boolean boxed)
+		{
+			super(accessor);
+			mBoxed = boxed;
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws XmlObjectPullParserException, IllegalAccessException
+		{
+			try
+			{
+				if (mBoxed)
+				{
+					accessor.set(object, Integer.valueOf(value));
+				}
+				else
+				{
+					accessor.setInt(object, Integer.parseInt(value));
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				throw invalidValue(value, e);
+			}
+		}
+	}
+
+	private final static class LongConverter extends TextConverter
+	{
+		private final boolean mBoxed;
+
+
+		public LongConverter(FieldAccessor accessor, boolean boxed)
+		{
+			super(accessor);
+			mBoxed = boxed;
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws XmlObjectPullParserException, IllegalAccessException
+		{
+			try
+			{
+				if (mBoxed)
+				{
+					accessor.set(object, Long.valueOf(value));
+				}
+				else
+				{
+					accessor.setLong(object, Long.parseLong(value));
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				throw invalidValue(value, e);
+			}
+		}
+	}
+
+	private final static class DoubleConverter extends TextConverter
+	{
+		private final boolean mBoxed;
+
+
+		public DoubleConverter(FieldAccessor accessor, boolean boxed)
+		{
+			super(accessor);
+			mBoxed = boxed;
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws XmlObjectPullParserException, IllegalAccessException
+		{
+			if (value == null)
+			{
+				throw invalidValue(value, null);
+			}
+
+			try
+			{
+				if (mBoxed)
+				{
+					accessor.set(object, Double.valueOf(value));
+				}
+				else
+				{
+					accessor.setDouble(object, Double.parseDouble(value));
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				throw invalidValue(value, e);
+			}
+		}
+	}
+
+	private final static class FloatConverter extends TextConverter
+	{
+		private final boolean mBoxed;
+
+
+		public FloatConverter(FieldAccessor accessor, boolean boxed)
+		{
+			super(accessor);
+			mBoxed = boxed;
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws XmlObjectPullParserException, IllegalAccessException
+		{
+			if (value == null)
+			{
+				throw invalidValue(value, null);
+			}
+
+			try
+			{
+				if (mBoxed)
+				{
+					accessor.set(object, Float.valueOf(value));
+				}
+				else
+				{
+					accessor.setFloat(object, Float.parseFloat(value));
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				throw invalidValue(value, e);
+			}
+		}
+	}
+
+	private final static class ShortConverter extends TextConverter
+	{
+		private final boolean mBoxed;
+
+
+		public ShortConverter(FieldAccessor accessor, boolean boxed)
+		{
+			super(accessor);
+			mBoxed = boxed;
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws XmlObjectPullParserException, IllegalAccessException
+		{
+			try
+			{
+				if (mBoxed)
+				{
+					accessor.set(object, Short.valueOf(value));
+				}
+				else
+				{
+					accessor.setShort(object, Short.parseShort(value));
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				throw invalidValue(value, e);
+			}
+		}
+	}
+
+	private final static class ByteConverter extends TextConverter
+	{
+		private final boolean mBoxed;
+
+
+		public ByteConverter(FieldAccessor accessor, boolean boxed)
+		{
+			super(accessor);
+			mBoxed = boxed;
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws XmlObjectPullParserException, IllegalAccessException
+		{
+			try
+			{
+				if (mBoxed)
+				{
+					accessor.set(object, Byte.valueOf(value));
+				}
+				else
+				{
+					accessor.setByte(object, Byte.parseByte(value));
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				throw invalidValue(value, e);
+			}
+		}
+	}
+
+	private final static class BooleanConverter extends TextConverter
+	{
+		private final boolean mBoxed;
+
+
+		public BooleanConverter(FieldAccessor accessor, boolean boxed)
+		{
+			super(accessor);
+			mBoxed = boxed;
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws IllegalAccessException
+		{
+			if (mBoxed)
+			{
+				accessor.set(object, Boolean.valueOf(value));
+			}
+			else
+			{
+				accessor.setBoolean(object, Boolean.parseBoolean(value));
+			}
+		}
+	}
+
+	private final static class CharConverter extends TextConverter
+	{
+		private final boolean mBoxed;
+
+
+		public CharConverter(FieldAccessor accessor, boolean boxed)
+		{
+			super(accessor);
+			mBoxed = boxed;
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws XmlObjectPullParserException, IllegalAccessException
+		{
+			if (value == null || value.length() == 0)
+			{
+				if (!mBoxed)
+				{
+					throw invalidValue(value, null);
+				}
+				accessor.set(object, null);
+			}
+			else if (mBoxed)
+			{
+				accessor.set(object, Character.valueOf(value.charAt(0)));
+			}
+			else
+			{
+				accessor.setChar(object, value.charAt(0));
+			}
+		}
+	}
+
+	private final static class UriConverter extends TextConverter
+	{
+		public UriConverter(FieldAccessor accessor)
+		{
+			super(accessor);
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws XmlObjectPullParserException, IllegalAccessException
+		{
+			if (value == null)
+			{
+				throw new XmlObjectPullParserException("can not parse URI in '" + value + "'");
+			}
+
+			try
+			{
+				accessor.set(object, new URI(value));
+			}
+			catch (URISyntaxException e)
+			{
+				throw new XmlObjectPullParserException("can not parse URI in '" + value + "'", e);
+			}
+		}
+	}
+
+	/**
+	 * A converter for {@link Class} fields. Unknown classes are ignored.
+	 */
+	private final static class ClassConverter extends TextConverter
+	{
+		public ClassConverter(FieldAccessor accessor)
+		{
+			super(accessor);
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws IllegalAccessException
+		{
+			if (value != null)
+			{
+				try
+				{
+					accessor.set(object, Class.forName(value));
+				}
+				catch (ClassNotFoundException e)
+				{
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * A converter for enum fields. The constants are looked up in a map that's built once. Unknown values are ignored.
+	 */
+	private final static class EnumConverter extends TextConverter
+	{
+		private final Map<String, Object> mConstants;
+
+
+		public EnumConverter(FieldAccessor accessor)
+		{
+			super(accessor);
+			Object[] constants = accessor.type.getEnumConstants();
+			Map<String, Object> map = new HashMap<String, Object>(constants.length * 2);
+			for (Object constant : constants)
+			{
+				map.put(((Enum<?>) constant).name(), constant);
+			}
+			mConstants = map;
+		}
+
+
+		@Override
+		public void assign(Object object, String value) throws IllegalAccessException
+		{
+			Object constant = mConstants.get(value);
+			if (constant != null)
+			{
+				accessor.set(object, constant);
+			}
+		}
+	}
+
+	/**
+	 * A converter for unsupported field types, it ignores all values.
+	 */
+	private final static class IgnoringConverter extends TextConverter
+	{
+		public IgnoringConverter(FieldAccessor accessor)
+		{
+			super(accessor);
+		}
+
+
+		@Override
+		public void assign(Object object, String value)
+		{
+			// ignore
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.pull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.XmlContext;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+/**
+ * A position in an XML document that parsing can be resumed from. A checkpoint consists of the byte offset of an element, the path of the element and the
+ * start tags of its ancestors.
+ * <p>
+ * Checkpoints are returned by {@link XmlObjectPull#getCheckpoint()}. To resume parsing create a new {@link XmlObjectPull} using
+ * {@link XmlObjectPull#XmlObjectPull(XmlPullParser, java.io.InputStream, java.nio.charset.Charset, Checkpoint, ParserContext)}. Checkpoints can be persisted
+ * using {@link #writeTo(DataOutput)} and {@link #readFrom(DataInput)}.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public final class Checkpoint
+{
+	/**
+	 * The byte offset of the element in the document.
+	 */
+	public final long offset;
+
+	/**
+	 * The {@link QualifiedName}s of the ancestors of the element, starting with the root element.
+	 */
+	private final QualifiedName[] mPath;
+
+	/**
+	 * The start tags of the ancestors of the element, including their namespace declarations.
+	 */
+	final String ancestors;
+
+
+	Checkpoint(long offset, QualifiedName[] path, String ancestors)
+	{
+		this.offset = offset;
+		mPath = path;
+		this.ancestors = ancestors;
+	}
+
+
+	/**
+	 * Returns the {@link XmlPath} of the element in the given {@link XmlContext}.
+	 * 
+	 * @param context
+	 *            The {@link XmlContext} to resolve the path in.
+	 * @return The {@link XmlPath}.
+	 * @throws IllegalArgumentException
+	 *             if any of the elements is unknown in the given {@link XmlContext}.
+	 */
+	public XmlPath getPath(XmlContext context)
+	{
+		ElementDescriptor<?>[] path = new ElementDescriptor<?>[mPath.length];
+		ElementDescriptor<?> parent = null;
+		for (int i = 0; i < path.length; ++i)
+		{
+			parent = path[i] = ElementDescriptor.get(mPath[i], parent, context);
+			if (parent == null)
+			{
+				throw new IllegalArgumentException("unknown element " + mPath[i]);
+			}
+		}
+		return new XmlPath(path);
+	}
+
+
+	/**
+	 * Writes this checkpoint to the given {@link DataOutput}.
+	 * 
+	 * @param out
+	 *            The {@link DataOutput} to write to.
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutput out) throws IOException
+	{
+		out.writeLong(offset);
+		out.writeInt(mPath.length);
+		for (QualifiedName name : mPath)
+		{
+			out.writeUTF(name.namespace == null ? "" : name.namespace);
+			out.writeUTF(name.name);
+		}
+		out.writeInt(ancestors.length());
+		out.writeChars(ancestors);
+	}
+
+
+	/**
+	 * Reads a checkpoint that has been written by {@link #writeTo(DataOutput)}.
+	 * 
+	 * @param in
+	 *            The {@link DataInput} to read from.
+	 * @return The {@link Checkpoint}.
+	 * @throws IOException
+	 */
+	public static Checkpoint readFrom(DataInput in) throws IOException
+	{
+		long offset = in.readLong();
+		QualifiedName[] path = new QualifiedName[in.readInt()];
+		for (int i = 0; i < path.length; ++i)
+		{
+			path[i] = QualifiedName.get(in.readUTF(), in.readUTF());
+		}
+		char[] ancestors = new char[in.readInt()];
+		for (int i = 0; i < ancestors.length; ++i)
+		{
+			ancestors[i] = in.readChar();
+		}
+		return new Checkpoint(offset, path, new String(ancestors));
+	}
+
+
+	/**
+	 * Appends the start tag of an ancestor of the current element, including its namespace declarations but without any other attributes.
+	 * 
+	 * @param builder
+	 *            The {@link StringBuilder} to append to.
+	 * @param parser
+	 *            The {@link XmlPullParser} positioned within the ancestor.
+	 * @param prefix
+	 *            The prefix of the ancestor or <code>null</code>.
+	 * @param name
+	 *            The name of the ancestor.
+	 * @param depth
+	 *            The depth of the ancestor.
+	 * @throws XmlPullParserException
+	 */
+	static void appendStartTag(StringBuilder builder, XmlPullParser parser, String prefix, String name, int depth) throws XmlPullParserException
+	{
+		builder.append('<');
+		if (prefix != null && prefix.length() > 0)
+		{
+			builder.append(prefix);
+			builder.append(':');
+		}
+		builder.append(name);
+
+		for (int i = parser.getNamespaceCount(depth - 1), count = parser.getNamespaceCount(depth); i < count; ++i)
+		{
+			builder.append(" xmlns");
+			String namespacePrefix = parser.getNamespacePrefix(i);
+			if (namespacePrefix != null)
+			{
+				builder.append(':');
+				builder.append(namespacePrefix);
+			}
+			builder.append("=\"");
+			String namespace = parser.getNamespaceUri(i);
+			for (int j = 0, length = namespace.length(); j < length; ++j)
+			{
+				char c = namespace.charAt(j);
+				switch (c)
+				{
+					case '&':
+						builder.append("&amp;");
+						break;
+					case '<':
+						builder.append("&lt;");
+						break;
+					case '"':
+						builder.append("&quot;");
+						break;
+					default:
+						builder.append(c);
+				}
+			}
+			builder.append('"');
+		}
+		builder.append('>');
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.pull;
+
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.IObjectBuilder;
+import org.dmfs.xmlobjects.builder.LazyObjectBuilder;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+/**
+ * An element that has been recorded, but not built yet. The object is built by the {@link IObjectBuilder} of this element when {@link #get()} is called for
+ * the first time. Until then only a compact recording of the element and its sub-tree is kept in memory.
+ * <p>
+ * Instances are created by {@link LazyObjectBuilder}.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ * 
+ * @param <T>
+ *            The type of the object.
+ */
+public final class LazyElement<T>
+{
+	/**
+	 * The {@link ElementDescriptor} of this element.
+	 */
+	private final ElementDescriptor<?> mDescriptor;
+
+	/**
+	 * The {@link IObjectBuilder} that builds the actual object.
+	 */
+	private final IObjectBuilder<T> mBuilder;
+
+	/**
+	 * The {@link XmlContext} the element has been parsed in.
+	 */
+	private XmlContext mXmlContext;
+
+	/**
+	 * The recording of this element. This is <code>null</code> once the object has been built.
+	 */
+	private RecordedSubtree mSubtree;
+
+	/**
+	 * The object, once it has been built.
+	 */
+	private T mObject;
+
+
+	/**
+	 * Create a new {@link LazyElement} for the given {@link ElementDescriptor}.
+	 * 
+	 * @param descriptor
+	 *            The {@link ElementDescriptor} of the element.
+	 * @param builder
+	 *            The {@link IObjectBuilder} to build the object.
+	 */
+	public LazyElement(ElementDescriptor<?> descriptor, IObjectBuilder<T> builder)
+	{
+		mDescriptor = descriptor;
+		mBuilder = builder;
+	}
+
+
+	/**
+	 * Set the recording of this element.
+	 * 
+	 * @param subtree
+	 *            The {@link RecordedSubtree}.
+	 * @param xmlContext
+	 *            The {@link XmlContext} of the parser that recorded the element.
+	 */
+	void setSubtree(RecordedSubtree subtree, XmlContext xmlContext)
+	{
+		mSubtree = subtree;
+		mXmlContext = xmlContext;
+		mObject = null;
+	}
+
+
+	/**
+	 * Returns whether the object has already been built.
+	 * 
+	 * @return <code>true</code> if the object has been built, <code>false</code> otherwise.
+	 */
+	public boolean isBuilt()
+	{
+		return mSubtree == null;
+	}
+
+
+	/**
+	 * Returns the object, building it if necessary. This uses a new {@link ParserContext} to build the object.
+	 * 
+	 * @return The object, may be <code>null</code> if the builder returned <code>null</code>.
+	 * @throws XmlObjectPullParserException
+	 */
+	public T get() throws XmlObjectPullParserException
+	{
+		return get(null);
+	}
+
+
+	/**
+	 * Returns the object, building it if necessary using the given {@link ParserContext}.
+	 * <p>
+	 * <strong>Note:</strong> Don't pass the {@link ParserContext} of an {@link XmlObjectPull} that's still in use.
+	 * </p>
+	 * 
+	 * @param context
+	 *            The {@link ParserContext} to use for building the object or <code>null</code> to use a new {@link ParserContext}.
+	 * @return The object, may be <code>null</code> if the builder returned <code>null</code>.
+	 * @throws XmlObjectPullParserException
+	 */
+	public T get(ParserContext context) throws XmlObjectPullParserException
+	{
+		RecordedSubtree subtree = mSubtree;
+		if (subtree == null)
+		{
+			return mObject;
+		}
+
+		try
+		{
+			XmlObjectPull objectPull = new XmlObjectPull(new RecordedSubtreeParser(subtree), context == null ? new ParserContext() : context);
+			objectPull.setContext(mXmlContext);
+			mObject = objectPull.pullRoot(mDescriptor, mBuilder);
+		}
+		catch (XmlPullParserException e)
+		{
+			throw new XmlObjectPullParserException("can not build " + mDescriptor.qualifiedName, e);
+		}
+		catch (IOException e)
+		{
+			throw new XmlObjectPullParserException("can not build " + mDescriptor.qualifiedName, e);
+		}
+
+		// we don't need the recording anymore
+		mSubtree = null;
+		mXmlContext = null;
+		return mObject;
+	}
+}
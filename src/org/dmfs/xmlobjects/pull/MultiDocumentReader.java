@@ -0,0 +1,513 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.pull;
+
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * A {@link Reader} for a stream of concatenated XML documents. The reader returns the end of the stream at the end of each document. Call
+ * {@link #nextDocument()} to continue with the next document.
+ * <p>
+ * To find the end of a document the reader scans the markup for the end of the root element. It doesn't check whether the document is well formed, that's
+ * left to the parser.
+ * </p>
+ * <p>
+ * Comments and processing instructions after the root element belong to the previous document, so {@link #nextDocument()} skips them along with any
+ * white space. An XML declaration always starts a new document. The reader returns the end of the stream right after the root element, so a parser never
+ * waits for input of the next document.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class MultiDocumentReader extends Reader
+{
+	private final static int BUFFER_SIZE = 8192;
+
+	/**
+	 * The scanner states.
+	 */
+	private final static int STATE_TEXT = 0;
+	private final static int STATE_MARKUP = 1;
+	private final static int STATE_START_TAG = 2;
+	private final static int STATE_END_TAG = 3;
+	private final static int STATE_PI = 4;
+	private final static int STATE_DECLARATION_START = 5;
+	private final static int STATE_COMMENT_START = 6;
+	private final static int STATE_COMMENT = 7;
+	private final static int STATE_CDATA = 8;
+	private final static int STATE_DECLARATION = 9;
+
+	private final Reader mReader;
+	private final char[] mBuffer = new char[BUFFER_SIZE];
+
+	/**
+	 * The position of the next char to return.
+	 */
+	private int mPos;
+
+	/**
+	 * The number of chars in the buffer.
+	 */
+	private int mLimit;
+
+	/**
+	 * The end of the chars that have been scanned and belong to the current document.
+	 */
+	private int mScanned;
+
+	/**
+	 * Indicates that {@link #mScanned} is at the end of the current document.
+	 */
+	private boolean mDocumentEnd = true;
+
+	private int mState;
+
+	/**
+	 * The depth of the current element.
+	 */
+	private int mDepth;
+
+	/**
+	 * The current quote char in a tag or declaration or <code>0</code> if not within quotes.
+	 */
+	private char mQuote;
+
+	/**
+	 * The number of relevant chars we've seen in the current state, like dashes at the end of a comment.
+	 */
+	private int mCount;
+
+	/**
+	 * The last char of the current markup.
+	 */
+	private char mLast;
+
+
+	public MultiDocumentReader(Reader reader)
+	{
+		mReader = reader;
+	}
+
+
+	/**
+	 * Skips the rest of the current document and moves to the next one.
+	 * 
+	 * @return <code>true</code> if there is another document, <code>false</code> if the end of the stream has been reached.
+	 * @throws IOException
+	 */
+	public boolean nextDocument() throws IOException
+	{
+		// skip the rest of the current document
+		while (true)
+		{
+			mPos = mScanned;
+			if (mDocumentEnd)
+			{
+				break;
+			}
+			if (mPos == mLimit && !fill())
+			{
+				return false;
+			}
+			scan();
+		}
+
+		// skip white space, comments and processing instructions after the root element, they still belong to the previous document
+		while (true)
+		{
+			if (!skipWhitespace())
+			{
+				return false;
+			}
+
+			if (startsWith("<!--"))
+			{
+				mPos += 4;
+				if (!skipPast("-->"))
+				{
+					return false;
+				}
+			}
+			else if (startsWith("<?") && !isXmlDeclaration())
+			{
+				mPos += 2;
+				if (!skipPast("?>"))
+				{
+					return false;
+				}
+			}
+			else
+			{
+				break;
+			}
+		}
+
+		mScanned = mPos;
+		mDocumentEnd = false;
+		mState = STATE_TEXT;
+		mDepth = 0;
+		return true;
+	}
+
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException
+	{
+		if (mScanned == mPos)
+		{
+			if (mDocumentEnd || mPos == mLimit && !fill())
+			{
+				return -1;
+			}
+			scan();
+		}
+
+		int count = Math.min(length, mScanned - mPos);
+		System.arraycopy(mBuffer, mPos, buffer, offset, count);
+		mPos += count;
+		return count;
+	}
+
+
+	/**
+	 * Does nothing. Some parsers close their input at the end of a document, but the stream is still needed for the next document.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+	}
+
+
+	/**
+	 * Skips any white space at the current position.
+	 * 
+	 * @return <code>false</code> if the end of the stream has been reached.
+	 */
+	private boolean skipWhitespace() throws IOException
+	{
+		while (true)
+		{
+			if (mPos == mLimit && !fill())
+			{
+				return false;
+			}
+			char c = mBuffer[mPos];
+			if (c > ' ' && c != '\uFEFF')
+			{
+				return true;
+			}
+			++mPos;
+		}
+	}
+
+
+	/**
+	 * Skips everything up to and including the given end of a markup.
+	 * 
+	 * @return <code>false</code> if the end of the stream has been reached before the end of the markup.
+	 */
+	private boolean skipPast(String end) throws IOException
+	{
+		while (!startsWith(end))
+		{
+			if (mPos == mLimit && !fill())
+			{
+				return false;
+			}
+			++mPos;
+		}
+		mPos += end.length();
+		return true;
+	}
+
+
+	/**
+	 * Returns whether the chars at the current position are an XML declaration, which starts a new document.
+	 */
+	private boolean isXmlDeclaration() throws IOException
+	{
+		if (!startsWith("<?xml") || lookahead(6) < 6)
+		{
+			return false;
+		}
+		char c = mBuffer[mPos + 5];
+		return c <= ' ' || c == '?';
+	}
+
+
+	/**
+	 * Returns whether the chars at the current position start with the given prefix.
+	 */
+	private boolean startsWith(String prefix) throws IOException
+	{
+		int length = prefix.length();
+		if (lookahead(length) < length)
+		{
+			return false;
+		}
+
+		char[] buffer = mBuffer;
+		int pos = mPos;
+		for (int i = 0; i < length; ++i)
+		{
+			if (buffer[pos + i] != prefix.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Makes sure the buffer contains the given number of chars after the current position, moving the remaining chars to the start of the buffer if
+	 * necessary. This must not be called while a document is being read.
+	 * 
+	 * @return The number of chars after the current position, which is less than count only at the end of the stream.
+	 */
+	private int lookahead(int count) throws IOException
+	{
+		if (mLimit - mPos < count)
+		{
+			int remaining = mLimit - mPos;
+			System.arraycopy(mBuffer, mPos, mBuffer, 0, remaining);
+			mPos = 0;
+			mScanned = 0;
+			mLimit = remaining;
+
+			int read;
+			while (mLimit < count && (read = mReader.read(mBuffer, mLimit, BUFFER_SIZE - mLimit)) > 0)
+			{
+				mLimit += read;
+			}
+		}
+		return mLimit - mPos;
+	}
+
+
+	/**
+	 * Reads the next chars into the buffer. All chars in the buffer must have been consumed.
+	 * 
+	 * @return <code>false</code> if the end of the stream has been reached.
+	 */
+	private boolean fill() throws IOException
+	{
+		int count = mReader.read(mBuffer, 0, BUFFER_SIZE);
+		mPos = 0;
+		mScanned = 0;
+		mLimit = Math.max(count, 0);
+		return count > 0;
+	}
+
+
+	/**
+	 * Scans the buffer up to the end of the current document or the end of the buffer, whatever comes first.
+	 */
+	private void scan()
+	{
+		char[] buffer = mBuffer;
+		int state = mState;
+		int pos = mScanned;
+		int limit = mLimit;
+
+		while (pos < limit)
+		{
+			char c = buffer[pos++];
+			switch (state)
+			{
+				case STATE_TEXT:
+				{
+					if (c == '<')
+					{
+						state = STATE_MARKUP;
+					}
+					break;
+				}
+				case STATE_MARKUP:
+				{
+					if (c == '/')
+					{
+						state = STATE_END_TAG;
+					}
+					else if (c == '?')
+					{
+						state = STATE_PI;
+						mLast = 0;
+					}
+					else if (c == '!')
+					{
+						state = STATE_DECLARATION_START;
+					}
+					else
+					{
+						state = STATE_START_TAG;
+						mQuote = 0;
+						mLast = c;
+					}
+					break;
+				}
+				case STATE_START_TAG:
+				{
+					if (mQuote != 0)
+					{
+						if (c == mQuote)
+						{
+							mQuote = 0;
+						}
+					}
+					else if (c == '"' || c == '\'')
+					{
+						mQuote = c;
+					}
+					else if (c == '>')
+					{
+						state = STATE_TEXT;
+						if (mLast != '/')
+						{
+							++mDepth;
+						}
+						else if (mDepth == 0)
+						{
+							// an empty root element
+							mDocumentEnd = true;
+						}
+					}
+					mLast = c;
+					break;
+				}
+				case STATE_END_TAG:
+				{
+					if (c == '>')
+					{
+						state = STATE_TEXT;
+						if (--mDepth <= 0)
+						{
+							mDocumentEnd = true;
+						}
+					}
+					break;
+				}
+				case STATE_PI:
+				{
+					if (c == '>' && mLast == '?')
+					{
+						state = STATE_TEXT;
+					}
+					mLast = c;
+					break;
+				}
+				case STATE_DECLARATION_START:
+				{
+					if (c == '-')
+					{
+						state = STATE_COMMENT_START;
+					}
+					else if (c == '[')
+					{
+						state = STATE_CDATA;
+						mCount = 0;
+					}
+					else
+					{
+						state = STATE_DECLARATION;
+						mQuote = 0;
+						mCount = 0;
+					}
+					break;
+				}
+				case STATE_COMMENT_START:
+				{
+					// that's the second dash of "<!--"
+					state = STATE_COMMENT;
+					mCount = 0;
+					break;
+				}
+				case STATE_COMMENT:
+				{
+					if (c == '-')
+					{
+						++mCount;
+					}
+					else
+					{
+						if (c == '>' && mCount >= 2)
+						{
+							state = STATE_TEXT;
+						}
+						mCount = 0;
+					}
+					break;
+				}
+				case STATE_CDATA:
+				{
+					if (c == ']')
+					{
+						++mCount;
+					}
+					else
+					{
+						if (c == '>' && mCount >= 2)
+						{
+							state = STATE_TEXT;
+						}
+						mCount = 0;
+					}
+					break;
+				}
+				case STATE_DECLARATION:
+				{
+					// a document type declaration, which may contain an internal subset in brackets
+					if (mQuote != 0)
+					{
+						if (c == mQuote)
+						{
+							mQuote = 0;
+						}
+					}
+					else if (c == '"' || c == '\'')
+					{
+						mQuote = c;
+					}
+					else if (c == '[')
+					{
+						++mCount;
+					}
+					else if (c == ']')
+					{
+						--mCount;
+					}
+					else if (c == '>' && mCount == 0)
+					{
+						state = STATE_TEXT;
+					}
+					break;
+				}
+			}
+
+			if (mDocumentEnd)
+			{
+				break;
+			}
+		}
+
+		mState = state;
+		mScanned = pos;
+	}
+}
@@ -18,9 +18,11 @@
 package org.dmfs.xmlobjects.pull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.dmfs.xmlobjects.ElementDescriptor;
 import org.dmfs.xmlobjects.builder.IObjectBuilder;
@@ -49,6 +51,58 @@ public class ParserContext
 
 	private XmlObjectPull mObjectPullParser;
 
+	/**
+	 * Indicates that parsing has been cancelled by {@link #cancel()}.
+	 */
+	private volatile boolean mCancelled;
+
+	/**
+	 * The deadline in terms of {@link System#nanoTime()}, only valid if {@link #mHasDeadline} is <code>true</code>.
+	 */
+	private volatile long mDeadline;
+
+	private volatile boolean mHasDeadline;
+
+	/**
+	 * The maximum estimated size of all objects under construction in bytes.
+	 */
+	private long mMemoryBudget = Long.MAX_VALUE;
+
+	/**
+	 * The estimated size of all objects under construction in bytes.
+	 */
+	private long mRetainedSize;
+
+	/**
+	 * The estimated size of the objects under construction per depth.
+	 */
+	private long[] mRetainedSizes = new long[16];
+
+	/**
+	 * The estimated size of the child that's currently passed to its parent, see {@link #releaseChild()}.
+	 */
+	private long mChildSize;
+
+	/**
+	 * The depth of the parent the current child has been accounted to.
+	 */
+	private int mChildParentDepth;
+
+	/**
+	 * The maximum number of argument arrays to keep for reuse.
+	 */
+	private final static int MAX_POOLED_ARGUMENTS = 32;
+
+	/**
+	 * Argument arrays that have been released and can be reused.
+	 */
+	private List<Object[]> mArgumentPool;
+
+	/**
+	 * The objects that builders reuse for all elements, see {@link #setBuilderState(Object, Object)}.
+	 */
+	private Map<Object, Object> mBuilderStates;
+
 
 	/**
 	 * Set the current {@link XmlObjectPull} parser this instance belongs to.
@@ -158,6 +212,279 @@ public class ParserContext
 	}
 
 
+	/**
+	 * Stores an object that a builder reuses for all elements it builds with this {@link ParserContext}, like a buffer or a holder. Other than the state
+	 * object of {@link #setState(Object)} it's not bound to an element, so it can be retrieved at any time through {@link #getBuilderState(Object)}, even if
+	 * the builder is used without an {@link XmlObjectPull}.
+	 * 
+	 * @param key
+	 *            A key that identifies the object, like the class of the builder.
+	 * @param state
+	 *            The object to store or <code>null</code> to free the object.
+	 */
+	public void setBuilderState(Object key, Object state)
+	{
+		if (mBuilderStates == null)
+		{
+			mBuilderStates = new HashMap<Object, Object>(8);
+		}
+		mBuilderStates.put(key, state);
+	}
+
+
+	/**
+	 * Returns the object that has been stored with {@link #setBuilderState(Object, Object)} under the given key.
+	 * 
+	 * @param key
+	 *            The key of the object.
+	 * @return The object or <code>null</code> if there is none.
+	 */
+	public Object getBuilderState(Object key)
+	{
+		return mBuilderStates == null ? null : mBuilderStates.get(key);
+	}
+
+
+	/**
+	 * Returns an array that can hold the given number of arguments. All elements of the array are <code>null</code>. Builders use this to collect the
+	 * arguments of a constructor while the element is parsed. Return the array with {@link #releaseArguments(Object[])} when it's no longer used.
+	 * 
+	 * @param count
+	 *            The number of arguments.
+	 * @return An {@link Object} array of the given length.
+	 */
+	public Object[] obtainArguments(int count)
+	{
+		List<Object[]> pool = mArgumentPool;
+		if (pool != null)
+		{
+			for (int i = pool.size() - 1; i >= 0; --i)
+			{
+				Object[] arguments = pool.get(i);
+				if (arguments.length == count)
+				{
+					// replace the array by the last one, so we don't have to move all following elements
+					Object[] last = pool.remove(pool.size() - 1);
+					if (i < pool.size())
+					{
+						pool.set(i, last);
+					}
+					return arguments;
+				}
+			}
+		}
+		return new Object[count];
+	}
+
+
+	/**
+	 * Releases an array that has been returned by {@link #obtainArguments(int)}, so it can be reused. The array must not be used after calling this.
+	 * 
+	 * @param arguments
+	 *            The array to release.
+	 */
+	public void releaseArguments(Object[] arguments)
+	{
+		if (mArgumentPool == null)
+		{
+			mArgumentPool = new ArrayList<Object[]>(8);
+		}
+
+		if (mArgumentPool.size() < MAX_POOLED_ARGUMENTS)
+		{
+			Arrays.fill(arguments, null);
+			mArgumentPool.add(arguments);
+		}
+	}
+
+
+	/**
+	 * Cancels parsing. The parser stops within a few events and throws an {@link XmlObjectPullCancelledException}. This method may be called from any thread.
+	 * The cancelled document can't be continued, see {@link #clearCancellation()}.
+	 */
+	public void cancel()
+	{
+		mCancelled = true;
+	}
+
+
+	/**
+	 * Sets a deadline for parsing. Once the given time has passed the parser stops within a few events and throws an {@link XmlObjectPullCancelledException}.
+	 * 
+	 * @param timeout
+	 *            The time from now till the deadline.
+	 * @param unit
+	 *            The {@link TimeUnit} of timeout.
+	 */
+	public void setTimeout(long timeout, TimeUnit unit)
+	{
+		mDeadline = System.nanoTime() + unit.toNanos(timeout);
+		mHasDeadline = true;
+	}
+
+
+	/**
+	 * Removes the deadline and resets the cancelled state, so this {@link ParserContext} can be used to parse again.
+	 * <p>
+	 * <strong>Note:</strong> This doesn't revive an {@link XmlObjectPull} that has been cancelled. Its current document is lost, so it can only continue with
+	 * {@link XmlObjectPull#nextDocument()} when parsing a stream of documents. A single-document {@link XmlObjectPull} must be discarded and the document
+	 * must be parsed again with a new {@link XmlObjectPull}.
+	 * </p>
+	 */
+	public void clearCancellation()
+	{
+		mHasDeadline = false;
+		mCancelled = false;
+	}
+
+
+	/**
+	 * Returns whether parsing has been cancelled or the deadline has passed.
+	 * 
+	 * @return <code>true</code> if parsing should stop.
+	 */
+	public boolean isCancelled()
+	{
+		return mCancelled || mHasDeadline && System.nanoTime() - mDeadline >= 0;
+	}
+
+
+	/**
+	 * Sets the maximum estimated size of all objects under construction. Builders report the size of the data they retain using {@link #retain(long)}. Once the
+	 * budget is exceeded {@link #onMemoryBudgetExceeded(long, long)} is called, which throws an {@link XmlObjectPullParserException} by default.
+	 * 
+	 * @param budget
+	 *            The memory budget in bytes.
+	 */
+	public void setMemoryBudget(long budget)
+	{
+		mMemoryBudget = budget;
+	}
+
+
+	/**
+	 * Returns the estimated size of all objects that are currently under construction in bytes.
+	 * 
+	 * @return The estimated retained size.
+	 */
+	public long getRetainedSize()
+	{
+		return mRetainedSize;
+	}
+
+
+	/**
+	 * Reports that the current element retains the given number of additional bytes, like the length of a text or the entries of a collection. The size is
+	 * accounted to the parent element when the current element is passed to its parent and it's released when the object is returned by the parser or when
+	 * the parent drops it, see {@link #releaseChild()}.
+	 * 
+	 * @param size
+	 *            The estimated number of bytes.
+	 * @throws XmlObjectPullParserException
+	 *             if the memory budget has been exceeded.
+	 */
+	public void retain(long size) throws XmlObjectPullParserException
+	{
+		// builders may be used without a parser, in which case we account everything to depth 0
+		int depth = mObjectPullParser == null ? 0 : mObjectPullParser.getCurrentDepth();
+		if (depth >= mRetainedSizes.length)
+		{
+			mRetainedSizes = Arrays.copyOf(mRetainedSizes, Math.max(mRetainedSizes.length * 2, depth + 1));
+		}
+		mRetainedSizes[depth] += size;
+		mRetainedSize += size;
+
+		if (mRetainedSize > mMemoryBudget)
+		{
+			onMemoryBudgetExceeded(mRetainedSize, mMemoryBudget);
+		}
+	}
+
+
+	/**
+	 * Called when the estimated size of all objects under construction exceeds the memory budget. The default implementation throws an
+	 * {@link XmlObjectPullParserException}. Subclasses can override this to throw a different exception or to wait until other parts of the application
+	 * have released memory.
+	 * 
+	 * @param retainedSize
+	 *            The estimated size of all objects under construction.
+	 * @param budget
+	 *            The memory budget.
+	 * @throws XmlObjectPullParserException
+	 */
+	protected void onMemoryBudgetExceeded(long retainedSize, long budget) throws XmlObjectPullParserException
+	{
+		throw new XmlObjectPullParserException("memory budget of " + budget + " bytes exceeded, retaining " + retainedSize + " bytes");
+	}
+
+
+	/**
+	 * Called when an element at the given depth has been finished.
+	 * 
+	 * @param depth
+	 *            The depth of the element.
+	 * @param returned
+	 *            <code>true</code> if the object has been returned by the parser, <code>false</code> if it has been passed to its parent.
+	 */
+	void finishRetained(int depth, boolean returned)
+	{
+		if (depth >= mRetainedSizes.length)
+		{
+			return;
+		}
+
+		long size = mRetainedSizes[depth];
+		mRetainedSizes[depth] = 0;
+		if (returned)
+		{
+			mRetainedSize -= size;
+		}
+		else
+		{
+			mRetainedSizes[depth - 1] += size;
+			mChildSize = size;
+			mChildParentDepth = depth - 1;
+		}
+	}
+
+
+	/**
+	 * Reports that the parent doesn't keep the child object that's currently passed to it, so the size retained by the child is released. Builders call this
+	 * from {@link IObjectBuilder#update(ElementDescriptor, Object, ElementDescriptor, Object, ParserContext)} when they drop a child, like elements they don't
+	 * know. Otherwise the size of the child is accounted to the parent until the parent is finished.
+	 */
+	public void releaseChild()
+	{
+		long size = mChildSize;
+		if (size != 0)
+		{
+			mRetainedSizes[mChildParentDepth] -= size;
+			mRetainedSize -= size;
+			mChildSize = 0;
+		}
+	}
+
+
+	/**
+	 * Called when the current child has been passed to its parent.
+	 */
+	void finishChild()
+	{
+		mChildSize = 0;
+	}
+
+
+	/**
+	 * Releases everything that has been retained.
+	 */
+	void clearRetained()
+	{
+		Arrays.fill(mRetainedSizes, 0);
+		mRetainedSize = 0;
+		mChildSize = 0;
+	}
+
+
 	/**
 	 * Return the element state map for the given depth, creating non-existing maps if required.
 	 * 
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.pull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.Arrays;
+
+import org.xmlpull.v1.XmlPullParser;
+
+
+/**
+ * A {@link Reader} that decodes an {@link InputStream} and keeps track of the byte offsets of all tags. Given the line and column an {@link XmlPullParser}
+ * reports for a start tag, it returns the byte offset of that tag in the {@link InputStream}.
+ * <p>
+ * Since parsers usually read ahead, this reader keeps the positions of lines and tags that have been read but not been queried yet. Positions before the
+ * last query are dropped. Positions that are too far behind the read position to be queried are dropped as the reader moves forward, assuming the parser
+ * doesn't hold back more than {@link #MIN_READ_AHEAD} chars or the size of the largest buffer it reads into.
+ * </p>
+ * <p>
+ * <strong>Note:</strong> Only UTF-8 and charsets with a fixed number of bytes per char are supported. Malformed input results in wrong offsets.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class PositionTrackingReader extends Reader
+{
+	/**
+	 * The minimum number of chars behind the read position that we keep the positions for.
+	 */
+	private final static int MIN_READ_AHEAD = 64 * 1024;
+
+	private final Reader mReader;
+
+	/**
+	 * The number of bytes per char or <code>0</code> if the input is UTF-8 encoded.
+	 */
+	private final int mBytesPerChar;
+
+	/**
+	 * Text to return before the content of the {@link InputStream} or <code>null</code>. The prefix is not part of the {@link InputStream}, so it doesn't
+	 * advance the byte offset.
+	 */
+	private String mPrefix;
+	private int mPrefixPosition;
+
+	/**
+	 * The offset of the next char.
+	 */
+	private long mCharOffset;
+
+	/**
+	 * The byte offset of the next char.
+	 */
+	private long mByteOffset;
+
+	/**
+	 * Indicates that the last char was a carriage return.
+	 */
+	private boolean mCarriageReturn;
+
+	/**
+	 * The char offsets of the lines starting with line {@link #mFirstLine}.
+	 */
+	private long[] mLineStarts = new long[16];
+	private int mLineCount = 1;
+	private int mFirstLine = 1;
+
+	/**
+	 * The char and byte offsets of all '&lt;' characters.
+	 */
+	private long[] mTagCharOffsets = new long[16];
+	private long[] mTagByteOffsets = new long[16];
+	private int mTagCount;
+
+	/**
+	 * The number of chars behind the read position that can still be queried.
+	 */
+	private int mReadAhead = MIN_READ_AHEAD;
+
+
+	/**
+	 * Create a new {@link PositionTrackingReader}.
+	 * 
+	 * @param in
+	 *            The {@link InputStream} to read from.
+	 * @param charset
+	 *            The {@link Charset} of the input.
+	 * @throws IllegalArgumentException
+	 *             if the {@link Charset} is not supported.
+	 */
+	public PositionTrackingReader(InputStream in, Charset charset)
+	{
+		this(in, charset, null, 0);
+	}
+
+
+	/**
+	 * Create a new {@link PositionTrackingReader} for a stream that starts at the given byte offset of a document.
+	 * 
+	 * @param in
+	 *            The {@link InputStream} to read from.
+	 * @param charset
+	 *            The {@link Charset} of the input.
+	 * @param prefix
+	 *            Text to return before the content of the {@link InputStream}, may be <code>null</code>.
+	 * @param byteOffset
+	 *            The byte offset of the {@link InputStream} in the document.
+	 * @throws IllegalArgumentException
+	 *             if the {@link Charset} is not supported.
+	 */
+	public PositionTrackingReader(InputStream in, Charset charset, String prefix, long byteOffset)
+	{
+		if ("UTF-8".equals(charset.name()))
+		{
+			mBytesPerChar = 0;
+		}
+		else
+		{
+			CharsetEncoder encoder = charset.newEncoder();
+			if (encoder.maxBytesPerChar() != encoder.averageBytesPerChar())
+			{
+				throw new IllegalArgumentException("unsupported charset " + charset.name());
+			}
+			mBytesPerChar = (int) encoder.maxBytesPerChar();
+		}
+		mReader = new InputStreamReader(in, charset);
+		mPrefix = prefix;
+		mByteOffset = byteOffset;
+	}
+
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException
+	{
+		// the parser may still hold back everything in its buffer
+		mReadAhead = Math.max(mReadAhead, offset + length);
+
+		String prefix = mPrefix;
+		if (prefix != null)
+		{
+			int count = Math.min(length, prefix.length() - mPrefixPosition);
+			prefix.getChars(mPrefixPosition, mPrefixPosition + count, buffer, offset);
+			mPrefixPosition += count;
+			if (mPrefixPosition == prefix.length())
+			{
+				mPrefix = null;
+			}
+			track(buffer, offset, count, false);
+			return count;
+		}
+
+		int count = mReader.read(buffer, offset, length);
+		track(buffer, offset, count, true);
+		return count;
+	}
+
+
+	/**
+	 * Updates the positions for the given chars.
+	 */
+	private void track(char[] buffer, int offset, int count, boolean countBytes)
+	{
+		for (int i = offset, end = offset + count; i < end; ++i)
+		{
+			char c = buffer[i];
+			if (c == '<')
+			{
+				addTag();
+			}
+
+			if (countBytes)
+			{
+				if (mBytesPerChar > 0)
+				{
+					mByteOffset += mBytesPerChar;
+				}
+				else
+				{
+					// surrogates always come in pairs of 2 + 2 bytes
+					mByteOffset += c < 0x80 ? 1 : c < 0x800 || c >= '\uD800' && c <= '\uDFFF' ? 2 : 3;
+				}
+			}
+
+			++mCharOffset;
+
+			if (c == '\n')
+			{
+				if (mCarriageReturn)
+				{
+					// CR LF is a single line break
+					mLineStarts[mLineCount - 1] = mCharOffset;
+				}
+				else
+				{
+					addLine();
+				}
+				mCarriageReturn = false;
+			}
+			else if (c == '\r')
+			{
+				addLine();
+				mCarriageReturn = true;
+			}
+			else
+			{
+				mCarriageReturn = false;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the byte offset of the start tag that ends at the given position. Positions before that tag are dropped, so later calls must refer to later
+	 * positions.
+	 * 
+	 * @param line
+	 *            The line number of the position right after the start tag, starting at 1.
+	 * @param column
+	 *            The column number of the position right after the start tag, starting at 1.
+	 * @return The byte offset of the start tag.
+	 * @throws IOException
+	 *             If the position is unknown.
+	 */
+	public long getTagByteOffset(int line, int column) throws IOException
+	{
+		int lineIndex = line - mFirstLine;
+		if (lineIndex < 0 || lineIndex >= mLineCount)
+		{
+			throw new IOException("unknown position " + line + ":" + column);
+		}
+
+		// tags can't contain a '<', so the start tag begins at the last '<' before the given position
+		long position = mLineStarts[lineIndex] + column - 1;
+		int tagIndex = Arrays.binarySearch(mTagCharOffsets, 0, mTagCount, position);
+		tagIndex = (tagIndex < 0 ? -tagIndex - 1 : tagIndex) - 1;
+		if (tagIndex < 0)
+		{
+			throw new IOException("no tag found before position " + line + ":" + column);
+		}
+		long result = mTagByteOffsets[tagIndex];
+
+		// drop everything we don't need anymore
+		System.arraycopy(mLineStarts, lineIndex, mLineStarts, 0, mLineCount - lineIndex);
+		mLineCount -= lineIndex;
+		mFirstLine = line;
+		System.arraycopy(mTagCharOffsets, tagIndex, mTagCharOffsets, 0, mTagCount - tagIndex);
+		System.arraycopy(mTagByteOffsets, tagIndex, mTagByteOffsets, 0, mTagCount - tagIndex);
+		mTagCount -= tagIndex;
+
+		return result;
+	}
+
+
+	@Override
+	public void close() throws IOException
+	{
+		mReader.close();
+	}
+
+
+	/**
+	 * Drops the positions of lines and tags that are too far behind the read position to be queried. We keep the last line and tag before that limit,
+	 * because a query may refer to a position in that line or in that tag.
+	 */
+	private void trim()
+	{
+		long limit = mCharOffset - mReadAhead;
+
+		int lineIndex = Arrays.binarySearch(mLineStarts, 0, mLineCount, limit);
+		lineIndex = lineIndex < 0 ? -lineIndex - 2 : lineIndex;
+		if (lineIndex > 0)
+		{
+			System.arraycopy(mLineStarts, lineIndex, mLineStarts, 0, mLineCount - lineIndex);
+			mLineCount -= lineIndex;
+			mFirstLine += lineIndex;
+		}
+
+		int tagIndex = Arrays.binarySearch(mTagCharOffsets, 0, mTagCount, limit);
+		tagIndex = tagIndex < 0 ? -tagIndex - 2 : tagIndex;
+		if (tagIndex > 0)
+		{
+			System.arraycopy(mTagCharOffsets, tagIndex, mTagCharOffsets, 0, mTagCount - tagIndex);
+			System.arraycopy(mTagByteOffsets, tagIndex, mTagByteOffsets, 0, mTagCount - tagIndex);
+			mTagCount -= tagIndex;
+		}
+	}
+
+
+	private void addLine()
+	{
+		if (mLineCount == mLineStarts.length)
+		{
+			trim();
+			// grow unless trimming freed at least half of the array, otherwise we'd trim again soon
+			if (mLineCount > mLineStarts.length / 2)
+			{
+				mLineStarts = Arrays.copyOf(mLineStarts, mLineStarts.length * 2);
+			}
+		}
+		mLineStarts[mLineCount++] = mCharOffset;
+	}
+
+
+	private void addTag()
+	{
+		if (mTagCount == mTagCharOffsets.length)
+		{
+			trim();
+			if (mTagCount > mTagCharOffsets.length / 2)
+			{
+				mTagCharOffsets = Arrays.copyOf(mTagCharOffsets, mTagCharOffsets.length * 2);
+				mTagByteOffsets = Arrays.copyOf(mTagByteOffsets, mTagByteOffsets.length * 2);
+			}
+		}
+		mTagCharOffsets[mTagCount] = mCharOffset;
+		mTagByteOffsets[mTagCount++] = mByteOffset;
+	}
+}
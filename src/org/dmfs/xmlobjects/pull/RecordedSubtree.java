@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.pull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dmfs.xmlobjects.QualifiedName;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+/**
+ * A compact recording of the events of an XML sub-tree. The recording can be replayed using a {@link RecordedSubtreeParser}.
+ * <p>
+ * The events are stored as a sequence of int tokens:
+ * </p>
+ * <ul>
+ * <li>{@link XmlPullParser#START_TAG}, name index, prefix index, namespace declaration count, followed by prefix index and namespace index of each
+ * declaration, attribute count, followed by name index, prefix index and value index of each attribute</li>
+ * <li>{@link XmlPullParser#END_TAG}, name index, prefix index</li>
+ * <li>{@link XmlPullParser#TEXT}, text start, text length</li>
+ * </ul>
+ * <p>
+ * The indices refer to {@link #values}, which contains the {@link QualifiedName}s of all elements and attributes, the prefixes and namespaces and the
+ * attribute values. A prefix index of <code>-1</code> stands for no prefix. Names, prefixes and namespaces are stored only once, no matter how often they
+ * occur. Text start and length refer to {@link #text}.
+ * </p>
+ * <p>
+ * The root element declares all namespaces that are in scope at the root, so the recording is self-contained.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class RecordedSubtree
+{
+	/**
+	 * The event tokens.
+	 */
+	final int[] tokens;
+
+	/**
+	 * The {@link QualifiedName}s, prefixes, namespaces and attribute values referred to by {@link #tokens}.
+	 */
+	final Object[] values;
+
+	/**
+	 * The text of all text events.
+	 */
+	final char[] text;
+
+
+	private RecordedSubtree(int[] tokens, Object[] values, char[] text)
+	{
+		this.tokens = tokens;
+		this.values = values;
+		this.text = text;
+	}
+
+
+	/**
+	 * Records the sub-tree of the current element. The parser must be positioned at a {@link XmlPullParser#START_TAG}. When this method returns the parser is
+	 * positioned at the corresponding {@link XmlPullParser#END_TAG}.
+	 * 
+	 * @param parser
+	 *            The {@link XmlPullParser} to read from.
+	 * @return The {@link RecordedSubtree}.
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	static RecordedSubtree record(XmlPullParser parser) throws XmlPullParserException, IOException
+	{
+		Recorder recorder = new Recorder();
+		int rootDepth = parser.getDepth();
+		int event = parser.getEventType();
+
+		while (true)
+		{
+			switch (event)
+			{
+				case XmlPullParser.START_TAG:
+				{
+					int depth = parser.getDepth();
+					recorder.addToken(XmlPullParser.START_TAG);
+					recorder.addToken(recorder.addName(QualifiedName.get(parser.getNamespace(), parser.getName())));
+					recorder.addToken(recorder.addName(parser.getPrefix()));
+
+					// the root element declares all namespaces in scope, other elements only their own declarations
+					int firstNamespace = depth == rootDepth ? 0 : parser.getNamespaceCount(depth - 1);
+					int namespaceCount = parser.getNamespaceCount(depth);
+					recorder.addToken(namespaceCount - firstNamespace);
+					for (int i = firstNamespace; i < namespaceCount; ++i)
+					{
+						recorder.addToken(recorder.addName(parser.getNamespacePrefix(i)));
+						recorder.addToken(recorder.addName(parser.getNamespaceUri(i)));
+					}
+
+					int attributeCount = parser.getAttributeCount();
+					recorder.addToken(attributeCount);
+					for (int i = 0; i < attributeCount; ++i)
+					{
+						recorder.addToken(recorder.addName(QualifiedName.get(parser.getAttributeNamespace(i), parser.getAttributeName(i))));
+						recorder.addToken(recorder.addName(parser.getAttributePrefix(i)));
+						recorder.addToken(recorder.addValue(parser.getAttributeValue(i)));
+					}
+					break;
+				}
+				case XmlPullParser.END_TAG:
+				{
+					recorder.addToken(XmlPullParser.END_TAG);
+					recorder.addToken(recorder.addName(QualifiedName.get(parser.getNamespace(), parser.getName())));
+					recorder.addToken(recorder.addName(parser.getPrefix()));
+					if (parser.getDepth() == rootDepth)
+					{
+						// we're at the end of the sub-tree, the parser stays at the end tag
+						return recorder.toRecordedSubtree();
+					}
+					break;
+				}
+				case XmlPullParser.TEXT:
+				{
+					recorder.addToken(XmlPullParser.TEXT);
+					recorder.addText(parser);
+					break;
+				}
+				case XmlPullParser.END_DOCUMENT:
+				{
+					throw new XmlPullParserException("unexpected end of document", parser, null);
+				}
+			}
+			event = parser.next();
+		}
+	}
+
+	/**
+	 * Collects the data of a {@link RecordedSubtree}.
+	 */
+	private final static class Recorder
+	{
+		private final int[] mHolder = new int[2];
+		private int[] mTokens = new int[64];
+		private int mTokenCount;
+		private Object[] mValues = new Object[16];
+		private int mValueCount;
+		private final Map<Object, Integer> mNameIndices = new HashMap<Object, Integer>(16);
+		private char[] mText = new char[256];
+		private int mTextLength;
+
+
+		public void addToken(int token)
+		{
+			if (mTokenCount == mTokens.length)
+			{
+				mTokens = Arrays.copyOf(mTokens, mTokenCount * 2);
+			}
+			mTokens[mTokenCount++] = token;
+		}
+
+
+		public int addValue(Object value)
+		{
+			if (mValueCount == mValues.length)
+			{
+				mValues = Arrays.copyOf(mValues, mValueCount * 2);
+			}
+			mValues[mValueCount] = value;
+			return mValueCount++;
+		}
+
+
+		/**
+		 * Adds a name, prefix or namespace. Other than {@link #addValue(Object)} this returns the index of an equal value that has been added before.
+		 * 
+		 * @return The index of the value or <code>-1</code> if name is <code>null</code>.
+		 */
+		public int addName(Object name)
+		{
+			if (name == null)
+			{
+				return -1;
+			}
+
+			Integer index = mNameIndices.get(name);
+			if (index == null)
+			{
+				index = addValue(name);
+				mNameIndices.put(name, index);
+			}
+			return index;
+		}
+
+
+		public void addText(XmlPullParser parser)
+		{
+			int[] holder = mHolder;
+			char[] chars = parser.getTextCharacters(holder);
+			int length = holder[1];
+			if (mTextLength + length > mText.length)
+			{
+				mText = Arrays.copyOf(mText, Math.max(mText.length * 2, mTextLength + length));
+			}
+			System.arraycopy(chars, holder[0], mText, mTextLength, length);
+			addToken(mTextLength);
+			addToken(length);
+			mTextLength += length;
+		}
+
+
+		public RecordedSubtree toRecordedSubtree()
+		{
+			// trim all arrays to their actual size
+			return new RecordedSubtree(Arrays.copyOf(mTokens, mTokenCount), Arrays.copyOf(mValues, mValueCount), Arrays.copyOf(mText, mTextLength));
+		}
+	}
+}
@@ -0,0 +1,521 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.pull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+
+import org.dmfs.xmlobjects.QualifiedName;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+/**
+ * An {@link XmlPullParser} that replays a {@link RecordedSubtree}. It reports the recorded elements like a document with the root of the sub-tree as the root
+ * element. Only the methods required by {@link XmlObjectPull} are fully supported. Prefixes and namespace declarations are reported as in the original
+ * document, with the namespaces in scope at the root declared by the root element.
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class RecordedSubtreeParser implements XmlPullParser
+{
+	private final int[] mTokens;
+	private final Object[] mValues;
+	private final char[] mText;
+
+	/**
+	 * The position of the next token.
+	 */
+	private int mPos;
+
+	/**
+	 * The current event.
+	 */
+	private int mEventType = START_DOCUMENT;
+
+	private int mDepth;
+
+	/**
+	 * The {@link QualifiedName} of the current tag.
+	 */
+	private QualifiedName mName;
+
+	/**
+	 * The prefix of the current tag.
+	 */
+	private String mPrefix;
+
+	/**
+	 * The prefixes and namespaces of all declarations in scope, two entries per declaration.
+	 */
+	private String[] mNamespaces = new String[16];
+
+	/**
+	 * The number of namespace declarations in scope at each depth.
+	 */
+	private int[] mNamespaceCounts = new int[8];
+
+	/**
+	 * The number of attributes of the current start tag.
+	 */
+	private int mAttributeCount = -1;
+
+	/**
+	 * The position of the first attribute token of the current start tag.
+	 */
+	private int mAttributePos;
+
+	private int mTextStart;
+	private int mTextLength;
+
+
+	public RecordedSubtreeParser(RecordedSubtree subtree)
+	{
+		mTokens = subtree.tokens;
+		mValues = subtree.values;
+		mText = subtree.text;
+	}
+
+
+	@Override
+	public int next() throws XmlPullParserException, IOException
+	{
+		if (mEventType == END_TAG)
+		{
+			--mDepth;
+		}
+
+		mName = null;
+		mPrefix = null;
+		mAttributeCount = -1;
+
+		int[] tokens = mTokens;
+		if (mPos >= tokens.length)
+		{
+			return mEventType = END_DOCUMENT;
+		}
+
+		int event = tokens[mPos++];
+		switch (event)
+		{
+			case START_TAG:
+			{
+				int namespaceCount = mNamespaceCounts[mDepth];
+				if (++mDepth == mNamespaceCounts.length)
+				{
+					mNamespaceCounts = Arrays.copyOf(mNamespaceCounts, mDepth * 2);
+				}
+				mName = (QualifiedName) mValues[tokens[mPos++]];
+				mPrefix = getValue(tokens[mPos++]);
+
+				int declarations = tokens[mPos++];
+				if ((namespaceCount + declarations) * 2 > mNamespaces.length)
+				{
+					mNamespaces = Arrays.copyOf(mNamespaces, Math.max(mNamespaces.length * 2, (namespaceCount + declarations) * 2));
+				}
+				for (int i = 0; i < declarations; ++i, ++namespaceCount)
+				{
+					mNamespaces[namespaceCount * 2] = getValue(tokens[mPos++]);
+					mNamespaces[namespaceCount * 2 + 1] = getValue(tokens[mPos++]);
+				}
+				mNamespaceCounts[mDepth] = namespaceCount;
+
+				mAttributeCount = tokens[mPos++];
+				mAttributePos = mPos;
+				mPos += mAttributeCount * 3;
+				break;
+			}
+			case END_TAG:
+			{
+				mName = (QualifiedName) mValues[tokens[mPos++]];
+				mPrefix = getValue(tokens[mPos++]);
+				break;
+			}
+			case TEXT:
+			{
+				mTextStart = tokens[mPos++];
+				mTextLength = tokens[mPos++];
+				break;
+			}
+		}
+		return mEventType = event;
+	}
+
+
+	@Override
+	public int nextToken() throws XmlPullParserException, IOException
+	{
+		return next();
+	}
+
+
+	@Override
+	public int getEventType() throws XmlPullParserException
+	{
+		return mEventType;
+	}
+
+
+	@Override
+	public int getDepth()
+	{
+		return mDepth;
+	}
+
+
+	@Override
+	public String getNamespace()
+	{
+		return mName == null ? null : mName.namespace == null ? NO_NAMESPACE : mName.namespace;
+	}
+
+
+	@Override
+	public String getName()
+	{
+		return mName == null ? null : mName.name;
+	}
+
+
+	@Override
+	public String getPrefix()
+	{
+		return mPrefix;
+	}
+
+
+	@Override
+	public boolean isEmptyElementTag() throws XmlPullParserException
+	{
+		return false;
+	}
+
+
+	@Override
+	public int getAttributeCount()
+	{
+		return mAttributeCount;
+	}
+
+
+	@Override
+	public String getAttributeNamespace(int index)
+	{
+		String namespace = getAttributeQualifiedName(index).namespace;
+		return namespace == null ? NO_NAMESPACE : namespace;
+	}
+
+
+	@Override
+	public String getAttributeName(int index)
+	{
+		return getAttributeQualifiedName(index).name;
+	}
+
+
+	@Override
+	public String getAttributePrefix(int index)
+	{
+		checkAttributeIndex(index);
+		return getValue(mTokens[mAttributePos + index * 3 + 1]);
+	}
+
+
+	@Override
+	public String getAttributeType(int index)
+	{
+		return "CDATA";
+	}
+
+
+	@Override
+	public boolean isAttributeDefault(int index)
+	{
+		return false;
+	}
+
+
+	@Override
+	public String getAttributeValue(int index)
+	{
+		checkAttributeIndex(index);
+		return (String) mValues[mTokens[mAttributePos + index * 3 + 2]];
+	}
+
+
+	@Override
+	public String getAttributeValue(String namespace, String name)
+	{
+		QualifiedName qname = QualifiedName.get(namespace, name);
+		for (int i = 0; i < mAttributeCount; ++i)
+		{
+			if (getAttributeQualifiedName(i) == qname)
+			{
+				return getAttributeValue(i);
+			}
+		}
+		return null;
+	}
+
+
+	@Override
+	public String getText()
+	{
+		return mEventType == TEXT ? new String(mText, mTextStart, mTextLength) : null;
+	}
+
+
+	@Override
+	public char[] getTextCharacters(int[] holderForStartAndLength)
+	{
+		if (mEventType != TEXT)
+		{
+			holderForStartAndLength[0] = -1;
+			holderForStartAndLength[1] = -1;
+			return null;
+		}
+		holderForStartAndLength[0] = mTextStart;
+		holderForStartAndLength[1] = mTextLength;
+		return mText;
+	}
+
+
+	@Override
+	public boolean isWhitespace() throws XmlPullParserException
+	{
+		if (mEventType != TEXT)
+		{
+			throw new XmlPullParserException("not a text event", this, null);
+		}
+		for (int i = mTextStart, end = mTextStart + mTextLength; i < end; ++i)
+		{
+			if (mText[i] > ' ')
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	@Override
+	public void require(int type, String namespace, String name) throws XmlPullParserException, IOException
+	{
+		if (type != mEventType || namespace != null && !namespace.equals(getNamespace()) || name != null && !name.equals(getName()))
+		{
+			throw new XmlPullParserException("expected event " + type + " " + namespace + ":" + name, this, null);
+		}
+	}
+
+
+	@Override
+	public String nextText() throws XmlPullParserException, IOException
+	{
+		require(START_TAG, null, null);
+		String result = "";
+		if (next() == TEXT)
+		{
+			result = getText();
+			next();
+		}
+		require(END_TAG, null, null);
+		return result;
+	}
+
+
+	@Override
+	public int nextTag() throws XmlPullParserException, IOException
+	{
+		int event = next();
+		if (event == TEXT && isWhitespace())
+		{
+			event = next();
+		}
+		if (event != START_TAG && event != END_TAG)
+		{
+			throw new XmlPullParserException("expected start or end tag", this, null);
+		}
+		return event;
+	}
+
+
+	@Override
+	public String getPositionDescription()
+	{
+		return "recorded event " + mEventType + " at depth " + mDepth;
+	}
+
+
+	@Override
+	public int getLineNumber()
+	{
+		return -1;
+	}
+
+
+	@Override
+	public int getColumnNumber()
+	{
+		return -1;
+	}
+
+
+	@Override
+	public void setFeature(String name, boolean state) throws XmlPullParserException
+	{
+		throw new XmlPullParserException("features are not supported", this, null);
+	}
+
+
+	@Override
+	public boolean getFeature(String name)
+	{
+		// the recording contains resolved namespaces only
+		return FEATURE_PROCESS_NAMESPACES.equals(name);
+	}
+
+
+	@Override
+	public void setProperty(String name, Object value) throws XmlPullParserException
+	{
+		throw new XmlPullParserException("properties are not supported", this, null);
+	}
+
+
+	@Override
+	public Object getProperty(String name)
+	{
+		return null;
+	}
+
+
+	@Override
+	public void setInput(Reader in) throws XmlPullParserException
+	{
+		throw new XmlPullParserException("can not change the input of a recorded sub-tree", this, null);
+	}
+
+
+	@Override
+	public void setInput(InputStream inputStream, String inputEncoding) throws XmlPullParserException
+	{
+		throw new XmlPullParserException("can not change the input of a recorded sub-tree", this, null);
+	}
+
+
+	@Override
+	public String getInputEncoding()
+	{
+		return null;
+	}
+
+
+	@Override
+	public void defineEntityReplacementText(String entityName, String replacementText) throws XmlPullParserException
+	{
+		throw new XmlPullParserException("entities are not supported", this, null);
+	}
+
+
+	@Override
+	public int getNamespaceCount(int depth) throws XmlPullParserException
+	{
+		if (depth < 0 || depth > mDepth)
+		{
+			throw new IllegalArgumentException("invalid depth " + depth);
+		}
+		return mNamespaceCounts[depth];
+	}
+
+
+	@Override
+	public String getNamespacePrefix(int pos) throws XmlPullParserException
+	{
+		checkNamespaceIndex(pos);
+		return mNamespaces[pos * 2];
+	}
+
+
+	@Override
+	public String getNamespaceUri(int pos) throws XmlPullParserException
+	{
+		checkNamespaceIndex(pos);
+		return mNamespaces[pos * 2 + 1];
+	}
+
+
+	@Override
+	public String getNamespace(String prefix)
+	{
+		if ("xml".equals(prefix))
+		{
+			return "http://www.w3.org/XML/1998/namespace";
+		}
+		if ("xmlns".equals(prefix))
+		{
+			return "http://www.w3.org/2000/xmlns/";
+		}
+
+		// search backwards, so inner declarations override outer ones
+		for (int i = mNamespaceCounts[mDepth] - 1; i >= 0; --i)
+		{
+			String namespacePrefix = mNamespaces[i * 2];
+			if (prefix == null ? namespacePrefix == null : prefix.equals(namespacePrefix))
+			{
+				return mNamespaces[i * 2 + 1];
+			}
+		}
+		return null;
+	}
+
+
+	private QualifiedName getAttributeQualifiedName(int index)
+	{
+		checkAttributeIndex(index);
+		return (QualifiedName) mValues[mTokens[mAttributePos + index * 3]];
+	}
+
+
+	/**
+	 * Returns the {@link String} value with the given index, or <code>null</code> if the index is <code>-1</code>.
+	 */
+	private String getValue(int index)
+	{
+		return index < 0 ? null : (String) mValues[index];
+	}
+
+
+	private void checkAttributeIndex(int index)
+	{
+		if (index < 0 || index >= mAttributeCount)
+		{
+			throw new IndexOutOfBoundsException("invalid attribute index " + index);
+		}
+	}
+
+
+	private void checkNamespaceIndex(int index)
+	{
+		if (index < 0 || index >= mNamespaceCounts[mDepth])
+		{
+			throw new IndexOutOfBoundsException("invalid namespace index " + index);
+		}
+	}
+}
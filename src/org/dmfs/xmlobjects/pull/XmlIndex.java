@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.pull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.StringAttributeObjectBuilder;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+/**
+ * A persistent index of the elements in a large XML document. The index maps a key of each element to the byte offset of the element in the document, so a
+ * single element can be pulled without parsing the entire document.
+ * <p>
+ * An index is created by {@link #build(File, Charset, File, XmlPullParser, XmlContext, ElementDescriptor, XmlPath)} in a single pass over the document. The
+ * key of each element is the result of an {@link ElementDescriptor} for the element, like one with a {@link StringAttributeObjectBuilder} that returns the id
+ * attribute of the element. Usually that's not the same {@link ElementDescriptor} that's used to pull the element, so it's registered in a different
+ * {@link XmlContext}.
+ * </p>
+ * <p>
+ * The index is stored in a file that's memory-mapped for lookups. It remains valid as long as the document doesn't change. The index records the length of
+ * the document and can't be opened if the length has changed, but changes that retain the length are not detected.
+ * </p>
+ * <p>
+ * <strong>Note:</strong> All indexed elements are expected to have ancestors with the same names and namespace declarations. The start tags of the ancestors
+ * of the first element are used to pull any element.
+ * </p>
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public final class XmlIndex
+{
+	/**
+	 * Identifies an index file, these are the bytes of "XIDX".
+	 */
+	private final static int MAGIC = 0x58494458;
+
+	private final static int VERSION = 2;
+
+	/**
+	 * The size of an entry in the offset table. Each entry consists of the byte offset of the element, the position of the key and the length of the key.
+	 */
+	private final static int ENTRY_SIZE = 8 + 4 + 4;
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * The path of the {@link Checkpoint}s to pull an element. The index doesn't need it, since the caller provides the path.
+	 */
+	private final static QualifiedName[] NO_PATH = new QualifiedName[0];
+
+	/**
+	 * The indexed document.
+	 */
+	private final File mDocument;
+
+	/**
+	 * The {@link Charset} of the indexed document.
+	 */
+	private final Charset mCharset;
+
+	/**
+	 * The start tags of all ancestors of the indexed elements.
+	 */
+	private final String mAncestors;
+
+	/**
+	 * The depth of the indexed elements.
+	 */
+	private final int mDepth;
+
+	/**
+	 * The number of entries in the index.
+	 */
+	private final int mCount;
+
+	/**
+	 * The position of the offset table in {@link #mBuffer}.
+	 */
+	private final int mTablePosition;
+
+	/**
+	 * The position of the keys in {@link #mBuffer}.
+	 */
+	private final int mKeysPosition;
+
+	/**
+	 * The memory-mapped index.
+	 */
+	private final ByteBuffer mBuffer;
+
+
+	/**
+	 * Opens an existing index.
+	 * 
+	 * @param document
+	 *            The indexed document.
+	 * @param indexFile
+	 *            The index file.
+	 * @throws IOException
+	 *             If the index can not be read or if it doesn't match the length of the document.
+	 */
+	public XmlIndex(File document, File indexFile) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+		try
+		{
+			// the mapping remains valid after the file has been closed
+			mBuffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		}
+		finally
+		{
+			file.close();
+		}
+
+		ByteBuffer buffer = mBuffer;
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+		{
+			throw new IOException("not a valid index file: " + indexFile);
+		}
+		if (buffer.getLong() != document.length())
+		{
+			// seeking to the stored offsets would return wrong elements
+			throw new IOException("the document " + document + " has changed since the index " + indexFile + " has been built");
+		}
+		mDocument = document;
+		mCharset = Charset.forName(readString(buffer));
+		mAncestors = readString(buffer);
+		mDepth = buffer.getInt();
+		mCount = buffer.getInt();
+		mTablePosition = buffer.position();
+		mKeysPosition = mTablePosition + mCount * ENTRY_SIZE;
+	}
+
+
+	/**
+	 * Indexes all elements of the given type at the given path and writes the index to a file.
+	 * 
+	 * @param document
+	 *            The document to index.
+	 * @param charset
+	 *            The {@link Charset} of the document. This must be UTF-8 or a {@link Charset} with a fixed number of bytes per char.
+	 * @param indexFile
+	 *            The file to write the index to.
+	 * @param parser
+	 *            An {@link XmlPullParser} to parse the document. The parser must report line and column numbers.
+	 * @param context
+	 *            The {@link XmlContext} of the key {@link ElementDescriptor}.
+	 * @param keyDescriptor
+	 *            An {@link ElementDescriptor} for the elements to index that returns the key of an element. Elements with a <code>null</code> key are not
+	 *            indexed.
+	 * @param path
+	 *            The {@link XmlPath} of the elements to index.
+	 * @return The {@link XmlIndex}.
+	 * @throws IOException
+	 * @throws XmlPullParserException
+	 * @throws XmlObjectPullParserException
+	 */
+	public static XmlIndex build(File document, Charset charset, File indexFile, XmlPullParser parser, XmlContext context,
+		ElementDescriptor<String> keyDescriptor, XmlPath path) throws IOException, XmlPullParserException, XmlObjectPullParserException
+	{
+		List<IndexEntry> entries = new ArrayList<IndexEntry>();
+		String ancestors = "";
+		long documentLength = document.length();
+
+		FileInputStream in = new FileInputStream(document);
+		try
+		{
+			XmlObjectPull objectPull = new XmlObjectPull(parser, in, charset, new ParserContext());
+			objectPull.setContext(context);
+
+			boolean first = true;
+			while (objectPull.moveToNext(keyDescriptor, path))
+			{
+				Checkpoint checkpoint = objectPull.getCheckpoint();
+				if (first)
+				{
+					// remember the ancestors of the first element
+					ancestors = checkpoint.ancestors;
+					first = false;
+				}
+
+				String key = objectPull.pull(keyDescriptor, null, path);
+				if (key != null)
+				{
+					entries.add(new IndexEntry(key, checkpoint.offset));
+				}
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+
+		// sort by key, this sort is stable, so elements with the same key remain in document order
+		Collections.sort(entries);
+
+		byte[] charsetBytes = charset.name().getBytes(UTF8);
+		byte[] ancestorBytes = ancestors.getBytes(UTF8);
+
+		int keysSize = 0;
+		for (IndexEntry entry : entries)
+		{
+			keysSize += entry.keyBytes.length;
+		}
+
+		int size = 4 + 4 + 8 + 4 + charsetBytes.length + 4 + ancestorBytes.length + 4 + 4 + entries.size() * ENTRY_SIZE + keysSize;
+
+		RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+		try
+		{
+			file.setLength(size);
+			MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putLong(documentLength);
+			buffer.putInt(charsetBytes.length);
+			buffer.put(charsetBytes);
+			buffer.putInt(ancestorBytes.length);
+			buffer.put(ancestorBytes);
+			buffer.putInt(path.length() + 1);
+			buffer.putInt(entries.size());
+
+			int keyPosition = 0;
+			for (IndexEntry entry : entries)
+			{
+				buffer.putLong(entry.offset);
+				buffer.putInt(keyPosition);
+				buffer.putInt(entry.keyBytes.length);
+				keyPosition += entry.keyBytes.length;
+			}
+
+			for (IndexEntry entry : entries)
+			{
+				buffer.put(entry.keyBytes);
+			}
+			buffer.force();
+		}
+		finally
+		{
+			file.close();
+		}
+
+		return new XmlIndex(document, indexFile);
+	}
+
+
+	/**
+	 * Returns the number of indexed elements.
+	 * 
+	 * @return The number of elements in this index.
+	 */
+	public int size()
+	{
+		return mCount;
+	}
+
+
+	/**
+	 * Returns the depth of the indexed elements.
+	 * 
+	 * @return The depth of the indexed elements, the root element has a depth of 1.
+	 */
+	public int getDepth()
+	{
+		return mDepth;
+	}
+
+
+	/**
+	 * Returns the byte offset of the element with the given key. If multiple elements have the same key, the offset of the first one is returned.
+	 * 
+	 * @param key
+	 *            The key of the element.
+	 * @return The byte offset of the element or <code>-1</code> if there is no element with that key.
+	 */
+	public long getOffset(String key)
+	{
+		ByteBuffer buffer = mBuffer.duplicate();
+
+		// find the first entry with the given key
+		int low = 0;
+		int high = mCount;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (getKey(buffer, mid).compareTo(key) < 0)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+
+		if (low < mCount && key.equals(getKey(buffer, low)))
+		{
+			return buffer.getLong(mTablePosition + low * ENTRY_SIZE);
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Pulls the element with the given key from the document. If multiple elements have the same key, the first one is returned.
+	 * 
+	 * @param key
+	 *            The key of the element.
+	 * @param parser
+	 *            An {@link XmlPullParser} to parse the element.
+	 * @param context
+	 *            The {@link XmlContext} of the given {@link ElementDescriptor}.
+	 * @param descriptor
+	 *            The {@link ElementDescriptor} of the indexed elements.
+	 * @param path
+	 *            The {@link XmlPath} of the indexed elements.
+	 * @return The object or <code>null</code> if there is no element with that key.
+	 * @throws IOException
+	 * @throws XmlPullParserException
+	 * @throws XmlObjectPullParserException
+	 */
+	public <T> T pull(String key, XmlPullParser parser, XmlContext context, ElementDescriptor<T> descriptor, XmlPath path) throws IOException,
+		XmlPullParserException, XmlObjectPullParserException
+	{
+		long offset = getOffset(key);
+		if (offset < 0)
+		{
+			return null;
+		}
+
+		FileInputStream in = new FileInputStream(mDocument);
+		try
+		{
+			// resume at the element, this puts it in the context of its ancestors, so namespaces and the path are the same as in the original document
+			XmlObjectPull objectPull = new XmlObjectPull(parser, in, mCharset, new Checkpoint(offset, NO_PATH, mAncestors), new ParserContext());
+			objectPull.setContext(context);
+			return objectPull.pull(descriptor, null, path);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+
+	private String getKey(ByteBuffer buffer, int index)
+	{
+		int entryPosition = mTablePosition + index * ENTRY_SIZE;
+		byte[] key = new byte[buffer.getInt(entryPosition + 12)];
+		buffer.position(mKeysPosition + buffer.getInt(entryPosition + 8));
+		buffer.get(key);
+		return new String(key, UTF8);
+	}
+
+
+	private static String readString(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+
+	/**
+	 * An element in the index.
+	 */
+	private final static class IndexEntry implements Comparable<IndexEntry>
+	{
+		public final String key;
+		public final byte[] keyBytes;
+		public final long offset;
+
+
+		public IndexEntry(String key, long offset)
+		{
+			this.key = key;
+			this.keyBytes = key.getBytes(UTF8);
+			this.offset = offset;
+		}
+
+
+		@Override
+		public int compareTo(IndexEntry another)
+		{
+			return key.compareTo(another.key);
+		}
+	}
+}
@@ -17,24 +17,55 @@
 
 package org.dmfs.xmlobjects.pull;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
 
 import org.dmfs.xmlobjects.ElementDescriptor;
 import org.dmfs.xmlobjects.QualifiedName;
 import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.ICharArrayObjectBuilder;
 import org.dmfs.xmlobjects.builder.IObjectBuilder;
+import org.dmfs.xmlobjects.builder.IStreamingObjectBuilder;
+import org.dmfs.xmlobjects.builder.LazyObjectBuilder;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 
 /**
  * XML Parser that allows to pull parsed objects from an XML stream.
+ * <p>
+ * Parsing can be stopped using {@link ParserContext#cancel()} or {@link ParserContext#setTimeout(long, java.util.concurrent.TimeUnit)}. In that case the
+ * current pull throws an {@link XmlObjectPullCancelledException}, the state of the current document is dropped and all subsequent pulls throw an
+ * {@link XmlObjectPullCancelledException} as well, even after {@link ParserContext#clearCancellation()}. The partially built objects are lost at that
+ * point, so parsing can't continue with the current document. When parsing a stream of documents {@link #nextDocument()} continues with the next
+ * document, otherwise the instance must be discarded. To parse the document again, create a new {@link XmlObjectPull} (the {@link ParserContext} can be
+ * reused after {@link ParserContext#clearCancellation()}).
+ * </p>
  * 
  * @author Marten Gajda <marten@dmfs.org>
  */
 public class XmlObjectPull
 {
+	/**
+	 * The initial size of the text buffer.
+	 */
+	private final static int DEFAULT_TEXT_BUFFER_SIZE = 256;
+
+	/**
+	 * The maximum size of a text buffer we keep for the next text. Larger buffers are released once the text has been passed to the builder.
+	 */
+	private final static int MAX_RETAINED_TEXT_BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * The mask of the event counter that determines how often we check for cancellation. We check every 256 events.
+	 */
+	private final static int CANCELLATION_CHECK_MASK = 0xff;
 
 	/**
 	 * The current {@link XmlPullParser}.
@@ -45,9 +76,51 @@ public class XmlObjectPull
 	private final LinkedList<Object> mObjectStack = new LinkedList<Object>();
 
 	private IObjectBuilder<?> mCurrentBuilder;
+
+	/**
+	 * The {@link IObjectBuilder} to use for the root element instead of the one of its {@link ElementDescriptor}, may be <code>null</code>. This is used to
+	 * build {@link LazyElement}s.
+	 */
+	private IObjectBuilder<?> mRootBuilder;
 	private XmlContext mContext;
 	private ParserContext mParserContext;
 
+	/**
+	 * A reusable buffer that collects the text for {@link ICharArrayObjectBuilder}s.
+	 */
+	private char[] mTextBuffer = new char[DEFAULT_TEXT_BUFFER_SIZE];
+
+	/**
+	 * Receives start and length of the text returned by {@link XmlPullParser#getTextCharacters(int[])}.
+	 */
+	private final int[] mTextHolder = new int[2];
+
+	/**
+	 * The {@link PositionTrackingReader} of the input if this instance supports checkpoints, <code>null</code> otherwise.
+	 */
+	private final PositionTrackingReader mPositionTracker;
+
+	/**
+	 * The prefixes of all elements in {@link #mCurrentElementDescriptorPath} if this instance supports checkpoints, <code>null</code> otherwise.
+	 */
+	private final LinkedList<String> mPrefixes;
+
+	/**
+	 * The {@link MultiDocumentReader} if this instance parses a stream of concatenated documents, <code>null</code> otherwise.
+	 */
+	private final MultiDocumentReader mDocumentReader;
+
+	/**
+	 * Counts the parser events to check for cancellation every few events.
+	 */
+	private int mEventCount;
+
+	/**
+	 * Indicates that parsing of the current document has been cancelled. It's only reset by {@link #nextDocument()}, because the current document can't be
+	 * continued once the object stack has been dropped.
+	 */
+	private boolean mCancelled;
+
 
 	public XmlObjectPull(XmlPullParser parser) throws XmlPullParserException, IOException
 	{
@@ -56,15 +129,148 @@ public class XmlObjectPull
 
 
 	public XmlObjectPull(XmlPullParser parser, ParserContext parserContext) throws XmlPullParserException, IOException
+	{
+		this(parser, null, parserContext);
+	}
+
+
+	/**
+	 * Create an {@link XmlObjectPull} that parses the given {@link InputStream} and supports checkpoints.
+	 * 
+	 * @param parser
+	 *            The {@link XmlPullParser} to use. The parser must report line and column numbers.
+	 * @param in
+	 *            The {@link InputStream} of the document.
+	 * @param charset
+	 *            The {@link Charset} of the document. This must be UTF-8 or a {@link Charset} with a fixed number of bytes per char.
+	 * @param parserContext
+	 *            A {@link ParserContext}.
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 * @see #getCheckpoint()
+	 */
+	public XmlObjectPull(XmlPullParser parser, InputStream in, Charset charset, ParserContext parserContext) throws XmlPullParserException, IOException
+	{
+		this(parser, new PositionTrackingReader(in, charset), parserContext);
+	}
+
+
+	/**
+	 * Create an {@link XmlObjectPull} that resumes parsing the given {@link InputStream} at the given {@link Checkpoint}. The ancestors of the element at the
+	 * checkpoint are restored from the {@link Checkpoint}, so the document is not parsed up to that point. The new instance supports checkpoints as well.
+	 * 
+	 * @param parser
+	 *            The {@link XmlPullParser} to use. The parser must report line and column numbers.
+	 * @param in
+	 *            The {@link InputStream} of the document, positioned at the start of the document. The stream is skipped to the checkpoint.
+	 * @param charset
+	 *            The {@link Charset} of the document. This must be UTF-8 or a {@link Charset} with a fixed number of bytes per char.
+	 * @param checkpoint
+	 *            The {@link Checkpoint} to resume from.
+	 * @param parserContext
+	 *            A {@link ParserContext}.
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	public XmlObjectPull(XmlPullParser parser, InputStream in, Charset charset, Checkpoint checkpoint, ParserContext parserContext)
+		throws XmlPullParserException, IOException
+	{
+		this(parser, new PositionTrackingReader(skip(in, checkpoint.offset), charset, checkpoint.ancestors, checkpoint.offset), parserContext);
+	}
+
+
+	private XmlObjectPull(XmlPullParser parser, PositionTrackingReader positionTracker, ParserContext parserContext) throws XmlPullParserException,
+		IOException
 	{
 		mParser = parser;
 		mParserContext = parserContext;
 		mParserContext.setXmlPullParser(parser);
 		mParserContext.setObjectPullParser(this);
+		if (positionTracker != null)
+		{
+			parser.setInput(positionTracker);
+			mPositionTracker = positionTracker;
+			mPrefixes = new LinkedList<String>();
+		}
+		else
+		{
+			mPositionTracker = null;
+			mPrefixes = null;
+		}
+		mDocumentReader = null;
 		parser.next();
 	}
 
 
+	/**
+	 * Create an {@link XmlObjectPull} that parses a stream of concatenated XML documents, each with its own prolog. Call {@link #nextDocument()} to start
+	 * parsing the first document and to move to any subsequent document. The {@link XmlPullParser}, the {@link ParserContext} and all internal buffers are
+	 * reused for all documents.
+	 * 
+	 * <pre>
+	 * XmlObjectPull objectPull = new XmlObjectPull(parser, reader, new ParserContext());
+	 * while (objectPull.nextDocument())
+	 * {
+	 * 	Message message = objectPull.pull(MESSAGE, null, new XmlPath());
+	 * 	...
+	 * }
+	 * </pre>
+	 * 
+	 * @param parser
+	 *            The {@link XmlPullParser} to use.
+	 * @param in
+	 *            The {@link Reader} to read the documents from.
+	 * @param parserContext
+	 *            A {@link ParserContext}.
+	 */
+	public XmlObjectPull(XmlPullParser parser, Reader in, ParserContext parserContext)
+	{
+		mParser = parser;
+		mParserContext = parserContext;
+		mParserContext.setXmlPullParser(parser);
+		mParserContext.setObjectPullParser(this);
+		mPositionTracker = null;
+		mPrefixes = null;
+		mDocumentReader = new MultiDocumentReader(in);
+	}
+
+
+	/**
+	 * Skips the rest of the current document and moves to the start of the next one. This is supported only if this instance has been created with
+	 * {@link #XmlObjectPull(XmlPullParser, Reader, ParserContext)}.
+	 * <p>
+	 * This also continues parsing after the current document has been cancelled. Call {@link ParserContext#clearCancellation()} before, unless you want the
+	 * next document to be cancelled right away.
+	 * </p>
+	 * 
+	 * @return <code>true</code> if there is another document, <code>false</code> if the end of the stream has been reached.
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 * @throws IllegalStateException
+	 *             if this instance doesn't parse a stream of concatenated documents.
+	 */
+	public boolean nextDocument() throws XmlPullParserException, IOException
+	{
+		MultiDocumentReader documentReader = mDocumentReader;
+		if (documentReader == null)
+		{
+			throw new IllegalStateException("this instance doesn't parse concatenated documents");
+		}
+
+		if (!documentReader.nextDocument())
+		{
+			return false;
+		}
+
+		reset();
+		mCancelled = false;
+
+		mParser.setInput(documentReader);
+		mParser.next();
+		return true;
+	}
+
+
 	public void setContext(XmlContext context)
 	{
 		mContext = context;
@@ -150,6 +356,55 @@ public class XmlObjectPull
 	}
 
 
+	/**
+	 * Returns a {@link Checkpoint} for the current element. This is supported only if this instance has been created with an {@link InputStream} and only when
+	 * positioned at the start of an element, i.e. after {@link #moveToNext(ElementDescriptor, XmlPath)} or
+	 * {@link #moveToNextSibling(ElementDescriptor, XmlPath)} returned <code>true</code>.
+	 * <p>
+	 * Checkpoints must be requested in document order.
+	 * </p>
+	 * 
+	 * @return A {@link Checkpoint} that allows to resume parsing at the current element.
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 * @throws IllegalStateException
+	 *             if checkpoints are not supported or not at the start of an element.
+	 */
+	public Checkpoint getCheckpoint() throws XmlPullParserException, IOException
+	{
+		if (mPositionTracker == null)
+		{
+			throw new IllegalStateException("checkpoints are not supported by this instance");
+		}
+
+		XmlPullParser parser = mParser;
+		XmlPath currentPath = mCurrentElementDescriptorPath;
+		if (parser.getEventType() != XmlPullParser.START_TAG || parser.getDepth() != currentPath.length() + 1)
+		{
+			throw new IllegalStateException("checkpoints are supported at the start of an element only");
+		}
+
+		int line = parser.getLineNumber();
+		int column = parser.getColumnNumber();
+		if (line < 0 || column < 0)
+		{
+			throw new IllegalStateException("the parser doesn't report the current position");
+		}
+
+		QualifiedName[] path = new QualifiedName[currentPath.length()];
+		StringBuilder ancestors = new StringBuilder(path.length * 32);
+		Iterator<ElementDescriptor<?>> descriptors = currentPath.mPathElements.descendingIterator();
+		Iterator<String> prefixes = mPrefixes.descendingIterator();
+		for (int i = 0; i < path.length; ++i)
+		{
+			path[i] = descriptors.next().qualifiedName;
+			Checkpoint.appendStartTag(ancestors, parser, prefixes.next(), path[i].name, i + 1);
+		}
+
+		return new Checkpoint(mPositionTracker.getTagByteOffset(line, column), path, ancestors.toString());
+	}
+
+
 	/**
 	 * Pull the next object of the given type from the XML stream. If the current position is within such an object the current object is returned.
 	 * 
@@ -176,6 +431,11 @@ public class XmlObjectPull
 			throw new IllegalArgumentException("type is from an invalid context");
 		}
 
+		if (mCancelled)
+		{
+			throw new XmlObjectPullCancelledException("parsing of this document has been cancelled");
+		}
+
 		// cache some fields locally
 		ParserContext parserContext = mParserContext;
 		XmlPullParser parser = mParser;
@@ -195,6 +455,13 @@ public class XmlObjectPull
 
 		while (true)
 		{
+			if ((++mEventCount & CANCELLATION_CHECK_MASK) == 0 && parserContext.isCancelled())
+			{
+				mCancelled = true;
+				reset();
+				throw new XmlObjectPullCancelledException("parsing has been cancelled");
+			}
+
 			int next = parser.getEventType();
 			int currentDepth = parser.getDepth();
 			switch (next)
@@ -213,7 +480,7 @@ public class XmlObjectPull
 								return null;
 							}
 
-							if (recycled == null)
+							if (recycled == null && (mRootBuilder == null || currentPath.length() > 0))
 							{
 								// try to get an object to recycle from the parser context
 								recycled = parserContext.getRecycled(currentElementDescriptor);
@@ -221,8 +488,12 @@ public class XmlObjectPull
 
 							// append the descriptor to the current path to ensure it's already present when we get the currentObject
 							currentPath.append(currentElementDescriptor);
+							if (mPrefixes != null)
+							{
+								mPrefixes.addFirst(parser.getPrefix());
+							}
 
-							currentBuilder = mCurrentBuilder = currentElementDescriptor.builder;
+							currentBuilder = mCurrentBuilder = getBuilder(currentElementDescriptor, currentPath);
 							currentObject = ((IObjectBuilder<V>) currentBuilder).get((ElementDescriptor<V>) currentElementDescriptor, (V) recycled,
 								parserContext);
 
@@ -236,6 +507,13 @@ public class XmlObjectPull
 							}
 
 							objectStack.addFirst(currentObject);
+
+							if (currentBuilder instanceof LazyObjectBuilder && currentObject != null)
+							{
+								// record the sub-tree instead of building it, this moves the parser to the end tag of this element
+								((LazyElement<?>) currentObject).setSubtree(RecordedSubtree.record(parser), mContext);
+								continue;
+							}
 						}
 						else
 						{
@@ -258,10 +536,15 @@ public class XmlObjectPull
 						V childObject = ((IObjectBuilder<V>) currentBuilder).finish((ElementDescriptor<V>) currentElementDescriptor, (V) currentObject,
 							parserContext);
 						ElementDescriptor<V> childClass = (ElementDescriptor<V>) currentElementDescriptor;
+						int childDepth = currentPath.length();
 
 						// remove child from the stack
 						currentPath.pop();
 						objectStack.removeFirst();
+						if (mPrefixes != null)
+						{
+							mPrefixes.removeFirst();
+						}
 
 						// get parent object
 						currentElementDescriptor = currentPath.peek();
@@ -269,18 +552,21 @@ public class XmlObjectPull
 
 						if (currentElementDescriptor != null)
 						{
-							currentBuilder = mCurrentBuilder = currentElementDescriptor.builder;
+							currentBuilder = mCurrentBuilder = getBuilder(currentElementDescriptor, currentPath);
 						}
 
 						if (type == childClass && !stopOnStartTag && currentPath.matches(path))
 						{
-							parser.next();
+							parserContext.finishRetained(childDepth, true);
+							nextEvent(parser, currentBuilder);
 							return (T) childObject;
 						}
 						else
 						{
+							parserContext.finishRetained(childDepth, false);
 							currentObject = ((IObjectBuilder<U>) currentBuilder).update((ElementDescriptor<U>) currentElementDescriptor, (U) currentObject,
 								childClass, childObject, parserContext);
+							parserContext.finishChild();
 						}
 					}
 					else if (currentDepth == ignoreDepth)
@@ -291,12 +577,58 @@ public class XmlObjectPull
 					break;
 				}
 				case XmlPullParser.TEXT:
+				case XmlPullParser.CDSECT:
+				case XmlPullParser.ENTITY_REF:
 				{
+					// CDSECT and ENTITY_REF events are reported within the elements of streaming builders only, see nextEvent
 					if (currentDepth < ignoreDepth)
 					{
-						// update current object with text value
-						currentObject = ((IObjectBuilder<V>) currentBuilder).update((ElementDescriptor<V>) currentElementDescriptor, (V) currentObject,
-							parser.getText(), parserContext);
+						if (currentBuilder instanceof IStreamingObjectBuilder)
+						{
+							// streaming builders take the text in chunks right from the parser
+							int[] holder = mTextHolder;
+							char[] text;
+							if (next == XmlPullParser.ENTITY_REF)
+							{
+								// the text characters of an entity reference are its name, we need the replacement text
+								String replacement = parser.getText();
+								if (replacement == null)
+								{
+									throw new XmlObjectPullParserException("unresolved entity reference &" + parser.getName() + ";");
+								}
+								text = replacement.toCharArray();
+								holder[0] = 0;
+								holder[1] = text.length;
+							}
+							else
+							{
+								text = parser.getTextCharacters(holder);
+							}
+							currentObject = ((IStreamingObjectBuilder<V>) currentBuilder).update((ElementDescriptor<V>) currentElementDescriptor,
+								(V) currentObject, text, holder[0], holder[1], parserContext);
+						}
+						else if (currentBuilder instanceof ICharArrayObjectBuilder)
+						{
+							// collect the text in our buffer, this moves the parser to the next non-text event
+							int length = collectText(parser);
+							currentObject = ((ICharArrayObjectBuilder<V>) currentBuilder).update((ElementDescriptor<V>) currentElementDescriptor,
+								(V) currentObject, mTextBuffer, 0, length, parserContext);
+
+							if (mTextBuffer.length > MAX_RETAINED_TEXT_BUFFER_SIZE)
+							{
+								// don't hold on to huge buffers
+								mTextBuffer = new char[DEFAULT_TEXT_BUFFER_SIZE];
+							}
+
+							// the parser is already at the next event
+							continue;
+						}
+						else
+						{
+							// update current object with text value
+							currentObject = ((IObjectBuilder<V>) currentBuilder).update((ElementDescriptor<V>) currentElementDescriptor, (V) currentObject,
+								parser.getText(), parserContext);
+						}
 					}
 					break;
 				}
@@ -305,7 +637,126 @@ public class XmlObjectPull
 					return null;
 				}
 			}
+			nextEvent(parser, currentBuilder);
+		}
+	}
+
+
+	/**
+	 * Moves the parser to the next event. Within the elements of {@link IStreamingObjectBuilder}s the parser is advanced with
+	 * {@link XmlPullParser#nextToken()}, so it doesn't coalesce text, CDATA sections and entity references into a single text event. Comments and processing
+	 * instructions are reported as well in that case, but they are ignored by the pull loop.
+	 * 
+	 * @param parser
+	 *            The {@link XmlPullParser}.
+	 * @param currentBuilder
+	 *            The {@link IObjectBuilder} of the current element.
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	private static void nextEvent(XmlPullParser parser, IObjectBuilder<?> currentBuilder) throws XmlPullParserException, IOException
+	{
+		if (currentBuilder instanceof IStreamingObjectBuilder)
+		{
+			parser.nextToken();
+		}
+		else
+		{
 			parser.next();
 		}
 	}
+
+
+	/**
+	 * Builds the root element of the current document using the given {@link IObjectBuilder} instead of the {@link IObjectBuilder} of the given
+	 * {@link ElementDescriptor}. This is used to build {@link LazyElement}s.
+	 * 
+	 * @param descriptor
+	 *            The {@link ElementDescriptor} of the root element.
+	 * @param builder
+	 *            The {@link IObjectBuilder} to build the root element.
+	 * @return The object.
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 * @throws XmlObjectPullParserException
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T pullRoot(ElementDescriptor<?> descriptor, IObjectBuilder<T> builder) throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		mRootBuilder = builder;
+		return (T) pullInternal(descriptor, null, new XmlPath(), false, false);
+	}
+
+
+	/**
+	 * Drops the state of the current document.
+	 */
+	private void reset()
+	{
+		mCurrentElementDescriptorPath.mPathElements.clear();
+		mObjectStack.clear();
+		if (mPrefixes != null)
+		{
+			mPrefixes.clear();
+		}
+		mCurrentBuilder = null;
+		mParserContext.clearRetained();
+	}
+
+
+	/**
+	 * Returns the {@link IObjectBuilder} for the given {@link ElementDescriptor} at the end of the given path.
+	 */
+	private IObjectBuilder<?> getBuilder(ElementDescriptor<?> descriptor, XmlPath path)
+	{
+		return mRootBuilder != null && path.length() == 1 ? mRootBuilder : descriptor.builder;
+	}
+
+
+	/**
+	 * Skips the given number of bytes of an {@link InputStream}.
+	 */
+	private static InputStream skip(InputStream in, long count) throws IOException
+	{
+		while (count > 0)
+		{
+			long skipped = in.skip(count);
+			if (skipped <= 0)
+			{
+				throw new EOFException("can not skip to offset of checkpoint");
+			}
+			count -= skipped;
+		}
+		return in;
+	}
+
+
+	/**
+	 * Copies the current text and all directly following text events into {@link #mTextBuffer}. When this method returns the parser is positioned at the
+	 * first event that is not a text event.
+	 * 
+	 * @param parser
+	 *            The {@link XmlPullParser} positioned at a text event.
+	 * @return The number of chars in the text buffer.
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	private int collectText(XmlPullParser parser) throws XmlPullParserException, IOException
+	{
+		int[] holder = mTextHolder;
+		char[] buffer = mTextBuffer;
+		int length = 0;
+		do
+		{
+			char[] chars = parser.getTextCharacters(holder);
+			int chunkLength = holder[1];
+			if (length + chunkLength > buffer.length)
+			{
+				buffer = mTextBuffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + chunkLength));
+			}
+			System.arraycopy(chars, holder[0], buffer, length, chunkLength);
+			length += chunkLength;
+		} while (parser.next() == XmlPullParser.TEXT);
+		return length;
+	}
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2015 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.dmfs.xmlobjects.pull;
+
+/**
+ * An {@link XmlObjectPullParserException} that's thrown when parsing has been cancelled or the deadline of the {@link ParserContext} has passed.
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public class XmlObjectPullCancelledException extends XmlObjectPullParserException
+{
+
+	/**
+	 * Generated serial ID.
+	 */
+	private static final long serialVersionUID = -2384057124638805637L;
+
+
+	public XmlObjectPullCancelledException(String message)
+	{
+		super(message);
+	}
+
+}
@@ -17,9 +17,12 @@
 
 package org.dmfs.xmlobjects.serializer;
 
+import java.io.IOException;
 import java.util.Set;
 
 import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlCharArrayChildWriter;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 import org.xmlpull.v1.XmlSerializer;
@@ -47,6 +50,11 @@ public class SerializerContext
 	 */
 	Set<String> knownNamespaces;
 
+	/**
+	 * A buffer that builders can use to format text values.
+	 */
+	private char[] mTextBuffer;
+
 
 	public SerializerContext(XmlContext xmlContext) throws SerializerException
 	{
@@ -71,4 +79,51 @@ public class SerializerContext
 	{
 		return xmlContext;
 	}
+
+
+	/**
+	 * Returns a buffer that can hold at least the given number of characters. Builders use this to format values without creating temporary objects and
+	 * write them with {@link #writeText(IXmlChildWriter, char[], int, int)}. The same buffer is returned to all callers, so its content is only valid until
+	 * the next call.
+	 * 
+	 * @param length
+	 *            The minimum length of the buffer.
+	 * @return A char array with a length of at least length.
+	 */
+	public char[] getTextBuffer(int length)
+	{
+		if (mTextBuffer == null || mTextBuffer.length < length)
+		{
+			mTextBuffer = new char[Math.max(length, 64)];
+		}
+		return mTextBuffer;
+	}
+
+
+	/**
+	 * Writes the given characters as a text node with the given {@link IXmlChildWriter}. If the writer is an {@link IXmlCharArrayChildWriter}, like the one of
+	 * {@link XmlObjectSerializer}, the characters are written right from the array, otherwise they are converted to a {@link String}.
+	 * 
+	 * @param childWriter
+	 *            The {@link IXmlChildWriter} to write to.
+	 * @param text
+	 *            A buffer that contains the text to write.
+	 * @param start
+	 *            The position of the first character in text.
+	 * @param length
+	 *            The number of characters to write.
+	 * @throws SerializerException
+	 * @throws IOException
+	 */
+	public void writeText(IXmlChildWriter childWriter, char[] text, int start, int length) throws SerializerException, IOException
+	{
+		if (childWriter instanceof IXmlCharArrayChildWriter)
+		{
+			((IXmlCharArrayChildWriter) childWriter).writeText(text, start, length, this);
+		}
+		else
+		{
+			childWriter.writeText(new String(text, start, length), this);
+		}
+	}
 }
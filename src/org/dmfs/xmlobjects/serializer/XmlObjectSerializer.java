@@ -93,6 +93,45 @@ public class XmlObjectSerializer
 		public void writeText(String text, SerializerContext serializerContext) throws SerializerException, IOException;
 	}
 
+	/**
+	 * An {@link IXmlChildWriter} that can write text without creating temporary objects, like text nodes right from a char array. Use
+	 * {@link SerializerContext#writeText(IXmlChildWriter, char[], int, int)} to write a char array to any {@link IXmlChildWriter}.
+	 */
+	public interface IXmlCharArrayChildWriter extends IXmlChildWriter
+	{
+		/**
+		 * Add a text node with the given characters to the current element.
+		 * 
+		 * @param text
+		 *            A buffer that contains the text to write.
+		 * @param start
+		 *            The position of the first character in text.
+		 * @param length
+		 *            The number of characters to write.
+		 * @param serializerContext
+		 *            The current {@link SerializerContext}.
+		 * @throws SerializerException
+		 * @throws IOException
+		 */
+		public void writeText(char[] text, int start, int length, SerializerContext serializerContext) throws SerializerException, IOException;
+
+
+		/**
+		 * Add a child element that contains nothing but the given text. Other than {@link #writeChild(ElementDescriptor, Object, SerializerContext)} this
+		 * doesn't call the builder of the descriptor, so builders of primitive values can write them without boxing.
+		 * 
+		 * @param descriptor
+		 *            The descriptor of the child to add.
+		 * @param text
+		 *            The text of the child.
+		 * @param serializerContext
+		 *            The current {@link SerializerContext}.
+		 * @throws SerializerException
+		 * @throws IOException
+		 */
+		public void writeTextChild(ElementDescriptor<?> descriptor, String text, SerializerContext serializerContext) throws SerializerException, IOException;
+	}
+
 	/**
 	 * The actual instance of {@link IXmlAttributeWriter}.
 	 */
@@ -120,7 +159,7 @@ public class XmlObjectSerializer
 	/**
 	 * The actual instance if {@link IXmlChildWriter}.
 	 */
-	private final IXmlChildWriter mChildWriter = new IXmlChildWriter()
+	private final IXmlCharArrayChildWriter mChildWriter = new IXmlCharArrayChildWriter()
 	{
 
 		@Override
@@ -173,6 +212,45 @@ public class XmlObjectSerializer
 			}
 		}
 
+
+		@Override
+		public void writeText(char[] text, int start, int length, SerializerContext serializerContext) throws SerializerException, IOException
+		{
+			try
+			{
+				serializerContext.serializer.text(text, start, length);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new SerializerException("can not serialize text '" + new String(text, start, length) + "'", e);
+			}
+			catch (IllegalStateException e)
+			{
+				throw new SerializerException("can not serialize text '" + new String(text, start, length) + "'", e);
+			}
+		}
+
+
+		@Override
+		public void writeTextChild(ElementDescriptor<?> descriptor, String text, SerializerContext serializerContext) throws SerializerException, IOException
+		{
+			QualifiedName name = descriptor.qualifiedName;
+			try
+			{
+				serializerContext.serializer.startTag(name.namespace, name.name);
+				serializerContext.serializer.text(text);
+				serializerContext.serializer.endTag(name.namespace, name.name);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new SerializerException("can not serialize element " + name, e);
+			}
+			catch (IllegalStateException e)
+			{
+				throw new SerializerException("can not serialize element " + name, e);
+			}
+		}
+
 	};
 
 
@@ -0,0 +1,113 @@
+package org.dmfs.xml.objectpull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.Base64ObjectBuilder;
+import org.dmfs.xmlobjects.builder.Base64ObjectBuilder.OutputStreamFactory;
+import org.dmfs.xmlobjects.builder.WriterObjectBuilder;
+import org.dmfs.xmlobjects.builder.WriterObjectBuilder.WriterFactory;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+public class Base64ObjectBuilderTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<ByteArrayOutputStream> dataElement = ElementDescriptor.register("data", new Base64ObjectBuilder<ByteArrayOutputStream>(
+		new OutputStreamFactory<ByteArrayOutputStream>()
+		{
+			@Override
+			public ByteArrayOutputStream getOutputStream(ElementDescriptor<ByteArrayOutputStream> descriptor, ParserContext context)
+			{
+				return new ByteArrayOutputStream();
+			}
+		}), testContext);
+
+	ElementDescriptor<ChunkWriter> textElement = ElementDescriptor.register("text", new WriterObjectBuilder<ChunkWriter>(new WriterFactory<ChunkWriter>()
+	{
+		@Override
+		public ChunkWriter getWriter(ElementDescriptor<ChunkWriter> descriptor, ParserContext context)
+		{
+			return new ChunkWriter();
+		}
+	}), testContext);
+
+	/**
+	 * A {@link StringWriter} that records the chunks it receives.
+	 */
+	private static class ChunkWriter extends StringWriter
+	{
+		final List<String> chunks = new ArrayList<String>();
+
+
+		@Override
+		public void write(char[] cbuf, int off, int len)
+		{
+			chunks.add(new String(cbuf, off, len));
+			super.write(cbuf, off, len);
+		}
+	}
+
+
+	@Test
+	public void testDecode() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		assertEquals("", pull("<data></data>"));
+		assertEquals("Hello World", pull("<data>SGVsbG8gV29ybGQ=</data>"));
+		assertEquals("Hello World!", pull("<data>SGVsbG8gV29ybGQh</data>"));
+		assertEquals("Hello Worl", pull("<data>SGVsbG8gV29ybA==</data>"));
+
+		// missing padding
+		assertEquals("Hello Worl", pull("<data>SGVsbG8gV29ybA</data>"));
+
+		// white space and text that's split into multiple chunks
+		assertEquals("Hello World", pull("<data>\n  SGVs\n  bG8g<!-- chunk -->V29y\n  bGQ=\n</data>"));
+	}
+
+
+	@Test
+	public void testChunks() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		// text, CDATA sections and entity references are passed as they are reported by the parser
+		assertEquals("Hello World", pull("<data>SGVs<![CDATA[bG8g]]>V29y&#98;GQ=</data>"));
+
+		ChunkWriter writer = PullFixture.pull(testContext, textElement, "<text>abc<![CDATA[<def>]]>ghi&amp;jkl<!-- comment --></text>");
+
+		assertEquals("abc<def>ghi&jkl", writer.toString());
+		assertTrue(writer.chunks.size() >= 3);
+		assertEquals("abc", writer.chunks.get(0));
+		assertEquals("<def>", writer.chunks.get(1));
+	}
+
+
+	@Test(expected = XmlObjectPullParserException.class)
+	public void testIllegalCharacter() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		pull("<data>SGVsbG8*V29ybGQ=</data>");
+	}
+
+
+	@Test(expected = XmlObjectPullParserException.class)
+	public void testDataAfterPadding() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		pull("<data>SGVsbG8gV29ybA==SGVs</data>");
+	}
+
+
+	private String pull(String xml) throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		return new String(PullFixture.pull(testContext, dataElement, xml).toByteArray(), "UTF-8");
+	}
+}
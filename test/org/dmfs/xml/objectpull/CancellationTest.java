@@ -0,0 +1,152 @@
+package org.dmfs.xml.objectpull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
+import org.dmfs.xmlobjects.pull.XmlObjectPullCancelledException;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.pull.XmlPath;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+
+public class CancellationTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<String> rootElement = ElementDescriptor.register("root", StringObjectBuilder.INSTANCE, testContext);
+	ElementDescriptor<String> itemElement = ElementDescriptor.register("item", StringObjectBuilder.INSTANCE, testContext);
+
+
+	@Test(expected = XmlObjectPullCancelledException.class)
+	public void testDeadline() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		ParserContext parserContext = new ParserContext();
+		parserContext.setTimeout(0, TimeUnit.MILLISECONDS);
+
+		XmlObjectPull op = new XmlObjectPull(getParser(new StringReader(largeDocument())), parserContext);
+		op.setContext(testContext);
+		op.pull(rootElement, null, new XmlPath());
+	}
+
+
+	@Test
+	public void testCancel() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		ParserContext parserContext = new ParserContext();
+		XmlObjectPull op = new XmlObjectPull(getParser(null), new StringReader(largeDocument() + "<root>second</root>"), parserContext);
+		op.setContext(testContext);
+		XmlPath path = new XmlPath(rootElement);
+
+		assertTrue(op.nextDocument());
+		assertEquals("0", op.pull(itemElement, null, path));
+
+		parserContext.cancel();
+		assertTrue(parserContext.isCancelled());
+		try
+		{
+			while (op.pull(itemElement, null, path) != null)
+			{
+			}
+			throw new AssertionError("parsing has not been cancelled");
+		}
+		catch (XmlObjectPullCancelledException e)
+		{
+			// expected
+		}
+
+		// the document stays cancelled
+		try
+		{
+			op.pull(itemElement, null, path);
+			throw new AssertionError("parsing has not been cancelled");
+		}
+		catch (XmlObjectPullCancelledException e)
+		{
+			// expected
+		}
+
+		// continue with the next document
+		parserContext.clearCancellation();
+		assertTrue(op.nextDocument());
+		assertEquals("second", op.pull(rootElement, null, new XmlPath()));
+	}
+
+
+	@Test
+	public void testSingleDocument() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		ParserContext parserContext = new ParserContext();
+		XmlObjectPull op = new XmlObjectPull(getParser(new StringReader(largeDocument())), parserContext);
+		op.setContext(testContext);
+		XmlPath path = new XmlPath(rootElement);
+
+		assertEquals("0", op.pull(itemElement, null, path));
+		parserContext.cancel();
+		try
+		{
+			while (op.pull(itemElement, null, path) != null)
+			{
+			}
+			throw new AssertionError("parsing has not been cancelled");
+		}
+		catch (XmlObjectPullCancelledException e)
+		{
+			// expected
+		}
+
+		// clearing the cancellation doesn't revive the cancelled instance
+		parserContext.clearCancellation();
+		try
+		{
+			op.pull(itemElement, null, path);
+			throw new AssertionError("parsing has not been cancelled");
+		}
+		catch (XmlObjectPullCancelledException e)
+		{
+			// expected
+		}
+
+		// but the ParserContext can be used to parse the document again
+		op = new XmlObjectPull(getParser(new StringReader(largeDocument())), parserContext);
+		op.setContext(testContext);
+		assertEquals("0", op.pull(itemElement, null, path));
+	}
+
+
+	private String largeDocument()
+	{
+		StringBuilder document = new StringBuilder(32 * 1024);
+		document.append("<root>");
+		for (int i = 0; i < 2000; ++i)
+		{
+			document.append("<item>").append(i).append("</item>");
+		}
+		document.append("</root>");
+		return document.toString();
+	}
+
+
+	private XmlPullParser getParser(StringReader input) throws XmlPullParserException
+	{
+		XmlPullParserFactory ppfactory = XmlPullParserFactory.newInstance();
+		ppfactory.setNamespaceAware(true);
+		XmlPullParser parser = ppfactory.newPullParser();
+		if (input != null)
+		{
+			parser.setInput(input);
+		}
+		return parser;
+	}
+}
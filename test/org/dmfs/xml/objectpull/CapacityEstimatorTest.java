@@ -0,0 +1,80 @@
+package org.dmfs.xml.objectpull;
+
+import static org.dmfs.xml.objectpull.PullFixture.pull;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.CapacityEstimator;
+import org.dmfs.xmlobjects.builder.ElementMapObjectBuilder;
+import org.dmfs.xmlobjects.builder.ListObjectBuilder;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+public class CapacityEstimatorTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<String> itemElement = ElementDescriptor.register("item", StringObjectBuilder.INSTANCE, testContext);
+
+	ListObjectBuilder<String> listBuilder = new ListObjectBuilder<String>(itemElement, CapacityEstimator.ADAPTIVE_CAPACITY);
+
+	ElementDescriptor<List<String>> listElement = ElementDescriptor.register("list", listBuilder, testContext);
+
+	ElementDescriptor<List<String>> otherListElement = ElementDescriptor.register("other", listBuilder, testContext);
+
+	ElementMapObjectBuilder mapBuilder = new ElementMapObjectBuilder(CapacityEstimator.ADAPTIVE_CAPACITY);
+
+	ElementDescriptor<Map<ElementDescriptor<?>, Object>> mapElement = ElementDescriptor.register("map", mapBuilder, testContext);
+
+
+	@Test
+	public void testEstimator()
+	{
+		CapacityEstimator estimator = new CapacityEstimator(16);
+		assertEquals(16, estimator.getEstimatedSize(listElement));
+
+		estimator.record(listElement, 100);
+		assertEquals(100, estimator.getEstimatedSize(listElement));
+		assertEquals(134, estimator.getHashCapacity(listElement));
+
+		// a single outlier has only little effect
+		estimator.record(listElement, 0);
+		assertEquals(88, estimator.getEstimatedSize(listElement));
+
+		// the estimate follows the sizes
+		for (int i = 0; i < 100; ++i)
+		{
+			estimator.record(listElement, 1);
+		}
+		assertEquals(1, estimator.getEstimatedSize(listElement));
+
+		// other descriptors are not affected
+		assertEquals(16, estimator.getEstimatedSize(otherListElement));
+	}
+
+
+	@Test
+	public void testAdaptiveBuilders() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		assertEquals(3, pull(testContext, listElement, "<list><item>a</item><item>b</item><item>c</item></list>").size());
+		assertEquals(1, pull(testContext, otherListElement, "<other><item>a</item></other>").size());
+		assertEquals(1, pull(testContext, mapElement, "<map><item>a</item></map>").size());
+
+		// each descriptor has its own estimate
+		assertEquals(3, listBuilder.getCapacityEstimator().getEstimatedSize(listElement));
+		assertEquals(1, listBuilder.getCapacityEstimator().getEstimatedSize(otherListElement));
+		assertEquals(1, mapBuilder.getCapacityEstimator().getEstimatedSize(mapElement));
+
+		// builders with a fixed capacity don't have an estimator
+		assertNull(new ListObjectBuilder<String>(itemElement).getCapacityEstimator());
+	}
+}
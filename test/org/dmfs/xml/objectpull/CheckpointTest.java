@@ -0,0 +1,128 @@
+package org.dmfs.xml.objectpull;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.Checkpoint;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.pull.XmlPath;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+
+public class CheckpointTest
+{
+	private final static String NS = "urn:test";
+
+	private final static String DOCUMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<i:import xmlns:i=\"urn:test\">\n"
+		+ "<i:batch><i:record>\u00e4 1</i:record>\n<i:record>\u00f6 2</i:record></i:batch>\n"
+		+ "<i:batch><i:record>\u00fc 3</i:record><i:record>4</i:record></i:batch>\n"
+		+ "<i:batch><i:record>5</i:record></i:batch></i:import>";
+
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<String> importElement = ElementDescriptor.register(QualifiedName.get(NS, "import"), StringObjectBuilder.INSTANCE, testContext);
+	ElementDescriptor<String> batchElement = ElementDescriptor.register(QualifiedName.get(NS, "batch"), StringObjectBuilder.INSTANCE, testContext);
+	ElementDescriptor<String> recordElement = ElementDescriptor.register(QualifiedName.get(NS, "record"), StringObjectBuilder.INSTANCE, testContext);
+
+
+	@Test
+	public void testResume() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		byte[] document = DOCUMENT.getBytes("UTF-8");
+		XmlPath path = new XmlPath(importElement, batchElement);
+
+		XmlObjectPull op = new XmlObjectPull(getParser(), new ByteArrayInputStream(document), Charset.forName("UTF-8"), new ParserContext());
+		op.setContext(testContext);
+
+		// pull 2 records, then take a checkpoint at the 3rd one
+		assertEquals(true, op.moveToNext(recordElement, path));
+		assertEquals("\u00e4 1", op.pull(recordElement, null, path));
+		assertEquals(true, op.moveToNext(recordElement, path));
+		assertEquals("\u00f6 2", op.pull(recordElement, null, path));
+		assertEquals(true, op.moveToNext(recordElement, path));
+		Checkpoint checkpoint = op.getCheckpoint();
+		assertEquals(DOCUMENT.substring(0, DOCUMENT.indexOf("<i:record>\u00fc")).getBytes("UTF-8").length, checkpoint.offset);
+
+		// persist the checkpoint
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		checkpoint.writeTo(new DataOutputStream(out));
+		checkpoint = Checkpoint.readFrom(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+
+		// resume with a new parser
+		op = new XmlObjectPull(getParser(), new ByteArrayInputStream(document), Charset.forName("UTF-8"), checkpoint, new ParserContext());
+		op.setContext(testContext);
+		path = checkpoint.getPath(testContext);
+
+		List<String> records = new ArrayList<String>();
+		List<Long> offsets = new ArrayList<Long>();
+		while (op.moveToNext(recordElement, path))
+		{
+			offsets.add(op.getCheckpoint().offset);
+			records.add(op.pull(recordElement, null, path));
+		}
+		assertEquals(3, records.size());
+		assertEquals("\u00fc 3", records.get(0));
+		assertEquals("4", records.get(1));
+		assertEquals("5", records.get(2));
+
+		// checkpoints of a resumed parser refer to the original document
+		assertEquals(checkpoint.offset, (long) offsets.get(0));
+		assertEquals(DOCUMENT.substring(0, DOCUMENT.indexOf("<i:record>5")).getBytes("UTF-8").length, (long) offsets.get(2));
+	}
+
+
+	@Test
+	public void testLongDocument() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		// a document that's much longer than the positions the reader retains
+		StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<i:import xmlns:i=\"urn:test\">\n<i:batch>");
+		for (int i = 0; i < 20000; ++i)
+		{
+			builder.append("<i:record>\u00e4 ").append(i).append("</i:record>\n");
+		}
+		builder.append("</i:batch></i:import>");
+		String document = builder.toString();
+		XmlPath path = new XmlPath(importElement, batchElement);
+
+		XmlObjectPull op = new XmlObjectPull(getParser(), new ByteArrayInputStream(document.getBytes("UTF-8")), Charset.forName("UTF-8"),
+			new ParserContext());
+		op.setContext(testContext);
+
+		// take a checkpoint at the first and at the last record only
+		assertEquals(true, op.moveToNext(recordElement, path));
+		assertEquals(document.indexOf("<i:record>"), op.getCheckpoint().offset);
+		assertEquals("\u00e4 0", op.pull(recordElement, null, path));
+		for (int i = 1; i < 19999; ++i)
+		{
+			assertEquals(true, op.moveToNext(recordElement, path));
+			op.pull(recordElement, null, path);
+		}
+		assertEquals(true, op.moveToNext(recordElement, path));
+		assertEquals(document.substring(0, document.indexOf("<i:record>\u00e4 19999<")).getBytes("UTF-8").length, op.getCheckpoint().offset);
+	}
+
+
+	private XmlPullParser getParser() throws XmlPullParserException
+	{
+		XmlPullParserFactory ppfactory = XmlPullParserFactory.newInstance();
+		ppfactory.setNamespaceAware(true);
+		return ppfactory.newPullParser();
+	}
+}
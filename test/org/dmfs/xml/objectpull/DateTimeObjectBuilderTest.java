@@ -0,0 +1,113 @@
+package org.dmfs.xml.objectpull;
+
+import static org.dmfs.xml.objectpull.PullFixture.serialize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.CalendarObjectBuilder;
+import org.dmfs.xmlobjects.builder.DateObjectBuilder;
+import org.dmfs.xmlobjects.builder.EpochMillisObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.junit.Test;
+
+
+public class DateTimeObjectBuilderTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<Long> millisElement = ElementDescriptor.register("millis", EpochMillisObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<Date> dateElement = ElementDescriptor.register("date", DateObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<Calendar> calendarElement = ElementDescriptor.register("calendar", CalendarObjectBuilder.INSTANCE, testContext);
+
+
+	@Test
+	public void testEpochMillis() throws XmlObjectPullParserException
+	{
+		EpochMillisObjectBuilder builder = EpochMillisObjectBuilder.INSTANCE;
+		ParserContext pc = new ParserContext();
+
+		assertEquals((Long) 1429784430123L, builder.update(millisElement, null, "2015-04-23T10:20:30.123Z", pc));
+		assertEquals((Long) 1429784430123L, builder.update(millisElement, null, " 2015-04-23T12:20:30.123456+02:00\n", pc));
+		assertEquals((Long) 1429784430000L, builder.update(millisElement, null, "20150423T102030Z", pc));
+		assertEquals((Long) 1429784430000L, builder.update(millisElement, null, "20150423T082030-0200", pc));
+		assertEquals((Long) 1429784400000L, builder.update(millisElement, null, "2015-04-23t10:20", pc));
+		assertEquals((Long) 1429747200000L, builder.update(millisElement, null, "2015-04-23", pc));
+		assertEquals((Long) 951782400000L, builder.update(millisElement, null, "2000-02-29", pc));
+		assertEquals((Long) (-62135596800000L), builder.update(millisElement, null, "0001-01-01T00:00:00Z", pc));
+		assertEquals((Long) 253402300800000L, builder.update(millisElement, null, "+10000-01-01T00:00:00Z", pc));
+
+		// invalid values result in null values
+		assertNull(builder.update(millisElement, 1L, (String) null, pc));
+		assertNull(builder.update(millisElement, 1L, "", pc));
+		assertNull(builder.update(millisElement, 1L, "N/A", pc));
+		assertNull(builder.update(millisElement, 1L, "2015-02-29", pc));
+		assertNull(builder.update(millisElement, 1L, "2015-04-23T24:00:00Z", pc));
+		assertNull(builder.update(millisElement, 1L, "2015-04-23T10:20:30+2", pc));
+		assertNull(builder.update(millisElement, 1L, "2015-04-23T1020", pc));
+
+		// char arrays
+		assertEquals((Long) 1429784430000L, builder.update(millisElement, null, "xx 2015-04-23T10:20:30Z xx".toCharArray(), 2, 22, pc));
+	}
+
+
+	@Test(expected = XmlObjectPullParserException.class)
+	public void testStrictBuilder() throws XmlObjectPullParserException
+	{
+		EpochMillisObjectBuilder.INSTANCE_STRICT.update(millisElement, null, "2015-04-31", new ParserContext());
+	}
+
+
+	@Test
+	public void testDate() throws XmlObjectPullParserException
+	{
+		ParserContext pc = new ParserContext();
+		Date recycled = new Date(0);
+
+		Date date = DateObjectBuilder.INSTANCE.update(dateElement, DateObjectBuilder.INSTANCE.get(dateElement, recycled, pc), "2015-04-23T10:20:30Z", pc);
+		assertSame(recycled, date);
+		assertEquals(1429784430000L, date.getTime());
+	}
+
+
+	@Test
+	public void testCalendar() throws XmlObjectPullParserException
+	{
+		ParserContext pc = new ParserContext();
+
+		Calendar calendar = CalendarObjectBuilder.INSTANCE.update(calendarElement, null, "2015-04-23T12:20:30.5+02:00", pc);
+		assertEquals(1429784430500L, calendar.getTimeInMillis());
+		assertEquals(12, calendar.get(Calendar.HOUR_OF_DAY));
+		assertEquals(2 * 3600000, calendar.getTimeZone().getRawOffset());
+
+		// recycle the calendar
+		Calendar recycled = CalendarObjectBuilder.INSTANCE.update(calendarElement, calendar, "2015-04-23T10:20:30Z", pc);
+		assertSame(calendar, recycled);
+		assertEquals(10, recycled.get(Calendar.HOUR_OF_DAY));
+		assertEquals(0, recycled.getTimeZone().getRawOffset());
+	}
+
+
+	@Test
+	public void testSerialize() throws SerializerException, IOException, XmlObjectPullParserException
+	{
+		ParserContext pc = new ParserContext();
+
+		assertEquals("<millis>2015-04-23T10:20:30.123Z</millis>", serialize(testContext, millisElement, 1429784430123L));
+		assertEquals("<millis>1969-12-31T23:59:59.999Z</millis>", serialize(testContext, millisElement, -1L));
+		assertEquals("<millis>-0001-01-01T00:00:00Z</millis>", serialize(testContext, millisElement, -62198755200000L));
+		assertEquals("<date>2015-04-23T10:20:30Z</date>", serialize(testContext, dateElement, new Date(1429784430000L)));
+		assertEquals("<calendar>2015-04-23T05:50:30.050-04:30</calendar>",
+			serialize(testContext, calendarElement, CalendarObjectBuilder.INSTANCE.update(calendarElement, null, "2015-04-23T05:50:30.05-04:30", pc)));
+	}
+}
@@ -0,0 +1,81 @@
+package org.dmfs.xml.objectpull;
+
+import static org.dmfs.xml.objectpull.PullFixture.pull;
+import static org.dmfs.xml.objectpull.PullFixture.serialize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.DoubleList;
+import org.dmfs.xmlobjects.builder.DoubleListObjectBuilder;
+import org.dmfs.xmlobjects.builder.DoubleObjectBuilder;
+import org.dmfs.xmlobjects.builder.IntList;
+import org.dmfs.xmlobjects.builder.IntListObjectBuilder;
+import org.dmfs.xmlobjects.builder.IntegerObjectBuilder;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+public class DoubleListObjectBuilderTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<Double> valueElement = ElementDescriptor.register("v", DoubleObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<DoubleList> valuesElement = ElementDescriptor.register("values", new DoubleListObjectBuilder(valueElement, 2), testContext);
+
+	ElementDescriptor<Integer> countElement = ElementDescriptor.register("c", IntegerObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<IntList> countsElement = ElementDescriptor.register("counts", new IntListObjectBuilder(countElement), testContext);
+
+
+	@Test
+	public void testPull() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		DoubleList values = pull(testContext, valuesElement, "<values><v>1.25</v><v>1.3</v><other>1</other><v>N/A</v><v>-2</v></values>");
+
+		// invalid values are skipped, the list grows beyond its initial capacity
+		assertEquals(3, values.size());
+		assertEquals(1.25, values.get(0), 0);
+		assertEquals(1.3, values.get(1), 0);
+		assertEquals(-2, values.get(2), 0);
+
+		IntList counts = pull(testContext, countsElement, "<counts><c>1</c><c>2</c></counts>");
+		assertEquals(2, counts.size());
+		assertEquals(1, counts.get(0));
+		assertEquals(2, counts.get(1));
+	}
+
+
+	@Test
+	public void testRecycle() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		DoubleList recycle = pull(testContext, valuesElement, "<values><v>1</v><v>2</v><v>3</v></values>");
+		DoubleList values = pull(testContext, valuesElement, "<values><v>4</v></values>", recycle);
+
+		assertTrue(recycle == values);
+		assertEquals(1, values.size());
+		assertEquals(4, values.get(0), 0);
+	}
+
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		pull(testContext, valuesElement, "<values><v>1</v></values>").get(1);
+	}
+
+
+	@Test
+	public void testSerialize() throws XmlPullParserException, IOException, XmlObjectPullParserException, SerializerException
+	{
+		DoubleList values = pull(testContext, valuesElement, "<values><v>1.25</v><v>-2.0</v></values>");
+
+		assertEquals("<values><v>1.25</v><v>-2.0</v></values>", serialize(testContext, valuesElement, values));
+	}
+}
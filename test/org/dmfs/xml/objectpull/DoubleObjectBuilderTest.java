@@ -0,0 +1,110 @@
+package org.dmfs.xml.objectpull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.DoubleObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.junit.Test;
+
+
+public class DoubleObjectBuilderTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<Double> doubleElement = ElementDescriptor.register("Test", DoubleObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<Double> doubleElementStrict = ElementDescriptor.register("TestStrict", DoubleObjectBuilder.INSTANCE_STRICT, testContext);
+
+
+	@Test
+	public void testNonStrictBuilder() throws XmlObjectPullParserException
+	{
+		DoubleObjectBuilder sob = DoubleObjectBuilder.INSTANCE;
+		ParserContext pc = new ParserContext();
+
+		assertEquals((Double) 1.5, sob.update(doubleElement, null, "1.5", pc));
+		assertEquals((Double) 1.5, sob.update(doubleElement, null, " \n1.5\t", pc));
+		assertEquals((Double) (-0.5), sob.update(doubleElement, null, "-.5", pc));
+		assertEquals((Double) 1200.0, sob.update(doubleElement, null, "1.2E3", pc));
+		assertEquals((Double) 0.012, sob.update(doubleElement, null, "+1.2e-2", pc));
+		assertEquals((Double) 3.0, sob.update(doubleElement, null, "3.", pc));
+		assertEquals((Double) Double.NEGATIVE_INFINITY, sob.update(doubleElement, null, "-Infinity", pc));
+		assertEquals((Double) Double.NaN, sob.update(doubleElement, null, "NaN", pc));
+
+		// invalid values result in null values
+		assertNull(sob.update(doubleElement, 1.0, (String) null, pc));
+		assertNull(sob.update(doubleElement, 1.0, "", pc));
+		assertNull(sob.update(doubleElement, 1.0, "  ", pc));
+		assertNull(sob.update(doubleElement, 1.0, "N/A", pc));
+		assertNull(sob.update(doubleElement, 1.0, ".", pc));
+		assertNull(sob.update(doubleElement, 1.0, "1e", pc));
+		assertNull(sob.update(doubleElement, 1.0, "1.2.3", pc));
+		assertNull(sob.update(doubleElement, 1.0, "1 2", pc));
+
+		// char arrays
+		assertEquals((Double) 1.5, sob.update(doubleElement, null, "xx 1.5 xx".toCharArray(), 2, 5, pc));
+		assertNull(sob.update(doubleElement, 1.0, "xx - xx".toCharArray(), 2, 3, pc));
+	}
+
+
+	@Test
+	public void testPrecision() throws XmlObjectPullParserException
+	{
+		DoubleObjectBuilder sob = DoubleObjectBuilder.INSTANCE;
+		ParserContext pc = new ParserContext();
+
+		String[] values = { "0.1", "-0.0", "1e23", "9007199254740993", "2.2250738585072011e-308", "2.2250738585072012e-308", "4.9e-324", "2.4703282292062328e-324",
+			"1.7976931348623157e308", "1.7976931348623159e308", "1e-400", "1e400", "123456789012345678901234567890", "0.000000000000000000001234567890123456789",
+			"3.141592653589793238462643383279", "1.5f", "2D" };
+		for (String value : values)
+		{
+			// the result must be identical to the result of Double.parseDouble, including the sign of zero
+			assertEquals(value, Double.doubleToRawLongBits(Double.parseDouble(value)), Double.doubleToRawLongBits(sob.update(doubleElement, null, value, pc)));
+			assertEquals(value, Double.doubleToRawLongBits(Double.parseDouble(value)),
+				Double.doubleToRawLongBits(sob.update(doubleElement, null, (" " + value + " ").toCharArray(), 0, value.length() + 2, pc)));
+		}
+	}
+
+
+	@Test
+	public void testStrictHexadecimal() throws XmlObjectPullParserException
+	{
+		assertEquals((Double) 1.0, DoubleObjectBuilder.INSTANCE_STRICT.update(doubleElementStrict, null, "0x1p0", new ParserContext()));
+	}
+
+
+	@Test
+	public void testSerialize() throws SerializerException, IOException
+	{
+		double[] values = { 0.0, -0.0, 1.0, -1.5, 0.1, 0.001, 123.456, 9999999.0, 1e7, 1e-4, -2.5e-7, 1.5e300, 1e-290, Math.PI, 1.0 / 3, 100.0 / 3,
+			Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN, Double.NEGATIVE_INFINITY };
+		for (double value : values)
+		{
+			assertEquals(Double.toString(value), serialize(value));
+		}
+
+		// the shortest text, some versions of Double.toString write more digits for these
+		assertEquals("1.0E23", serialize(1e23));
+		assertEquals("4.5714E21", serialize(4.5714e21));
+	}
+
+
+	private String serialize(Double value) throws SerializerException, IOException
+	{
+		return PullFixture.serialize(testContext, doubleElement, value).replace("<Test>", "").replace("</Test>", "");
+	}
+
+
+	@Test(expected = XmlObjectPullParserException.class)
+	public void testStrictBuilder() throws XmlObjectPullParserException
+	{
+		DoubleObjectBuilder.INSTANCE_STRICT.update(doubleElementStrict, null, "N/A", new ParserContext());
+	}
+}
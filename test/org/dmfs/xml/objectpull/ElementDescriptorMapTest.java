@@ -0,0 +1,132 @@
+package org.dmfs.xml.objectpull;
+
+import static org.dmfs.xml.objectpull.PullFixture.pull;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.ElementDescriptorMap;
+import org.dmfs.xmlobjects.builder.ElementMapObjectBuilder;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+public class ElementDescriptorMapTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<Map<ElementDescriptor<?>, Object>> valuesElement = ElementDescriptor.register("values", ElementMapObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<String> xElement = ElementDescriptor.register("x", StringObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<String> yElement = ElementDescriptor.register("y", StringObjectBuilder.INSTANCE, testContext);
+
+
+	@Test
+	public void testOrdinals()
+	{
+		// descriptors registered together have consecutive ordinals
+		assertEquals(valuesElement.ordinal + 1, xElement.ordinal);
+		assertEquals(xElement.ordinal + 1, yElement.ordinal);
+	}
+
+
+	@Test
+	public void testMap()
+	{
+		// descriptors of two contexts
+		List<ElementDescriptor<?>> descriptors = new ArrayList<ElementDescriptor<?>>();
+		XmlContext otherContext = new XmlContext();
+		for (int i = 0; i < 40; ++i)
+		{
+			descriptors.add(ElementDescriptor.register("element" + i, StringObjectBuilder.INSTANCE, i % 2 == 0 ? testContext : otherContext));
+		}
+
+		Random random = new Random(3);
+		ElementDescriptorMap<Integer> map = new ElementDescriptorMap<Integer>(0);
+		Map<ElementDescriptor<?>, Integer> reference = new LinkedHashMap<ElementDescriptor<?>, Integer>();
+		for (int i = 0; i < 5000; ++i)
+		{
+			ElementDescriptor<?> key = descriptors.get(random.nextInt(i < 2500 ? 12 : 40));
+			if (random.nextInt(4) == 0)
+			{
+				assertEquals(reference.remove(key), map.remove(key));
+			}
+			else
+			{
+				assertEquals(reference.put(key, i), map.put(key, i));
+			}
+
+			assertEquals(reference.size(), map.size());
+			for (ElementDescriptor<?> descriptor : descriptors)
+			{
+				assertEquals(reference.get(descriptor), map.get(descriptor));
+			}
+		}
+
+		// same entries in the same order
+		assertEquals(new ArrayList<Map.Entry<ElementDescriptor<?>, Integer>>(reference.entrySet()),
+			new ArrayList<Map.Entry<ElementDescriptor<?>, Integer>>(map.entrySet()));
+		assertEquals(reference, map);
+		assertEquals(reference.hashCode(), map.hashCode());
+
+		assertNull(map.get("x"));
+		assertFalse(map.containsKey(null));
+	}
+
+
+	@Test
+	public void testIteratorRemove()
+	{
+		ElementDescriptorMap<String> map = new ElementDescriptorMap<String>(2);
+		map.put(xElement, "x");
+		map.put(yElement, "y");
+		map.put(valuesElement, "values");
+
+		Iterator<Map.Entry<ElementDescriptor<?>, String>> iterator = map.entrySet().iterator();
+		while (iterator.hasNext())
+		{
+			if (iterator.next().getKey() == yElement)
+			{
+				iterator.remove();
+			}
+		}
+
+		assertEquals(2, map.size());
+		assertEquals("x", map.get(xElement));
+		assertFalse(map.containsKey(yElement));
+		assertEquals("values", map.get(valuesElement));
+	}
+
+
+	@Test(expected = NullPointerException.class)
+	public void testNullKey()
+	{
+		new ElementDescriptorMap<String>(2).put(null, "x");
+	}
+
+
+	@Test
+	public void testPull() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		Map<ElementDescriptor<?>, Object> values = pull(testContext, valuesElement, "<values><x>1</x><y>2</y></values>");
+
+		assertTrue(values instanceof ElementDescriptorMap);
+		assertEquals(2, values.size());
+		assertEquals("1", values.get(xElement));
+		assertEquals("2", values.get(yElement));
+	}
+}
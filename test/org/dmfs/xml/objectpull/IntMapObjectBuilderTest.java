@@ -0,0 +1,112 @@
+package org.dmfs.xml.objectpull;
+
+import static org.dmfs.xml.objectpull.PullFixture.pull;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.IntMapObjectBuilder;
+import org.dmfs.xmlobjects.builder.IntObjectMap;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+public class IntMapObjectBuilderTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<String> nameElement = ElementDescriptor.register("name", StringObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<IntObjectMap<String>> intMapElement = ElementDescriptor.register("names",
+		new IntMapObjectBuilder<String>(new IntMapObjectBuilder.Mapper<String>()
+		{
+			@Override
+			public int getIndex(ElementDescriptor<String> descriptor, String value)
+			{
+				return value.length();
+			}
+		}, nameElement), testContext);
+
+	@Test
+	public void testIntObjectMap()
+	{
+		Random random = new Random(7);
+		IntObjectMap<Integer> map = new IntObjectMap<Integer>(0);
+		Map<Integer, Integer> reference = new HashMap<Integer, Integer>();
+		for (int i = 0; i < 10000; ++i)
+		{
+			int key = random.nextInt(5000) - 2500;
+			assertEquals(reference.put(key, i), map.put(key, i));
+		}
+
+		assertEquals(reference.size(), map.size());
+		for (int key = -3000; key < 3000; ++key)
+		{
+			assertEquals(reference.get(key), map.get(key));
+			assertEquals(reference.containsKey(key), map.containsKey(key));
+		}
+
+		map.compact();
+		assertTrue(map.isReadOnly());
+		for (int i = 0; i < map.size(); ++i)
+		{
+			assertEquals(reference.get(map.keyAt(i)), map.valueAt(i));
+		}
+	}
+
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly()
+	{
+		IntObjectMap<String> map = new IntObjectMap<String>(4);
+		map.put(1, "a");
+		map.compact().put(2, "b");
+	}
+
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds()
+	{
+		new IntObjectMap<String>(4).valueAt(0);
+	}
+
+
+	@Test
+	public void testPull() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		IntObjectMap<String> map = pull(testContext, intMapElement, "<names><name>a</name><name>bbb</name><name>c</name></names>");
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(1));
+		assertEquals("bbb", map.get(3));
+		assertNull(map.get(2));
+		assertTrue(map.isReadOnly());
+	}
+
+
+	@Test
+	public void testRecycle() throws XmlObjectPullParserException
+	{
+		IntObjectMap<String> recycled = new IntObjectMap<String>(4);
+		recycled.put(5, "x");
+		recycled.compact();
+
+		IntObjectMap<String> map = intMapElement.builder.get(intMapElement, recycled, new ParserContext());
+		assertSame(recycled, map);
+		assertEquals(0, map.size());
+		assertFalse(map.isReadOnly());
+		map.put(1, "a");
+		assertEquals("a", map.get(1));
+	}
+}
@@ -3,15 +3,24 @@ package org.dmfs.xml.objectpull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
+import java.io.IOException;
+import java.io.StringReader;
+
 import org.dmfs.xmlobjects.ElementDescriptor;
 import org.dmfs.xmlobjects.QualifiedName;
 import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.ICharArrayObjectBuilder;
 import org.dmfs.xmlobjects.builder.IObjectBuilder;
 import org.dmfs.xmlobjects.builder.IntegerObjectBuilder;
 import org.dmfs.xmlobjects.builder.StringObjectBuilder;
 import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
 import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.pull.XmlPath;
 import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
 
 
 public class IntegerObjectBuilderTest
@@ -64,6 +73,12 @@ public class IntegerObjectBuilderTest
 		// test adding a text element with spaces with previous value, the new value should override the old one.
 		assertEquals((Integer) 12, sob.update(integerElementNonStrict, 456, " 12 ", pc));
 
+		// test invalid values, they result in null values
+		assertNull(sob.update(integerElementNonStrict, 12, "", pc));
+		assertNull(sob.update(integerElementNonStrict, 12, "N/A", pc));
+		assertNull(sob.update(integerElementNonStrict, 12, "1 2", pc));
+		assertNull(sob.update(integerElementNonStrict, 12, "2147483648", pc));
+
 		// test adding null element without previous value
 		assertNull(sob.update(integerElementNonStrict, null, null, pc));
 
@@ -111,4 +126,54 @@ public class IntegerObjectBuilderTest
 		assertNull(sob.finish(integerElementStrict, null, pc));
 		assertEquals((Integer) 928374, sob.finish(integerElementStrict, 928374, pc));
 	}
+
+
+	@Test
+	public void testCharArray() throws XmlObjectPullParserException
+	{
+		ICharArrayObjectBuilder<Integer> sob = IntegerObjectBuilder.INSTANCE;
+		ParserContext pc = new ParserContext();
+
+		// test parsing a range of a char array
+		assertEquals((Integer) 12, sob.update(integerElementNonStrict, null, "xx12xx".toCharArray(), 2, 2, pc));
+		assertEquals((Integer) 12, sob.update(integerElementNonStrict, 456, " \n 12\t ".toCharArray(), 0, 7, pc));
+		assertEquals((Integer) (-12), sob.update(integerElementNonStrict, null, "-12".toCharArray(), 0, 3, pc));
+		assertEquals((Integer) 12, sob.update(integerElementNonStrict, null, "+12".toCharArray(), 0, 3, pc));
+
+		// test the limits
+		assertEquals((Integer) Integer.MAX_VALUE, sob.update(integerElementNonStrict, null, "2147483647".toCharArray(), 0, 10, pc));
+		assertEquals((Integer) Integer.MIN_VALUE, sob.update(integerElementNonStrict, null, "-2147483648".toCharArray(), 0, 11, pc));
+		assertNull(sob.update(integerElementNonStrict, null, "2147483648".toCharArray(), 0, 10, pc));
+		assertNull(sob.update(integerElementNonStrict, null, "-2147483649".toCharArray(), 0, 11, pc));
+
+		// test invalid values
+		assertNull(sob.update(integerElementNonStrict, 12, "".toCharArray(), 0, 0, pc));
+		assertNull(sob.update(integerElementNonStrict, 12, "  ".toCharArray(), 0, 2, pc));
+		assertNull(sob.update(integerElementNonStrict, 12, "-".toCharArray(), 0, 1, pc));
+		assertNull(sob.update(integerElementNonStrict, 12, "1x2".toCharArray(), 0, 3, pc));
+		assertNull(sob.update(integerElementNonStrict, 12, "N/A".toCharArray(), 0, 3, pc));
+	}
+
+
+	@Test(expected = XmlObjectPullParserException.class)
+	public void testCharArrayStrict() throws XmlObjectPullParserException
+	{
+		// a strict builder doesn't accept white space
+		IntegerObjectBuilder.INSTANCE_STRICT.update(integerElementStrict, null, " 12".toCharArray(), 0, 3, new ParserContext());
+	}
+
+
+	@Test
+	public void testPull() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		XmlPullParserFactory ppfactory = XmlPullParserFactory.newInstance();
+		ppfactory.setNamespaceAware(true);
+		XmlPullParser parser = ppfactory.newPullParser();
+		parser.setInput(new StringReader("<Test> 1<!-- text is split here -->2 </Test>"));
+
+		XmlObjectPull op = new XmlObjectPull(parser);
+		op.setContext(testContext);
+
+		assertEquals((Integer) 12, op.pull(integerElementNonStrict, null, new XmlPath()));
+	}
 }
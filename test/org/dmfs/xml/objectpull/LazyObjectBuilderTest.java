@@ -0,0 +1,133 @@
+package org.dmfs.xml.objectpull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.AbstractObjectBuilder;
+import org.dmfs.xmlobjects.builder.IntegerObjectBuilder;
+import org.dmfs.xmlobjects.builder.LazyObjectBuilder;
+import org.dmfs.xmlobjects.builder.ListObjectBuilder;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.LazyElement;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.pull.XmlPath;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+
+public class LazyObjectBuilderTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<Integer> valueElement = ElementDescriptor.register("value", IntegerObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<LazyElement<List<Integer>>> itemElement = ElementDescriptor.register("item", new LazyObjectBuilder<List<Integer>>(
+		new ListObjectBuilder<Integer>(valueElement)), testContext);
+
+	ElementDescriptor<List<LazyElement<List<Integer>>>> itemsElement = ElementDescriptor.register("items",
+		new ListObjectBuilder<LazyElement<List<Integer>>>(itemElement), testContext);
+
+	ElementDescriptor<String> nameElement = ElementDescriptor.register("name", StringObjectBuilder.INSTANCE, testContext);
+
+	/**
+	 * Returns the prefix of the element and the namespace of the prefixed name it contains, like builders of QName values do.
+	 */
+	ElementDescriptor<String> typeElement = ElementDescriptor.register(QualifiedName.get("urn:a", "type"), new AbstractObjectBuilder<String>()
+	{
+		@Override
+		public String get(ElementDescriptor<String> descriptor, String recycle, ParserContext context)
+		{
+			return context.getXmlPullParser().getPrefix();
+		}
+
+
+		@Override
+		public String update(ElementDescriptor<String> descriptor, String object, String text, ParserContext context)
+		{
+			return object + " " + context.getXmlPullParser().getNamespace(text.substring(0, text.indexOf(':')));
+		}
+	}, testContext);
+
+	ElementDescriptor<LazyElement<List<String>>> typesElement = ElementDescriptor.register(QualifiedName.get("urn:a", "types"),
+		new LazyObjectBuilder<List<String>>(new ListObjectBuilder<String>(typeElement)), testContext);
+
+	ElementDescriptor<String> rootElement = ElementDescriptor.register(QualifiedName.get("urn:a", "root"), StringObjectBuilder.INSTANCE, testContext);
+
+
+	@Test
+	public void testLazy() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		XmlObjectPull op = getObjectPull("<items><item><value>1</value><value> 2<!-- split -->3 </value></item><item a=\"b\"/><item><name>x</name><value>4</value></item></items>");
+		List<LazyElement<List<Integer>>> items = op.pull(itemsElement, null, new XmlPath());
+
+		assertEquals(3, items.size());
+		assertTrue(!items.get(0).isBuilt());
+
+		List<Integer> first = items.get(0).get();
+		assertTrue(items.get(0).isBuilt());
+		assertEquals(2, first.size());
+		assertEquals(1, (int) first.get(0));
+		assertEquals(23, (int) first.get(1));
+
+		// the object is built only once
+		assertSame(first, items.get(0).get());
+
+		assertEquals(0, items.get(1).get().size());
+
+		// unknown elements are ignored, just like when parsing the element directly
+		assertEquals(1, items.get(2).get().size());
+		assertEquals(4, (int) items.get(2).get().get(0));
+	}
+
+
+	@Test
+	public void testContinueAfterLazy() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		XmlObjectPull op = getObjectPull("<items><item><value>1</value></item><name>test</name></items>");
+		LazyElement<List<Integer>> item = op.pull(itemElement, null, new XmlPath(itemsElement));
+
+		// the parser continues right after the lazy element
+		assertEquals("test", op.pull(nameElement, null, new XmlPath(itemsElement)));
+		assertEquals(1, (int) item.get().get(0));
+	}
+
+
+	@Test
+	public void testNamespaces() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		XmlObjectPull op = getObjectPull("<a:root xmlns:a=\"urn:a\" xmlns:b=\"urn:b\"><a:types><a:type>b:x</a:type>"
+			+ "<a:type xmlns:b=\"urn:c\">b:y</a:type><a:type>a:z</a:type></a:types></a:root>");
+		List<String> types = op.pull(typesElement, null, new XmlPath(rootElement)).get();
+
+		// the replayed elements retain their prefixes and the namespace declarations in scope
+		assertEquals(3, types.size());
+		assertEquals("a urn:b", types.get(0));
+		assertEquals("a urn:c", types.get(1));
+		assertEquals("a urn:a", types.get(2));
+	}
+
+
+	private XmlObjectPull getObjectPull(String xml) throws XmlPullParserException, IOException
+	{
+		XmlPullParserFactory ppfactory = XmlPullParserFactory.newInstance();
+		ppfactory.setNamespaceAware(true);
+		XmlPullParser parser = ppfactory.newPullParser();
+		parser.setInput(new StringReader(xml));
+
+		XmlObjectPull op = new XmlObjectPull(parser);
+		op.setContext(testContext);
+		return op;
+	}
+}
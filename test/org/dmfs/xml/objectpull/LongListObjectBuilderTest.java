@@ -0,0 +1,99 @@
+package org.dmfs.xml.objectpull;
+
+import static org.dmfs.xml.objectpull.PullFixture.pull;
+import static org.dmfs.xml.objectpull.PullFixture.serialize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.AbstractObjectBuilder;
+import org.dmfs.xmlobjects.builder.LongList;
+import org.dmfs.xmlobjects.builder.LongListObjectBuilder;
+import org.dmfs.xmlobjects.builder.LongObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+public class LongListObjectBuilderTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<Long> valueElement = ElementDescriptor.register("v", LongObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<LongList> valuesElement = ElementDescriptor.register("values", new LongListObjectBuilder(valueElement, 2), testContext);
+
+	/**
+	 * A value element with a builder that writes hexadecimal values.
+	 */
+	ElementDescriptor<Long> hexElement = ElementDescriptor.register("h", new AbstractObjectBuilder<Long>()
+	{
+		@Override
+		public Long update(ElementDescriptor<Long> descriptor, Long object, String text, ParserContext context)
+		{
+			return Long.parseLong(text, 16);
+		}
+
+
+		@Override
+		public void writeChildren(ElementDescriptor<Long> descriptor, Long object, IXmlChildWriter childWriter, SerializerContext context)
+			throws SerializerException, IOException
+		{
+			childWriter.writeText(Long.toHexString(object), context);
+		}
+	}, testContext);
+
+	ElementDescriptor<LongList> hexValuesElement = ElementDescriptor.register("hexvalues", new LongListObjectBuilder(hexElement), testContext);
+
+
+	@Test
+	public void testPull() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		LongList values = pull(testContext, valuesElement, "<values><v>1</v><v>-10000000000</v><other>1</other><v>N/A</v><v>9223372036854775807</v></values>");
+
+		// invalid values are skipped, the list grows beyond its initial capacity
+		assertEquals(3, values.size());
+		assertEquals(1, values.get(0));
+		assertEquals(-10000000000L, values.get(1));
+		assertEquals(Long.MAX_VALUE, values.get(2));
+	}
+
+
+	@Test
+	public void testRecycle() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		LongList recycle = pull(testContext, valuesElement, "<values><v>1</v><v>2</v><v>3</v></values>");
+		LongList values = pull(testContext, valuesElement, "<values><v>4</v></values>", recycle);
+
+		assertTrue(recycle == values);
+		assertEquals(1, values.size());
+		assertEquals(4, values.get(0));
+	}
+
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		pull(testContext, valuesElement, "<values><v>1</v></values>").get(1);
+	}
+
+
+	@Test
+	public void testSerialize() throws XmlPullParserException, IOException, XmlObjectPullParserException, SerializerException
+	{
+		LongList values = pull(testContext, valuesElement, "<values><v>12</v><v>-10000000000</v></values>");
+		assertEquals("<values><v>12</v><v>-10000000000</v></values>", serialize(testContext, valuesElement, values));
+
+		// other builders still write the values
+		LongList hexValues = pull(testContext, hexValuesElement, "<hexvalues><h>ff</h><h>10</h></hexvalues>");
+		assertEquals(255, hexValues.get(0));
+		assertEquals("<hexvalues><h>ff</h><h>10</h></hexvalues>", serialize(testContext, hexValuesElement, hexValues));
+	}
+}
@@ -0,0 +1,130 @@
+package org.dmfs.xml.objectpull;
+
+import static org.dmfs.xml.objectpull.PullFixture.pull;
+import static org.dmfs.xml.objectpull.PullFixture.serialize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.LongMapObjectBuilder;
+import org.dmfs.xmlobjects.builder.LongObjectMap;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+public class LongMapObjectBuilderTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<String> nameElement = ElementDescriptor.register("name", StringObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<LongObjectMap<String>> longMapElement = ElementDescriptor.register("longnames",
+		new LongMapObjectBuilder<String>(new LongMapObjectBuilder.Mapper<String>()
+		{
+			@Override
+			public long getIndex(ElementDescriptor<String> descriptor, String value)
+			{
+				return value.length() * 10000000000L;
+			}
+		}, nameElement), testContext);
+
+
+	@Test
+	public void testLongObjectMap()
+	{
+		Random random = new Random(7);
+		LongObjectMap<Integer> map = new LongObjectMap<Integer>(0);
+		Map<Long, Integer> reference = new HashMap<Long, Integer>();
+		for (int i = 0; i < 10000; ++i)
+		{
+			// keys that differ in the upper 32 bits only
+			long key = (random.nextInt(5000) - 2500L) << 32;
+			assertEquals(reference.put(key, i), map.put(key, i));
+		}
+
+		assertEquals(reference.size(), map.size());
+		for (long i = -3000; i < 3000; ++i)
+		{
+			long key = i << 32;
+			assertEquals(reference.get(key), map.get(key));
+			assertEquals(reference.containsKey(key), map.containsKey(key));
+		}
+		assertFalse(map.containsKey(1));
+
+		map.compact();
+		assertTrue(map.isReadOnly());
+		for (int i = 0; i < map.size(); ++i)
+		{
+			assertEquals(reference.get(map.keyAt(i)), map.valueAt(i));
+		}
+	}
+
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly()
+	{
+		LongObjectMap<String> map = new LongObjectMap<String>(4);
+		map.put(1, "a");
+		map.compact().put(2, "b");
+	}
+
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds()
+	{
+		new LongObjectMap<String>(4).valueAt(0);
+	}
+
+
+	@Test
+	public void testPull() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		LongObjectMap<String> map = pull(testContext, longMapElement, "<longnames><name>a</name><name>bbb</name><name>c</name></longnames>");
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(10000000000L));
+		assertEquals("bbb", map.get(30000000000L));
+		assertEquals(30000000000L, map.keyAt(1));
+		assertNull(map.get(20000000000L));
+		assertFalse(map.containsKey(1));
+		assertTrue(map.isReadOnly());
+	}
+
+
+	@Test
+	public void testRecycle() throws XmlObjectPullParserException
+	{
+		LongObjectMap<String> recycled = new LongObjectMap<String>(4);
+		recycled.put(5, "x");
+		recycled.compact();
+
+		LongObjectMap<String> map = longMapElement.builder.get(longMapElement, recycled, new ParserContext());
+		assertSame(recycled, map);
+		assertEquals(0, map.size());
+		assertFalse(map.isReadOnly());
+		map.put(1, "a");
+		assertEquals("a", map.get(1));
+	}
+
+
+	@Test
+	public void testSerialize() throws XmlPullParserException, IOException, XmlObjectPullParserException, SerializerException
+	{
+		LongObjectMap<String> map = pull(testContext, longMapElement, "<longnames><name>bbb</name><name>a</name></longnames>");
+
+		// the values are written in insertion order
+		assertEquals("<longnames><name>bbb</name><name>a</name></longnames>", serialize(testContext, longMapElement, map));
+	}
+}
@@ -0,0 +1,51 @@
+package org.dmfs.xml.objectpull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.LongObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.junit.Test;
+
+
+public class LongObjectBuilderTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<Long> longElement = ElementDescriptor.register("Test", LongObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<Long> longElementStrict = ElementDescriptor.register("TestStrict", LongObjectBuilder.INSTANCE_STRICT, testContext);
+
+
+	@Test
+	public void testNonStrictBuilder() throws XmlObjectPullParserException
+	{
+		LongObjectBuilder sob = LongObjectBuilder.INSTANCE;
+		ParserContext pc = new ParserContext();
+
+		assertEquals((Long) 4200000000L, sob.update(longElement, null, "4200000000", pc));
+		assertEquals((Long) 42L, sob.update(longElement, null, " \n+42\t", pc));
+		assertEquals((Long) Long.MIN_VALUE, sob.update(longElement, null, "-9223372036854775808", pc));
+		assertEquals((Long) Long.MAX_VALUE, sob.update(longElement, null, "9223372036854775807", pc));
+
+		// invalid values result in null values
+		assertNull(sob.update(longElement, 1L, (String) null, pc));
+		assertNull(sob.update(longElement, 1L, "", pc));
+		assertNull(sob.update(longElement, 1L, "-", pc));
+		assertNull(sob.update(longElement, 1L, "1.5", pc));
+		assertNull(sob.update(longElement, 1L, "9223372036854775808", pc));
+
+		// char arrays
+		assertEquals((Long) 123L, sob.update(longElement, null, "xx 123 xx".toCharArray(), 2, 5, pc));
+	}
+
+
+	@Test(expected = XmlObjectPullParserException.class)
+	public void testStrictBuilder() throws XmlObjectPullParserException
+	{
+		LongObjectBuilder.INSTANCE_STRICT.update(longElementStrict, null, "N/A", new ParserContext());
+	}
+}
@@ -0,0 +1,189 @@
+package org.dmfs.xml.objectpull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.AbstractObjectBuilder;
+import org.dmfs.xmlobjects.builder.ListObjectBuilder;
+import org.dmfs.xmlobjects.builder.StringCache;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.pull.XmlPath;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+
+public class MemoryBudgetTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<String> itemElement = ElementDescriptor.register("item", StringObjectBuilder.INSTANCE, testContext);
+	ElementDescriptor<List<String>> listElement = ElementDescriptor.register("list", new ListObjectBuilder<String>(itemElement), testContext);
+	ElementDescriptor<String> otherElement = ElementDescriptor.register("other", StringObjectBuilder.INSTANCE, testContext);
+	ElementDescriptor<Object> feedElement = ElementDescriptor.register("feed", new AbstractObjectBuilder<Object>()
+	{
+	}, testContext);
+
+	XmlContext cachedContext = new XmlContext();
+
+	ElementDescriptor<String> cachedItemElement = ElementDescriptor.register("item", new StringObjectBuilder(new StringCache()), cachedContext);
+	ElementDescriptor<List<String>> cachedListElement = ElementDescriptor.register("list", new ListObjectBuilder<String>(cachedItemElement),
+		cachedContext);
+
+
+	@Test(expected = XmlObjectPullParserException.class)
+	public void testBudgetExceeded() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		ParserContext parserContext = new ParserContext();
+		parserContext.setMemoryBudget(10000);
+
+		XmlObjectPull op = new XmlObjectPull(getParser(false), parserContext);
+		op.setContext(testContext);
+		op.pull(listElement, null, new XmlPath());
+	}
+
+
+	@Test
+	public void testWithinBudget() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		ParserContext parserContext = new ParserContext();
+		parserContext.setMemoryBudget(10000);
+
+		XmlObjectPull op = new XmlObjectPull(getParser(false), parserContext);
+		op.setContext(testContext);
+		XmlPath path = new XmlPath(listElement);
+
+		// items that are returned one by one don't count against the budget
+		int count = 0;
+		while (op.pull(itemElement, null, path) != null)
+		{
+			assertEquals(0, parserContext.getRetainedSize());
+			++count;
+		}
+		assertEquals(1000, count);
+	}
+
+
+	@Test
+	public void testRetainedSize() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		ParserContext parserContext = new ParserContext();
+		XmlObjectPull op = new XmlObjectPull(getParser(false), parserContext);
+		op.setContext(testContext);
+
+		assertEquals(1000, op.pull(listElement, null, new XmlPath()).size());
+		assertEquals(0, parserContext.getRetainedSize());
+	}
+
+
+	@Test
+	public void testCachedValues() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		ParserContext parserContext = new ParserContext();
+		parserContext.setMemoryBudget(10000);
+
+		// the values would exceed the budget, but they share a single cached instance
+		XmlObjectPull op = new XmlObjectPull(getParser(true), parserContext);
+		op.setContext(cachedContext);
+		List<String> values = op.pull(cachedListElement, null, new XmlPath());
+		assertEquals(1000, values.size());
+		assertSame(values.get(0), values.get(999));
+	}
+
+
+	@Test(expected = XmlObjectPullParserException.class)
+	public void testUncachedValues() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		ParserContext parserContext = new ParserContext();
+		parserContext.setMemoryBudget(10000);
+
+		XmlObjectPull op = new XmlObjectPull(getParser(true), parserContext);
+		op.setContext(testContext);
+		op.pull(listElement, null, new XmlPath());
+	}
+
+
+	@Test
+	public void testDroppedSiblings() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		ParserContext parserContext = new ParserContext();
+		parserContext.setMemoryBudget(10000);
+
+		// the siblings of the items would exceed the budget, but the list builder drops them
+		XmlObjectPull op = new XmlObjectPull(getSiblingParser("list"), parserContext);
+		op.setContext(testContext);
+		XmlPath path = new XmlPath(listElement);
+		int count = 0;
+		while (op.pull(itemElement, null, path) != null)
+		{
+			++count;
+		}
+		assertEquals(1000, count);
+		assertEquals(0, parserContext.getRetainedSize());
+
+		// the same for a root element that doesn't keep any children
+		op = new XmlObjectPull(getSiblingParser("feed"), parserContext);
+		op.setContext(testContext);
+		path = new XmlPath(feedElement);
+		count = 0;
+		while (op.pull(itemElement, null, path) != null)
+		{
+			assertEquals(0, parserContext.getRetainedSize());
+			++count;
+		}
+		assertEquals(1000, count);
+	}
+
+
+	private XmlPullParser getParser(boolean repeated) throws XmlPullParserException
+	{
+		StringBuilder document = new StringBuilder(32 * 1024);
+		document.append("<list>");
+		for (int i = 0; i < 1000; ++i)
+		{
+			if (repeated)
+			{
+				document.append("<item>repeated value</item>");
+			}
+			else
+			{
+				document.append("<item>item ").append(i).append("</item>");
+			}
+		}
+		document.append("</list>");
+		return getParser(document);
+	}
+
+
+	private XmlPullParser getSiblingParser(String root) throws XmlPullParserException
+	{
+		StringBuilder document = new StringBuilder(64 * 1024);
+		document.append('<').append(root).append('>');
+		for (int i = 0; i < 1000; ++i)
+		{
+			document.append("<item>item ").append(i).append("</item><other>a sibling of item ").append(i).append("</other>");
+		}
+		document.append("</").append(root).append('>');
+		return getParser(document);
+	}
+
+
+	private XmlPullParser getParser(CharSequence document) throws XmlPullParserException
+	{
+		XmlPullParserFactory ppfactory = XmlPullParserFactory.newInstance();
+		ppfactory.setNamespaceAware(true);
+		XmlPullParser parser = ppfactory.newPullParser();
+		parser.setInput(new StringReader(document.toString()));
+		return parser;
+	}
+}
@@ -0,0 +1,91 @@
+package org.dmfs.xml.objectpull;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.StringAttributeObjectBuilder;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.pull.XmlPath;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+
+public class MultiDocumentTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<String> msgElement = ElementDescriptor.register("msg", StringObjectBuilder.INSTANCE, testContext);
+	ElementDescriptor<String> envelopeElement = ElementDescriptor.register("envelope", new StringAttributeObjectBuilder(QualifiedName.get("id")),
+		testContext);
+
+
+	@Test
+	public void testDocuments() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		String stream = "<?xml version=\"1.0\"?><msg>one</msg>\n"
+			+ "<?xml version=\"1.0\"?>\n<!-- a comment with </msg> --><msg attr=\"a > b\"><![CDATA[</msg>two]]></msg>"
+			+ "<?xml version=\"1.0\"?><!DOCTYPE msg [<!ELEMENT msg (#PCDATA)>]><msg>three</msg>\r\n"
+			+ "<envelope id=\"4\"><msg>four</msg><msg>skipped</msg></envelope><envelope id=\"5\"/>  \n";
+
+		XmlPullParserFactory ppfactory = XmlPullParserFactory.newInstance();
+		ppfactory.setNamespaceAware(true);
+		XmlPullParser parser = ppfactory.newPullParser();
+
+		XmlObjectPull op = new XmlObjectPull(parser, new StringReader(stream), new ParserContext());
+		op.setContext(testContext);
+
+		assertEquals(true, op.nextDocument());
+		assertEquals("one", op.pull(msgElement, null, new XmlPath()));
+		assertEquals(true, op.nextDocument());
+		assertEquals("</msg>two", op.pull(msgElement, null, new XmlPath()));
+		assertEquals(true, op.nextDocument());
+		assertEquals("three", op.pull(msgElement, null, new XmlPath()));
+
+		// pull only the first child, the rest of the document is skipped
+		assertEquals(true, op.nextDocument());
+		assertEquals("four", op.pull(msgElement, null, new XmlPath(envelopeElement)));
+		assertEquals(true, op.nextDocument());
+		assertEquals("5", op.pull(envelopeElement, null, new XmlPath()));
+		assertEquals(false, op.nextDocument());
+	}
+
+
+	@Test
+	public void testMiscAfterRoot() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		// a comment that crosses the boundary of the reader buffer
+		StringBuilder comment = new StringBuilder("<!-- ");
+		for (int i = 0; i < 10000; ++i)
+		{
+			comment.append('-');
+		}
+		comment.append(" <msg> -->");
+
+		String stream = "<msg>one</msg><!-- x --><?pi <msg>?>\n<?xml version=\"1.0\"?><msg>two</msg>" + comment + "<msg>three</msg><!-- end -->\n";
+
+		XmlPullParserFactory ppfactory = XmlPullParserFactory.newInstance();
+		ppfactory.setNamespaceAware(true);
+		XmlPullParser parser = ppfactory.newPullParser();
+
+		XmlObjectPull op = new XmlObjectPull(parser, new StringReader(stream), new ParserContext());
+		op.setContext(testContext);
+
+		assertEquals(true, op.nextDocument());
+		assertEquals("one", op.pull(msgElement, null, new XmlPath()));
+		assertEquals(true, op.nextDocument());
+		assertEquals("two", op.pull(msgElement, null, new XmlPath()));
+		assertEquals(true, op.nextDocument());
+		assertEquals("three", op.pull(msgElement, null, new XmlPath()));
+		assertEquals(false, op.nextDocument());
+	}
+}
@@ -0,0 +1,101 @@
+package org.dmfs.xml.objectpull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPull;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.pull.XmlPath;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+
+/**
+ * Pulls the root element of a test document and serializes objects to a document. Shared by tests that just need the object of a small document or the
+ * XML of an object.
+ * 
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class PullFixture
+{
+	private PullFixture()
+	{
+	}
+
+
+	/**
+	 * Pulls the root element of the given document with a new {@link ParserContext}.
+	 * 
+	 * @param xmlContext
+	 *            The {@link XmlContext} of the descriptor.
+	 * @param descriptor
+	 *            The {@link ElementDescriptor} of the root element.
+	 * @param document
+	 *            The document to parse.
+	 * @return The object of the root element.
+	 */
+	static <T> T pull(XmlContext xmlContext, ElementDescriptor<T> descriptor, String document) throws XmlPullParserException, IOException,
+		XmlObjectPullParserException
+	{
+		return pull(xmlContext, descriptor, document, null);
+	}
+
+
+	/**
+	 * Pulls the root element of the given document with a new {@link ParserContext}, recycling the given object.
+	 * 
+	 * @param xmlContext
+	 *            The {@link XmlContext} of the descriptor.
+	 * @param descriptor
+	 *            The {@link ElementDescriptor} of the root element.
+	 * @param document
+	 *            The document to parse.
+	 * @param recycle
+	 *            An object to recycle or <code>null</code>.
+	 * @return The object of the root element.
+	 */
+	static <T> T pull(XmlContext xmlContext, ElementDescriptor<T> descriptor, String document, T recycle) throws XmlPullParserException, IOException,
+		XmlObjectPullParserException
+	{
+		XmlPullParserFactory ppfactory = XmlPullParserFactory.newInstance();
+		ppfactory.setNamespaceAware(true);
+		XmlPullParser parser = ppfactory.newPullParser();
+		parser.setInput(new StringReader(document));
+
+		XmlObjectPull op = new XmlObjectPull(parser, new ParserContext());
+		op.setContext(xmlContext);
+		return op.pull(descriptor, recycle, new XmlPath());
+	}
+
+
+	/**
+	 * Serializes the given object as the root element of a new document. The XML declaration is removed, since its format depends on the serializer.
+	 * 
+	 * @param xmlContext
+	 *            The {@link XmlContext} of the descriptor.
+	 * @param descriptor
+	 *            The {@link ElementDescriptor} of the root element.
+	 * @param object
+	 *            The object to serialize.
+	 * @return The XML of the root element.
+	 */
+	static <T> String serialize(XmlContext xmlContext, ElementDescriptor<T> descriptor, T object) throws SerializerException, IOException
+	{
+		StringWriter out = new StringWriter();
+		SerializerContext serializerContext = new SerializerContext(xmlContext);
+		XmlObjectSerializer serializer = new XmlObjectSerializer();
+		serializer.setOutput(serializerContext, out);
+		serializer.serialize(serializerContext, descriptor, object);
+
+		String result = out.toString();
+		return result.startsWith("<?xml") ? result.substring(result.indexOf("?>") + 2) : result;
+	}
+}
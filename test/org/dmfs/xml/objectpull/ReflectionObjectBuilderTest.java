@@ -0,0 +1,294 @@
+package org.dmfs.xml.objectpull;
+
+import static org.dmfs.xml.objectpull.PullFixture.pull;
+import static org.dmfs.xml.objectpull.PullFixture.serialize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.AbstractObjectBuilder;
+import org.dmfs.xmlobjects.builder.IntegerObjectBuilder;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.builder.reflection.Attribute;
+import org.dmfs.xmlobjects.builder.reflection.Element;
+import org.dmfs.xmlobjects.builder.reflection.ObjectBuilderFactory;
+import org.dmfs.xmlobjects.builder.reflection.ReflectionObjectBuilder;
+import org.dmfs.xmlobjects.builder.reflection.Text;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerContext;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.dmfs.xmlobjects.serializer.XmlObjectSerializer.IXmlChildWriter;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+public class ReflectionObjectBuilderTest
+{
+	public enum Color
+	{
+		RED, GREEN
+	}
+
+	public static class Note
+	{
+		@Text
+		private String text;
+
+		@Attribute
+		private Color color;
+
+		@Attribute
+		private Integer priority;
+
+		@Attribute
+		private char flag;
+	}
+
+	public static class Item
+	{
+		@Attribute
+		private int id;
+
+		@Attribute(name = "price")
+		private double mPrice;
+
+		@Element
+		private String title;
+
+		@Element(name = "note")
+		private ArrayList<Note> mNotes;
+
+
+		private Item()
+		{
+			// a private constructor
+		}
+	}
+
+	public static class Folder
+	{
+		@Element(name = "note")
+		private List<Note> notes;
+
+		@Element(name = "tag")
+		private Set<String> tags;
+
+		@Element(name = "count")
+		private int count;
+	}
+
+	public static class Label
+	{
+		@Attribute(name = "lang")
+		private final String lang;
+
+		private final int weight;
+
+		private final String text;
+
+
+		private Label(@Attribute(name = "lang") String lang, @Attribute(name = "weight") int weight, @Text String text)
+		{
+			this.lang = lang;
+			this.weight = weight;
+			this.text = text;
+		}
+	}
+
+	public static class Unnamed
+	{
+		public Unnamed(@Attribute int value)
+		{
+		}
+	}
+
+	public static class Bundle
+	{
+		private final long id;
+
+		private final List<Label> labels;
+
+
+		public Bundle(@Attribute(name = "id") long id, @Element(name = "label") List<Label> labels)
+		{
+			this.id = id;
+			this.labels = labels;
+		}
+	}
+
+	public static class Book
+	{
+		private final String title;
+
+		private final int published;
+
+
+		public Book(@Attribute(name = "title") String title, @Element(name = "published") int published)
+		{
+			this.title = title;
+			this.published = published;
+		}
+	}
+
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<Item> itemElement = ElementDescriptor.register("item", new ReflectionObjectBuilder<Item>(Item.class), testContext);
+	ElementDescriptor<String> titleElement = ElementDescriptor.register("title", StringObjectBuilder.INSTANCE, testContext);
+	ElementDescriptor<Note> noteElement = ElementDescriptor.register("note", new ReflectionObjectBuilder<Note>(Note.class), testContext);
+	ElementDescriptor<Folder> folderElement = ElementDescriptor.register("folder", new ReflectionObjectBuilder<Folder>(Folder.class), testContext);
+	ElementDescriptor<String> tagElement = ElementDescriptor.register("tag", StringObjectBuilder.INSTANCE, testContext);
+	ElementDescriptor<Bundle> bundleElement = ElementDescriptor.register("bundle", new ReflectionObjectBuilder<Bundle>(Bundle.class), testContext);
+	ElementDescriptor<Label> labelElement = ElementDescriptor.register("label", new ReflectionObjectBuilder<Label>(Label.class), testContext);
+	ElementDescriptor<Book> bookElement = ElementDescriptor.register("book", new ReflectionObjectBuilder<Book>(Book.class), testContext);
+	ElementDescriptor<Integer> publishedElement = ElementDescriptor.register("published", IntegerObjectBuilder.INSTANCE, testContext);
+	ElementDescriptor<Integer> countElement = ElementDescriptor.register("count", IntegerObjectBuilder.INSTANCE, testContext);
+
+
+	@Test
+	public void testPull() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		Item item = pull(testContext, itemElement,
+			"<item id=\"12\" price=\"1.5\"><title>Title</title><note color=\"GREEN\" priority=\"3\" flag=\"x\">a</note><unknown/><note color=\"BLUE\">b</note></item>");
+
+		assertEquals(12, item.id);
+		assertEquals(1.5, item.mPrice, 0);
+		assertEquals("Title", item.title);
+		assertEquals(2, item.mNotes.size());
+		assertEquals("a", item.mNotes.get(0).text);
+		assertEquals("b", item.mNotes.get(1).text);
+		assertEquals(Color.GREEN, item.mNotes.get(0).color);
+		assertEquals((Integer) 3, item.mNotes.get(0).priority);
+		assertEquals('x', item.mNotes.get(0).flag);
+
+		// unknown enum values are ignored
+		assertEquals(null, item.mNotes.get(1).color);
+		assertEquals(null, item.mNotes.get(1).priority);
+	}
+
+
+	@Test
+	public void testInterfaceCollections() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		Folder folder = pull(testContext, folderElement, "<folder><note>a</note><tag>x</tag><note>b</note><tag>y</tag><tag>x</tag></folder>");
+
+		assertTrue(folder.notes instanceof ArrayList);
+		assertEquals(2, folder.notes.size());
+		assertEquals("a", folder.notes.get(0).text);
+		assertEquals("b", folder.notes.get(1).text);
+
+		assertTrue(folder.tags instanceof LinkedHashSet);
+		assertEquals(2, folder.tags.size());
+		assertEquals("x", folder.tags.iterator().next());
+
+		// no collection is created if there are no children
+		assertEquals(null, pull(testContext, folderElement, "<folder/>").notes);
+	}
+
+
+	@Test
+	public void testConstructor() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		Bundle bundle = pull(testContext, bundleElement, "<bundle id=\"99\"><label lang=\"en\" weight=\"2\">Hello</label><label lang=\"de\">Hallo</label></bundle>");
+
+		assertEquals(99, bundle.id);
+		assertEquals(2, bundle.labels.size());
+		assertEquals("en", bundle.labels.get(0).lang);
+		assertEquals(2, bundle.labels.get(0).weight);
+		assertEquals("Hello", bundle.labels.get(0).text);
+		assertEquals("de", bundle.labels.get(1).lang);
+		assertEquals("Hallo", bundle.labels.get(1).text);
+
+		// missing primitive arguments default to zero, missing objects to null
+		assertEquals(0, bundle.labels.get(1).weight);
+		assertEquals(null, pull(testContext, bundleElement, "<bundle/>").labels);
+	}
+
+
+	@Test
+	public void testPrimitiveElements() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		Book book = pull(testContext, bookElement, "<book title=\"Title\"><published>1999</published></book>");
+
+		assertEquals("Title", book.title);
+		assertEquals(1999, book.published);
+
+		assertEquals(3, pull(testContext, folderElement, "<folder><count>3</count></folder>").count);
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnnamedConstructorParameter()
+	{
+		new ReflectionObjectBuilder<Unnamed>(Unnamed.class);
+	}
+
+
+	@Test
+	public void testSerialize() throws XmlPullParserException, IOException, XmlObjectPullParserException, SerializerException
+	{
+		Item item = pull(testContext, itemElement, "<item id=\"12\" price=\"1.5\"><title>Title</title><note flag=\"x\">a</note><note flag=\"y\">b</note></item>");
+
+		assertEquals("<item id=\"12\" price=\"1.5\"><title>Title</title><note flag=\"x\">a</note><note flag=\"y\">b</note></item>", serialize(testContext, itemElement, item));
+
+		// register a title that's specific to items, the serializer must pick it up
+		ElementDescriptor.registerWithParents("title", new AbstractObjectBuilder<String>()
+		{
+			@Override
+			public void writeChildren(ElementDescriptor<String> descriptor, String object, IXmlChildWriter childWriter, SerializerContext context)
+				throws SerializerException, IOException
+			{
+				childWriter.writeText(object.toUpperCase(), context);
+			}
+		}, itemElement);
+
+		assertEquals("<item id=\"12\" price=\"1.5\"><title>TITLE</title><note flag=\"x\">a</note><note flag=\"y\">b</note></item>", serialize(testContext, itemElement, item));
+	}
+
+
+	@Test
+	public void testSharedMetadata() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		// a second builder for the same class in another context
+		XmlContext otherContext = new XmlContext();
+		ElementDescriptor<Item> otherItemElement = ElementDescriptor.register("item", new ReflectionObjectBuilder<Item>(Item.class), otherContext);
+		ElementDescriptor.register("title", StringObjectBuilder.INSTANCE, otherContext);
+
+		Item item = pull(otherContext, otherItemElement, "<item id=\"7\"><title>Other</title></item>");
+
+		assertEquals(7, item.id);
+		assertEquals("Other", item.title);
+
+		// the first builder is not affected
+		assertEquals(12, pull(testContext, itemElement, "<item id=\"12\"/>").id);
+	}
+
+
+	@Test(expected = XmlObjectPullParserException.class)
+	public void testInvalidValue() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		pull(testContext, itemElement, "<item id=\"N/A\"/>");
+	}
+
+
+	@Test
+	public void testFactory()
+	{
+		// there is no generated builder for Item
+		assertTrue(ObjectBuilderFactory.get(Item.class) instanceof ReflectionObjectBuilder);
+	}
+
+
+	@Test
+	public void testFactoryIgnoresUnmarkedBuilder()
+	{
+		// ReflectionObjectBuilderTest_NoteObjectBuilder looks like a generated builder, but it's not annotated
+		assertTrue(ObjectBuilderFactory.get(Note.class) instanceof ReflectionObjectBuilder);
+	}
+}
@@ -0,0 +1,12 @@
+package org.dmfs.xml.objectpull;
+
+import org.dmfs.xmlobjects.builder.AbstractObjectBuilder;
+
+
+/**
+ * A builder that has the name and the <code>INSTANCE</code> of a generated builder for {@link ReflectionObjectBuilderTest.Note}, but hasn't been generated.
+ */
+public final class ReflectionObjectBuilderTest_NoteObjectBuilder extends AbstractObjectBuilder<ReflectionObjectBuilderTest.Note>
+{
+	public final static ReflectionObjectBuilderTest_NoteObjectBuilder INSTANCE = new ReflectionObjectBuilderTest_NoteObjectBuilder();
+}
@@ -0,0 +1,89 @@
+package org.dmfs.xml.objectpull;
+
+import static org.dmfs.xml.objectpull.PullFixture.pull;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.ListObjectBuilder;
+import org.dmfs.xmlobjects.builder.StringAttributeObjectBuilder;
+import org.dmfs.xmlobjects.builder.StringCache;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+public class StringCacheTest
+{
+	XmlContext testContext = new XmlContext();
+
+	StringCache cache = new StringCache(16, 8);
+
+	ElementDescriptor<String> statusElement = ElementDescriptor.register("status", new StringObjectBuilder(cache), testContext);
+
+	ElementDescriptor<String> typeElement = ElementDescriptor.register("type", new StringAttributeObjectBuilder(QualifiedName.get("value"), cache), testContext);
+
+
+	@Test
+	public void testCache()
+	{
+		String ok = cache.get("xxOKxx".toCharArray(), 2, 2);
+		assertEquals("OK", ok);
+		assertSame(ok, cache.get("OK".toCharArray(), 0, 2));
+		assertSame(ok, cache.get(new String("OK")));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2.0 / 3, cache.getHitRate(), 0.0001);
+
+		// long values are not cached
+		String longValue = cache.get("not cached".toCharArray(), 0, 10);
+		assertNotSame(longValue, cache.get("not cached".toCharArray(), 0, 10));
+		assertEquals(1, cache.getMissCount());
+
+		assertNull(cache.get(null));
+
+		cache.clear();
+		assertEquals(0, cache.getHitCount());
+		assertNotSame(ok, cache.get("OK".toCharArray(), 0, 2));
+	}
+
+
+	@Test
+	public void testEviction()
+	{
+		// the cache never holds more values than its capacity
+		for (int i = 0; i < 1000; ++i)
+		{
+			cache.get(String.valueOf(i).toCharArray(), 0, String.valueOf(i).length());
+		}
+		assertEquals(0, cache.getHitCount());
+
+		// the most recent value is still there
+		assertEquals(1000, cache.getMissCount());
+		cache.get("999".toCharArray(), 0, 3);
+		assertEquals(1, cache.getHitCount());
+	}
+
+
+	@Test
+	public void testPull() throws XmlPullParserException, IOException, XmlObjectPullParserException
+	{
+		ElementDescriptor<List<String>> listElement = ElementDescriptor.register("list", new ListObjectBuilder<String>(statusElement),
+			testContext);
+		List<String> list = pull(testContext, listElement, "<list><status>OK</status><status>FAILED</status><status>OK</status></list>");
+
+		assertEquals(3, list.size());
+		assertEquals("OK", list.get(0));
+		assertSame(list.get(0), list.get(2));
+
+		assertSame(pull(testContext, typeElement, "<type value=\"html\"/>"), pull(testContext, typeElement, "<type value=\"html\"/>"));
+	}
+}
@@ -0,0 +1,97 @@
+package org.dmfs.xml.objectpull;
+
+import static org.dmfs.xml.objectpull.PullFixture.serialize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.UriObjectBuilder;
+import org.dmfs.xmlobjects.pull.ParserContext;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.serializer.SerializerException;
+import org.junit.Test;
+
+
+public class UriObjectBuilderTest
+{
+	XmlContext testContext = new XmlContext();
+
+	ElementDescriptor<URI> uriElement = ElementDescriptor.register("Test", UriObjectBuilder.INSTANCE, testContext);
+
+	ElementDescriptor<URI> uriElementStrict = ElementDescriptor.register("TestStrict", UriObjectBuilder.INSTANCE_STRICT, testContext);
+
+	ElementDescriptor<URI> uriElementCached = ElementDescriptor.register("TestCached", new UriObjectBuilder(false, 2, 2), testContext);
+
+
+	@Test
+	public void testNonStrictBuilder() throws XmlObjectPullParserException
+	{
+		UriObjectBuilder sob = UriObjectBuilder.INSTANCE;
+		ParserContext pc = new ParserContext();
+
+		assertEquals(URI.create("http://dmfs.org/"), sob.update(uriElement, null, "http://dmfs.org/", pc));
+		assertEquals(URI.create("http://dmfs.org/a%20b#x"), sob.update(uriElement, null, " \nhttp://dmfs.org/a%20b#x\t", pc));
+		assertEquals(URI.create("N/A"), sob.update(uriElement, null, "N/A", pc));
+
+		// invalid values result in null values
+		assertNull(sob.update(uriElement, null, null, pc));
+		assertNull(sob.update(uriElement, null, "http://dmfs.org/a b", pc));
+		assertNull(sob.update(uriElement, null, "http://dmfs.org/a%2", pc));
+		assertNull(sob.update(uriElement, null, "http://dmfs.org/<a>", pc));
+		assertNull(sob.update(uriElement, null, "http://dmfs.org/#a#b", pc));
+
+		// values that pass the quick check but are still invalid
+		assertNull(sob.update(uriElement, null, "http://[dmfs.org/", pc));
+	}
+
+
+	@Test(expected = XmlObjectPullParserException.class)
+	public void testStrictBuilder() throws XmlObjectPullParserException
+	{
+		UriObjectBuilder.INSTANCE_STRICT.update(uriElementStrict, null, "http://dmfs.org/a b", new ParserContext());
+	}
+
+
+	@Test
+	public void testCache() throws XmlObjectPullParserException, SerializerException, IOException, URISyntaxException
+	{
+		UriObjectBuilder sob = (UriObjectBuilder) uriElementCached.builder;
+		ParserContext pc = new ParserContext();
+
+		URI first = sob.update(uriElementCached, null, "http://dmfs.org/", pc);
+		assertSame(first, sob.update(uriElementCached, null, " http://dmfs.org/\n", pc));
+		assertNull(sob.update(uriElementCached, null, "http://dmfs.org/a b", pc));
+
+		// evict the first URI
+		URI second = sob.update(uriElementCached, null, "http://dmfs.org/2", pc);
+		sob.update(uriElementCached, null, "http://dmfs.org/3", pc);
+		assertSame(second, sob.update(uriElementCached, null, "http://dmfs.org/2", pc));
+		assertNotSame(first, sob.update(uriElementCached, null, "http://dmfs.org/", pc));
+		assertEquals(first, sob.update(uriElementCached, null, "http://dmfs.org/", pc));
+
+		URI unicode = URI.create("http://dmfs.org/\u00e4");
+		assertEquals("<TestCached>http://dmfs.org/%C3%A4</TestCached>", serialize(testContext, uriElementCached, unicode));
+		assertEquals("<TestCached>http://dmfs.org/%C3%A4</TestCached>", serialize(testContext, uriElementCached, unicode));
+
+		// equal URIs that are spelled differently must keep their own text
+		URI upper = new URI("HTTP://Example.COM/a%2fb");
+		URI lower = new URI("http://example.com/a%2Fb");
+		assertEquals(upper, lower);
+		assertEquals("<TestCached>HTTP://Example.COM/a%2fb</TestCached>", serialize(testContext, uriElementCached, upper));
+		assertEquals("<TestCached>http://example.com/a%2Fb</TestCached>", serialize(testContext, uriElementCached, lower));
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCacheSize()
+	{
+		new UriObjectBuilder(false, -1, 0);
+	}
+}
@@ -0,0 +1,117 @@
+package org.dmfs.xml.objectpull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.XmlContext;
+import org.dmfs.xmlobjects.builder.StringAttributeObjectBuilder;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.dmfs.xmlobjects.pull.XmlIndex;
+import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
+import org.dmfs.xmlobjects.pull.XmlPath;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+
+public class XmlIndexTest
+{
+	private final static String NS = "urn:test";
+
+	private final static String DOCUMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n<a:archive xmlns:a=\"urn:test\">\r\n"
+		+ "<a:records xmlns=\"urn:test\"><record id=\"r1\">f\u00fcnf \u20ac</record>\n"
+		+ "<!-- a <comment> --><record id=\"r3\"><![CDATA[<drei>]]></record><record id=\"r2\">\ud83d\ude00 zwei</record>" + "<record>no id</record>"
+		+ "<record id=\"r4\">vier</record></a:records></a:archive>";
+
+	XmlContext keyContext = new XmlContext();
+
+	ElementDescriptor<String> archiveKey = ElementDescriptor.register(QualifiedName.get(NS, "archive"), StringObjectBuilder.INSTANCE, keyContext);
+	ElementDescriptor<String> recordsKey = ElementDescriptor.register(QualifiedName.get(NS, "records"), StringObjectBuilder.INSTANCE, keyContext);
+	ElementDescriptor<String> recordKey = ElementDescriptor.register(QualifiedName.get(NS, "record"),
+		new StringAttributeObjectBuilder(QualifiedName.get("id")), keyContext);
+
+	XmlContext recordContext = new XmlContext();
+
+	ElementDescriptor<String> archive = ElementDescriptor.register(QualifiedName.get(NS, "archive"), StringObjectBuilder.INSTANCE, recordContext);
+	ElementDescriptor<String> records = ElementDescriptor.register(QualifiedName.get(NS, "records"), StringObjectBuilder.INSTANCE, recordContext);
+	ElementDescriptor<String> record = ElementDescriptor.register(QualifiedName.get(NS, "record"), StringObjectBuilder.INSTANCE, recordContext);
+
+
+	@Test
+	public void testIndex() throws IOException, XmlPullParserException, XmlObjectPullParserException
+	{
+		File document = File.createTempFile("document", ".xml");
+		File indexFile = File.createTempFile("document", ".idx");
+		try
+		{
+			FileOutputStream out = new FileOutputStream(document);
+			out.write(DOCUMENT.getBytes("UTF-8"));
+			out.close();
+
+			XmlIndex index = XmlIndex.build(document, Charset.forName("UTF-8"), indexFile, getParser(), keyContext, recordKey, new XmlPath(archiveKey,
+				recordsKey));
+			assertEquals(4, index.size());
+			assertEquals(3, index.getDepth());
+			assertEquals(DOCUMENT.substring(0, DOCUMENT.indexOf("<record id=\"r1\"")).getBytes("UTF-8").length, index.getOffset("r1"));
+			assertEquals(-1, index.getOffset("r5"));
+
+			// open the index again and pull some records
+			index = new XmlIndex(document, indexFile);
+			XmlPath path = new XmlPath(archive, records);
+			assertEquals("f\u00fcnf \u20ac", index.pull("r1", getParser(), recordContext, record, path));
+			assertEquals("\ud83d\ude00 zwei", index.pull("r2", getParser(), recordContext, record, path));
+			assertEquals("<drei>", index.pull("r3", getParser(), recordContext, record, path));
+			assertEquals("vier", index.pull("r4", getParser(), recordContext, record, path));
+			assertNull(index.pull("r5", getParser(), recordContext, record, path));
+		}
+		finally
+		{
+			document.delete();
+			indexFile.delete();
+		}
+	}
+
+
+	@Test(expected = IOException.class)
+	public void testChangedDocument() throws IOException, XmlPullParserException, XmlObjectPullParserException
+	{
+		File document = File.createTempFile("document", ".xml");
+		File indexFile = File.createTempFile("document", ".idx");
+		try
+		{
+			FileOutputStream out = new FileOutputStream(document);
+			out.write(DOCUMENT.getBytes("UTF-8"));
+			out.close();
+
+			XmlIndex.build(document, Charset.forName("UTF-8"), indexFile, getParser(), keyContext, recordKey, new XmlPath(archiveKey, recordsKey));
+
+			// insert an element in front of the indexed elements
+			out = new FileOutputStream(document);
+			out.write(DOCUMENT.replace("<record id=\"r1\">", "<record id=\"r0\"/><record id=\"r1\">").getBytes("UTF-8"));
+			out.close();
+
+			new XmlIndex(document, indexFile);
+		}
+		finally
+		{
+			document.delete();
+			indexFile.delete();
+		}
+	}
+
+
+	private XmlPullParser getParser() throws XmlPullParserException
+	{
+		XmlPullParserFactory ppfactory = XmlPullParserFactory.newInstance();
+		ppfactory.setNamespaceAware(true);
+		return ppfactory.newPullParser();
+	}
+}